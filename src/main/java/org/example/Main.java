@@ -2,8 +2,11 @@
 package org.example;
 
 import org.example.server.MRPServer;
-import java.net.InetSocketAddress;
-import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -21,6 +24,8 @@ public class Main {
             // Server erstellen und starten
             MRPServer server = new MRPServer(PORT);
             server.start();
+            // Bei SIGTERM/Ctrl+C laufende Requests noch fertig bearbeiten statt sie abzubrechen
+            Runtime.getRuntime().addShutdownHook(new Thread(server::stop, "mrp-shutdown"));
 
             // Warten bis Server bereit ist
             // Wichtig bei docker-compose: DB braucht oft länger zum Starten
@@ -40,17 +45,26 @@ public class Main {
         }
     }
 
-    // Prüft ob der Server-Port erreichbar ist
-    // Versucht alle 500ms eine Socket-Verbindung aufzubauen
+    // Prüft ob der Server bereit ist (DB erreichbar, Caches aufgewärmt)
+    // Fragt alle 500ms /health/ready ab, ein offener Port allein reicht nicht
     // Gibt true zurück wenn erfolgreich, false nach Timeout
     private static boolean waitForServerReady(int port, int timeoutSeconds) {
         long deadline = System.currentTimeMillis() + timeoutSeconds * 1000L;
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/health/ready"))
+                .timeout(Duration.ofSeconds(1))
+                .GET()
+                .build();
         while (System.currentTimeMillis() < deadline) {
-            try (Socket socket = new Socket()) {
-                // Versuche Verbindung zum Server aufzubauen
-                socket.connect(new InetSocketAddress("localhost", port), 1000);
-                System.out.println("Server is ready on port " + port);
-                return true;
+            try {
+                HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() == 200) {
+                    System.out.println("Server is ready on port " + port);
+                    return true;
+                }
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                return false;
             } catch (Exception e) {
                 // Server noch nicht bereit, weiter versuchen
             }
@@ -0,0 +1,299 @@
+package org.example.analytics;
+
+import org.example.model.Rating;
+import org.example.repository.MediaListener;
+import org.example.repository.RatingListener;
+import org.example.repository.RatingRepository;
+import org.example.repository.RatingSource;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Arrays;
+
+/**
+ * Spaltenorientierter In-Memory-Speicher aller Ratings für Auswertungen.
+ * <p>
+ * Pro Rating eine Zeile in parallelen int-Spalten (User, Media, Sterne, Zeitstempel als Sekunden seit 2020),
+ * also 16 Byte statt eines Rating-Objekts mit geboxten Feldern. Der sortierte Teil ist nach Media geordnet:
+ * der CSR-Index {@code mediaOffsets} zeigt auf zusammenhängende Bereiche, Aggregate pro Media sind damit
+ * einfache Schleifen über Array-Abschnitte. Der CSR-Index nach User verweist auf Zeilennummern.
+ * <p>
+ * Schreibzugriffe kommen als {@link RatingListener}-Events: neue Ratings werden hinten angehängt (Tail, nicht
+ * indiziert, wird linear durchsucht), Updates ändern die Sterne an Ort und Stelle, Löschungen setzen die Sterne
+ * auf 0 (Tombstone). Wird der Tail zu groß, werden alle lebenden Zeilen per Counting Sort neu sortiert und
+ * beide Indizes neu aufgebaut.
+ */
+public class RatingColumnStore implements RatingListener, MediaListener, RatingSource {
+    public static final int MAX_STARS = 5;
+    // Gepackter Zeitstempel: Sekunden seit 2020-01-01 UTC als int (deckt 1952 bis 2088 ab)
+    private static final long TIME_BASE_SECONDS = 1_577_836_800L;
+    // Neu sortieren, sobald der Tail größer ist als max(MIN_TAIL, sortierte Zeilen / TAIL_DIVISOR)
+    private static final int MIN_TAIL = 4096;
+    private static final int TAIL_DIVISOR = 32;
+
+    /**
+     * Kennzahlen für /metrics; histogram[s] = Anzahl Ratings mit s Sternen (Index 0 bleibt leer).
+     */
+    public record Stats(int ratings, int sortedRows, int tailRows, int deletedRows, double averageStars,
+                        int[] histogram, long bytes) {
+    }
+
+    // Spalten: Zeile i = (userIds[i], mediaIds[i], stars[i], times[i]); stars 0 = gelöscht
+    private int[] userIds = new int[16];
+    private int[] mediaIds = new int[16];
+    private int[] stars = new int[16];
+    private int[] times = new int[16];
+    private int rows;
+    // Zeilen [0, sortedRows) sind nach Media sortiert und in beiden Indizes enthalten
+    private int sortedRows;
+    private int deletedRows;
+
+    // Zeilen von Media m: [mediaOffsets[m], mediaOffsets[m + 1])
+    private int[] mediaOffsets = {0};
+    // Zeilennummern von User u: userRows[userOffsets[u] .. userOffsets[u + 1])
+    private int[] userOffsets = {0};
+    private int[] userRows = new int[0];
+
+    // Initiales Befüllen beim Start (vor dem ersten Request, daher ohne Puffer für parallele Events)
+    public synchronized void load(RatingSource ratingSource) throws SQLException {
+        ratingSource.forEachRating(this::append);
+        compact();
+    }
+
+    /**
+     * Alle lebenden Ratings als primitive Werte (Zeitstempel auf Sekunden genau). Damit lassen sich weitere
+     * In-Memory-Indizes ohne eigenen Tabellen-Scan aufbauen. Der Handler läuft unter dem Monitor des Speichers.
+     */
+    @Override
+    public synchronized void forEachRating(RatingRepository.RatingRowHandler handler) {
+        for (int row = 0; row < rows; row++) {
+            if (stars[row] != 0) {
+                handler.accept(userIds[row], mediaIds[row], stars[row], toMillis(times[row]));
+            }
+        }
+    }
+
+    // Durchschnitt der Sterne eines Media, NaN ohne Ratings
+    public synchronized double averageStars(int mediaId) {
+        long sum = 0;
+        int count = 0;
+        if (mediaId >= 0 && mediaId < mediaOffsets.length - 1) {
+            for (int row = mediaOffsets[mediaId]; row < mediaOffsets[mediaId + 1]; row++) {
+                int s = stars[row];
+                sum += s;
+                count += live(s);
+            }
+        }
+        for (int row = sortedRows; row < rows; row++) {
+            int s = mediaIds[row] == mediaId ? stars[row] : 0;
+            sum += s;
+            count += live(s);
+        }
+        return count == 0 ? Double.NaN : (double) sum / count;
+    }
+
+    // Sterne-Verteilung eines Media: histogram[s] = Anzahl Ratings mit s Sternen
+    public synchronized int[] histogram(int mediaId) {
+        int[] histogram = new int[MAX_STARS + 1];
+        if (mediaId >= 0 && mediaId < mediaOffsets.length - 1) {
+            for (int row = mediaOffsets[mediaId]; row < mediaOffsets[mediaId + 1]; row++) {
+                histogram[stars[row]]++;
+            }
+        }
+        for (int row = sortedRows; row < rows; row++) {
+            if (mediaIds[row] == mediaId) {
+                histogram[stars[row]]++;
+            }
+        }
+        histogram[0] = 0;
+        return histogram;
+    }
+
+    public synchronized Stats stats() {
+        int[] histogram = new int[MAX_STARS + 1];
+        long sum = 0;
+        for (int row = 0; row < rows; row++) {
+            sum += stars[row];
+            histogram[stars[row]]++;
+        }
+        histogram[0] = 0;
+        int live = rows - deletedRows;
+        long bytes = 4L * (userIds.length + mediaIds.length + stars.length + times.length
+                + mediaOffsets.length + userOffsets.length + userRows.length);
+        return new Stats(live, sortedRows, rows - sortedRows, deletedRows,
+                live == 0 ? 0.0 : (double) sum / live, histogram, bytes);
+    }
+
+    @Override
+    public void onRatingSaved(Rating rating) {
+        applyRatingEvent(rating.getUserId(), rating.getMediaId(), rating.getStars(), rating);
+    }
+
+    @Override
+    public void onRatingUpdated(Rating rating, int previousStars) {
+        applyRatingEvent(rating.getUserId(), rating.getMediaId(), rating.getStars(), rating);
+    }
+
+    @Override
+    public void onRatingDeleted(Rating rating) {
+        applyRatingEvent(rating.getUserId(), rating.getMediaId(), 0, rating);
+    }
+
+    // Restliche Zeilen eines gelöschten Media als Tombstone markieren: sein sortierter Abschnitt plus der Tail.
+    // Sonst liefert forEachRating (Quelle für Rebuilds der Indizes) die Ratings weiter aus
+    @Override
+    public synchronized void onMediaDeleted(int mediaId) {
+        if (mediaId >= 0 && mediaId < mediaOffsets.length - 1) {
+            tombstone(mediaOffsets[mediaId], mediaOffsets[mediaId + 1], mediaId);
+        }
+        tombstone(sortedRows, rows, mediaId);
+    }
+
+    private void tombstone(int from, int to, int mediaId) {
+        for (int row = from; row < to; row++) {
+            if (mediaIds[row] == mediaId && stars[row] != 0) {
+                stars[row] = 0;
+                deletedRows++;
+            }
+        }
+    }
+
+    private synchronized void applyRatingEvent(Integer userId, Integer mediaId, Integer newStars, Rating rating) {
+        if (userId == null || mediaId == null || newStars == null) {
+            return;
+        }
+        int row = findRow(userId, mediaId);
+        if (newStars == 0) {
+            if (row >= 0) {
+                stars[row] = 0;
+                deletedRows++;
+            }
+        } else if (row >= 0) {
+            stars[row] = newStars;
+        } else {
+            long timestamp = rating.getTimestamp() != null
+                    ? Timestamp.valueOf(rating.getTimestamp()).getTime() : System.currentTimeMillis();
+            append(userId, mediaId, newStars, timestamp);
+            if (rows - sortedRows > Math.max(MIN_TAIL, sortedRows / TAIL_DIVISOR)) {
+                compact();
+            }
+        }
+    }
+
+    // Muss unter dem Monitor laufen, sortiert nicht neu
+    // Ungültige Zeilen (negative IDs, Sterne außerhalb 1..5) werden ignoriert
+    private void append(int userId, int mediaId, int starCount, long timestampMillis) {
+        if (userId < 0 || mediaId < 0 || starCount < 1 || starCount > MAX_STARS) {
+            return;
+        }
+        if (rows == stars.length) {
+            int capacity = rows * 2;
+            userIds = Arrays.copyOf(userIds, capacity);
+            mediaIds = Arrays.copyOf(mediaIds, capacity);
+            stars = Arrays.copyOf(stars, capacity);
+            times = Arrays.copyOf(times, capacity);
+        }
+        userIds[rows] = userId;
+        mediaIds[rows] = mediaId;
+        stars[rows] = starCount;
+        times[rows] = toPacked(timestampMillis);
+        rows++;
+    }
+
+    // Lebende Zeile zu (User, Media): erst über den User-Index, dann im Tail; -1 wenn nicht vorhanden
+    private int findRow(int userId, int mediaId) {
+        if (userId >= 0 && userId < userOffsets.length - 1) {
+            for (int k = userOffsets[userId]; k < userOffsets[userId + 1]; k++) {
+                int row = userRows[k];
+                if (mediaIds[row] == mediaId && stars[row] != 0) {
+                    return row;
+                }
+            }
+        }
+        for (int row = sortedRows; row < rows; row++) {
+            if (userIds[row] == userId && mediaIds[row] == mediaId && stars[row] != 0) {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    // Sortiert alle lebenden Zeilen per Counting Sort nach Media (Tombstones fallen weg) und baut beide Indizes neu
+    private void compact() {
+        int live = 0;
+        int maxMedia = -1;
+        int maxUser = -1;
+        for (int row = 0; row < rows; row++) {
+            if (stars[row] != 0) {
+                live++;
+                maxMedia = Math.max(maxMedia, mediaIds[row]);
+                maxUser = Math.max(maxUser, userIds[row]);
+            }
+        }
+
+        int[] offsets = new int[maxMedia + 2];
+        for (int row = 0; row < rows; row++) {
+            if (stars[row] != 0) {
+                offsets[mediaIds[row] + 1]++;
+            }
+        }
+        for (int m = 0; m <= maxMedia; m++) {
+            offsets[m + 1] += offsets[m];
+        }
+
+        // Platz für den nächsten Tail, damit nicht gleich wieder kopiert werden muss
+        int capacity = Math.max(16, live + Math.max(MIN_TAIL, live / TAIL_DIVISOR) + 1);
+        int[] nextUsers = new int[capacity];
+        int[] nextMedia = new int[capacity];
+        int[] nextStars = new int[capacity];
+        int[] nextTimes = new int[capacity];
+        int[] cursor = Arrays.copyOf(offsets, maxMedia + 1);
+        for (int row = 0; row < rows; row++) {
+            if (stars[row] != 0) {
+                int target = cursor[mediaIds[row]]++;
+                nextUsers[target] = userIds[row];
+                nextMedia[target] = mediaIds[row];
+                nextStars[target] = stars[row];
+                nextTimes[target] = times[row];
+            }
+        }
+
+        int[] byUserOffsets = new int[maxUser + 2];
+        for (int row = 0; row < live; row++) {
+            byUserOffsets[nextUsers[row] + 1]++;
+        }
+        for (int u = 0; u <= maxUser; u++) {
+            byUserOffsets[u + 1] += byUserOffsets[u];
+        }
+        int[] byUserRows = new int[live];
+        int[] userCursor = Arrays.copyOf(byUserOffsets, maxUser + 1);
+        for (int row = 0; row < live; row++) {
+            byUserRows[userCursor[nextUsers[row]]++] = row;
+        }
+
+        userIds = nextUsers;
+        mediaIds = nextMedia;
+        stars = nextStars;
+        times = nextTimes;
+        rows = live;
+        sortedRows = live;
+        deletedRows = 0;
+        mediaOffsets = offsets;
+        userOffsets = byUserOffsets;
+        userRows = byUserRows;
+    }
+
+    // 1 für lebende Zeilen (Sterne 1..5), 0 für Tombstones - ohne Sprung, damit der JIT die Schleife vektorisieren kann
+    private static int live(int starCount) {
+        return (starCount + 7) >>> 3;
+    }
+
+    private static int toPacked(long timestampMillis) {
+        long seconds = Math.floorDiv(timestampMillis, 1000L) - TIME_BASE_SECONDS;
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, seconds));
+    }
+
+    private static long toMillis(int packed) {
+        return (TIME_BASE_SECONDS + packed) * 1000L;
+    }
+}
@@ -0,0 +1,137 @@
+package org.example.auth;
+
+import org.example.cache.BloomFilter;
+import org.example.cache.NegativeCache;
+import org.example.model.User;
+import org.example.repository.UserRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.LongSupplier;
+
+/**
+ * Bisheriges Verfahren: Token im Format "username-mrpToken-UUID", gespeichert in users.token mit Ablaufzeit.
+ * Pro User ist genau ein Token gültig, jeder Login ersetzt das vorherige.
+ * <p>
+ * Geprüfte Tokens liegen in einer {@link SessionTable}, wiederholte Requests brauchen so keinen DB-Lookup.
+ * Ein Eintrag lebt höchstens {@link #SESSION_CACHE_TTL} lang: so sieht auch ein anderer Knoten einen Logout
+ * oder neuen Login spätestens nach dieser Zeit.
+ * <p>
+ * Unbekannte Tokens (Scraper, kaputte Clients) beantwortet ein {@link NegativeCache} ohne DB-Lookup; jedes neu
+ * ausgestellte Token wird dort sofort gemeldet. Der Cache kennt nur {@link #tokenHash Hashes}, so wie auch die
+ * Invalidierungs-Nachrichten anderer Knoten - Klartext-Tokens verlassen die users-Tabelle nur zum Client.
+ */
+public class DatabaseTokenStrategy implements TokenStrategy {
+    public static final Duration DEFAULT_LIFETIME = Duration.ofHours(24);
+    public static final Duration SESSION_CACHE_TTL = Duration.ofMinutes(5);
+    public static final int MAX_UNKNOWN_TOKENS = 10_000;
+    public static final Duration UNKNOWN_TOKEN_TTL = Duration.ofSeconds(30);
+
+    private final UserRepository userRepository;
+    private final SessionTable sessions;
+    private final long lifetimeMillis;
+    private final LongSupplier clock;
+    private final NegativeCache<String> unknownTokens;
+
+    public DatabaseTokenStrategy(UserRepository userRepository) {
+        this(userRepository, new SessionTable(System::currentTimeMillis), DEFAULT_LIFETIME, System::currentTimeMillis);
+    }
+
+    public DatabaseTokenStrategy(UserRepository userRepository, SessionTable sessions, Duration lifetime,
+                                 LongSupplier clock) {
+        this(userRepository, sessions, lifetime, clock, newUnknownTokenCache(clock));
+    }
+
+    public DatabaseTokenStrategy(UserRepository userRepository, SessionTable sessions, Duration lifetime,
+                                 LongSupplier clock, NegativeCache<String> unknownTokens) {
+        this.userRepository = userRepository;
+        this.sessions = sessions;
+        this.lifetimeMillis = lifetime.toMillis();
+        this.clock = clock;
+        this.unknownTokens = unknownTokens;
+    }
+
+    // Ohne geladenen Filter zählen nur bestätigte Fehlschläge; den Filter lädt MRPServer per rebuild()
+    // Schlüssel sind Token-Hashes ({@link #tokenHash}), nicht die Tokens selbst
+    public static NegativeCache<String> newUnknownTokenCache(LongSupplier clock) {
+        return new NegativeCache<>(BloomFilter::hash, MAX_UNKNOWN_TOKENS, UNKNOWN_TOKEN_TTL.toMillis(), clock);
+    }
+
+    // SHA-256 des Tokens als Hex - identisch mit encode(sha256(convert_to(token, 'UTF8')), 'hex') in PostgreSQL
+    public static String tokenHash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 muss jede JVM mitbringen
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    @Override
+    public String issue(User user) throws SQLException {
+        // Beispiel: "berdan-mrpToken-c2182eeb-418b-4fec-b637-ea235775b0cb"
+        String token = user.getUsername() + "-mrpToken-" + UUID.randomUUID();
+        LocalDateTime expiresAt = new Timestamp(clock.getAsLong() + lifetimeMillis).toLocalDateTime();
+        // Compare-and-Set auf den geprüften Passwort-Hash: wurde das Passwort seit der Prüfung geändert, kein Token
+        if (!userRepository.issueToken(user.getId(), user.getPassword(), token, expiresAt)) {
+            throw new IllegalArgumentException("Invalid username or password");
+        }
+        unknownTokens.added(tokenHash(token));
+
+        // Das alte Token ist in der DB überschrieben, also auch hier nicht mehr gültig
+        if (user.getToken() != null) {
+            sessions.remove(user.getToken());
+        }
+        user.setToken(token);
+        user.setTokenExpiresAt(expiresAt);
+        cache(token, user);
+        return token;
+    }
+
+    @Override
+    public Optional<User> validate(String token) throws SQLException {
+        User cached = sessions.get(token);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        String hash = tokenHash(token);
+        if (unknownTokens.isKnownMissing(hash)) {
+            return Optional.empty();
+        }
+        long generation = unknownTokens.generation();
+        Optional<User> user = userRepository.findByToken(token);
+        if (user.isPresent()) {
+            cache(token, user.get());
+        } else {
+            unknownTokens.recordMiss(hash, generation);
+        }
+        return user;
+    }
+
+    @Override
+    public void revoke(User user) throws SQLException {
+        userRepository.clearToken(user.getId());
+        if (user.getToken() != null) {
+            sessions.remove(user.getToken());
+        }
+    }
+
+    // Cache-Eintrag läuft mit dem Token ab, spätestens aber nach SESSION_CACHE_TTL
+    private void cache(String token, User user) {
+        long ttl = SESSION_CACHE_TTL.toMillis();
+        if (user.getTokenExpiresAt() != null) {
+            long remaining = Timestamp.valueOf(user.getTokenExpiresAt()).getTime() - clock.getAsLong();
+            ttl = Math.min(ttl, remaining);
+        }
+        sessions.put(token, user, ttl);
+    }
+}
@@ -0,0 +1,110 @@
+package org.example.auth;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Passwort-Hashing mit PBKDF2-HMAC-SHA256 (in jeder JRE enthalten, keine Zusatz-Bibliothek nötig).
+ * <p>
+ * Format: {@code pbkdf2-sha256$<iterationen>$<salt>$<hash>} (Base64). Die Iterationen stehen im Hash selbst,
+ * damit {@link #needsRehash} erkennt, wenn die aktuellen Kosten höher sind als beim Speichern. Passwörter
+ * ohne Präfix stammen noch aus der Zeit der Klartext-Speicherung und werden beim nächsten Login ersetzt.
+ * <p>
+ * Bewusst teuer (CPU-gebunden) - Aufrufe gehören in den {@link PasswordHashingPool}, nicht in Request-Threads.
+ */
+public class PasswordHasher {
+    public static final int DEFAULT_ITERATIONS = 210_000;
+
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final String PREFIX = "pbkdf2-sha256$";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+
+    private final int iterations;
+    private final SecureRandom random = new SecureRandom();
+    // Fester Hash mit den aktuellen Kosten, passt zu keinem Passwort (Salt und Hash nur Nullen)
+    private final String dummyHash;
+
+    public PasswordHasher() {
+        this(DEFAULT_ITERATIONS);
+    }
+
+    public PasswordHasher(int iterations) {
+        if (iterations < 1) {
+            throw new IllegalArgumentException("Iterations must be positive");
+        }
+        this.iterations = iterations;
+        Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+        this.dummyHash = PREFIX + iterations + "$" + encoder.encodeToString(new byte[SALT_BYTES]) + "$"
+                + encoder.encodeToString(new byte[HASH_BITS / 8]);
+    }
+
+    /**
+     * Hash für Logins mit unbekanntem Username: {@link #verify} dagegen kostet genauso viel wie gegen einen
+     * echten Hash, so verrät die Antwortzeit nicht, ob es den User gibt.
+     */
+    public String dummyHash() {
+        return dummyHash;
+    }
+
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        byte[] hash = pbkdf2(password, salt, iterations);
+        Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+        return PREFIX + iterations + "$" + encoder.encodeToString(salt) + "$" + encoder.encodeToString(hash);
+    }
+
+    // Prüft ein Passwort gegen den gespeicherten Wert (Hash oder alter Klartext), Vergleich in konstanter Zeit
+    public boolean verify(String password, String stored) {
+        if (password == null || stored == null) {
+            return false;
+        }
+        if (!stored.startsWith(PREFIX)) {
+            return MessageDigest.isEqual(password.getBytes(StandardCharsets.UTF_8), stored.getBytes(StandardCharsets.UTF_8));
+        }
+        String[] parts = stored.substring(PREFIX.length()).split("\\$");
+        if (parts.length != 3) {
+            return false;
+        }
+        try {
+            int storedIterations = Integer.parseInt(parts[0]);
+            byte[] salt = Base64.getDecoder().decode(parts[1]);
+            byte[] expected = Base64.getDecoder().decode(parts[2]);
+            return MessageDigest.isEqual(expected, pbkdf2(password, salt, storedIterations));
+        } catch (IllegalArgumentException e) {
+            // Kaputter Eintrag (keine Zahl / kein Base64)
+            return false;
+        }
+    }
+
+    // true für Klartext-Passwörter und Hashes mit weniger Iterationen als aktuell konfiguriert
+    public boolean needsRehash(String stored) {
+        if (stored == null || !stored.startsWith(PREFIX)) {
+            return true;
+        }
+        int end = stored.indexOf('$', PREFIX.length());
+        try {
+            return end < 0 || Integer.parseInt(stored.substring(PREFIX.length(), end)) < iterations;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    private static byte[] pbkdf2(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            // PBKDF2WithHmacSHA256 ist in jeder JRE vorhanden
+            throw new IllegalStateException("PBKDF2 not available", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
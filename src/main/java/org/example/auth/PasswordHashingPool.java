@@ -0,0 +1,115 @@
+package org.example.auth;
+
+import org.example.exception.ServiceUnavailableException;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Eigener, fest dimensionierter Thread-Pool für Passwort-Hashing und -Prüfung.
+ * <p>
+ * Hashing ist absichtlich teuer. Liefe es in den Request-Threads, könnte eine Login-Welle alle Threads belegen
+ * und auch Media-Requests ausbremsen. Hier ist die CPU-Arbeit auf wenige Threads begrenzt; die Warteschlange ist
+ * beschränkt, ist sie voll, wird sofort mit {@link ServiceUnavailableException} (503) abgelehnt statt zu stauen.
+ */
+public class PasswordHashingPool {
+    public static final int DEFAULT_QUEUE_CAPACITY = 64;
+    // Maximale Wartezeit eines Requests auf sein Ergebnis
+    private static final long WAIT_TIMEOUT_MILLIS = 10_000;
+    private static final int RETRY_AFTER_SECONDS = 1;
+
+    /**
+     * Momentaufnahme der Pool-Kennzahlen.
+     */
+    public record Metrics(int poolSize, int active, int queued, int queueCapacity,
+                          long completed, long rejected, long timedOut,
+                          double avgQueueWaitMillis, double avgHashMillis) {
+    }
+
+    private final ThreadPoolExecutor executor;
+    private final int queueCapacity;
+
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder queueWaitNanos = new LongAdder();
+    private final LongAdder hashNanos = new LongAdder();
+
+    public PasswordHashingPool() {
+        this(Math.max(1, Runtime.getRuntime().availableProcessors() / 2), DEFAULT_QUEUE_CAPACITY);
+    }
+
+    public PasswordHashingPool(int threads, int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "mrp-password-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Führt die Aufgabe im Pool aus und wartet auf das Ergebnis.
+     *
+     * @throws ServiceUnavailableException wenn die Warteschlange voll ist oder das Ergebnis zu lange dauert
+     */
+    public <T> T call(Callable<T> task) {
+        long submittedAt = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                long startedAt = System.nanoTime();
+                queueWaitNanos.add(startedAt - submittedAt);
+                try {
+                    return task.call();
+                } finally {
+                    hashNanos.add(System.nanoTime() - startedAt);
+                    completed.increment();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new ServiceUnavailableException("Authentication is busy, please retry.", RETRY_AFTER_SECONDS);
+        }
+
+        try {
+            return future.get(WAIT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            timedOut.increment();
+            throw new ServiceUnavailableException("Authentication timed out, please retry.", RETRY_AFTER_SECONDS);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Authentication was interrupted.", RETRY_AFTER_SECONDS);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Password hashing failed", cause);
+        }
+    }
+
+    public Metrics metrics() {
+        long done = completed.sum();
+        return new Metrics(executor.getPoolSize(), executor.getActiveCount(), executor.getQueue().size(),
+                queueCapacity, done, rejected.sum(), timedOut.sum(),
+                done > 0 ? queueWaitNanos.sum() / 1e6 / done : 0.0,
+                done > 0 ? hashNanos.sum() / 1e6 / done : 0.0);
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
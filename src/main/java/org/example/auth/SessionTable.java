@@ -0,0 +1,203 @@
+package org.example.auth;
+
+import org.example.model.User;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Sharded In-Memory-Tabelle Token -> User mit Ablaufzeit.
+ * <p>
+ * Jeder Shard hat eine eigene HashMap, ein eigenes {@link TimingWheel} und ein eigenes Lock, parallele Requests
+ * blockieren sich also nur bei gleichem Shard. Der Session-Eintrag ist selbst der Timer-Knoten im Rad - pro
+ * Session gibt es keinen eigenen Scheduler-Task und keine zusätzlichen Objekte. {@link #expire()} wird von
+ * einem einzigen periodischen Job aufgerufen und räumt abgelaufene Sessions ab; {@link #get} prüft die
+ * Ablaufzeit zusätzlich selbst, damit ein verspäteter Tick keine abgelaufene Session zurückgibt.
+ * <p>
+ * Ein Index User-ID -> Tokens erlaubt {@link #removeUser} ohne Durchsuchen aller Shards (wird bei jedem Login
+ * eines anderen Knotens aufgerufen). Der Index wird unter dem Shard-Lock der Session gepflegt.
+ */
+public class SessionTable {
+    public static final long DEFAULT_TICK_MILLIS = 1000;
+    private static final int DEFAULT_SHARDS = 16;
+    // 2048 Slots à 1 s = gut eine halbe Stunde pro Umlauf, längere TTLs laufen über rounds
+    private static final int SLOTS_PER_SHARD = 2048;
+
+    private static final class Session extends TimingWheel.Timer {
+        final String token;
+        final User user;
+        final long expiresAtMillis;
+
+        Session(String token, User user, long expiresAtMillis) {
+            this.token = token;
+            this.user = user;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+
+    private static final class Shard {
+        final Map<String, Session> sessions = new HashMap<>();
+        final TimingWheel<Session> wheel;
+
+        Shard(long tickMillis, long startMillis) {
+            this.wheel = new TimingWheel<>(SLOTS_PER_SHARD, tickMillis, startMillis);
+        }
+    }
+
+    private final Shard[] shards;
+    private final LongSupplier clock;
+    // Tokens pro User; Änderungen pro User atomar über compute, damit removeUser keinen neuen Eintrag verliert
+    private final Map<Integer, Set<String>> tokensByUser = new ConcurrentHashMap<>();
+
+    public SessionTable(LongSupplier clock) {
+        this(DEFAULT_SHARDS, DEFAULT_TICK_MILLIS, clock);
+    }
+
+    public SessionTable(int shardCount, long tickMillis, LongSupplier clock) {
+        this.clock = clock;
+        // Zweierpotenz, damit der Shard per Bitmaske gewählt werden kann
+        this.shards = new Shard[Math.max(1, Integer.highestOneBit(Math.max(0, shardCount - 1)) << 1)];
+        long now = clock.getAsLong();
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new Shard(tickMillis, now);
+        }
+    }
+
+    // Session anlegen bzw. ersetzen, ttlMillis <= 0 legt nichts an
+    public void put(String token, User user, long ttlMillis) {
+        if (ttlMillis <= 0) {
+            return;
+        }
+        long now = clock.getAsLong();
+        Session session = new Session(token, user, now + ttlMillis);
+        Shard shard = shardFor(token);
+        synchronized (shard) {
+            // Rad erst auf jetzt bringen, sonst läge die Deadline um den Rückstand des letzten Ticks zu früh
+            shard.wheel.advance(now, expired -> drop(shard, expired));
+            Session previous = shard.sessions.put(token, session);
+            if (previous != null) {
+                shard.wheel.cancel(previous);
+                unindex(previous);
+            }
+            shard.wheel.schedule(session, ttlMillis);
+            Integer userId = user.getId();
+            if (userId != null) {
+                tokensByUser.compute(userId, (id, tokens) -> {
+                    Set<String> set = tokens != null ? tokens : new HashSet<>();
+                    set.add(token);
+                    return set;
+                });
+            }
+        }
+    }
+
+    // User zur Session, null wenn unbekannt oder abgelaufen
+    public User get(String token) {
+        Shard shard = shardFor(token);
+        synchronized (shard) {
+            Session session = shard.sessions.get(token);
+            if (session == null || session.expiresAtMillis <= clock.getAsLong()) {
+                return null;
+            }
+            return session.user;
+        }
+    }
+
+    public void remove(String token) {
+        Shard shard = shardFor(token);
+        synchronized (shard) {
+            Session session = shard.sessions.remove(token);
+            if (session != null) {
+                shard.wheel.cancel(session);
+                unindex(session);
+            }
+        }
+    }
+
+    // Alle Sessions eines Users entfernen (z.B. Logout auf einem anderen Knoten); nur die Shards seiner Tokens
+    public int removeUser(int userId) {
+        Set<String> tokens = tokensByUser.remove(userId);
+        if (tokens == null) {
+            return 0;
+        }
+        int removed = 0;
+        for (String token : tokens) {
+            Shard shard = shardFor(token);
+            synchronized (shard) {
+                Session session = shard.sessions.get(token);
+                // Token kann inzwischen abgelaufen oder ersetzt sein
+                if (session != null && Objects.equals(session.user.getId(), userId)) {
+                    shard.sessions.remove(token);
+                    shard.wheel.cancel(session);
+                    removed++;
+                }
+            }
+        }
+        return removed;
+    }
+
+    public void clear() {
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                for (Session session : shard.sessions.values()) {
+                    shard.wheel.cancel(session);
+                }
+                shard.sessions.clear();
+            }
+        }
+        tokensByUser.clear();
+    }
+
+    /**
+     * Rückt alle Räder bis jetzt vor und entfernt abgelaufene Sessions (periodisch, z.B. jede Sekunde).
+     *
+     * @return Anzahl entfernter Sessions
+     */
+    public int expire() {
+        long now = clock.getAsLong();
+        int expired = 0;
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                expired += shard.wheel.advance(now, session -> drop(shard, session));
+            }
+        }
+        return expired;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                size += shard.sessions.size();
+            }
+        }
+        return size;
+    }
+
+    // Abgelaufene Session entfernen; unter dem Shard-Lock
+    private void drop(Shard shard, Session session) {
+        shard.sessions.remove(session.token);
+        unindex(session);
+    }
+
+    private void unindex(Session session) {
+        Integer userId = session.user.getId();
+        if (userId != null) {
+            tokensByUser.computeIfPresent(userId, (id, tokens) -> {
+                tokens.remove(session.token);
+                return tokens.isEmpty() ? null : tokens;
+            });
+        }
+    }
+
+    private Shard shardFor(String token) {
+        int hash = token.hashCode();
+        // Obere Bits einmischen, da nur die unteren für den Index verwendet werden
+        return shards[(hash ^ (hash >>> 16)) & (shards.length - 1)];
+    }
+}
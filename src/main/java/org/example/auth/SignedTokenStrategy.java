@@ -0,0 +1,124 @@
+package org.example.auth;
+
+import org.example.model.User;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.function.LongSupplier;
+
+/**
+ * Zustandslose Session-Tokens: {@code v1.<payload>.<signatur>} (beides Base64-URL).
+ * <p>
+ * Payload = User-ID, Ausstellungs- und Ablaufzeit (Millisekunden) und Username, Signatur = HMAC-SHA256
+ * über den kodierten Payload. Die Prüfung braucht nur den Schlüssel und die {@link TokenDenyList} -
+ * kein DB-Zugriff, daher können mehrere Knoten mit demselben Schlüssel Tokens gegenseitig prüfen.
+ * <p>
+ * Der zurückgegebene User enthält nur ID und Username; weitere Profildaten müssen bei Bedarf geladen werden.
+ */
+public class SignedTokenStrategy implements TokenStrategy {
+    public static final Duration DEFAULT_LIFETIME = Duration.ofHours(24);
+    public static final int MIN_KEY_BYTES = 32;
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final String PREFIX = "v1.";
+    // int userId + long issuedAt + long expiresAt
+    private static final int FIXED_PAYLOAD_BYTES = 4 + 8 + 8;
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final SecretKeySpec key;
+    private final long lifetimeMillis;
+    private final TokenDenyList denyList;
+    private final LongSupplier clock;
+    // Mac ist nicht thread-safe, eine Instanz pro Thread spart das teure Mac.getInstance pro Request
+    private final ThreadLocal<Mac> macs;
+
+    public SignedTokenStrategy(byte[] secret, Duration lifetime, TokenDenyList denyList, LongSupplier clock) {
+        if (secret.length < MIN_KEY_BYTES) {
+            throw new IllegalArgumentException("Token secret must be at least " + MIN_KEY_BYTES + " bytes");
+        }
+        this.key = new SecretKeySpec(secret.clone(), ALGORITHM);
+        this.lifetimeMillis = lifetime.toMillis();
+        this.denyList = denyList;
+        this.clock = clock;
+        this.macs = ThreadLocal.withInitial(this::newMac);
+    }
+
+    @Override
+    public String issue(User user) {
+        long now = clock.getAsLong();
+        byte[] username = user.getUsername().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer payload = ByteBuffer.allocate(FIXED_PAYLOAD_BYTES + username.length)
+                .putInt(user.getId())
+                .putLong(now)
+                .putLong(now + lifetimeMillis)
+                .put(username);
+        String encodedPayload = ENCODER.encodeToString(payload.array());
+        return PREFIX + encodedPayload + "." + ENCODER.encodeToString(sign(encodedPayload));
+    }
+
+    @Override
+    public Optional<User> validate(String token) {
+        if (!token.startsWith(PREFIX)) {
+            return Optional.empty();
+        }
+        int separator = token.lastIndexOf('.');
+        if (separator <= PREFIX.length()) {
+            return Optional.empty();
+        }
+        String encodedPayload = token.substring(PREFIX.length(), separator);
+        try {
+            byte[] signature = DECODER.decode(token.substring(separator + 1));
+            // Konstante Laufzeit beim Vergleich, damit die Signatur nicht byteweise erraten werden kann
+            if (!MessageDigest.isEqual(signature, sign(encodedPayload))) {
+                return Optional.empty();
+            }
+
+            ByteBuffer payload = ByteBuffer.wrap(DECODER.decode(encodedPayload));
+            if (payload.remaining() < FIXED_PAYLOAD_BYTES) {
+                return Optional.empty();
+            }
+            int userId = payload.getInt();
+            long issuedAt = payload.getLong();
+            long expiresAt = payload.getLong();
+            if (clock.getAsLong() >= expiresAt || denyList.isRevoked(userId, issuedAt)) {
+                return Optional.empty();
+            }
+            byte[] username = new byte[payload.remaining()];
+            payload.get(username);
+            return Optional.of(new User(userId, new String(username, StandardCharsets.UTF_8), null));
+        } catch (IllegalArgumentException e) {
+            // Kein gültiges Base64
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public void revoke(User user) throws SQLException {
+        denyList.revokeAll(user.getId());
+    }
+
+    private byte[] sign(String encodedPayload) {
+        return macs.get().doFinal(encodedPayload.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            // HmacSHA256 ist in jeder JRE vorhanden
+            throw new IllegalStateException("HMAC not available", e);
+        }
+    }
+}
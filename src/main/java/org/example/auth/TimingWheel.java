@@ -0,0 +1,128 @@
+package org.example.auth;
+
+import java.util.function.Consumer;
+
+/**
+ * Hashed Timing Wheel für viele gleichartige Timeouts (z.B. Session-Ablauf).
+ * <p>
+ * Das Rad hat 2^n Slots zu je {@code tickMillis}. Ein Timer landet im Slot seiner Deadline und trägt die
+ * Anzahl noch zu überspringender Umläufe ({@code rounds}). Einfügen und Abbrechen sind O(1), weil der Timer
+ * selbst der Knoten der doppelt verketteten Slot-Liste ist (keine zusätzliche Allokation pro Eintrag).
+ * {@link #advance} besucht pro vergangenem Tick genau einen Slot.
+ * <p>
+ * Nicht thread-safe - der Aufrufer synchronisiert (z.B. ein Lock pro Shard der {@link SessionTable}).
+ *
+ * @param <T> konkreter Timer-Typ, der die Nutzdaten trägt
+ */
+public final class TimingWheel<T extends TimingWheel.Timer> {
+
+    /**
+     * Basisklasse für Einträge im Rad; Unterklassen tragen die eigentlichen Daten.
+     */
+    public abstract static class Timer {
+        private Timer prev;
+        private Timer next;
+        private long rounds;
+        private int slot = -1;
+
+        public boolean isScheduled() {
+            return slot >= 0;
+        }
+    }
+
+    private final Timer[] heads;
+    private final int mask;
+    private final long tickMillis;
+    private long currentTick;
+    private int size;
+
+    /**
+     * @param slotCount  Anzahl Slots, wird auf die nächste Zweierpotenz aufgerundet
+     * @param tickMillis Auflösung; Timeouts laufen frühestens zur Deadline, spätestens einen Tick danach ab
+     * @param startMillis aktuelle Zeit als Startpunkt
+     */
+    public TimingWheel(int slotCount, long tickMillis, long startMillis) {
+        if (slotCount <= 0 || tickMillis <= 0) {
+            throw new IllegalArgumentException("Slot count and tick must be positive");
+        }
+        int slots = Integer.highestOneBit(slotCount - 1) << 1;
+        this.heads = new Timer[Math.max(slots, 1)];
+        this.mask = heads.length - 1;
+        this.tickMillis = tickMillis;
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    // Timer in delayMillis ablaufen lassen; ein bereits geplanter Timer wird vorher entfernt
+    public void schedule(T timer, long delayMillis) {
+        if (timer.isScheduled()) {
+            cancel(timer);
+        }
+        long ticks = Math.max(1, (delayMillis + tickMillis - 1) / tickMillis);
+        int slot = (int) ((currentTick + ticks) & mask);
+        Timer node = timer;
+        node.rounds = (ticks - 1) / heads.length;
+        node.slot = slot;
+        node.prev = null;
+        node.next = heads[slot];
+        if (heads[slot] != null) {
+            heads[slot].prev = node;
+        }
+        heads[slot] = node;
+        size++;
+    }
+
+    // Timer aus seinem Slot aushängen, false wenn er nicht (mehr) geplant war
+    public boolean cancel(T timer) {
+        if (!timer.isScheduled()) {
+            return false;
+        }
+        unlink(timer);
+        return true;
+    }
+
+    /**
+     * Rückt das Rad bis nowMillis vor und übergibt alle fälligen Timer an onExpire.
+     *
+     * @return Anzahl abgelaufener Timer
+     */
+    @SuppressWarnings("unchecked")
+    public int advance(long nowMillis, Consumer<? super T> onExpire) {
+        long targetTick = nowMillis / tickMillis;
+        int expired = 0;
+        while (currentTick < targetTick) {
+            currentTick++;
+            Timer timer = heads[(int) (currentTick & mask)];
+            while (timer != null) {
+                Timer next = timer.next;
+                if (timer.rounds == 0) {
+                    unlink(timer);
+                    onExpire.accept((T) timer);
+                    expired++;
+                } else {
+                    timer.rounds--;
+                }
+                timer = next;
+            }
+        }
+        return expired;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void unlink(Timer timer) {
+        if (timer.prev != null) {
+            timer.prev.next = timer.next;
+        } else {
+            heads[timer.slot] = timer.next;
+        }
+        if (timer.next != null) {
+            timer.next.prev = timer.prev;
+        }
+        timer.prev = null;
+        timer.next = null;
+        timer.slot = -1;
+        size--;
+    }
+}
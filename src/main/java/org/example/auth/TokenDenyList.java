@@ -0,0 +1,71 @@
+package org.example.auth;
+
+import org.example.repository.TokenRevocationRepository;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Kleine In-Memory-Kopie der Tabelle token_revocations für signierte Tokens.
+ * <p>
+ * Die Prüfung ist ein Lookup in einer unveränderlichen Map (volatile, Copy-on-Write). Eigene Widerrufe gelten sofort,
+ * Widerrufe anderer Knoten nach dem nächsten {@link #refresh()}. Einträge, die älter als die Token-Lebensdauer sind,
+ * betreffen nur noch abgelaufene Tokens und werden beim Refresh verworfen - die Liste bleibt so klein.
+ */
+public class TokenDenyList {
+    private final TokenRevocationRepository repository;
+    private final long retentionMillis;
+    private final LongSupplier clock;
+
+    // userId -> Tokens mit issuedAt < Wert sind widerrufen
+    private volatile Map<Integer, Long> revokedBefore = Map.of();
+
+    public TokenDenyList(TokenRevocationRepository repository, long retentionMillis, LongSupplier clock) {
+        this.repository = repository;
+        this.retentionMillis = retentionMillis;
+        this.clock = clock;
+    }
+
+    public boolean isRevoked(int userId, long issuedAtMillis) {
+        Long cutoff = revokedBefore.get(userId);
+        return cutoff != null && issuedAtMillis < cutoff;
+    }
+
+    // Alle bis jetzt ausgestellten Tokens des Users widerrufen
+    public void revokeAll(int userId) throws SQLException {
+        long now = clock.getAsLong();
+        repository.revokeBefore(userId, now);
+        merge(Map.of(userId, now), now);
+    }
+
+    // Stand aus der DB übernehmen (periodisch vom Scheduler aufgerufen)
+    public void refresh() throws SQLException {
+        long now = clock.getAsLong();
+        long horizon = now - retentionMillis;
+        repository.deleteRevokedBefore(horizon);
+        Map<Integer, Long> loaded = repository.findRevokedSince(horizon);
+        merge(loaded, now);
+    }
+
+    public int size() {
+        return revokedBefore.size();
+    }
+
+    // Neue Map bauen: pro User der spätere Zeitpunkt gewinnt, abgelaufene Einträge fallen heraus.
+    // Lokale Widerrufe, die während einer laufenden DB-Abfrage dazukamen, gehen so nicht verloren
+    private synchronized void merge(Map<Integer, Long> updates, long now) {
+        long horizon = now - retentionMillis;
+        Map<Integer, Long> next = new HashMap<>();
+        for (Map.Entry<Integer, Long> entry : revokedBefore.entrySet()) {
+            if (entry.getValue() > horizon) {
+                next.put(entry.getKey(), entry.getValue());
+            }
+        }
+        for (Map.Entry<Integer, Long> entry : updates.entrySet()) {
+            next.merge(entry.getKey(), entry.getValue(), Math::max);
+        }
+        revokedBefore = Map.copyOf(next);
+    }
+}
@@ -0,0 +1,25 @@
+package org.example.auth;
+
+/**
+ * Token-Format eines Deployments.
+ * <ul>
+ * <li>DATABASE: zufälliges Token in users.token, jede Prüfung ist ein DB-Lookup (bisheriges Verhalten)</li>
+ * <li>SIGNED: HMAC-signiertes Token mit User-ID und Ablaufzeit, Prüfung ohne DB-Zugriff</li>
+ * </ul>
+ */
+public enum TokenMode {
+    DATABASE,
+    SIGNED;
+
+    // Wert aus der Konfiguration (z.B. Umgebungsvariable), ohne Angabe DATABASE
+    public static TokenMode parse(String value) {
+        if (value == null || value.isBlank()) {
+            return DATABASE;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown token mode: " + value, e);
+        }
+    }
+}
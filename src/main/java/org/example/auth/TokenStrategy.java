@@ -0,0 +1,22 @@
+package org.example.auth;
+
+import org.example.model.User;
+
+import java.sql.SQLException;
+import java.util.Optional;
+
+/**
+ * Ausstellen, Prüfen und Widerrufen von Session-Tokens.
+ * Das Format ist pro Deployment wählbar (siehe {@link TokenMode}), der {@code AuthService} kennt nur dieses Interface.
+ */
+public interface TokenStrategy {
+
+    // Neues Token für einen erfolgreich eingeloggten User
+    String issue(User user) throws SQLException;
+
+    // User zum Token, leer wenn das Token ungültig, abgelaufen oder widerrufen ist
+    Optional<User> validate(String token) throws SQLException;
+
+    // Alle bisher ausgestellten Tokens des Users ungültig machen (Logout)
+    void revoke(User user) throws SQLException;
+}
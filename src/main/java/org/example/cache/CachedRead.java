@@ -0,0 +1,17 @@
+package org.example.cache;
+
+/**
+ * Ergebnis eines Lesezugriffs mit Angabe, ob es aus einem veralteten Cache-Stand stammt.
+ * Veraltete Stände werden nur geliefert, wenn die DB nicht erreichbar ist; {@code ageSeconds} gibt dann an,
+ * wie alt der Stand ist (für den Age-Header).
+ */
+public record CachedRead<T>(T value, boolean stale, long ageSeconds) {
+
+    public static <T> CachedRead<T> fresh(T value) {
+        return new CachedRead<>(value, false, 0);
+    }
+
+    public static <T> CachedRead<T> stale(T value, long loadedAtMillis) {
+        return new CachedRead<>(value, true, Math.max(0, (System.currentTimeMillis() - loadedAtMillis) / 1000));
+    }
+}
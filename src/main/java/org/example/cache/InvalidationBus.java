@@ -0,0 +1,229 @@
+package org.example.cache;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Cache-Invalidierung zwischen mehreren Knoten über PostgreSQL LISTEN/NOTIFY, ohne eigenen Message-Broker.
+ * <p>
+ * Trigger auf den relevanten Tabellen ziehen bei jedem Write eine Version aus der Sequenz des Themas und senden
+ * {@code NOTIFY mrp_invalidation, 'thema|version|schlüssel'}. Jeder Knoten hält eine eigene LISTEN-Verbindung und
+ * gibt den Schlüssel an die Abonnenten des Themas weiter, die ihn aus ihrem Cache werfen.
+ * <p>
+ * Versionen aus einer Sequenz sind nicht lückenlos (zurückgerollte Writes verbrauchen eine) und kommen nicht
+ * zwingend in Commit-Reihenfolge an; gemerkt wird daher nur die höchste gesehene Version pro Thema. Verpasste
+ * Notifications fallen auf zwei Wegen auf: nach einem Reconnect werden alle Themen komplett invalidiert, und
+ * {@link #checkVersions()} vergleicht periodisch die zuletzt vergebene Version in der DB mit der höchsten
+ * gesehenen. Liegt sie eine ganze Prüfperiode lang darüber, wird das Thema komplett invalidiert (auch nach einem
+ * zurückgerollten Write - ein unnötiges, aber harmloses Verwerfen).
+ */
+public class InvalidationBus {
+    private static final Logger LOGGER = Logger.getLogger(InvalidationBus.class.getName());
+    public static final String CHANNEL = "mrp_invalidation";
+    private static final int POLL_MILLIS = 500;
+    private static final long RECONNECT_DELAY_MILLIS = 2_000;
+
+    /**
+     * Öffnet die dedizierte LISTEN-Verbindung.
+     */
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        Connection open() throws SQLException;
+    }
+
+    /**
+     * Liest die aktuellen Versionen pro Thema aus der DB.
+     */
+    @FunctionalInterface
+    public interface VersionSource {
+        Map<String, Long> load() throws SQLException;
+    }
+
+    /**
+     * Kennzahlen für /metrics.
+     */
+    public record Stats(boolean connected, long received, long resyncs) {
+    }
+
+    private record Subscription(Consumer<String> onKey, Runnable onResync) {
+    }
+
+    private final ConnectionFactory connectionFactory;
+    private final VersionSource versionSource;
+    private final Map<String, List<Subscription>> subscriptions = new ConcurrentHashMap<>();
+    // Höchste gesehene Version pro Thema (aus Notifications oder nach einem Resync aus der DB)
+    private final Map<String, Long> seenVersions = new ConcurrentHashMap<>();
+    // Beim letzten Abgleich in der DB gesehene, aber noch nicht angekommene Versionen (nur in checkVersions)
+    private final Map<String, Long> pendingVersions = new HashMap<>();
+
+    private final LongAdder received = new LongAdder();
+    private final LongAdder resyncs = new LongAdder();
+
+    private volatile boolean running;
+    private volatile Connection listenConnection;
+    private Thread listenerThread;
+
+    public InvalidationBus(ConnectionFactory connectionFactory, VersionSource versionSource) {
+        this.connectionFactory = connectionFactory;
+        this.versionSource = versionSource;
+    }
+
+    // onKey bekommt den Schlüssel einer geänderten Zeile, onResync heißt "alles zu diesem Thema verwerfen"
+    public void subscribe(String topic, Consumer<String> onKey, Runnable onResync) {
+        subscriptions.computeIfAbsent(topic, key -> new CopyOnWriteArrayList<>())
+                .add(new Subscription(onKey, onResync));
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        listenerThread = new Thread(this::listen, "mrp-invalidation");
+        listenerThread.setDaemon(true);
+        listenerThread.start();
+    }
+
+    public synchronized void stop() {
+        running = false;
+        Connection connection = listenConnection;
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException ignored) {
+            }
+        }
+        if (listenerThread != null) {
+            listenerThread.interrupt();
+        }
+    }
+
+    /**
+     * Periodischer Abgleich mit den Versions-Sequenzen (Fallback für verpasste Notifications).
+     *
+     * @return Anzahl komplett invalidierter Themen
+     */
+    public synchronized int checkVersions() throws SQLException {
+        Map<String, Long> current = versionSource.load();
+        int resynced = 0;
+        for (String topic : subscriptions.keySet()) {
+            long dbVersion = current.getOrDefault(topic, 0L);
+            long seen = seenVersions.getOrDefault(topic, 0L);
+            Long pending = pendingVersions.get(topic);
+            if (dbVersion <= seen) {
+                pendingVersions.remove(topic);
+            } else if (pending != null && pending > seen) {
+                // Schon beim letzten Abgleich vorhanden und immer noch nicht angekommen: verpasst
+                resync(topic, dbVersion);
+                pendingVersions.remove(topic);
+                resynced++;
+            } else {
+                // Kann noch unterwegs sein, erst beim nächsten Abgleich werten
+                pendingVersions.put(topic, dbVersion);
+            }
+        }
+        return resynced;
+    }
+
+    public Stats stats() {
+        return new Stats(listenConnection != null, received.sum(), resyncs.sum());
+    }
+
+    // Payload "thema|version|schlüssel"; der Schlüssel darf selbst '|' enthalten
+    void handle(String payload) {
+        String[] parts = payload.split("\\|", 3);
+        // Payload und Schlüssel nicht loggen: Schlüssel können Hashes von Geheimnissen sein
+        if (parts.length != 3) {
+            LOGGER.warning("Ignoring malformed invalidation message (" + payload.length() + " chars)");
+            return;
+        }
+        received.increment();
+        String topic = parts[0];
+        long version;
+        try {
+            version = Long.parseLong(parts[1]);
+        } catch (NumberFormatException e) {
+            LOGGER.warning("Ignoring malformed invalidation message for topic " + topic);
+            return;
+        }
+        for (Subscription subscription : subscriptions.getOrDefault(topic, List.of())) {
+            try {
+                subscription.onKey().accept(parts[2]);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Failed to invalidate a " + topic + " key at version " + version, e);
+            }
+        }
+
+        seenVersions.merge(topic, version, Math::max);
+    }
+
+    private void resync(String topic, long version) {
+        resyncs.increment();
+        LOGGER.info("Resyncing cache topic " + topic + " at version " + version);
+        for (Subscription subscription : subscriptions.getOrDefault(topic, List.of())) {
+            subscription.onResync().run();
+        }
+        seenVersions.merge(topic, version, Math::max);
+    }
+
+    private void listen() {
+        boolean reconnect = false;
+        while (running) {
+            try (Connection connection = connectionFactory.open()) {
+                try (Statement stmt = connection.createStatement()) {
+                    stmt.execute("LISTEN " + CHANNEL);
+                }
+                listenConnection = connection;
+                // Erst nach LISTEN die Versionen lesen: alles danach kommt als Notification
+                Map<String, Long> versions = versionSource.load();
+                if (reconnect) {
+                    // Während der Unterbrechung verpasste Notifications sind nicht mehr zu bekommen
+                    for (String topic : subscriptions.keySet()) {
+                        resync(topic, versions.getOrDefault(topic, 0L));
+                    }
+                }
+                versions.forEach((topic, version) -> seenVersions.merge(topic, version, Math::max));
+
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_MILLIS);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            handle(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    break;
+                }
+                LOGGER.log(Level.WARNING, "Invalidation listener lost its connection, reconnecting", e);
+            } catch (RuntimeException e) {
+                // Fehler eines Abonnenten darf den Listener nicht beenden
+                LOGGER.log(Level.WARNING, "Invalidation listener failed, reconnecting", e);
+            } finally {
+                listenConnection = null;
+            }
+            reconnect = true;
+            try {
+                Thread.sleep(RECONNECT_DELAY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+    }
+}
@@ -0,0 +1,346 @@
+package org.example.cache;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Off-Heap-Cache für serialisierte Einträge in einer memory-mapped Datei (L2 hinter einem Heap-Cache).
+ * <p>
+ * Aufbau der Datei: Header, dann ein Index mit offener Adressierung (lineares Sondieren, 24 Byte pro Slot:
+ * Schlüssel, Länge, Version, Offset), dann die Daten-Arena als Ringpuffer. Neue Einträge werden hinten angehängt;
+ * ist die Arena voll, überschreibt der Ring die ältesten Einträge (FIFO-Verdrängung). Offsets sind logisch
+ * (wachsen immer weiter), so ist ohne Zusatzstruktur erkennbar, ob ein Eintrag schon überschrieben wurde.
+ * <p>
+ * Die Datei bleibt über Neustarts erhalten. Jeder Datensatz trägt Schlüssel, Version, Schreibzeit und CRC32;
+ * beim Lesen zählt ein Eintrag nur, wenn seine Version der vom Aufrufer erwarteten entspricht und die Prüfsumme
+ * stimmt. Halb geschriebene Datensätze nach einem Absturz fallen dadurch als Fehlschlag heraus.
+ * {@link #getLatest(int)} liefert dagegen den letzten Stand ohne Versionsprüfung (Notbetrieb ohne DB).
+ * <p>
+ * Alle Methoden sind synchronisiert; die Puffer werden nur absolut adressiert.
+ */
+public class MappedArenaCache implements AutoCloseable {
+    private static final int MAGIC = 0x4D525032;
+    private static final int FORMAT = 2;
+    private static final int HEADER_BYTES = 64;
+    private static final int SLOT_BYTES = 24;
+    // Datensatz-Kopf: Schlüssel, Version, Länge, CRC32, Schreibzeit
+    static final int RECORD_HEADER_BYTES = 28;
+    private static final double MAX_LOAD = 0.75;
+
+    // Header-Offsets
+    private static final int H_MAGIC = 0;
+    private static final int H_FORMAT = 4;
+    private static final int H_SLOTS = 8;
+    private static final int H_CAPACITY = 16;
+    private static final int H_WRITE_HEAD = 24;
+
+    // Slot-Offsets; Länge 0 = leerer Slot
+    private static final int S_KEY = 0;
+    private static final int S_LENGTH = 4;
+    private static final int S_VERSION = 8;
+    private static final int S_OFFSET = 16;
+
+    /**
+     * Kennzahlen für /metrics.
+     */
+    public record Stats(long hits, long misses, long stale, int entries, long writeHead, long capacityBytes) {
+    }
+
+    /**
+     * Gespeicherter Wert mit Version und Schreibzeit (Epoch-Millis).
+     */
+    public record Entry(long version, long writtenAtMillis, byte[] value) {
+    }
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int slotCount;
+    private final int mask;
+    private final long dataCapacity;
+    private final int dataStart;
+
+    private long writeHead;
+    private int entries;
+    private long hits;
+    private long misses;
+    private long stale;
+
+    /**
+     * Öffnet die Datei oder legt sie an. Passt das Format nicht zur Konfiguration, wird sie neu initialisiert.
+     *
+     * @param slotCount    Anzahl Index-Slots, wird auf eine Zweierpotenz aufgerundet
+     * @param dataCapacity Größe der Daten-Arena in Bytes
+     */
+    public MappedArenaCache(Path file, int slotCount, long dataCapacity) throws IOException {
+        if (slotCount <= 0 || dataCapacity < 1024) {
+            throw new IllegalArgumentException("Slot count must be positive and capacity at least 1 KiB");
+        }
+        this.slotCount = Math.max(1, Integer.highestOneBit(slotCount - 1) << 1);
+        this.mask = this.slotCount - 1;
+        this.dataCapacity = dataCapacity;
+        this.dataStart = HEADER_BYTES + this.slotCount * SLOT_BYTES;
+        long fileSize = dataStart + dataCapacity;
+        if (fileSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Cache file must stay below 2 GiB");
+        }
+
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+
+        if (buffer.getInt(H_MAGIC) == MAGIC && buffer.getInt(H_FORMAT) == FORMAT
+                && buffer.getInt(H_SLOTS) == this.slotCount && buffer.getLong(H_CAPACITY) == dataCapacity) {
+            this.writeHead = buffer.getLong(H_WRITE_HEAD);
+            for (int slot = 0; slot < this.slotCount; slot++) {
+                if (length(slot) != 0) {
+                    entries++;
+                }
+            }
+        } else {
+            initialize();
+        }
+    }
+
+    /**
+     * Liefert den Wert, wenn er mit genau dieser Version gespeichert, noch nicht überschrieben und unbeschädigt ist.
+     */
+    public synchronized byte[] get(int key, long version) {
+        int slot = find(key);
+        if (slot < 0) {
+            misses++;
+            return null;
+        }
+        if (slotVersion(slot) != version || !readable(slot)) {
+            // Veraltete Version oder vom Ring überschrieben: Slot freigeben
+            stale++;
+            delete(slot);
+            return null;
+        }
+        Entry entry = readRecord(slot, key);
+        if (entry == null || entry.version() != version) {
+            stale++;
+            delete(slot);
+            return null;
+        }
+        hits++;
+        return entry.value();
+    }
+
+    /**
+     * Letzter gespeicherter Stand unabhängig von der Version, null wenn keiner oder beschädigt.
+     * Verändert weder Index noch Zähler.
+     */
+    public synchronized Entry getLatest(int key) {
+        int slot = find(key);
+        if (slot < 0 || !readable(slot)) {
+            return null;
+        }
+        return readRecord(slot, key);
+    }
+
+    /**
+     * Speichert den Wert (ersetzt einen vorhandenen Eintrag).
+     *
+     * @return false, wenn der Wert zu groß ist oder der Index voll ist
+     */
+    public synchronized boolean put(int key, long version, byte[] value) {
+        int recordBytes = RECORD_HEADER_BYTES + value.length;
+        if (value.length == 0 || recordBytes > dataCapacity / 4) {
+            return false;
+        }
+        int slot = find(key);
+        if (slot < 0) {
+            if (entries + 1 > slotCount * MAX_LOAD) {
+                purgeOverwritten();
+                if (entries + 1 > slotCount * MAX_LOAD) {
+                    return false;
+                }
+            }
+            slot = freeSlot(key);
+            entries++;
+        }
+
+        // Datensätze laufen nie über das Ende der Arena, der Rest wird übersprungen
+        long physical = writeHead % dataCapacity;
+        if (physical + recordBytes > dataCapacity) {
+            writeHead += dataCapacity - physical;
+            physical = 0;
+        }
+        int position = dataStart + (int) physical;
+        buffer.putInt(position, key);
+        buffer.putLong(position + 4, version);
+        buffer.putInt(position + 12, value.length);
+        buffer.putInt(position + 16, crc(value));
+        buffer.putLong(position + 20, System.currentTimeMillis());
+        buffer.put(position + RECORD_HEADER_BYTES, value);
+
+        int base = slotBase(slot);
+        buffer.putInt(base + S_KEY, key);
+        buffer.putLong(base + S_VERSION, version);
+        buffer.putLong(base + S_OFFSET, writeHead);
+        buffer.putInt(base + S_LENGTH, value.length);
+
+        writeHead += recordBytes;
+        buffer.putLong(H_WRITE_HEAD, writeHead);
+        return true;
+    }
+
+    public synchronized void remove(int key) {
+        int slot = find(key);
+        if (slot >= 0) {
+            delete(slot);
+        }
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(hits, misses, stale, entries, writeHead, dataCapacity);
+    }
+
+    // Auf die Platte schreiben (sonst übernimmt das OS das irgendwann selbst)
+    public synchronized void flush() {
+        buffer.force();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    private void initialize() {
+        for (int position = HEADER_BYTES; position < dataStart; position += 8) {
+            buffer.putLong(position, 0L);
+        }
+        writeHead = 0;
+        entries = 0;
+        buffer.putInt(H_MAGIC, MAGIC);
+        buffer.putInt(H_FORMAT, FORMAT);
+        buffer.putInt(H_SLOTS, slotCount);
+        buffer.putLong(H_CAPACITY, dataCapacity);
+        buffer.putLong(H_WRITE_HEAD, 0L);
+    }
+
+    // Slot mit diesem Schlüssel oder -1
+    private int find(int key) {
+        int slot = home(key);
+        for (int probes = 0; probes < slotCount; probes++) {
+            if (length(slot) == 0) {
+                return -1;
+            }
+            if (buffer.getInt(slotBase(slot) + S_KEY) == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private int freeSlot(int key) {
+        int slot = home(key);
+        while (length(slot) != 0) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    // Backward-Shift-Delete: Nachfolger rücken auf, damit keine Tombstones nötig sind
+    private void delete(int slot) {
+        int hole = slot;
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            if (length(next) == 0) {
+                break;
+            }
+            int home = home(buffer.getInt(slotBase(next) + S_KEY));
+            boolean stays = hole <= next ? hole < home && home <= next : hole < home || home <= next;
+            if (!stays) {
+                copySlot(next, hole);
+                hole = next;
+            }
+        }
+        int base = slotBase(hole);
+        for (int i = 0; i < SLOT_BYTES; i += 8) {
+            buffer.putLong(base + i, 0L);
+        }
+        entries--;
+    }
+
+    // Alle Index-Einträge entfernen, deren Daten der Ring schon überschrieben hat
+    private void purgeOverwritten() {
+        int slot = 0;
+        while (slot < slotCount) {
+            if (length(slot) != 0 && !readable(slot)) {
+                // Nach dem Löschen ist ein Nachfolger in diesen Slot gerückt, daher denselben Slot erneut prüfen
+                delete(slot);
+            } else {
+                slot++;
+            }
+        }
+    }
+
+    // Datensatz zum Slot lesen und gegen Index und Prüfsumme prüfen, null wenn etwas nicht passt
+    private Entry readRecord(int slot, int key) {
+        int length = length(slot);
+        long version = slotVersion(slot);
+        int position = dataStart + (int) (slotOffset(slot) % dataCapacity);
+        if (buffer.getInt(position) != key || buffer.getLong(position + 4) != version
+                || buffer.getInt(position + 12) != length) {
+            return null;
+        }
+        byte[] value = new byte[length];
+        buffer.get(position + RECORD_HEADER_BYTES, value);
+        if (crc(value) != buffer.getInt(position + 16)) {
+            return null;
+        }
+        return new Entry(version, buffer.getLong(position + 20), value);
+    }
+
+    private boolean readable(int slot) {
+        return slotOffset(slot) >= writeHead - dataCapacity;
+    }
+
+    private void copySlot(int from, int to) {
+        int source = slotBase(from);
+        int target = slotBase(to);
+        for (int i = 0; i < SLOT_BYTES; i += 8) {
+            buffer.putLong(target + i, buffer.getLong(source + i));
+        }
+    }
+
+    private int home(int key) {
+        int hash = key * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private int slotBase(int slot) {
+        return HEADER_BYTES + slot * SLOT_BYTES;
+    }
+
+    private int length(int slot) {
+        return buffer.getInt(slotBase(slot) + S_LENGTH);
+    }
+
+    private long slotVersion(int slot) {
+        return buffer.getLong(slotBase(slot) + S_VERSION);
+    }
+
+    private long slotOffset(int slot) {
+        return buffer.getLong(slotBase(slot) + S_OFFSET);
+    }
+
+    private static int crc(byte[] value) {
+        CRC32 crc = new CRC32();
+        crc.update(ByteBuffer.wrap(value));
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,173 @@
+package org.example.cache;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Negativ-Cache: beantwortet "gibt es nicht" ohne DB-Abfrage.
+ * <p>
+ * Zwei Stufen: ein {@link BloomFilter} über alle existierenden Schlüssel (was er nicht kennt, gibt es sicher
+ * nicht) und ein kleiner Cache bestätigter Fehlschläge mit kurzer TTL für das, was der Filter durchlässt
+ * (gelöschte Schlüssel, Fehlalarme). Neue Schlüssel meldet {@link #added} - sofort in den Filter und aus dem
+ * Fehlschlag-Cache. Gegen das Rennen "Leser findet nichts, Schreiber legt an, Leser merkt sich den Fehlschlag"
+ * gibt es wie im {@link SegmentedLruCache} einen Generationszähler ({@link #recordMiss}).
+ * <p>
+ * Solange der Filter nicht geladen ist (Start, nach {@link #disableFilter()}), zählt nur der Fehlschlag-Cache.
+ */
+public class NegativeCache<K> {
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+    // Filter mit Luft für Zuwachs bis zum nächsten Neuaufbau
+    private static final int GROWTH_FACTOR = 2;
+    private static final int MIN_CAPACITY = 1024;
+
+    /**
+     * Lädt alle existierenden Schlüssel (für den Neuaufbau des Filters).
+     */
+    @FunctionalInterface
+    public interface KeyLoader<K> {
+        Collection<K> load() throws SQLException;
+    }
+
+    /**
+     * Kennzahlen für /metrics.
+     */
+    public record Stats(boolean filterLoaded, long filterKeys, long filterCapacity, long rejectedByFilter,
+                        long rejectedByMissCache, int missEntries) {
+    }
+
+    private final ToLongFunction<K> hasher;
+    private final int maxMisses;
+    private final long missTtlMillis;
+    private final LongSupplier clock;
+
+    private volatile BloomFilter filter;
+    private long filterKeys;
+    private long filterCapacity;
+    // Während eines Neuaufbaus hinzugekommene Schlüssel, kommen nach dem Laden zusätzlich in den neuen Filter
+    private List<K> addedDuringRebuild;
+    // Schlüssel -> Ablaufzeit, Einfügereihenfolge = älteste zuerst
+    private final LinkedHashMap<K, Long> misses = new LinkedHashMap<>();
+    private long generation;
+
+    private final LongAdder rejectedByFilter = new LongAdder();
+    private final LongAdder rejectedByMissCache = new LongAdder();
+
+    public NegativeCache(ToLongFunction<K> hasher, int maxMisses, long missTtlMillis, LongSupplier clock) {
+        this.hasher = hasher;
+        this.maxMisses = maxMisses;
+        this.missTtlMillis = missTtlMillis;
+        this.clock = clock;
+    }
+
+    // true = gibt es sicher (Filter) bzw. vor kurzem bestätigt (Fehlschlag-Cache) nicht
+    public boolean isKnownMissing(K key) {
+        BloomFilter current = filter;
+        if (current != null && !current.mightContain(hasher.applyAsLong(key))) {
+            rejectedByFilter.increment();
+            return true;
+        }
+        synchronized (this) {
+            Long expiresAt = misses.get(key);
+            if (expiresAt == null) {
+                return false;
+            }
+            if (expiresAt <= clock.getAsLong()) {
+                misses.remove(key);
+                return false;
+            }
+        }
+        rejectedByMissCache.increment();
+        return true;
+    }
+
+    public synchronized long generation() {
+        return generation;
+    }
+
+    // Fehlschlag aus der DB merken, außer seit generation() wurde etwas angelegt
+    public synchronized void recordMiss(K key, long expectedGeneration) {
+        if (generation != expectedGeneration) {
+            return;
+        }
+        misses.remove(key);
+        misses.put(key, clock.getAsLong() + missTtlMillis);
+        Iterator<Map.Entry<K, Long>> eldest = misses.entrySet().iterator();
+        while (misses.size() > maxMisses) {
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    // Schlüssel existiert jetzt (angelegt, hier oder auf einem anderen Knoten)
+    public synchronized void added(K key) {
+        generation++;
+        misses.remove(key);
+        BloomFilter current = filter;
+        if (current != null) {
+            current.put(hasher.applyAsLong(key));
+            filterKeys++;
+        }
+        if (addedDuringRebuild != null) {
+            addedDuringRebuild.add(key);
+        }
+    }
+
+    // Filter nicht mehr vertrauenswürdig (z.B. Invalidierungen verpasst): bis zum nächsten Neuaufbau nur Fehlschläge
+    public synchronized void disableFilter() {
+        generation++;
+        filter = null;
+        misses.clear();
+        // Ein laufender Neuaufbau hat womöglich vor den verpassten Änderungen gelesen und wird verworfen
+        addedDuringRebuild = null;
+    }
+
+    /**
+     * Filter aus allen existierenden Schlüsseln neu aufbauen (beim Start und periodisch, damit gelöschte
+     * Schlüssel wieder herausfallen und die Größe mitwächst).
+     */
+    public void rebuild(KeyLoader<K> loader) throws SQLException {
+        List<K> pending = new ArrayList<>();
+        synchronized (this) {
+            addedDuringRebuild = pending;
+        }
+        try {
+            Collection<K> keys = loader.load();
+            synchronized (this) {
+                if (addedDuringRebuild != pending) {
+                    return;
+                }
+                long total = keys.size() + pending.size();
+                long capacity = Math.max(MIN_CAPACITY, total * GROWTH_FACTOR);
+                BloomFilter next = new BloomFilter(capacity, FALSE_POSITIVE_RATE);
+                for (K key : keys) {
+                    next.put(hasher.applyAsLong(key));
+                }
+                for (K key : pending) {
+                    next.put(hasher.applyAsLong(key));
+                }
+                filter = next;
+                filterKeys = total;
+                filterCapacity = capacity;
+            }
+        } finally {
+            synchronized (this) {
+                if (addedDuringRebuild == pending) {
+                    addedDuringRebuild = null;
+                }
+            }
+        }
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(filter != null, filterKeys, filterCapacity, rejectedByFilter.sum(),
+                rejectedByMissCache.sum(), misses.size());
+    }
+}
@@ -0,0 +1,178 @@
+package org.example.cache;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * Größenbeschränkter In-Memory-Cache mit Segmented-LRU-Verdrängung.
+ * <p>
+ * Neue Einträge landen im Probation-Segment; erst ein zweiter Treffer hebt sie ins Protected-Segment
+ * (80 % der Kapazität). Ein einmaliger Scan über viele Einträge verdrängt so nur andere Einmal-Einträge,
+ * nicht die wirklich häufig gelesenen. Die Grenze ist in geschätzten Bytes angegeben ({@code weigher}).
+ * <p>
+ * Gegen das klassische Lese-/Schreib-Rennen (Leser lädt alten Stand, Schreiber invalidiert, Leser legt den
+ * alten Stand danach ab) gibt es einen Generationszähler: {@link #generation()} vor dem Laden merken und mit
+ * {@link #putIfUnchanged} ablegen - seit dem Laden invalidiert heißt nicht cachen.
+ * <p>
+ * Ein Lock für alle Operationen; die Arbeit darin ist O(1).
+ */
+public class SegmentedLruCache<K, V> {
+    private static final double PROTECTED_RATIO = 0.8;
+
+    /**
+     * Kennzahlen für /metrics.
+     */
+    public record Stats(long hits, long misses, long evictions, int entries, long weightBytes, long maxWeightBytes) {
+        @JsonProperty
+        public double hitRate() {
+            long requests = hits + misses;
+            return requests == 0 ? 0.0 : (double) hits / requests;
+        }
+    }
+
+    private static final class Node<V> {
+        final V value;
+        final long weight;
+
+        Node(V value, long weight) {
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    private final long maxWeight;
+    private final long maxProtectedWeight;
+    private final ToLongFunction<V> weigher;
+
+    // Zugriffsreihenfolge: erster Eintrag = am längsten nicht benutzt
+    private final LinkedHashMap<K, Node<V>> probation = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, Node<V>> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+    private long probationWeight;
+    private long protectedWeight;
+    private long generation;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public SegmentedLruCache(long maxWeightBytes, ToLongFunction<V> weigher) {
+        if (maxWeightBytes <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive");
+        }
+        this.maxWeight = maxWeightBytes;
+        this.maxProtectedWeight = (long) (maxWeightBytes * PROTECTED_RATIO);
+        this.weigher = weigher;
+    }
+
+    // Wert oder null; ein Treffer im Probation-Segment befördert den Eintrag
+    public synchronized V get(K key) {
+        Node<V> node = protectedSegment.get(key);
+        if (node != null) {
+            hits++;
+            return node.value;
+        }
+        node = probation.remove(key);
+        if (node == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        probationWeight -= node.weight;
+        protectedSegment.put(key, node);
+        protectedWeight += node.weight;
+        demoteOverflow();
+        return node.value;
+    }
+
+    public synchronized void put(K key, V value) {
+        insert(key, value);
+    }
+
+    // Nur ablegen, wenn seit generation() nichts invalidiert wurde
+    public synchronized boolean putIfUnchanged(K key, V value, long expectedGeneration) {
+        if (generation != expectedGeneration) {
+            return false;
+        }
+        insert(key, value);
+        return true;
+    }
+
+    public synchronized long generation() {
+        return generation;
+    }
+
+    public synchronized void invalidate(K key) {
+        generation++;
+        removeNode(key);
+    }
+
+    public synchronized void invalidateAll() {
+        generation++;
+        probation.clear();
+        protectedSegment.clear();
+        probationWeight = 0;
+        protectedWeight = 0;
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(hits, misses, evictions, probation.size() + protectedSegment.size(),
+                probationWeight + protectedWeight, maxWeight);
+    }
+
+    private void insert(K key, V value) {
+        long weight = weigher.applyAsLong(value);
+        removeNode(key);
+        // Einzelner Eintrag größer als der ganze Cache: gar nicht erst aufnehmen
+        if (weight > maxWeight) {
+            return;
+        }
+        probation.put(key, new Node<>(value, weight));
+        probationWeight += weight;
+        evictOverflow();
+    }
+
+    private void removeNode(K key) {
+        Node<V> node = probation.remove(key);
+        if (node != null) {
+            probationWeight -= node.weight;
+            return;
+        }
+        node = protectedSegment.remove(key);
+        if (node != null) {
+            protectedWeight -= node.weight;
+        }
+    }
+
+    // Protected-Segment zu voll: älteste Einträge zurück ins Probation-Segment (bekommen noch eine Chance)
+    private void demoteOverflow() {
+        Iterator<Map.Entry<K, Node<V>>> iterator = protectedSegment.entrySet().iterator();
+        while (protectedWeight > maxProtectedWeight && iterator.hasNext()) {
+            Map.Entry<K, Node<V>> eldest = iterator.next();
+            iterator.remove();
+            protectedWeight -= eldest.getValue().weight;
+            probation.put(eldest.getKey(), eldest.getValue());
+            probationWeight += eldest.getValue().weight;
+        }
+        evictOverflow();
+    }
+
+    // Gesamtgröße überschritten: zuerst aus Probation verdrängen, erst wenn das leer ist aus Protected
+    private void evictOverflow() {
+        while (probationWeight + protectedWeight > maxWeight) {
+            LinkedHashMap<K, Node<V>> segment = probation.isEmpty() ? protectedSegment : probation;
+            Iterator<Map.Entry<K, Node<V>>> iterator = segment.entrySet().iterator();
+            Map.Entry<K, Node<V>> eldest = iterator.next();
+            iterator.remove();
+            if (segment == probation) {
+                probationWeight -= eldest.getValue().weight;
+            } else {
+                protectedWeight -= eldest.getValue().weight;
+            }
+            evictions++;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package org.example.cache;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fasst gleichzeitige Ladevorgänge für denselben Schlüssel zu einem zusammen ("Single Flight").
+ * <p>
+ * Der erste Aufrufer lädt im eigenen Thread; wer währenddessen mit demselben Schlüssel kommt, wartet auf dessen
+ * Ergebnis statt selbst die DB zu fragen. Ein Fehler des Ladevorgangs erreicht alle Wartenden (SQLExceptions
+ * jeweils neu verpackt, damit jeder Thread einen eigenen Stacktrace hat). Wartende geben nach
+ * {@code waitTimeoutMillis} mit {@link SQLTimeoutException} auf; der Ladevorgang selbst läuft weiter.
+ * <p>
+ * Das Ergebnis wird an alle Aufrufer geteilt und darf nicht verändert werden.
+ */
+public class SingleFlight<K, V> {
+    public static final long DEFAULT_WAIT_TIMEOUT_MILLIS = 5_000;
+
+    /**
+     * Eigentlicher Ladevorgang (typischerweise eine Repository-Abfrage).
+     */
+    @FunctionalInterface
+    public interface Loader<V> {
+        V load() throws SQLException;
+    }
+
+    /**
+     * Kennzahlen: eigene Ladevorgänge, mitgenutzte Ergebnisse, abgebrochene Wartevorgänge.
+     */
+    public record Stats(long loads, long shared, long timeouts) {
+    }
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final long waitTimeoutMillis;
+
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder shared = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+
+    public SingleFlight() {
+        this(DEFAULT_WAIT_TIMEOUT_MILLIS);
+    }
+
+    public SingleFlight(long waitTimeoutMillis) {
+        this.waitTimeoutMillis = waitTimeoutMillis;
+    }
+
+    public V load(K key, Loader<V> loader) throws SQLException {
+        CompletableFuture<V> own = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, own);
+        if (running != null) {
+            shared.increment();
+            return await(running);
+        }
+
+        loads.increment();
+        try {
+            V value = loader.load();
+            own.complete(value);
+            return value;
+        } catch (Throwable e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, own);
+        }
+    }
+
+    // Nach einem Write: laufenden Ladevorgang vergessen, spätere Aufrufer laden neu statt den alten Stand zu teilen
+    public void forget(K key) {
+        inFlight.remove(key);
+    }
+
+    public void forgetAll() {
+        inFlight.clear();
+    }
+
+    public Stats stats() {
+        return new Stats(loads.sum(), shared.sum(), timeouts.sum());
+    }
+
+    private V await(CompletableFuture<V> running) throws SQLException {
+        try {
+            return running.get(waitTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            timeouts.increment();
+            throw new SQLTimeoutException("Timed out waiting for a shared database load");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a shared database load", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException sqlException) {
+                throw new SQLException(sqlException.getMessage(), sqlException.getSQLState(),
+                        sqlException.getErrorCode(), sqlException);
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new SQLException(cause);
+        }
+    }
+}
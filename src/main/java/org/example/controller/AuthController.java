@@ -4,11 +4,15 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.sun.net.httpserver.HttpExchange;
+import org.example.database.CircuitBreaker;
+import org.example.exception.CircuitOpenException;
+import org.example.exception.ServiceUnavailableException;
 import org.example.model.User;
 import org.example.service.AuthService;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.sql.SQLException;
 import java.util.Map;
 
 // Controller für Registrierung und Login
@@ -47,6 +51,10 @@ public class AuthController {
             // 201 Created mit User-Daten (Passwort wird durch @JsonProperty(WRITE_ONLY) nicht zurückgegeben)
             sendJsonResponse(exchange, 201, registeredUser);
 
+        } catch (ServiceUnavailableException e) {
+            sendUnavailable(exchange, e);
+        } catch (SQLException e) {
+            sendDatabaseError(exchange, e);
         } catch (IllegalArgumentException e) {
             // Validierungsfehler (z.B. Username existiert schon, Passwort zu kurz)
             sendErrorResponse(exchange, 400, e.getMessage());
@@ -75,6 +83,10 @@ public class AuthController {
             // Token als JSON zurückgeben
             sendJsonResponse(exchange, 200, Map.of("token", token));
 
+        } catch (ServiceUnavailableException e) {
+            sendUnavailable(exchange, e);
+        } catch (SQLException e) {
+            sendDatabaseError(exchange, e);
         } catch (IllegalArgumentException e) {
             // Falsche Credentials = 401 Unauthorized
             sendErrorResponse(exchange, 401, e.getMessage());
@@ -83,6 +95,24 @@ public class AuthController {
         }
     }
 
+    // POST /api/users/logout - widerruft alle Tokens des eingeloggten Users, 204 No Content
+    public void handleLogout(HttpExchange exchange, User authenticatedUser) throws IOException {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            sendErrorResponse(exchange, 405, "Method Not Allowed");
+            return;
+        }
+
+        try {
+            authService.logout(authenticatedUser);
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+        } catch (SQLException e) {
+            sendDatabaseError(exchange, e);
+        } catch (Exception e) {
+            sendErrorResponse(exchange, 500, "Internal server error: " + e.getMessage());
+        }
+    }
+
     // Hilfsmethode: Java-Objekt zu JSON serialisieren und als Response senden
     private void sendJsonResponse(HttpExchange exchange, int statusCode, Object data) throws IOException {
         byte[] response = objectMapper.writeValueAsBytes(data);
@@ -93,6 +123,23 @@ public class AuthController {
         }
     }
 
+    // Hashing-Pool ausgelastet: 503 mit Retry-After, damit Clients gestaffelt erneut versuchen
+    private void sendUnavailable(HttpExchange exchange, ServiceUnavailableException e) throws IOException {
+        exchange.getResponseHeaders().set("Retry-After", String.valueOf(e.getRetryAfterSeconds()));
+        sendErrorResponse(exchange, 503, e.getMessage());
+    }
+
+    // DB-Ausfall (oder offene Sicherung): ebenfalls 503 mit Retry-After, sonst 500 wie bisher
+    private void sendDatabaseError(HttpExchange exchange, SQLException e) throws IOException {
+        if (!CircuitBreaker.isOutage(e)) {
+            sendErrorResponse(exchange, 500, "Internal server error: " + e.getMessage());
+            return;
+        }
+        int retryAfter = e instanceof CircuitOpenException open ? open.getRetryAfterSeconds() : 1;
+        exchange.getResponseHeaders().set("Retry-After", String.valueOf(retryAfter));
+        sendErrorResponse(exchange, 503, "Database unavailable, please retry.");
+    }
+
     // Hilfsmethode: Fehler als JSON senden: {"error":"message"}
     private void sendErrorResponse(HttpExchange exchange, int statusCode, String message) throws IOException {
         Map<String, String> errorResponse = Map.of("error", message);
@@ -0,0 +1,53 @@
+package org.example.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import org.example.server.HealthMonitor;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Controller für Liveness- und Readiness-Checks (z.B. für Load Balancer oder Orchestrierung)
+public class HealthController {
+    private final HealthMonitor healthMonitor;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public HealthController(HealthMonitor healthMonitor) {
+        this.healthMonitor = healthMonitor;
+    }
+
+    // GET /health/live - Prozess läuft und bearbeitet Requests, keine Abhängigkeiten prüfen
+    public void handleLive(HttpExchange exchange) throws IOException {
+        if (!"GET".equals(exchange.getRequestMethod())) {
+            sendResponse(exchange, 405, "{\"error\":\"Method Not Allowed\"}".getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        sendResponse(exchange, 200, "{\"status\":\"UP\"}".getBytes(StandardCharsets.UTF_8));
+    }
+
+    // GET /health/ready - 200 wenn alle Checks der letzten Prüfung ok sind, sonst 503
+    public void handleReady(HttpExchange exchange) throws IOException {
+        if (!"GET".equals(exchange.getRequestMethod())) {
+            sendResponse(exchange, 405, "{\"error\":\"Method Not Allowed\"}".getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        HealthMonitor.Status status = healthMonitor.current();
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("status", status.ready() ? "UP" : "DOWN");
+        body.put("checks", status.checks());
+        body.put("checkedAt", status.checkedAtMillis());
+        sendResponse(exchange, status.ready() ? 200 : 503, objectMapper.writeValueAsBytes(body));
+    }
+
+    private void sendResponse(HttpExchange exchange, int statusCode, byte[] response) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.getResponseHeaders().set("Cache-Control", "no-store");
+        exchange.sendResponseHeaders(statusCode, response.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(response);
+        }
+    }
+}
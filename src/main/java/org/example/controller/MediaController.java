@@ -1,27 +1,45 @@
 package org.example.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.sun.net.httpserver.HttpExchange;
+import org.example.cache.CachedRead;
+import org.example.database.CircuitBreaker;
+import org.example.exception.CircuitOpenException;
 import org.example.exception.ForbiddenException;
+import org.example.exception.ServiceUnavailableException;
 import org.example.model.MediaEntry;
+import org.example.model.Rating;
 import org.example.model.User;
 import org.example.service.MediaService;
+import org.example.service.RankingService;
+import org.example.service.RatingService;
+import org.example.service.RecommendationService;
 
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.sql.SQLException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 // Controller für alle Media CRUD-Operationen
 public class MediaController {
     private final MediaService mediaService;
+    private final RecommendationService recommendationService;
+    private final RankingService rankingService;
+    private final RatingService ratingService;
     private final ObjectMapper objectMapper;
 
-    public MediaController(MediaService mediaService) {
+    public MediaController(MediaService mediaService, RecommendationService recommendationService,
+                           RankingService rankingService, RatingService ratingService) {
         this.mediaService = mediaService;
+        this.recommendationService = recommendationService;
+        this.rankingService = rankingService;
+        this.ratingService = ratingService;
         this.objectMapper = new ObjectMapper();
         this.objectMapper.registerModule(new JavaTimeModule());
     }
@@ -46,6 +64,8 @@ public class MediaController {
             MediaEntry createdMedia = mediaService.createMedia(media, authenticatedUser.getId());
 
             sendJsonResponse(exchange, 201, createdMedia);
+        } catch (SQLException e) {
+            sendDatabaseError(exchange, e, "{\"error\":\"Database error while creating media.\"}");
         } catch (Exception e) {
             sendResponse(exchange, 500, "{\"error\":\"Internal server error: " + e.getMessage() + "\"}");
         }
@@ -59,15 +79,126 @@ public class MediaController {
         }
 
         try {
-            Optional<MediaEntry> mediaOpt = mediaService.getMediaById(mediaId);
+            CachedRead<Optional<MediaEntry>> read = mediaService.readMediaById(mediaId);
 
-            if (mediaOpt.isPresent()) {
-                sendJsonResponse(exchange, 200, mediaOpt.get());
+            if (read.value().isPresent()) {
+                sendCachedResponse(exchange, read, read.value().get());
             } else {
                 sendResponse(exchange, 404, "{\"error\":\"Media not found\"}");
             }
         } catch (SQLException e) {
-            sendResponse(exchange, 500, "{\"error\":\"Database error while fetching media.\"}");
+            sendDatabaseError(exchange, e, "{\"error\":\"Database error while fetching media.\"}");
+        }
+    }
+
+    // GET /api/media/{id}/ratings - alle Ratings zu einem Media, neueste zuerst
+    // Nicht freigegebene Kommentare nur für Autor und Creator des Media
+    public void handleGetMediaRatings(HttpExchange exchange, Integer mediaId, User authenticatedUser)
+            throws IOException {
+        if (!"GET".equals(exchange.getRequestMethod())) {
+            sendResponse(exchange, 405, "{\"error\":\"Method Not Allowed\"}");
+            return;
+        }
+
+        try {
+            sendJsonResponse(exchange, 200, mediaService.getRatingsForMedia(mediaId, authenticatedUser.getId()));
+        } catch (IllegalArgumentException e) {
+            sendResponse(exchange, 404, "{\"error\":\"Media not found\"}");
+        } catch (SQLException e) {
+            sendDatabaseError(exchange, e, "{\"error\":\"Database error while fetching ratings.\"}");
+        }
+    }
+
+    // POST /api/media/{id}/ratings - eigenes Rating abgeben oder überschreiben, Body: {"stars":4,"comment":"..."}
+    public void handleRateMedia(HttpExchange exchange, Integer mediaId, User authenticatedUser) throws IOException {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            sendResponse(exchange, 405, "{\"error\":\"Method Not Allowed\"}");
+            return;
+        }
+
+        try {
+            Rating input = objectMapper.readValue(exchange.getRequestBody(), Rating.class);
+
+            // Sterne sind Pflichtfeld, 1 bis 5
+            if (input.getStars() == null || input.getStars() < 1 || input.getStars() > 5) {
+                sendResponse(exchange, 400, "{\"error\":\"Stars must be between 1 and 5\"}");
+                return;
+            }
+
+            // User-ID kommt aus dem Token, nicht aus dem Body
+            Rating saved = ratingService.rateMedia(mediaId, authenticatedUser.getId(), input.getStars(),
+                    input.getComment());
+            sendJsonResponse(exchange, 201, saved);
+        } catch (ServiceUnavailableException e) {
+            // Warteschlange voll oder Server fährt herunter
+            exchange.getResponseHeaders().set("Retry-After", String.valueOf(e.getRetryAfterSeconds()));
+            sendResponse(exchange, 503, "{\"error\":\"" + e.getMessage() + "\"}");
+        } catch (IllegalArgumentException e) {
+            sendResponse(exchange, 404, "{\"error\":\"Media not found\"}");
+        } catch (SQLException e) {
+            sendDatabaseError(exchange, e, "{\"error\":\"Database error while saving rating.\"}");
+        } catch (JsonProcessingException e) {
+            sendResponse(exchange, 400, "{\"error\":\"Invalid rating body\"}");
+        }
+    }
+
+    // GET /api/media/{id}/related?limit=10 - "User, die dieses Media bewertet haben, bewerteten auch ..."
+    public void handleGetRelatedMedia(HttpExchange exchange, Integer mediaId) throws IOException {
+        if (!"GET".equals(exchange.getRequestMethod())) {
+            sendResponse(exchange, 405, "{\"error\":\"Method Not Allowed\"}");
+            return;
+        }
+
+        try {
+            Map<String, String> params = parseQuery(exchange);
+            int limit = params.containsKey("limit")
+                    ? Integer.parseInt(params.get("limit"))
+                    : RecommendationService.DEFAULT_LIMIT;
+            List<MediaEntry> results = recommendationService.getRelatedMedia(mediaId, limit);
+            sendJsonResponse(exchange, 200, results);
+        } catch (IllegalArgumentException e) {
+            sendResponse(exchange, 400, "{\"error\":\"" + e.getMessage() + "\"}");
+        } catch (SQLException e) {
+            sendDatabaseError(exchange, e, "{\"error\":\"Database error while fetching related media.\"}");
+        }
+    }
+
+    // GET /api/media/trending?limit=10 - kommt aus dem In-Memory-Snapshot, keine DB-Abfrage
+    public void handleGetTrending(HttpExchange exchange) throws IOException {
+        if (!"GET".equals(exchange.getRequestMethod())) {
+            sendResponse(exchange, 405, "{\"error\":\"Method Not Allowed\"}");
+            return;
+        }
+
+        try {
+            Map<String, String> params = parseQuery(exchange);
+            int limit = params.containsKey("limit")
+                    ? Integer.parseInt(params.get("limit"))
+                    : RankingService.DEFAULT_LIMIT;
+            sendJsonResponse(exchange, 200, rankingService.getTrendingMedia(limit));
+        } catch (IllegalArgumentException e) {
+            sendResponse(exchange, 400, "{\"error\":\"" + e.getMessage() + "\"}");
+        }
+    }
+
+    // GET /api/media/top-rated?page=0&size=10 - Bayes'scher Durchschnitt, seitenweise nach Rang
+    public void handleGetTopRated(HttpExchange exchange) throws IOException {
+        if (!"GET".equals(exchange.getRequestMethod())) {
+            sendResponse(exchange, 405, "{\"error\":\"Method Not Allowed\"}");
+            return;
+        }
+
+        try {
+            Map<String, String> params = parseQuery(exchange);
+            int page = params.containsKey("page") ? Integer.parseInt(params.get("page")) : 0;
+            int size = params.containsKey("size")
+                    ? Integer.parseInt(params.get("size"))
+                    : RankingService.DEFAULT_LIMIT;
+            sendJsonResponse(exchange, 200, rankingService.getTopRatedMedia(page, size));
+        } catch (IllegalArgumentException e) {
+            sendResponse(exchange, 400, "{\"error\":\"" + e.getMessage() + "\"}");
+        } catch (SQLException e) {
+            sendDatabaseError(exchange, e, "{\"error\":\"Database error while fetching top rated media.\"}");
         }
     }
 
@@ -79,10 +210,10 @@ public class MediaController {
         }
 
         try {
-            List<MediaEntry> results = mediaService.getAllMedia();
-            sendJsonResponse(exchange, 200, results);
+            CachedRead<List<MediaEntry>> read = mediaService.readAllMedia();
+            sendCachedResponse(exchange, read, read.value());
         } catch (SQLException e) {
-            sendResponse(exchange, 500, "{\"error\":\"Database error while fetching all media.\"}");
+            sendDatabaseError(exchange, e, "{\"error\":\"Database error while fetching all media.\"}");
         }
     }
 
@@ -109,6 +240,8 @@ public class MediaController {
             sendResponse(exchange, 404, "{\"error\":\"" + e.getMessage() + "\"}");
         } catch (SecurityException e) {
             sendResponse(exchange, 403, "{\"error\":\"" + e.getMessage() + "\"}");
+        } catch (SQLException e) {
+            sendDatabaseError(exchange, e, "{\"error\":\"Database error while updating media.\"}");
         } catch (Exception e) {
             sendResponse(exchange, 500, "{\"error\":\"Internal server error: " + e.getMessage() + "\"}");
         }
@@ -129,11 +262,49 @@ public class MediaController {
             sendResponse(exchange, 404, "{\"error\":\"" + e.getMessage() + "\"}");
         } catch (ForbiddenException e) {
             sendResponse(exchange, 403, "{\"error\":\"" + e.getMessage() + "\"}");
+        } catch (SQLException e) {
+            sendDatabaseError(exchange, e, "{\"error\":\"Database error while deleting media.\"}");
         } catch (Exception e) {
             sendResponse(exchange, 500, "{\"error\":\"Internal server error: " + e.getMessage() + "\"}");
         }
     }
 
+    // Query-String "a=1&b=2" in eine Map zerlegen (ohne URL-Decoding, nur einfache Parameter)
+    private Map<String, String> parseQuery(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null || query.isEmpty()) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(pair.substring(0, eq), pair.substring(eq + 1));
+            }
+        }
+        return params;
+    }
+
+    // Veralteter Stand (DB nicht erreichbar): mit Warning- und Age-Header kennzeichnen
+    private void sendCachedResponse(HttpExchange exchange, CachedRead<?> read, Object data) throws IOException {
+        if (read.stale()) {
+            exchange.getResponseHeaders().set("Warning", "110 - \"Response is Stale\"");
+            exchange.getResponseHeaders().set("Age", String.valueOf(read.ageSeconds()));
+        }
+        sendJsonResponse(exchange, 200, data);
+    }
+
+    // DB nicht erreichbar (Sicherung offen, Timeout, Verbindungsabbruch): 503 mit Retry-After statt 500
+    private void sendDatabaseError(HttpExchange exchange, SQLException e, String message) throws IOException {
+        if (!CircuitBreaker.isOutage(e)) {
+            sendResponse(exchange, 500, message);
+            return;
+        }
+        int retryAfter = e instanceof CircuitOpenException open ? open.getRetryAfterSeconds() : 1;
+        exchange.getResponseHeaders().set("Retry-After", String.valueOf(retryAfter));
+        sendResponse(exchange, 503, "{\"error\":\"Database unavailable, please retry.\"}");
+    }
+
     private void sendJsonResponse(HttpExchange exchange, int statusCode, Object data) throws IOException {
         byte[] response = objectMapper.writeValueAsBytes(data);
         exchange.getResponseHeaders().set("Content-Type", "application/json");
@@ -0,0 +1,76 @@
+package org.example.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import org.example.analytics.RatingColumnStore;
+import org.example.auth.PasswordHashingPool;
+import org.example.cache.NegativeCache;
+import org.example.repository.RatingIngestionPipeline;
+import org.example.server.AdaptiveConcurrencyLimiter;
+import org.example.service.MediaService;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Controller für Betriebskennzahlen (Auslastung interner Pools usw.)
+public class MetricsController {
+    private final PasswordHashingPool hashingPool;
+    private final Map<String, AdaptiveConcurrencyLimiter> concurrencyLimiters;
+    private final MediaService mediaService;
+    // null im signed-Modus (Tokens werden dort ohne DB geprüft)
+    private final NegativeCache<String> unknownTokens;
+    private final RatingColumnStore ratingStore;
+    private final RatingIngestionPipeline ratingIngestion;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public MetricsController(PasswordHashingPool hashingPool,
+                             Map<String, AdaptiveConcurrencyLimiter> concurrencyLimiters,
+                             MediaService mediaService, NegativeCache<String> unknownTokens,
+                             RatingColumnStore ratingStore, RatingIngestionPipeline ratingIngestion) {
+        this.hashingPool = hashingPool;
+        this.concurrencyLimiters = concurrencyLimiters;
+        this.mediaService = mediaService;
+        this.unknownTokens = unknownTokens;
+        this.ratingStore = ratingStore;
+        this.ratingIngestion = ratingIngestion;
+    }
+
+    // GET /metrics - Momentaufnahme als JSON
+    public void handleGetMetrics(HttpExchange exchange) throws IOException {
+        if (!"GET".equals(exchange.getRequestMethod())) {
+            sendResponse(exchange, 405, "{\"error\":\"Method Not Allowed\"}".getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("passwordHashing", hashingPool.metrics());
+        Map<String, AdaptiveConcurrencyLimiter.Metrics> concurrency = new LinkedHashMap<>();
+        concurrencyLimiters.forEach((group, limiter) -> concurrency.put(group, limiter.metrics()));
+        metrics.put("concurrencyLimits", concurrency);
+        metrics.put("mediaCache", mediaService.cacheStats());
+        if (mediaService.l2Stats() != null) {
+            metrics.put("mediaL2", mediaService.l2Stats());
+        }
+        metrics.put("coalescedLoads", mediaService.coalescingStats());
+        metrics.put("databaseBreaker", mediaService.breakerStats());
+        Map<String, NegativeCache.Stats> negativeCaches = new LinkedHashMap<>();
+        negativeCaches.put("media", mediaService.negativeCacheStats());
+        if (unknownTokens != null) {
+            negativeCaches.put("tokens", unknownTokens.stats());
+        }
+        metrics.put("negativeCaches", negativeCaches);
+        metrics.put("ratingStore", ratingStore.stats());
+        metrics.put("ratingIngestion", ratingIngestion.stats());
+        sendResponse(exchange, 200, objectMapper.writeValueAsBytes(metrics));
+    }
+
+    private void sendResponse(HttpExchange exchange, int statusCode, byte[] response) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(statusCode, response.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(response);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package org.example.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.sun.net.httpserver.HttpExchange;
+import org.example.database.CircuitBreaker;
+import org.example.exception.CircuitOpenException;
+import org.example.model.MediaEntry;
+import org.example.model.User;
+import org.example.model.UserActivity;
+import org.example.model.UserStats;
+import org.example.service.RankingService;
+import org.example.service.RecommendationService;
+import org.example.service.UserStatsService;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+// Controller für User-bezogene Endpoints (außer Register/Login)
+public class UserController {
+    private final RecommendationService recommendationService;
+    private final RankingService rankingService;
+    private final UserStatsService userStatsService;
+    private final ObjectMapper objectMapper;
+
+    public UserController(RecommendationService recommendationService, RankingService rankingService,
+                          UserStatsService userStatsService) {
+        this.recommendationService = recommendationService;
+        this.rankingService = rankingService;
+        this.userStatsService = userStatsService;
+        this.objectMapper = new ObjectMapper();
+        this.objectMapper.registerModule(new JavaTimeModule());
+    }
+
+    // GET /api/users/{id}/recommendations?type=collaborative|content&limit=10 - nur für den eigenen Account
+    public void handleGetRecommendations(HttpExchange exchange, Integer userId, User authenticatedUser) throws IOException {
+        if (!"GET".equals(exchange.getRequestMethod())) {
+            sendResponse(exchange, 405, "{\"error\":\"Method Not Allowed\"}");
+            return;
+        }
+        if (!Objects.equals(userId, authenticatedUser.getId())) {
+            sendResponse(exchange, 403, "{\"error\":\"Forbidden: Recommendations are only available for your own account.\"}");
+            return;
+        }
+
+        try {
+            Map<String, String> params = parseQuery(exchange);
+            int limit = params.containsKey("limit")
+                    ? Integer.parseInt(params.get("limit"))
+                    : RecommendationService.DEFAULT_LIMIT;
+
+            List<MediaEntry> results = recommendationService.getRecommendations(authenticatedUser, params.get("type"), limit);
+            sendJsonResponse(exchange, 200, results);
+        } catch (IllegalArgumentException e) {
+            // NumberFormatException ist auch eine IllegalArgumentException
+            sendResponse(exchange, 400, "{\"error\":\"" + e.getMessage() + "\"}");
+        } catch (SQLException e) {
+            sendDatabaseError(exchange, e, "{\"error\":\"Database error while fetching recommendations.\"}");
+        }
+    }
+
+    // GET /api/users/{id}/profile - Profil-Statistik (Anzahl Ratings, Durchschnitt, Genre-Verteilung)
+    public void handleGetProfile(HttpExchange exchange, Integer userId) throws IOException {
+        if (!"GET".equals(exchange.getRequestMethod())) {
+            sendResponse(exchange, 405, "{\"error\":\"Method Not Allowed\"}");
+            return;
+        }
+
+        try {
+            Optional<UserStats> stats = userStatsService.getStats(userId);
+            if (stats.isPresent()) {
+                sendJsonResponse(exchange, 200, stats.get());
+            } else {
+                sendResponse(exchange, 404, "{\"error\":\"User not found\"}");
+            }
+        } catch (SQLException e) {
+            sendDatabaseError(exchange, e, "{\"error\":\"Database error while fetching profile.\"}");
+        }
+    }
+
+    // GET /api/users/leaderboard?limit=10 - aktivste User
+    public void handleGetLeaderboard(HttpExchange exchange) throws IOException {
+        if (!"GET".equals(exchange.getRequestMethod())) {
+            sendResponse(exchange, 405, "{\"error\":\"Method Not Allowed\"}");
+            return;
+        }
+
+        try {
+            Map<String, String> params = parseQuery(exchange);
+            int limit = params.containsKey("limit")
+                    ? Integer.parseInt(params.get("limit"))
+                    : RankingService.DEFAULT_LIMIT;
+
+            List<UserActivity> results = rankingService.getMostActiveUsers(limit);
+            sendJsonResponse(exchange, 200, results);
+        } catch (IllegalArgumentException e) {
+            sendResponse(exchange, 400, "{\"error\":\"" + e.getMessage() + "\"}");
+        } catch (SQLException e) {
+            sendDatabaseError(exchange, e, "{\"error\":\"Database error while fetching leaderboard.\"}");
+        }
+    }
+
+    // Query-String "a=1&b=2" in eine Map zerlegen (ohne URL-Decoding, nur einfache Parameter)
+    private Map<String, String> parseQuery(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null || query.isEmpty()) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(pair.substring(0, eq), pair.substring(eq + 1));
+            }
+        }
+        return params;
+    }
+
+    // DB-Ausfall (oder offene Sicherung): 503 mit Retry-After statt 500
+    private void sendDatabaseError(HttpExchange exchange, SQLException e, String message) throws IOException {
+        if (!CircuitBreaker.isOutage(e)) {
+            sendResponse(exchange, 500, message);
+            return;
+        }
+        int retryAfter = e instanceof CircuitOpenException open ? open.getRetryAfterSeconds() : 1;
+        exchange.getResponseHeaders().set("Retry-After", String.valueOf(retryAfter));
+        sendResponse(exchange, 503, "{\"error\":\"Database unavailable, please retry.\"}");
+    }
+
+    private void sendJsonResponse(HttpExchange exchange, int statusCode, Object data) throws IOException {
+        byte[] response = objectMapper.writeValueAsBytes(data);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(statusCode, response.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(response);
+        }
+    }
+
+    private void sendResponse(HttpExchange exchange, int statusCode, String message) throws IOException {
+        byte[] response = message.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(statusCode, response.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(response);
+        }
+    }
+}
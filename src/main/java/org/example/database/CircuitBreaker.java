@@ -0,0 +1,166 @@
+package org.example.database;
+
+import org.example.exception.CircuitOpenException;
+
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Sicherung (Circuit Breaker) vor Datenbankaufrufen.
+ * <p>
+ * Geschlossen: Aufrufe laufen normal, aufeinanderfolgende DB-Ausfälle werden gezählt. Ab {@code failureThreshold}
+ * öffnet die Sicherung; dann schlägt jeder Aufruf sofort mit {@link CircuitOpenException} fehl, statt auf JDBC zu
+ * blockieren. Nach {@code openMillis} darf genau ein Aufruf als Probe durch (halb offen): Erfolg schließt die
+ * Sicherung, ein Fehler öffnet sie für eine weitere Periode.
+ * <p>
+ * Nur Verbindungsfehler und Timeouts zählen (SQLState 08xxx, 57014 query_canceled, 57P0x Shutdown), keine
+ * fachlichen Fehler wie Constraint-Verletzungen.
+ */
+public class CircuitBreaker {
+    public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    public static final long DEFAULT_OPEN_MILLIS = 10_000;
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    /**
+     * Abgesicherter Aufruf (typischerweise eine Repository-Methode).
+     */
+    @FunctionalInterface
+    public interface Call<T> {
+        T call() throws SQLException;
+    }
+
+    /**
+     * Kennzahlen für /metrics.
+     */
+    public record Stats(State state, int consecutiveFailures, long failures, long rejected, long opened) {
+    }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final LongSupplier nanoClock;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAtNanos;
+    // Im halb offenen Zustand läuft höchstens eine Probe
+    private boolean probeInFlight;
+
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder opened = new LongAdder();
+
+    public CircuitBreaker() {
+        this(DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_MILLIS, System::nanoTime);
+    }
+
+    public CircuitBreaker(int failureThreshold, long openMillis, LongSupplier nanoClock) {
+        if (failureThreshold < 1 || openMillis <= 0) {
+            throw new IllegalArgumentException("Threshold and open duration must be positive");
+        }
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openMillis * 1_000_000L;
+        this.nanoClock = nanoClock;
+    }
+
+    public <T> T call(Call<T> call) throws SQLException {
+        boolean probe = acquire();
+        try {
+            T result = call.call();
+            onSuccess(probe);
+            return result;
+        } catch (SQLException e) {
+            if (isOutage(e)) {
+                onFailure(probe);
+            } else {
+                // Fachlicher Fehler: die DB antwortet, also zählt es als Erfolg
+                onSuccess(probe);
+            }
+            throw e;
+        } catch (RuntimeException | Error e) {
+            releaseProbe(probe);
+            throw e;
+        }
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(state, consecutiveFailures, failures.sum(), rejected.sum(), opened.sum());
+    }
+
+    // Fehler, die auf eine nicht erreichbare oder überlastete DB hindeuten
+    public static boolean isOutage(SQLException e) {
+        if (e instanceof SQLTimeoutException || e instanceof SQLTransientException
+                || e instanceof SQLNonTransientConnectionException || e instanceof SQLRecoverableException) {
+            return true;
+        }
+        String sqlState = e.getSQLState();
+        return sqlState != null
+                && (sqlState.startsWith("08") || sqlState.equals("57014") || sqlState.startsWith("57P0"));
+    }
+
+    // true, wenn dieser Aufruf die Probe im halb offenen Zustand ist
+    private synchronized boolean acquire() throws CircuitOpenException {
+        if (state == State.OPEN) {
+            long waited = nanoClock.getAsLong() - openedAtNanos;
+            if (waited < openNanos) {
+                rejected.increment();
+                throw new CircuitOpenException("Database unavailable, please retry.", retryAfterSeconds(waited));
+            }
+            state = State.HALF_OPEN;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probeInFlight) {
+                rejected.increment();
+                throw new CircuitOpenException("Database unavailable, please retry.", 1);
+            }
+            probeInFlight = true;
+            return true;
+        }
+        return false;
+    }
+
+    private synchronized void onSuccess(boolean probe) {
+        consecutiveFailures = 0;
+        if (probe) {
+            probeInFlight = false;
+            state = State.CLOSED;
+        }
+    }
+
+    private synchronized void onFailure(boolean probe) {
+        failures.increment();
+        consecutiveFailures++;
+        if (probe) {
+            probeInFlight = false;
+            open();
+        } else if (state == State.CLOSED && consecutiveFailures >= failureThreshold) {
+            open();
+        }
+    }
+
+    private synchronized void releaseProbe(boolean probe) {
+        if (probe) {
+            // Probe ohne Ergebnis: nächster Aufruf darf es erneut versuchen
+            probeInFlight = false;
+        }
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAtNanos = nanoClock.getAsLong();
+        opened.increment();
+    }
+
+    private int retryAfterSeconds(long waitedNanos) {
+        return (int) Math.max(1, (openNanos - waitedNanos + 999_999_999L) / 1_000_000_000L);
+    }
+}
@@ -19,6 +19,12 @@ public class DatabaseConnection {
     private static final int RETRY_COUNT = 30;
     private static final int RETRY_DELAY_MS = 2000;
 
+    // Namenspräfix der Sequenzen, aus denen die Invalidierungs-Trigger ihre Versionen ziehen
+    public static final String VERSION_SEQUENCE_PREFIX = "mrp_cache_version_";
+
+    // Obergrenze für Abfragen im Request-Pfad: hängt die DB, bricht der Treiber ab statt den Thread zu blockieren
+    public static final int QUERY_TIMEOUT_SECONDS = 5;
+
     // Singleton-Instanz (volatile für Thread-Safety)
     private static volatile DatabaseConnection instance;
     private Connection connection;
@@ -97,6 +103,9 @@ public class DatabaseConnection {
      * <li>ratings: User-Bewertungen für Media-Einträge</li>
      * <li>favorites: Many-to-Many Tabelle für User &lt;-&gt; Media Favoriten</li>
      * <li>rating_likes: Welcher User hat welches Rating geliked</li>
+     * <li>user_stats / user_genre_stats: Materialisierte Profil-Statistiken pro User (inkrementell gepflegt)</li>
+     * <li>token_revocations: Deny-List für signierte Tokens (Logout)</li>
+     * <li>mrp_cache_version_*: Versions-Sequenz pro Cache-Thema, dazu Trigger, die bei Writes per NOTIFY invalidieren</li>
      * </ul>
      *
      * @throws SQLException wenn ein Fehler beim Erstellen der Tabellen auftritt
@@ -118,6 +127,8 @@ public class DatabaseConnection {
 
             // Email-Spalte hinzufügen falls noch nicht vorhanden (für Migration)
             stmt.execute("ALTER TABLE users ADD COLUMN IF NOT EXISTS email VARCHAR(255)");
+            // Ablaufzeit für DB-Tokens (vorher liefen Tokens nie ab)
+            stmt.execute("ALTER TABLE users ADD COLUMN IF NOT EXISTS token_expires_at TIMESTAMP");
 
             // Media-Tabelle: Filme, Serien, Spiele
             // genres ist ein Array (TEXT[]) für mehrere Genres pro Medium
@@ -135,6 +146,8 @@ public class DatabaseConnection {
                     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
                 )
             """);
+            // Versionsnummer pro Media-Eintrag, jedes Update zählt sie hoch (Prüfung gecachter Einträge)
+            stmt.execute("ALTER TABLE media ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 1");
 
             // Ratings-Tabelle: Benutzerbewertungen für Medien
             // UNIQUE(user_id, media_id) = ein User kann ein Medium nur einmal bewerten
@@ -172,6 +185,114 @@ public class DatabaseConnection {
                     PRIMARY KEY(rating_id, user_id)
                 )
             """);
+
+            // User-Statistiken: Summen pro User, werden bei jedem Rating-/Favoriten-Event per Upsert fortgeschrieben
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS user_stats (
+                    user_id INTEGER PRIMARY KEY REFERENCES users(id) ON DELETE CASCADE,
+                    rating_count INTEGER NOT NULL DEFAULT 0,
+                    star_sum BIGINT NOT NULL DEFAULT 0,
+                    favorite_count INTEGER NOT NULL DEFAULT 0,
+                    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                )
+            """);
+
+            // Genre-Verteilung pro User: wie viele bewertete bzw. favorisierte Media dieses Genre haben
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS user_genre_stats (
+                    user_id INTEGER REFERENCES users(id) ON DELETE CASCADE,
+                    genre VARCHAR(100) NOT NULL,
+                    rated INTEGER NOT NULL DEFAULT 0,
+                    favorited INTEGER NOT NULL DEFAULT 0,
+                    PRIMARY KEY(user_id, genre)
+                )
+            """);
+
+            // Widerrufene signierte Tokens: alles vor revoked_before ausgestellte Token des Users ist ungültig
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS token_revocations (
+                    user_id INTEGER PRIMARY KEY REFERENCES users(id) ON DELETE CASCADE,
+                    revoked_before TIMESTAMP NOT NULL
+                )
+            """);
+
+            // Cache-Invalidierung über Knoten hinweg: jeder relevante Write zieht eine Version aus der Sequenz seines
+            // Themas und sendet NOTIFY mrp_invalidation mit "thema|version|schlüssel" - in derselben Transaktion
+            // wie der Write. nextval() sperrt nichts bis zum Commit, Writes desselben Themas warten nicht aufeinander.
+            // Mit viertem Argument 'sha256' geht statt des Schlüssels sein SHA-256 (Hex) raus (z.B. für Tokens)
+            stmt.execute("""
+                CREATE OR REPLACE FUNCTION mrp_notify_invalidation() RETURNS trigger AS $$
+                DECLARE
+                    row_key TEXT;
+                BEGIN
+                    IF TG_OP = 'DELETE' THEN
+                        row_key := to_jsonb(OLD) ->> TG_ARGV[1];
+                    ELSE
+                        row_key := to_jsonb(NEW) ->> TG_ARGV[1];
+                    END IF;
+                    IF TG_NARGS > 3 AND TG_ARGV[3] = 'sha256' THEN
+                        row_key := encode(sha256(convert_to(row_key, 'UTF8')), 'hex');
+                    END IF;
+                    PERFORM pg_notify('mrp_invalidation', TG_ARGV[0] || '|' || nextval(TG_ARGV[2]) || '|' || row_key);
+                    RETURN NULL;
+                END;
+                $$ LANGUAGE plpgsql
+            """);
+            // INSERT auch, damit Negativ-Caches anderer Knoten neue IDs sofort kennen
+            createInvalidationTrigger(stmt, "media", "AFTER INSERT OR UPDATE OR DELETE", "media", "id");
+            createInvalidationTrigger(stmt, "users", "AFTER UPDATE OF token, token_expires_at, password OR DELETE",
+                    "session", "id");
+            // Neu ausgestellte Tokens für den Negativ-Cache unbekannter Tokens - nur als Hash: NOTIFY erreicht jede
+            // Rolle, die LISTEN darf, und ein Klartext-Token wäre dort ein gültiger Login
+            createInvalidationTrigger(stmt, "users_token_invalidation", "users", "AFTER UPDATE OF token",
+                    "NEW.token IS NOT NULL", "token", "token", true);
+            createInvalidationTrigger(stmt, "user_stats", "AFTER INSERT OR UPDATE", "user-stats", "user_id");
+            createInvalidationTrigger(stmt, "token_revocations", "AFTER INSERT OR UPDATE", "revocation", "user_id");
+        }
+    }
+
+    // Trigger neu anlegen (DROP + CREATE statt CREATE OR REPLACE TRIGGER, das erst ab PostgreSQL 14 geht)
+    private static void createInvalidationTrigger(Statement stmt, String table, String events, String topic,
+                                                  String keyColumn) throws SQLException {
+        createInvalidationTrigger(stmt, table + "_invalidation", table, events, null, topic, keyColumn, false);
+    }
+
+    // condition: optionale WHEN-Bedingung, z.B. um NULL-Schlüssel nicht zu melden
+    // hashKey: nur den SHA-256 des Schlüssels senden (für Geheimnisse wie Tokens)
+    private static void createInvalidationTrigger(Statement stmt, String trigger, String table, String events,
+                                                  String condition, String topic, String keyColumn,
+                                                  boolean hashKey) throws SQLException {
+        String sequence = versionSequence(topic);
+        stmt.execute("CREATE SEQUENCE IF NOT EXISTS " + sequence);
+        stmt.execute("DROP TRIGGER IF EXISTS " + trigger + " ON " + table);
+        stmt.execute("CREATE TRIGGER " + trigger + " " + events + " ON " + table + " FOR EACH ROW"
+                + (condition != null ? " WHEN (" + condition + ")" : "")
+                + " EXECUTE FUNCTION mrp_notify_invalidation('" + topic + "', '" + keyColumn + "', '"
+                + sequence + "'" + (hashKey ? ", 'sha256'" : "") + ")");
+    }
+
+    // Versions-Sequenz eines Invalidierungs-Themas ("user-stats" -> mrp_cache_version_user_stats)
+    public static String versionSequence(String topic) {
+        return VERSION_SEQUENCE_PREFIX + topic.replace('-', '_');
+    }
+
+    // Eigene, zusätzliche Verbindung (z.B. für LISTEN, das die geteilte Verbindung blockieren würde)
+    public static Connection openConnection() throws SQLException {
+        return DriverManager.getConnection(URL, USER, PASSWORD);
+    }
+
+    // Für Health-Checks: prüft die bestehende Verbindung, verbindet aber (anders als getInstance()) nicht neu
+    public static boolean isConnectionValid(int timeoutSeconds) throws SQLException {
+        DatabaseConnection current = instance;
+        return current != null && current.connection != null && current.connection.isValid(timeoutSeconds);
+    }
+
+    // Für den Shutdown: bestehende Verbindung schließen, ohne wie getInstance() vorher neu zu verbinden
+    public static void closeInstance() throws SQLException {
+        synchronized (DatabaseConnection.class) {
+            if (instance != null) {
+                instance.close();
+            }
         }
     }
 
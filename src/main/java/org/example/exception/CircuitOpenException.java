@@ -0,0 +1,21 @@
+package org.example.exception;
+
+import java.sql.SQLTransientConnectionException;
+
+/**
+ * Exception für eine offene Sicherung vor der Datenbank - der Aufruf wurde gar nicht erst versucht.
+ * Ist eine SQLException, damit bestehende Fehlerbehandlung greift; Controller antworten damit mit 503.
+ */
+public class CircuitOpenException extends SQLTransientConnectionException {
+    // Empfohlene Wartezeit für den Retry-After-Header
+    private final int retryAfterSeconds;
+
+    public CircuitOpenException(String message, int retryAfterSeconds) {
+        super(message, "08000");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,19 @@
+package org.example.exception;
+
+/**
+ * Exception für 503 Service Unavailable - wird geworfen wenn eine begrenzte Ressource ausgelastet ist.
+ * Beispiel: Warteschlange des Passwort-Hashing-Pools ist voll (Login-Welle).
+ */
+public class ServiceUnavailableException extends RuntimeException {
+    // Empfohlene Wartezeit für den Retry-After-Header
+    private final int retryAfterSeconds;
+
+    public ServiceUnavailableException(String message, int retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,248 @@
+package org.example.model;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Speichersparende, unveränderliche Form eines {@link MediaEntry} für Caches.
+ * <p>
+ * Texte als UTF-8-Bytes (ohne eigenes String-Objekt pro Text), der Media-Typ als Enum,
+ * Genres als Bitmaske über ein globales Genre-Wörterbuch und {@code createdAt} als Mikrosekunden seit Epoch
+ * (UTC, nur als Kodierung - LocalDateTime hat keine Zeitzone). Die Umwandlung ist in beide Richtungen
+ * verlustfrei; was nicht in die kompakte Form passt (unbekannter Typ, Genre-Reihenfolge abweichend von der
+ * Wörterbuch-Reihenfolge, Wörterbuch voll), landet in Ausweichfeldern, die im Normalfall null sind.
+ */
+public final class CompactMedia {
+    private static final long NO_TIMESTAMP = Long.MIN_VALUE;
+    // Größenmodell für estimateBytes (64-Bit-JVM, komprimierte Referenzen)
+    private static final int OBJECT_HEADER = 12;
+    private static final int ARRAY_HEADER = 16;
+    private static final int REFERENCE = 4;
+
+    private final int id;
+    private final int creatorId;
+    private final long version;
+    private final double averageRating;
+    private final long createdAtMicros;
+    private final long genreMask;
+    private final short releaseYear;
+    private final byte ageRestriction;
+    private final MediaType mediaType;
+    private final byte[] title;
+    private final byte[] description;
+    // Nur gesetzt, wenn der Typ kein bekannter Enum-Wert ist
+    private final String otherMediaType;
+    // Nur gesetzt, wenn die Bitmaske die Genre-Liste nicht exakt wiedergibt
+    private final String[] genresFallback;
+    // Jahr und Altersfreigabe passen praktisch immer in short/byte, sonst hier
+    private final int[] wideInts;
+
+    private CompactMedia(MediaEntry media) {
+        this.id = media.getId();
+        this.creatorId = media.getCreatorId();
+        this.version = media.getVersion();
+        this.averageRating = media.getAverageRating();
+        this.createdAtMicros = toMicros(media.getCreatedAt());
+        this.title = utf8(media.getTitle());
+        this.description = utf8(media.getDescription());
+        this.mediaType = MediaType.fromValue(media.getMediaType());
+        this.otherMediaType = mediaType == null ? media.getMediaType() : null;
+
+        long mask = GenreDictionary.encode(media.getGenres());
+        this.genreMask = mask;
+        this.genresFallback = mask == GenreDictionary.UNENCODABLE ? media.getGenres().toArray(new String[0]) : null;
+
+        int year = media.getReleaseYear();
+        int age = media.getAgeRestriction();
+        boolean fits = year == (short) year && age == (byte) age;
+        this.releaseYear = (short) year;
+        this.ageRestriction = (byte) age;
+        this.wideInts = fits ? null : new int[]{year, age};
+    }
+
+    public static CompactMedia of(MediaEntry media) {
+        return new CompactMedia(media);
+    }
+
+    // Neuer, veränderbarer MediaEntry (der Aufrufer bekommt jedes Mal eine eigene Kopie)
+    public MediaEntry toMediaEntry() {
+        MediaEntry media = new MediaEntry();
+        media.setId(id);
+        media.setCreatorId(creatorId);
+        media.setVersion(version);
+        media.setAverageRating(averageRating);
+        media.setCreatedAt(fromMicros(createdAtMicros));
+        media.setTitle(string(title));
+        media.setDescription(string(description));
+        media.setMediaType(mediaType != null ? mediaType.value() : otherMediaType);
+        media.setGenres(genres());
+        media.setReleaseYear(wideInts != null ? wideInts[0] : releaseYear);
+        media.setAgeRestriction(wideInts != null ? wideInts[1] : ageRestriction);
+        return media;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public List<String> genres() {
+        if (genresFallback != null) {
+            return List.of(genresFallback);
+        }
+        if (genreMask == GenreDictionary.NULL_LIST) {
+            return null;
+        }
+        return GenreDictionary.decode(genreMask);
+    }
+
+    /**
+     * Heap-Größe dieser Darstellung (Modell siehe {@link #estimateBytes(MediaEntry)}).
+     */
+    public long estimateBytes() {
+        // Header + 2 int + 4 long/double + short + byte + 6 Referenzen; das Enum ist geteilt
+        long bytes = align(OBJECT_HEADER + 2 * 4 + 4 * 8 + 2 + 1 + 6 * REFERENCE);
+        bytes += arrayBytes(title) + arrayBytes(description) + stringBytes(otherMediaType);
+        if (genresFallback != null) {
+            bytes += align(ARRAY_HEADER + (long) REFERENCE * genresFallback.length);
+            for (String genre : genresFallback) {
+                bytes += stringBytes(genre);
+            }
+        }
+        if (wideInts != null) {
+            bytes += align(ARRAY_HEADER + 2 * 4);
+        }
+        return bytes;
+    }
+
+    /**
+     * Heap-Größe eines MediaEntry samt allem, was nur er referenziert. Modell für eine 64-Bit-JVM mit
+     * komprimierten Referenzen: Objekt-Header 12 Byte, Array-Header 16 Byte, Referenz 4 Byte, auf 8 Byte
+     * aufgerundet; Strings mit Compact Strings (Latin-1 ein Byte pro Zeichen, sonst zwei).
+     * Strings und Listen zählen voll, weil JDBC sie pro Zeile neu anlegt.
+     */
+    public static long estimateBytes(MediaEntry media) {
+        // Header + 4 int + double + long + 5 Referenzen
+        long bytes = align(OBJECT_HEADER + 4 * 4 + 8 + 8 + 5 * REFERENCE);
+        bytes += stringBytes(media.getTitle()) + stringBytes(media.getDescription())
+                + stringBytes(media.getMediaType());
+        if (media.getGenres() != null) {
+            // Liste mit Backing-Array (Arrays.asList bzw. ArrayList sind etwa gleich groß)
+            bytes += align(OBJECT_HEADER + REFERENCE + 4) + align(ARRAY_HEADER + (long) REFERENCE * media.getGenres().size());
+            for (String genre : media.getGenres()) {
+                bytes += stringBytes(genre);
+            }
+        }
+        if (media.getCreatedAt() != null) {
+            // LocalDateTime -> LocalDate (int, 2 short) + LocalTime (3 byte, int)
+            bytes += align(OBJECT_HEADER + 2 * REFERENCE) + align(OBJECT_HEADER + 4 + 2 + 2)
+                    + align(OBJECT_HEADER + 3 + 4);
+        }
+        return bytes;
+    }
+
+    private static long arrayBytes(byte[] array) {
+        return array == null ? 0 : align(ARRAY_HEADER + array.length);
+    }
+
+    // String-Objekt (Header, byte[]-Referenz, hash, coder, hashIsZero) plus sein byte[]
+    private static long stringBytes(String value) {
+        if (value == null) {
+            return 0;
+        }
+        boolean latin1 = value.chars().allMatch(c -> c < 256);
+        return align(OBJECT_HEADER + REFERENCE + 4 + 1 + 1)
+                + align(ARRAY_HEADER + (long) value.length() * (latin1 ? 1 : 2));
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(byte[] value) {
+        return value == null ? null : new String(value, StandardCharsets.UTF_8);
+    }
+
+    private static long toMicros(LocalDateTime value) {
+        if (value == null) {
+            return NO_TIMESTAMP;
+        }
+        return value.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + value.getNano() / 1_000;
+    }
+
+    private static LocalDateTime fromMicros(long micros) {
+        if (micros == NO_TIMESTAMP) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+
+    /**
+     * Globales Genre-Wörterbuch: Genre-String -> Bit (höchstens 62 Genres, danach greift das Ausweichfeld).
+     * Wächst nur; Bits werden in der Reihenfolge des ersten Auftretens vergeben.
+     */
+    static final class GenreDictionary {
+        // Bit 62/63 sind reserviert: nicht kodierbar bzw. Genre-Liste null
+        static final long UNENCODABLE = 1L << 62;
+        static final long NULL_LIST = 1L << 63;
+        private static final int MAX_GENRES = 62;
+
+        private static final Map<String, Integer> BITS = new HashMap<>();
+        private static volatile String[] names = new String[0];
+
+        private GenreDictionary() {
+        }
+
+        // Bitmaske, oder UNENCODABLE wenn die Reihenfolge nicht der Bit-Reihenfolge entspricht,
+        // ein Genre doppelt vorkommt oder das Wörterbuch voll ist
+        static synchronized long encode(List<String> genres) {
+            if (genres == null) {
+                return NULL_LIST;
+            }
+            long mask = 0;
+            int previousBit = -1;
+            for (String genre : genres) {
+                Integer bit = genre == null ? null : BITS.get(genre);
+                if (bit == null) {
+                    if (genre == null || BITS.size() >= MAX_GENRES) {
+                        return UNENCODABLE;
+                    }
+                    bit = BITS.size();
+                    BITS.put(genre, bit);
+                    String[] grown = Arrays.copyOf(names, bit + 1);
+                    grown[bit] = genre;
+                    names = grown;
+                }
+                if (bit <= previousBit) {
+                    return UNENCODABLE;
+                }
+                previousBit = bit;
+                mask |= 1L << bit;
+            }
+            return mask;
+        }
+
+        static List<String> decode(long mask) {
+            if (mask == 0) {
+                return Collections.emptyList();
+            }
+            String[] known = names;
+            List<String> genres = new ArrayList<>(Long.bitCount(mask));
+            for (long rest = mask; rest != 0; rest &= rest - 1) {
+                genres.add(known[Long.numberOfTrailingZeros(rest)]);
+            }
+            return Collections.unmodifiableList(genres);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package org.example.model;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.fasterxml.jackson.datatype.jsr310.deser.LocalDateTimeDeserializer;
@@ -27,6 +28,10 @@ public class MediaEntry {
     @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss")
     private LocalDateTime createdAt;
 
+    // Wird bei jedem Update in der DB hochgezählt, z.B. zur Prüfung von Cache-Einträgen
+    @JsonIgnore
+    private long version;
+
     public MediaEntry() {
         this.createdAt = LocalDateTime.now();
     }
@@ -133,6 +138,14 @@ public class MediaEntry {
         this.createdAt = createdAt;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     public double getAverageScore() {
         return this.averageRating;
     }
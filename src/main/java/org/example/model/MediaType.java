@@ -0,0 +1,31 @@
+package org.example.model;
+
+/**
+ * Bekannte Media-Typen laut Spezifikation. In der DB und im JSON bleibt der Typ ein String;
+ * das Enum wird nur für kompakte Darstellungen ({@link CompactMedia}) benutzt.
+ */
+public enum MediaType {
+    MOVIE("movie"),
+    SERIES("series"),
+    GAME("game");
+
+    private final String value;
+
+    MediaType(String value) {
+        this.value = value;
+    }
+
+    public String value() {
+        return value;
+    }
+
+    // Exakter Vergleich (auch Groß-/Kleinschreibung), damit die Umwandlung verlustfrei bleibt; sonst null
+    public static MediaType fromValue(String value) {
+        for (MediaType type : values()) {
+            if (type.value.equals(value)) {
+                return type;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,7 @@
+package org.example.model;
+
+/**
+ * Eintrag einer Media-Rangliste: Platz, Score des Rankings und Anzahl Ratings, plus das Media selbst.
+ */
+public record RankedMedia(int rank, double score, int ratingCount, MediaEntry media) {
+}
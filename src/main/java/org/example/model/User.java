@@ -1,5 +1,6 @@
 package org.example.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import java.time.LocalDateTime;
@@ -17,6 +18,10 @@ public class User {
     private LocalDateTime createdAt;
     private String token;
 
+    // Ablaufzeit des DB-Tokens, wird nicht nach außen serialisiert
+    @JsonIgnore
+    private LocalDateTime tokenExpiresAt;
+
     public User() {
         this.createdAt = LocalDateTime.now();
     }
@@ -90,6 +95,14 @@ public class User {
         this.token = token;
     }
 
+    public LocalDateTime getTokenExpiresAt() {
+        return tokenExpiresAt;
+    }
+
+    public void setTokenExpiresAt(LocalDateTime tokenExpiresAt) {
+        this.tokenExpiresAt = tokenExpiresAt;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,8 @@
+package org.example.model;
+
+/**
+ * Eintrag der Rangliste der aktivsten User: Platz, Aktivitäts-Score und die einzelnen Zähler.
+ */
+public record UserActivity(int rank, int userId, String username, int ratings, int likesReceived,
+                           int confirmedComments, double score) {
+}
@@ -0,0 +1,82 @@
+package org.example.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Materialisierte Profil-Statistik eines Users (Projektion aus ratings und favorites).
+ * Unveränderlich: Events erzeugen über {@link #withRating} / {@link #withFavorite} eine neue Instanz,
+ * damit der Cache Einträge ohne Locking austauschen kann.
+ *
+ * @param ratedGenres    Genre -> Anzahl bewerteter Media mit diesem Genre
+ * @param favoriteGenres Genre -> Anzahl favorisierter Media mit diesem Genre
+ */
+public record UserStats(int userId, int ratingCount, @JsonIgnore long starSum, int favoriteCount,
+                        Map<String, Integer> ratedGenres, Map<String, Integer> favoriteGenres) {
+
+    public UserStats {
+        ratedGenres = Collections.unmodifiableMap(ratedGenres);
+        favoriteGenres = Collections.unmodifiableMap(favoriteGenres);
+    }
+
+    // Leere Statistik für User ohne Ratings und Favoriten
+    public static UserStats empty(int userId) {
+        return new UserStats(userId, 0, 0, 0, Map.of(), Map.of());
+    }
+
+    @JsonProperty("averageStars")
+    public double averageStars() {
+        return ratingCount > 0 ? (double) starSum / ratingCount : 0.0;
+    }
+
+    // Häufigstes Genre unter den Favoriten, ohne Favoriten das häufigste bewertete Genre
+    @JsonProperty("topGenre")
+    public String topGenre() {
+        String top = maxKey(favoriteGenres);
+        return top != null ? top : maxKey(ratedGenres);
+    }
+
+    public UserStats withRating(int countDelta, int starDelta, List<String> genres) {
+        return new UserStats(userId, ratingCount + countDelta, starSum + starDelta, favoriteCount,
+                adjust(ratedGenres, genres, countDelta), favoriteGenres);
+    }
+
+    public UserStats withFavorite(int delta, List<String> genres) {
+        return new UserStats(userId, ratingCount, starSum, favoriteCount + delta,
+                ratedGenres, adjust(favoriteGenres, genres, delta));
+    }
+
+    private static Map<String, Integer> adjust(Map<String, Integer> counts, List<String> genres, int delta) {
+        if (delta == 0 || genres.isEmpty()) {
+            return counts;
+        }
+        Map<String, Integer> copy = new HashMap<>(counts);
+        for (String genre : genres) {
+            int value = copy.getOrDefault(genre, 0) + delta;
+            if (value > 0) {
+                copy.put(genre, value);
+            } else {
+                copy.remove(genre);
+            }
+        }
+        return copy;
+    }
+
+    private static String maxKey(Map<String, Integer> counts) {
+        String best = null;
+        int bestCount = 0;
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            if (entry.getValue() > bestCount
+                    || (entry.getValue() == bestCount && best != null && entry.getKey().compareTo(best) < 0)) {
+                best = entry.getKey();
+                bestCount = entry.getValue();
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,240 @@
+package org.example.ranking;
+
+import org.example.model.Rating;
+import org.example.repository.RatingListener;
+import org.example.repository.RatingRepository;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rangliste der aktivsten User aus In-Memory-Zählern (Ratings, erhaltene Likes, freigegebene Kommentare).
+ * <p>
+ * Die Zähler werden über {@link RatingListener}-Events fortgeschrieben. Die besten K User liegen in einem
+ * indizierten Min-Heap: steigt ein Score, wird nur dieser User im Heap verschoben oder verdrängt das Minimum
+ * (O(log K)). Sinkende Scores (gelöschte Ratings) können dazu führen, dass ein User außerhalb des Heaps
+ * eigentlich besser wäre - das und verlorene Events korrigiert {@link #reconcile(RatingRepository)},
+ * das die Zähler periodisch per GROUP BY aus der Datenbank neu setzt und den Heap neu aufbaut.
+ */
+public class ActiveUserLeaderboard implements RatingListener {
+    public static final int DEFAULT_CAPACITY = 100;
+
+    private static final double RATING_WEIGHT = 1.0;
+    private static final double LIKE_WEIGHT = 0.5;
+    private static final double CONFIRMED_COMMENT_WEIGHT = 2.0;
+
+    /**
+     * Zählerstand eines Users zum Zeitpunkt der Abfrage.
+     */
+    public record Standing(int userId, int ratings, int likesReceived, int confirmedComments, double score) {
+    }
+
+    private final int capacity;
+
+    // Alle Felder unten nur unter dem Monitor von this verwenden
+    private Map<Integer, Activity> activities = new HashMap<>();
+    private Activity[] heap;
+    private int heapSize;
+    // Events während eines Abgleichs werden zusätzlich hier gesammelt und auf das DB-Ergebnis addiert
+    private Map<Integer, Activity> pendingDeltas;
+
+    public ActiveUserLeaderboard() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public ActiveUserLeaderboard(int capacity) {
+        this.capacity = capacity;
+        this.heap = new Activity[capacity];
+    }
+
+    /**
+     * Setzt alle Zähler auf den Stand der Datenbank. Die (teure) Abfrage läuft ohne Lock;
+     * Events, die währenddessen eintreffen, werden danach auf das Ergebnis addiert.
+     * Ein Event, das schon im DB-Ergebnis enthalten ist, kann dabei doppelt zählen - diese kleine
+     * Abweichung korrigiert der nächste Abgleich.
+     */
+    public void reconcile(RatingRepository ratingRepository) throws SQLException {
+        synchronized (this) {
+            pendingDeltas = new HashMap<>();
+        }
+        Map<Integer, Activity> fresh = new HashMap<>();
+        try {
+            ratingRepository.forEachUserActivity((userId, ratings, likesReceived, confirmedComments) -> {
+                Activity activity = new Activity(userId);
+                activity.ratings = ratings;
+                activity.likesReceived = likesReceived;
+                activity.confirmedComments = confirmedComments;
+                fresh.put(userId, activity);
+            });
+        } catch (SQLException e) {
+            synchronized (this) {
+                pendingDeltas = null;
+            }
+            throw e;
+        }
+
+        synchronized (this) {
+            for (Activity delta : pendingDeltas.values()) {
+                Activity activity = fresh.computeIfAbsent(delta.userId, Activity::new);
+                activity.ratings += delta.ratings;
+                activity.likesReceived += delta.likesReceived;
+                activity.confirmedComments += delta.confirmedComments;
+            }
+            pendingDeltas = null;
+            activities = fresh;
+            rebuildHeap();
+        }
+    }
+
+    // Die besten limit User, absteigend nach Score (Kopie des Heaps, O(K log K))
+    public synchronized List<Standing> top(int limit) {
+        List<Standing> result = new ArrayList<>(heapSize);
+        for (int i = 0; i < heapSize; i++) {
+            result.add(heap[i].standing());
+        }
+        result.sort((a, b) -> a.score() != b.score()
+                ? Double.compare(b.score(), a.score())
+                : Integer.compare(a.userId(), b.userId()));
+        return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+    }
+
+    @Override
+    public void onRatingSaved(Rating rating) {
+        if (rating.getUserId() != null) {
+            record(rating.getUserId(), 1, 0, 0);
+        }
+    }
+
+    @Override
+    public void onRatingDeleted(Rating rating) {
+        if (rating.getUserId() != null) {
+            record(rating.getUserId(), -1, 0, 0);
+        }
+    }
+
+    @Override
+    public void onLikeAdded(int ratingId, int mediaId, int ratingAuthorId, int likedByUserId) {
+        record(ratingAuthorId, 0, 1, 0);
+    }
+
+    @Override
+    public void onCommentConfirmed(int ratingId, int mediaId, int ratingAuthorId) {
+        record(ratingAuthorId, 0, 0, 1);
+    }
+
+    private synchronized void record(int userId, int ratings, int likes, int confirmed) {
+        if (pendingDeltas != null) {
+            Activity delta = pendingDeltas.computeIfAbsent(userId, Activity::new);
+            delta.ratings += ratings;
+            delta.likesReceived += likes;
+            delta.confirmedComments += confirmed;
+        }
+
+        Activity activity = activities.computeIfAbsent(userId, Activity::new);
+        double before = activity.score();
+        activity.ratings += ratings;
+        activity.likesReceived += likes;
+        activity.confirmedComments += confirmed;
+        double after = activity.score();
+
+        if (activity.heapIndex >= 0) {
+            // Im Heap: nur nach oben/unten verschieben
+            if (after > before) {
+                siftDown(activity.heapIndex);
+            } else {
+                siftUp(activity.heapIndex);
+            }
+        } else if (heapSize < capacity) {
+            heap[heapSize] = activity;
+            activity.heapIndex = heapSize;
+            siftUp(heapSize++);
+        } else if (after > heap[0].score()) {
+            // Minimum verdrängen
+            heap[0].heapIndex = -1;
+            heap[0] = activity;
+            activity.heapIndex = 0;
+            siftDown(0);
+        }
+    }
+
+    private void rebuildHeap() {
+        for (int i = 0; i < heapSize; i++) {
+            heap[i] = null;
+        }
+        heapSize = 0;
+        for (Activity activity : activities.values()) {
+            activity.heapIndex = -1;
+            if (heapSize < capacity) {
+                heap[heapSize] = activity;
+                activity.heapIndex = heapSize;
+                siftUp(heapSize++);
+            } else if (activity.score() > heap[0].score()) {
+                heap[0].heapIndex = -1;
+                heap[0] = activity;
+                activity.heapIndex = 0;
+                siftDown(0);
+            }
+        }
+    }
+
+    private void siftUp(int pos) {
+        while (pos > 0) {
+            int parent = (pos - 1) >>> 1;
+            if (heap[parent].score() <= heap[pos].score()) {
+                return;
+            }
+            swap(parent, pos);
+            pos = parent;
+        }
+    }
+
+    private void siftDown(int pos) {
+        while (true) {
+            int left = 2 * pos + 1;
+            if (left >= heapSize) {
+                return;
+            }
+            int smallest = left;
+            if (left + 1 < heapSize && heap[left + 1].score() < heap[left].score()) {
+                smallest = left + 1;
+            }
+            if (heap[pos].score() <= heap[smallest].score()) {
+                return;
+            }
+            swap(pos, smallest);
+            pos = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        Activity tmp = heap[a];
+        heap[a] = heap[b];
+        heap[b] = tmp;
+        heap[a].heapIndex = a;
+        heap[b].heapIndex = b;
+    }
+
+    // Veränderlicher Zählerstand eines Users, heapIndex = Position im Heap oder -1
+    private static final class Activity {
+        final int userId;
+        int ratings;
+        int likesReceived;
+        int confirmedComments;
+        int heapIndex = -1;
+
+        Activity(int userId) {
+            this.userId = userId;
+        }
+
+        double score() {
+            return RATING_WEIGHT * ratings + LIKE_WEIGHT * likesReceived + CONFIRMED_COMMENT_WEIGHT * confirmedComments;
+        }
+
+        Standing standing() {
+            return new Standing(userId, ratings, likesReceived, confirmedComments, score());
+        }
+    }
+}
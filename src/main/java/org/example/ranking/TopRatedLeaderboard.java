@@ -0,0 +1,174 @@
+package org.example.ranking;
+
+import org.example.model.Rating;
+import org.example.repository.MediaListener;
+import org.example.repository.RatingListener;
+import org.example.repository.RatingSource;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Top-Rated-Rangliste mit Bayes'schem Durchschnitt statt naivem Mittelwert.
+ * <p>
+ * score = (PRIOR_WEIGHT * globalMean + Summe der Sterne) / (PRIOR_WEIGHT + Anzahl Ratings)
+ * <p>
+ * Ein einzelnes 5-Sterne-Rating zieht den Score so nur leicht über den globalen Schnitt, während
+ * viel bewertete Media ihren echten Durchschnitt erreichen. Die Einträge liegen in einer
+ * {@link ConcurrentSkipListSet} (Score absteigend, dann Media-ID): jede Rating-Änderung ersetzt
+ * genau einen Eintrag in O(log n). Der globale Mittelwert wird nur bei {@link #recalibrate()} übernommen,
+ * sonst müsste jedes Rating alle Einträge verschieben.
+ */
+public class TopRatedLeaderboard implements RatingListener, MediaListener {
+    // Gewicht des Priors in "virtuellen Ratings"
+    public static final int PRIOR_WEIGHT = 10;
+    private static final double DEFAULT_PRIOR_MEAN = 3.0;
+    // Neuaufbau erst ab dieser Abweichung des globalen Mittelwerts
+    private static final double RECALIBRATION_THRESHOLD = 0.01;
+
+    /**
+     * Ein Eintrag der Rangliste. Unveränderlich, weil er Schlüssel in der Skip-List ist.
+     */
+    public record Entry(int mediaId, double score, long starSum, int ratingCount) {
+    }
+
+    private static final Comparator<Entry> ORDER = Comparator
+            .comparingDouble(Entry::score).reversed()
+            .thenComparingInt(Entry::mediaId);
+
+    private final NavigableSet<Entry> ranking = new ConcurrentSkipListSet<>(ORDER);
+    // Aktueller Eintrag pro Media; compute() sorgt dafür, dass Entfernen + Einfügen pro Media atomar ist
+    private final Map<Integer, Entry> entries = new ConcurrentHashMap<>();
+
+    private final AtomicLong totalStars = new AtomicLong();
+    private final AtomicLong totalRatings = new AtomicLong();
+    private volatile double priorMean = DEFAULT_PRIOR_MEAN;
+
+    // Initiales Befüllen: Summen pro Media sammeln, dann Prior bestimmen und Einträge anlegen
+    public void load(RatingSource ratingSource) throws SQLException {
+        Map<Integer, long[]> sums = new HashMap<>();
+        ratingSource.forEachRating((userId, mediaId, stars, timestamp) -> {
+            long[] acc = sums.computeIfAbsent(mediaId, id -> new long[2]);
+            acc[0] += stars;
+            acc[1]++;
+        });
+        for (Map.Entry<Integer, long[]> sum : sums.entrySet()) {
+            totalStars.addAndGet(sum.getValue()[0]);
+            totalRatings.addAndGet(sum.getValue()[1]);
+        }
+        if (totalRatings.get() > 0) {
+            priorMean = (double) totalStars.get() / totalRatings.get();
+        }
+        for (Map.Entry<Integer, long[]> sum : sums.entrySet()) {
+            apply(sum.getKey(), sum.getValue()[0], (int) sum.getValue()[1]);
+        }
+    }
+
+    /**
+     * Eine Seite der Rangliste (page beginnt bei 0). Kosten O(page * size + size),
+     * da die Skip-List keinen Rang-Index hat - vordere Seiten sind aber der Normalfall.
+     */
+    public List<Entry> page(int page, int size) {
+        List<Entry> result = new ArrayList<>(size);
+        long skip = (long) page * size;
+        Iterator<Entry> it = ranking.iterator();
+        while (it.hasNext() && result.size() < size) {
+            Entry entry = it.next();
+            if (skip > 0) {
+                skip--;
+            } else {
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Übernimmt den aktuellen globalen Mittelwert als Prior und berechnet alle Scores neu,
+     * falls er sich merklich verschoben hat. Wird periodisch vom Scheduler aufgerufen.
+     */
+    public void recalibrate() {
+        long count = totalRatings.get();
+        if (count == 0) {
+            return;
+        }
+        double mean = (double) totalStars.get() / count;
+        if (Math.abs(mean - priorMean) < RECALIBRATION_THRESHOLD) {
+            return;
+        }
+        priorMean = mean;
+        for (Integer mediaId : entries.keySet()) {
+            apply(mediaId, 0, 0);
+        }
+    }
+
+    @Override
+    public void onRatingSaved(Rating rating) {
+        if (rating.getMediaId() != null && rating.getStars() != null) {
+            record(rating.getMediaId(), rating.getStars(), 1);
+        }
+    }
+
+    @Override
+    public void onRatingUpdated(Rating rating, int previousStars) {
+        if (rating.getMediaId() != null && rating.getStars() != null) {
+            record(rating.getMediaId(), rating.getStars() - previousStars, 0);
+        }
+    }
+
+    @Override
+    public void onRatingDeleted(Rating rating) {
+        if (rating.getMediaId() != null && rating.getStars() != null) {
+            record(rating.getMediaId(), -rating.getStars(), -1);
+        }
+    }
+
+    // Normalfall: die Ratings wurden vorher einzeln als gelöscht gemeldet und der Eintrag ist schon weg.
+    // Sonst (Ratings an den Events vorbei gelöscht, Media auf anderem Knoten gelöscht) den Rest abziehen
+    @Override
+    public void onMediaDeleted(int mediaId) {
+        Entry removed = entries.remove(mediaId);
+        if (removed != null) {
+            ranking.remove(removed);
+            totalStars.addAndGet(-removed.starSum());
+            totalRatings.addAndGet(-removed.ratingCount());
+        }
+    }
+
+    private void record(int mediaId, long starDelta, int countDelta) {
+        totalStars.addAndGet(starDelta);
+        totalRatings.addAndGet(countDelta);
+        apply(mediaId, starDelta, countDelta);
+    }
+
+    // Alten Eintrag aus der Skip-List nehmen, neuen mit aktualisierten Summen einfügen (O(log n))
+    private void apply(int mediaId, long starDelta, int countDelta) {
+        entries.compute(mediaId, (id, old) -> {
+            long sum = (old != null ? old.starSum() : 0) + starDelta;
+            int count = (old != null ? old.ratingCount() : 0) + countDelta;
+            if (old != null) {
+                ranking.remove(old);
+            }
+            if (count <= 0) {
+                return null;
+            }
+            double score = (PRIOR_WEIGHT * priorMean + sum) / (PRIOR_WEIGHT + count);
+            Entry updated = new Entry(id, score, sum, count);
+            ranking.add(updated);
+            return updated;
+        });
+    }
+}
@@ -0,0 +1,159 @@
+package org.example.ranking;
+
+import org.example.model.MediaEntry;
+import org.example.model.Rating;
+import org.example.recommendation.ScoredItem;
+import org.example.repository.MediaListener;
+import org.example.repository.MediaRepository;
+import org.example.repository.RatingListener;
+import org.example.repository.RatingSource;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Trending-Ranking: Rating- und Like-Aktivität pro Media mit exponentiellem Zerfall.
+ * <p>
+ * Jeder Zähler ist ein einzelnes {@link AtomicLong}: obere 32 Bit = Score als float,
+ * untere 32 Bit = Zeitpunkt der letzten Änderung in Sekunden. Ein Event zerfällt den alten Wert
+ * bis "jetzt" und addiert sein Gewicht - per CAS, also ohne Locks und ohne Allokation.
+ * <p>
+ * {@link #refresh()} läuft periodisch, extrahiert die Top-K, lädt deren Details in einem Round-Trip
+ * und veröffentlicht eine unveränderliche Liste. Lesezugriffe sind damit O(K) ohne Datenbank.
+ */
+public class TrendingTracker implements RatingListener, MediaListener {
+    public static final Duration DEFAULT_HALF_LIFE = Duration.ofHours(12);
+    public static final int DEFAULT_TOP_K = 50;
+
+    private static final float RATING_WEIGHT = 1.0f;
+    private static final float LIKE_WEIGHT = 0.5f;
+    // Zähler unter diesem Wert werden beim Refresh entfernt (Speicher bleibt begrenzt)
+    private static final float PRUNE_THRESHOLD = 0.01f;
+
+    private final MediaRepository mediaRepository;
+    private final double decayPerSecond;
+    private final int topK;
+    private final LongSupplier clock;
+
+    private final Map<Integer, AtomicLong> counters = new ConcurrentHashMap<>();
+    private volatile List<MediaEntry> snapshot = List.of();
+
+    public TrendingTracker(MediaRepository mediaRepository) {
+        this(mediaRepository, DEFAULT_HALF_LIFE, DEFAULT_TOP_K, System::currentTimeMillis);
+    }
+
+    public TrendingTracker(MediaRepository mediaRepository, Duration halfLife, int topK, LongSupplier clock) {
+        this.mediaRepository = mediaRepository;
+        this.decayPerSecond = Math.log(2) / halfLife.toSeconds();
+        this.topK = topK;
+        this.clock = clock;
+    }
+
+    // Initiales Befüllen aus den vorhandenen Ratings (mit deren Zeitstempeln, ältere zählen weniger)
+    // Likes haben keinen Zeitstempel in der DB und werden erst ab dem Start gezählt
+    public void load(RatingSource ratingSource) throws SQLException {
+        ratingSource.forEachRating((userId, mediaId, stars, timestamp) -> record(mediaId, RATING_WEIGHT, timestamp));
+    }
+
+    // Aktuelle Trending-Liste (höchstens limit Einträge), O(limit), ohne DB-Zugriff
+    public List<MediaEntry> getTrending(int limit) {
+        List<MediaEntry> current = snapshot;
+        return current.size() > limit ? current.subList(0, limit) : current;
+    }
+
+    /**
+     * Top-K extrahieren und als neuen Snapshot veröffentlichen. Wird periodisch vom Scheduler aufgerufen.
+     */
+    public void refresh() throws SQLException {
+        long nowSeconds = clock.getAsLong() / 1000;
+        PriorityQueue<ScoredItem> best = new PriorityQueue<>(topK + 1, Comparator.comparingDouble(ScoredItem::score));
+        for (Map.Entry<Integer, AtomicLong> entry : counters.entrySet()) {
+            AtomicLong counter = entry.getValue();
+            float score = decayed(counter.get(), nowSeconds);
+            if (score < PRUNE_THRESHOLD) {
+                // Nur entfernen, wenn sich der Zähler seitdem nicht geändert hat
+                // (ein Event, das genau jetzt dazwischenkommt, geht im Zweifel verloren - für Trending vertretbar)
+                counters.remove(entry.getKey(), counter);
+                continue;
+            }
+            best.offer(new ScoredItem(entry.getKey(), score));
+            if (best.size() > topK) {
+                best.poll();
+            }
+        }
+
+        List<ScoredItem> ranked = new ArrayList<>(best);
+        ranked.sort(Comparator.comparingDouble(ScoredItem::score).reversed());
+        List<Integer> ids = new ArrayList<>(ranked.size());
+        for (ScoredItem item : ranked) {
+            ids.add(item.mediaId());
+        }
+        snapshot = List.copyOf(mediaRepository.findByIds(ids));
+    }
+
+    @Override
+    public void onRatingSaved(Rating rating) {
+        if (rating.getMediaId() != null) {
+            record(rating.getMediaId(), RATING_WEIGHT, clock.getAsLong());
+        }
+    }
+
+    // Gelöschtes Media sofort aus Zähler und Snapshot nehmen, nicht erst beim nächsten Refresh
+    @Override
+    public void onMediaDeleted(int mediaId) {
+        counters.remove(mediaId);
+        List<MediaEntry> current = snapshot;
+        if (current.stream().anyMatch(media -> media.getId() == mediaId)) {
+            snapshot = current.stream().filter(media -> media.getId() != mediaId).toList();
+        }
+    }
+
+    @Override
+    public void onLikeAdded(int ratingId, int mediaId, int ratingAuthorId, int likedByUserId) {
+        record(mediaId, LIKE_WEIGHT, clock.getAsLong());
+    }
+
+    // Aktueller (zerfallener) Score eines Media, 0 wenn unbekannt
+    public float scoreOf(int mediaId) {
+        AtomicLong counter = counters.get(mediaId);
+        return counter == null ? 0f : decayed(counter.get(), clock.getAsLong() / 1000);
+    }
+
+    private void record(int mediaId, float weight, long eventMillis) {
+        AtomicLong counter = counters.computeIfAbsent(mediaId, id -> new AtomicLong(pack(0f, eventMillis / 1000)));
+        long eventSeconds = eventMillis / 1000;
+        while (true) {
+            long current = counter.get();
+            long lastSeconds = Integer.toUnsignedLong((int) current);
+            long next;
+            if (eventSeconds >= lastSeconds) {
+                next = pack(decayed(current, eventSeconds) + weight, eventSeconds);
+            } else {
+                // Älteres Event (z.B. beim Laden): Gewicht auf den Stand des Zählers zerfallen lassen
+                float aged = (float) (weight * Math.exp(-decayPerSecond * (lastSeconds - eventSeconds)));
+                next = pack(Float.intBitsToFloat((int) (current >>> 32)) + aged, lastSeconds);
+            }
+            if (counter.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+
+    private float decayed(long packed, long nowSeconds) {
+        float value = Float.intBitsToFloat((int) (packed >>> 32));
+        long elapsed = nowSeconds - Integer.toUnsignedLong((int) packed);
+        return elapsed <= 0 ? value : (float) (value * Math.exp(-decayPerSecond * elapsed));
+    }
+
+    private static long pack(float value, long seconds) {
+        return ((long) Float.floatToIntBits(value) << 32) | (seconds & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,380 @@
+package org.example.recommendation;
+
+import org.example.model.Rating;
+import org.example.repository.MediaListener;
+import org.example.repository.RatingListener;
+import org.example.repository.RatingSource;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * "User, die dieses Media bewertet haben, bewerteten auch ..." - Co-Occurrence-Zähler über Rating-Events.
+ * <p>
+ * Paare (a, b) mit a &lt; b werden als long gepackt und in einer primitiven {@link LongIntHashMap}
+ * auf Zähler-Slots abgebildet. Die Zahl der Slots ist fest (Space-Saving-Sketch): ist der Sketch voll,
+ * übernimmt ein neues Paar den Slot mit dem kleinsten Zähler (Zähler = Minimum + 1). Häufige Paare
+ * (Heavy Hitters) bleiben so erhalten, der Speicher für Paare wächst nicht mit der Zahl der Paare.
+ * <p>
+ * Zusätzlich hält jedes Media eine Top-K-Liste seiner häufigsten Partner, damit Abfragen O(K) sind.
+ * Pro User zählen nur die letzten {@link #MAX_HISTORY} bewerteten Media (gleitendes Fenster): fällt ein Media
+ * aus dem Fenster, werden seine Paare mit den übrigen wieder abgezogen. Ein späteres Löschen dieses Ratings
+ * hat dann nichts mehr abzuziehen, die Zähler laufen also nicht auseinander.
+ * <p>
+ * Nicht fest begrenzt sind die Verwaltungsdaten daneben: pro User mit Ratings höchstens {@link #MAX_HISTORY}
+ * ints Verlauf, pro Media mit Partnern eine Top-K-Liste (2 x K ints). Sie wachsen also linear mit der Zahl
+ * der User und Media; leere Einträge werden entfernt.
+ */
+public class CoRatingCounter implements RatingListener, MediaListener {
+    public static final int DEFAULT_CAPACITY = 1 << 18;
+    public static final int DEFAULT_TOP_K = 20;
+    static final int MAX_HISTORY = 100;
+
+    private final int capacity;
+    private final int topK;
+
+    // Space-Saving-Sketch: Slots mit Paar-Schlüssel und Zähler, Min-Heap über die Slots nach Zähler
+    private final LongIntHashMap slotByPair;
+    private final long[] slotPair;
+    private final int[] slotCount;
+    private final int[] heap;
+    private final int[] heapPos;
+    private int used;
+
+    private final Map<Integer, TopList> related = new HashMap<>();
+    private final Map<Integer, History> histories = new HashMap<>();
+
+    public CoRatingCounter() {
+        this(DEFAULT_CAPACITY, DEFAULT_TOP_K);
+    }
+
+    public CoRatingCounter(int capacity, int topK) {
+        this.capacity = capacity;
+        this.topK = topK;
+        this.slotByPair = new LongIntHashMap(capacity);
+        this.slotPair = new long[capacity];
+        this.slotCount = new int[capacity];
+        this.heap = new int[capacity];
+        this.heapPos = new int[capacity];
+    }
+
+    // Initiales Befüllen aus allen vorhandenen Ratings
+    public void load(RatingSource ratingSource) throws SQLException {
+        ratingSource.forEachRating((userId, mediaId, stars, timestamp) -> addRating(userId, mediaId));
+    }
+
+    // Häufigste Co-Ratings zu einem Media, Score = (geschätzte) Anzahl gemeinsamer Bewerter
+    public synchronized List<ScoredItem> relatedTo(int mediaId, int limit) {
+        TopList list = related.get(mediaId);
+        if (list == null) {
+            return List.of();
+        }
+        int n = Math.min(limit, list.size);
+        List<ScoredItem> result = new ArrayList<>(n);
+        for (int k = 0; k < n; k++) {
+            result.add(new ScoredItem(list.ids[k], list.counts[k]));
+        }
+        return result;
+    }
+
+    @Override
+    public void onRatingSaved(Rating rating) {
+        if (rating.getUserId() != null && rating.getMediaId() != null) {
+            addRating(rating.getUserId(), rating.getMediaId());
+        }
+    }
+
+    @Override
+    public void onRatingDeleted(Rating rating) {
+        if (rating.getUserId() != null && rating.getMediaId() != null) {
+            removeRating(rating.getUserId(), rating.getMediaId());
+        }
+    }
+
+    /**
+     * Entfernt ein gelöschtes Media aus Sketch, Top-K-Listen und Verläufen. Die Rating-Events davor ziehen nur die
+     * Paare im Fenster ab; übernommene Slots (Zähler = Minimum + 1) behielten sonst einen Rest. Läuft einmal über
+     * alle Slots und Verläufe - für das seltene Löschen eines Media vertretbar.
+     */
+    @Override
+    public synchronized void onMediaDeleted(int mediaId) {
+        for (int slot = 0; slot < used; slot++) {
+            long pair = slotPair[slot];
+            if (slotCount[slot] > 0 && ((int) (pair >>> 32) == mediaId || (int) pair == mediaId)) {
+                // Wie ein Abzählen auf 0: der Slot bleibt zugeordnet und wird als erster übernommen
+                slotCount[slot] = 0;
+                siftUp(heapPos[slot]);
+                unlink(pair);
+            }
+        }
+        related.remove(mediaId);
+        Iterator<History> it = histories.values().iterator();
+        while (it.hasNext()) {
+            History history = it.next();
+            if (history.remove(mediaId) && history.size == 0) {
+                it.remove();
+            }
+        }
+    }
+
+    synchronized void addRating(int userId, int mediaId) {
+        History history = histories.computeIfAbsent(userId, id -> new History());
+        if (history.contains(mediaId)) {
+            return;
+        }
+        if (history.size == MAX_HISTORY) {
+            // Ältestes Media verlässt das Fenster: seine Paare mit den übrigen wieder abziehen
+            int evicted = history.removeOldest();
+            for (int k = 0; k < history.size; k++) {
+                decrement(history.items[k], evicted);
+            }
+        }
+        for (int k = 0; k < history.size; k++) {
+            increment(history.items[k], mediaId);
+        }
+        history.add(mediaId);
+    }
+
+    synchronized void removeRating(int userId, int mediaId) {
+        History history = histories.get(userId);
+        // Nicht (mehr) im Fenster: die Paare wurden beim Verlassen des Fensters schon abgezogen
+        if (history == null || !history.remove(mediaId)) {
+            return;
+        }
+        for (int k = 0; k < history.size; k++) {
+            decrement(history.items[k], mediaId);
+        }
+        if (history.size == 0) {
+            histories.remove(userId);
+        }
+    }
+
+    private void increment(int a, int b) {
+        long pair = pack(a, b);
+        int slot = slotByPair.get(pair, -1);
+        if (slot >= 0) {
+            slotCount[slot]++;
+            siftDown(heapPos[slot]);
+        } else if (used < capacity) {
+            slot = used;
+            slotPair[slot] = pair;
+            slotCount[slot] = 1;
+            heap[used] = slot;
+            heapPos[slot] = used;
+            used++;
+            siftUp(heapPos[slot]);
+            slotByPair.put(pair, slot);
+        } else {
+            // Space-Saving: Slot mit dem kleinsten Zähler übernehmen
+            slot = heap[0];
+            long evicted = slotPair[slot];
+            slotByPair.remove(evicted);
+            unlink(evicted);
+            slotPair[slot] = pair;
+            slotCount[slot]++;
+            siftDown(0);
+            slotByPair.put(pair, slot);
+        }
+        link(pair, slotCount[slot]);
+    }
+
+    private void decrement(int a, int b) {
+        long pair = pack(a, b);
+        int slot = slotByPair.get(pair, -1);
+        if (slot < 0 || slotCount[slot] == 0) {
+            return;
+        }
+        slotCount[slot]--;
+        siftUp(heapPos[slot]);
+        if (slotCount[slot] == 0) {
+            unlink(pair);
+        } else {
+            link(pair, slotCount[slot]);
+        }
+    }
+
+    // Paar in die Top-K-Listen beider Media eintragen
+    private void link(long pair, int count) {
+        int a = (int) (pair >>> 32);
+        int b = (int) pair;
+        related.computeIfAbsent(a, id -> new TopList(topK)).offer(b, count);
+        related.computeIfAbsent(b, id -> new TopList(topK)).offer(a, count);
+    }
+
+    private void unlink(long pair) {
+        int a = (int) (pair >>> 32);
+        int b = (int) pair;
+        removePartner(a, b);
+        removePartner(b, a);
+    }
+
+    private void removePartner(int mediaId, int partner) {
+        TopList list = related.get(mediaId);
+        if (list != null) {
+            list.remove(partner);
+            if (list.size == 0) {
+                related.remove(mediaId);
+            }
+        }
+    }
+
+    // Kleinere ID in die oberen 32 Bit, damit (a, b) und (b, a) denselben Schlüssel ergeben
+    static long pack(int a, int b) {
+        int low = Math.min(a, b);
+        int high = Math.max(a, b);
+        return ((long) low << 32) | (high & 0xFFFFFFFFL);
+    }
+
+    private void siftUp(int pos) {
+        while (pos > 0) {
+            int parent = (pos - 1) >>> 1;
+            if (slotCount[heap[parent]] <= slotCount[heap[pos]]) {
+                return;
+            }
+            swap(parent, pos);
+            pos = parent;
+        }
+    }
+
+    private void siftDown(int pos) {
+        while (true) {
+            int left = 2 * pos + 1;
+            if (left >= used) {
+                return;
+            }
+            int smallest = left;
+            if (left + 1 < used && slotCount[heap[left + 1]] < slotCount[heap[left]]) {
+                smallest = left + 1;
+            }
+            if (slotCount[heap[pos]] <= slotCount[heap[smallest]]) {
+                return;
+            }
+            swap(pos, smallest);
+            pos = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        int slotA = heap[a];
+        heap[a] = heap[b];
+        heap[b] = slotA;
+        heapPos[heap[a]] = a;
+        heapPos[heap[b]] = b;
+    }
+
+    // Top-K Partner eines Media, absteigend nach Zähler sortiert
+    private static final class TopList {
+        final int[] ids;
+        final int[] counts;
+        int size;
+
+        TopList(int k) {
+            this.ids = new int[k];
+            this.counts = new int[k];
+        }
+
+        void offer(int id, int count) {
+            int pos = indexOf(id);
+            if (pos < 0) {
+                if (size < ids.length) {
+                    pos = size++;
+                } else if (count > counts[size - 1]) {
+                    pos = size - 1;
+                } else {
+                    return;
+                }
+                ids[pos] = id;
+            }
+            counts[pos] = count;
+            // Eintrag an die richtige Stelle schieben (Liste ist klein, Insertion Sort reicht)
+            while (pos > 0 && counts[pos - 1] < counts[pos]) {
+                swap(pos - 1, pos);
+                pos--;
+            }
+            while (pos < size - 1 && counts[pos + 1] > counts[pos]) {
+                swap(pos, pos + 1);
+                pos++;
+            }
+        }
+
+        void remove(int id) {
+            int pos = indexOf(id);
+            if (pos < 0) {
+                return;
+            }
+            System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+            System.arraycopy(counts, pos + 1, counts, pos, size - pos - 1);
+            size--;
+        }
+
+        private int indexOf(int id) {
+            for (int k = 0; k < size; k++) {
+                if (ids[k] == id) {
+                    return k;
+                }
+            }
+            return -1;
+        }
+
+        private void swap(int a, int b) {
+            int id = ids[a];
+            ids[a] = ids[b];
+            ids[b] = id;
+            int count = counts[a];
+            counts[a] = counts[b];
+            counts[b] = count;
+        }
+    }
+
+    // Die zuletzt bewerteten Media eines Users, älteste zuerst (höchstens MAX_HISTORY, Verschieben ist bei
+    // dieser Größe billiger als ein Ringpuffer, der beim Löschen seine Reihenfolge verliert)
+    private static final class History {
+        int[] items = new int[8];
+        int size;
+
+        boolean contains(int mediaId) {
+            return indexOf(mediaId) >= 0;
+        }
+
+        void add(int mediaId) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, Math.min(MAX_HISTORY, size * 2));
+            }
+            items[size++] = mediaId;
+        }
+
+        int removeOldest() {
+            int oldest = items[0];
+            removeAt(0);
+            return oldest;
+        }
+
+        boolean remove(int mediaId) {
+            int pos = indexOf(mediaId);
+            if (pos < 0) {
+                return false;
+            }
+            removeAt(pos);
+            return true;
+        }
+
+        private void removeAt(int pos) {
+            System.arraycopy(items, pos + 1, items, pos, size - pos - 1);
+            size--;
+        }
+
+        private int indexOf(int mediaId) {
+            for (int k = 0; k < size; k++) {
+                if (items[k] == mediaId) {
+                    return k;
+                }
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package org.example.recommendation;
+
+import org.example.model.MediaEntry;
+import org.example.repository.MediaListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Content-basierte Empfehlungen aus Genres, Altersfreigabe und Durchschnittsbewertung.
+ * <p>
+ * Hält einen unveränderlichen Snapshot des Katalogs: Genre-Wörterbuch, ein {@link BitSet} pro Genre
+ * und pro Genre eine vorsortierte Rangliste (beste Bewertung zuerst). Kandidaten ergeben sich aus
+ * der Vereinigung der Genre-Bitsets minus der bereits favorisierten Media, es wird also nie
+ * der ganze Katalog durchsucht. Media-Writes markieren den Snapshot als veraltet; er wird beim
+ * nächsten Lesezugriff einmal neu gebaut.
+ */
+public class ContentIndex implements MediaListener {
+    // Gewichtung der Teil-Scores (Summe = 1)
+    private static final float GENRE_WEIGHT = 0.6f;
+    private static final float AGE_WEIGHT = 0.15f;
+    private static final float QUALITY_WEIGHT = 0.25f;
+    // Lieblingsgenre aus dem Profil zählt wie zwei Favoriten mit diesem Genre
+    private static final float FAVORITE_GENRE_BOOST = 2f;
+    private static final float MAX_AGE_GAP = 18f;
+    private static final float MAX_SCORE = 5f;
+
+    // Quelle der Wahrheit für den Snapshot, nur unter dem Monitor von this verändern
+    private final Map<Integer, Features> features = new HashMap<>();
+    private Snapshot snapshot = Snapshot.build(List.of());
+    private boolean dirty;
+
+    // Initiales Laden des Katalogs (z.B. aus MediaRepository.findAll beim Start)
+    public synchronized void load(Collection<MediaEntry> catalog) {
+        features.clear();
+        for (MediaEntry media : catalog) {
+            features.put(media.getId(), Features.of(media));
+        }
+        dirty = true;
+    }
+
+    @Override
+    public synchronized void onMediaSaved(MediaEntry media) {
+        features.put(media.getId(), Features.of(media));
+        dirty = true;
+    }
+
+    @Override
+    public synchronized void onMediaUpdated(MediaEntry media) {
+        features.put(media.getId(), Features.of(media));
+        dirty = true;
+    }
+
+    @Override
+    public synchronized void onMediaDeleted(int mediaId) {
+        if (features.remove(mediaId) != null) {
+            dirty = true;
+        }
+    }
+
+    /**
+     * Rankt Media nach Genre-Überschneidung mit den Favoriten und dem Lieblingsgenre,
+     * Nähe der Altersfreigabe zu den Favoriten und Durchschnittsbewertung.
+     * Favoriten selbst werden nicht empfohlen. Ohne Favoriten und Lieblingsgenre (Cold Start)
+     * wird die globale Rangliste zurückgegeben.
+     */
+    public List<ScoredItem> recommend(String favoriteGenre, List<Integer> favoriteMediaIds, int limit) {
+        Snapshot current = current();
+        if (limit <= 0 || current.size() == 0) {
+            return List.of();
+        }
+
+        // Genre-Gewichte und Ausschlussmenge aus den Favoriten
+        float[] genreWeights = new float[current.genreNames.length];
+        BitSet excluded = new BitSet(current.size());
+        float ageSum = 0f;
+        int ageCount = 0;
+        for (Integer mediaId : favoriteMediaIds) {
+            Integer dense = current.denseIndex.get(mediaId);
+            if (dense == null) {
+                continue;
+            }
+            excluded.set(dense);
+            for (int genre : current.genres[dense]) {
+                genreWeights[genre] += 1f;
+            }
+            ageSum += current.ageRestrictions[dense];
+            ageCount++;
+        }
+        Integer profileGenre = favoriteGenre != null ? current.genreIds.get(normalize(favoriteGenre)) : null;
+        if (profileGenre != null) {
+            genreWeights[profileGenre] += FAVORITE_GENRE_BOOST;
+        }
+
+        BitSet candidates = new BitSet(current.size());
+        float totalWeight = 0f;
+        for (int genre = 0; genre < genreWeights.length; genre++) {
+            if (genreWeights[genre] > 0f) {
+                candidates.or(current.genreMembers[genre]);
+                totalWeight += genreWeights[genre];
+            }
+        }
+        candidates.andNot(excluded);
+
+        if (totalWeight == 0f) {
+            // Cold Start ohne jede Präferenz: globale Rangliste
+            return prefix(current, current.globalRanking, excluded, limit);
+        }
+        if (ageCount == 0 && profileGenre != null) {
+            // Cold Start nur mit Lieblingsgenre: vorsortierte Genre-Liste direkt verwenden (O(limit))
+            return prefix(current, current.genreRankings[profileGenre], excluded, limit);
+        }
+
+        float preferredAge = ageCount > 0 ? ageSum / ageCount : -1f;
+        int[] ids = new int[candidates.cardinality()];
+        float[] scores = new float[ids.length];
+        int count = 0;
+        for (int dense = candidates.nextSetBit(0); dense >= 0; dense = candidates.nextSetBit(dense + 1)) {
+            float overlap = 0f;
+            for (int genre : current.genres[dense]) {
+                overlap += genreWeights[genre];
+            }
+            float ageScore = preferredAge < 0f ? 1f
+                    : Math.max(0f, 1f - Math.abs(current.ageRestrictions[dense] - preferredAge) / MAX_AGE_GAP);
+            ids[count] = current.mediaIds[dense];
+            scores[count++] = GENRE_WEIGHT * (overlap / totalWeight)
+                    + AGE_WEIGHT * ageScore
+                    + QUALITY_WEIGHT * current.quality[dense];
+        }
+
+        Neighbors top = Neighbors.topOf(ids, scores, count, limit);
+        List<ScoredItem> result = new ArrayList<>(top.size());
+        for (int k = 0; k < top.size(); k++) {
+            result.add(new ScoredItem(top.mediaIds[k], top.similarities[k]));
+        }
+        return result;
+    }
+
+    private synchronized Snapshot current() {
+        if (dirty) {
+            snapshot = Snapshot.build(features.values());
+            dirty = false;
+        }
+        return snapshot;
+    }
+
+    // Die ersten limit Einträge einer vorsortierten Rangliste, ohne ausgeschlossene Media
+    private static List<ScoredItem> prefix(Snapshot current, int[] ranking, BitSet excluded, int limit) {
+        List<ScoredItem> result = new ArrayList<>(Math.min(limit, ranking.length));
+        for (int k = 0; k < ranking.length && result.size() < limit; k++) {
+            int dense = ranking[k];
+            if (!excluded.get(dense)) {
+                result.add(new ScoredItem(current.mediaIds[dense], current.quality[dense]));
+            }
+        }
+        return result;
+    }
+
+    private static String normalize(String genre) {
+        return genre.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // Die für das Ranking relevanten Felder eines MediaEntry
+    private record Features(int mediaId, List<String> genres, int ageRestriction, float quality) {
+        static Features of(MediaEntry media) {
+            List<String> genres = new ArrayList<>();
+            if (media.getGenres() != null) {
+                for (String genre : media.getGenres()) {
+                    if (genre != null && !genre.isBlank()) {
+                        genres.add(normalize(genre));
+                    }
+                }
+            }
+            float quality = (float) Math.max(0.0, Math.min(1.0, media.getAverageScore() / MAX_SCORE));
+            return new Features(media.getId(), genres, media.getAgeRestriction(), quality);
+        }
+    }
+
+    // Unveränderliche, dichte Sicht auf den Katalog (Index = dichte Media-Position)
+    private static final class Snapshot {
+        final int[] mediaIds;
+        final Map<Integer, Integer> denseIndex;
+        final int[][] genres;
+        final int[] ageRestrictions;
+        final float[] quality;
+        final String[] genreNames;
+        final Map<String, Integer> genreIds;
+        final BitSet[] genreMembers;
+        final int[][] genreRankings;
+        final int[] globalRanking;
+
+        private Snapshot(int size, Map<String, Integer> genreIds) {
+            this.mediaIds = new int[size];
+            this.denseIndex = new HashMap<>(size * 2);
+            this.genres = new int[size][];
+            this.ageRestrictions = new int[size];
+            this.quality = new float[size];
+            this.genreIds = genreIds;
+            this.genreNames = new String[genreIds.size()];
+            this.genreMembers = new BitSet[genreIds.size()];
+            this.genreRankings = new int[genreIds.size()][];
+            this.globalRanking = new int[size];
+        }
+
+        int size() {
+            return mediaIds.length;
+        }
+
+        static Snapshot build(Collection<Features> catalog) {
+            // Genre-Wörterbuch: jedes Genre bekommt eine fortlaufende ID
+            Map<String, Integer> genreIds = new HashMap<>();
+            for (Features f : catalog) {
+                for (String genre : f.genres()) {
+                    genreIds.putIfAbsent(genre, genreIds.size());
+                }
+            }
+
+            Snapshot s = new Snapshot(catalog.size(), genreIds);
+            for (Map.Entry<String, Integer> entry : genreIds.entrySet()) {
+                s.genreNames[entry.getValue()] = entry.getKey();
+                s.genreMembers[entry.getValue()] = new BitSet(catalog.size());
+            }
+
+            int dense = 0;
+            for (Features f : catalog) {
+                s.mediaIds[dense] = f.mediaId();
+                s.denseIndex.put(f.mediaId(), dense);
+                s.ageRestrictions[dense] = f.ageRestriction();
+                s.quality[dense] = f.quality();
+                s.genres[dense] = f.genres().stream().mapToInt(genreIds::get).distinct().toArray();
+                for (int genre : s.genres[dense]) {
+                    s.genreMembers[genre].set(dense);
+                }
+                dense++;
+            }
+
+            // Ranglisten: absteigend nach Bewertung, bei Gleichstand nach Media-ID
+            Integer[] order = new Integer[s.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> {
+                int cmp = Float.compare(s.quality[b], s.quality[a]);
+                return cmp != 0 ? cmp : Integer.compare(s.mediaIds[a], s.mediaIds[b]);
+            });
+            int[] genreFill = new int[s.genreNames.length];
+            for (int genre = 0; genre < s.genreNames.length; genre++) {
+                s.genreRankings[genre] = new int[s.genreMembers[genre].cardinality()];
+            }
+            for (int rank = 0; rank < order.length; rank++) {
+                int media = order[rank];
+                s.globalRanking[rank] = media;
+                for (int genre : s.genres[media]) {
+                    s.genreRankings[genre][genreFill[genre]++] = media;
+                }
+            }
+            return s;
+        }
+    }
+}
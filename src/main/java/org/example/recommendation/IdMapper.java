@@ -0,0 +1,41 @@
+package org.example.recommendation;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// Bildet Datenbank-IDs (lückenhaft) auf dichte Indizes 0..n-1 ab,
+// damit die Matrix-Strukturen mit einfachen Arrays statt Maps arbeiten können
+final class IdMapper {
+    private final Map<Integer, Integer> toDense = new HashMap<>();
+    private int[] toExternal = new int[16];
+    private int size;
+
+    // Gibt den dichten Index zurück, legt ihn bei Bedarf an
+    int indexOf(int externalId) {
+        Integer dense = toDense.get(externalId);
+        if (dense != null) {
+            return dense;
+        }
+        if (size == toExternal.length) {
+            toExternal = Arrays.copyOf(toExternal, size * 2);
+        }
+        toExternal[size] = externalId;
+        toDense.put(externalId, size);
+        return size++;
+    }
+
+    // Wie indexOf, aber ohne Anlegen: -1 wenn unbekannt
+    int find(int externalId) {
+        Integer dense = toDense.get(externalId);
+        return dense != null ? dense : -1;
+    }
+
+    int externalId(int denseIndex) {
+        return toExternal[denseIndex];
+    }
+
+    int size() {
+        return size;
+    }
+}
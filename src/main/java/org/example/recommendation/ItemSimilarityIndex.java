@@ -0,0 +1,465 @@
+package org.example.recommendation;
+
+import org.example.model.Rating;
+import org.example.repository.MediaListener;
+import org.example.repository.RatingListener;
+import org.example.repository.RatingSource;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Item-Item Collaborative Filtering mit Adjusted-Cosine-Ähnlichkeit.
+ * <p>
+ * Die Rating-Matrix wird zweifach dünn gespeichert (pro User und pro Item, primitive int/float Arrays).
+ * Beim {@link #rebuild(RatingSource)} werden die Top-N-Nachbarn aller Items parallel per Fork/Join berechnet.
+ * Danach hält sich der Index über {@link RatingListener}-Events selbst aktuell: bei jedem neuen oder
+ * geänderten Rating wird nur die Zeile des betroffenen Items neu berechnet und symmetrisch in die
+ * Nachbarlisten der ähnlichen Items eingetragen.
+ * <p>
+ * Einschränkung: Verschiebt ein Rating den Mittelwert eines Users, werden die Normen seiner anderen Items
+ * nicht sofort nachgezogen. Diese Abweichung wird beim nächsten Rebuild korrigiert.
+ * <p>
+ * Gelöschte Media werden über {@link MediaListener#onMediaDeleted(int)} aus allen Nachbarlisten entfernt.
+ */
+public class ItemSimilarityIndex implements RatingListener, MediaListener {
+    public static final int DEFAULT_NEIGHBORS = 50;
+
+    // Shrinkage: Ähnlichkeiten mit wenigen gemeinsamen Bewertern werden gedämpft (sim * n / (n + SHRINKAGE))
+    private static final float SHRINKAGE = 5f;
+    // Dämpfung der Vorhersage Richtung User-Mittelwert bei schwacher Nachbar-Evidenz
+    private static final double PREDICTION_DAMPING = 1.0;
+    private static final int MIN_CHUNK = 32;
+
+    private final int neighborCount;
+    private final ForkJoinPool pool;
+
+    // Alle Felder unten werden nur unter dem Monitor von this gelesen/geschrieben
+    private Model model = new Model();
+    private Neighbors[] neighbors = new Neighbors[0];
+    private final Scratch scratch = new Scratch();
+
+    // Während eines Rebuilds eintreffende Events (userId, mediaId, stars; stars=0 = gelöscht)
+    private boolean rebuilding;
+    private final List<int[]> pendingEvents = new ArrayList<>();
+    private final List<Integer> pendingDeletedMedia = new ArrayList<>();
+
+    public ItemSimilarityIndex() {
+        this(DEFAULT_NEIGHBORS, ForkJoinPool.commonPool());
+    }
+
+    public ItemSimilarityIndex(int neighborCount, ForkJoinPool pool) {
+        this.neighborCount = neighborCount;
+        this.pool = pool;
+    }
+
+    /**
+     * Lädt alle Ratings neu und berechnet die komplette Ähnlichkeitsmatrix parallel.
+     * Die Berechnung läuft ohne Lock auf einem neuen Modell; Events, die währenddessen eintreffen,
+     * werden gepuffert und nach dem Austausch nachgespielt.
+     */
+    public void rebuild(RatingSource ratingSource) throws SQLException {
+        synchronized (this) {
+            rebuilding = true;
+            pendingEvents.clear();
+            pendingDeletedMedia.clear();
+        }
+        try {
+            Model fresh = new Model();
+            ratingSource.forEachRating((userId, mediaId, stars, timestamp) -> fresh.append(userId, mediaId, stars));
+            Neighbors[] table = computeAll(fresh);
+
+            synchronized (this) {
+                model = fresh;
+                neighbors = table;
+                for (int[] event : pendingEvents) {
+                    if (event[2] == 0) {
+                        removeRating(event[0], event[1]);
+                    } else {
+                        applyRating(event[0], event[1], event[2]);
+                    }
+                }
+                for (int mediaId : pendingDeletedMedia) {
+                    purgeMedia(mediaId);
+                }
+            }
+        } finally {
+            synchronized (this) {
+                rebuilding = false;
+                pendingEvents.clear();
+                pendingDeletedMedia.clear();
+            }
+        }
+    }
+
+    // Berechnet die Nachbarn aller Items eines (nicht mehr veränderten) Modells parallel
+    Neighbors[] computeAll(Model source) {
+        source.computeNorms();
+        int itemCount = source.items.size();
+        Neighbors[] table = new Neighbors[itemCount];
+        int chunk = Math.max(MIN_CHUNK, itemCount / (pool.getParallelism() * 8 + 1));
+        pool.invoke(new RowTask(source, table, 0, itemCount, chunk));
+        return table;
+    }
+
+    /**
+     * Empfehlungen für einen User: vorhergesagte Sterne aus den Nachbarn seiner bewerteten Items,
+     * bereits bewertete Media werden ausgeschlossen. Leere Liste, wenn der User noch nichts bewertet hat.
+     */
+    public synchronized List<ScoredItem> recommend(int userId, int limit) {
+        int user = model.users.find(userId);
+        if (user < 0 || limit <= 0) {
+            return List.of();
+        }
+        SparseRow rated = model.userRows[user];
+        double mean = model.mean(user);
+
+        // mediaId -> {gewichtete Summe, Summe der Gewichte}
+        Map<Integer, double[]> candidates = new HashMap<>();
+        for (int k = 0; k < rated.size; k++) {
+            int item = rated.idx[k];
+            float stars = rated.val[k];
+            Neighbors list = item < neighbors.length ? neighbors[item] : null;
+            if (list == null) {
+                continue;
+            }
+            for (int n = 0; n < list.size(); n++) {
+                int candidate = list.mediaIds[n];
+                int candidateIndex = model.items.find(candidate);
+                if (candidateIndex >= 0 && rated.contains(candidateIndex)) {
+                    continue;
+                }
+                double[] acc = candidates.computeIfAbsent(candidate, id -> new double[2]);
+                acc[0] += list.similarities[n] * stars;
+                acc[1] += list.similarities[n];
+            }
+        }
+
+        List<ScoredItem> result = new ArrayList<>(candidates.size());
+        for (Map.Entry<Integer, double[]> entry : candidates.entrySet()) {
+            double[] acc = entry.getValue();
+            double predicted = (acc[0] + PREDICTION_DAMPING * mean) / (acc[1] + PREDICTION_DAMPING);
+            result.add(new ScoredItem(entry.getKey(), predicted));
+        }
+        result.sort((a, b) -> Double.compare(b.score(), a.score()));
+        return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+    }
+
+    // Top-N ähnliche Media zu einem Media (für Debugging/Detailseiten)
+    public synchronized List<ScoredItem> similarTo(int mediaId, int limit) {
+        int item = model.items.find(mediaId);
+        if (item < 0 || item >= neighbors.length || neighbors[item] == null) {
+            return List.of();
+        }
+        Neighbors list = neighbors[item];
+        List<ScoredItem> result = new ArrayList<>();
+        for (int n = 0; n < Math.min(limit, list.size()); n++) {
+            result.add(new ScoredItem(list.mediaIds[n], list.similarities[n]));
+        }
+        return result;
+    }
+
+    @Override
+    public void onRatingSaved(Rating rating) {
+        applyRatingEvent(rating.getUserId(), rating.getMediaId(), rating.getStars());
+    }
+
+    @Override
+    public void onRatingUpdated(Rating rating, int previousStars) {
+        applyRatingEvent(rating.getUserId(), rating.getMediaId(), rating.getStars());
+    }
+
+    @Override
+    public void onRatingDeleted(Rating rating) {
+        applyRatingEvent(rating.getUserId(), rating.getMediaId(), 0);
+    }
+
+    @Override
+    public synchronized void onMediaDeleted(int mediaId) {
+        if (rebuilding) {
+            pendingDeletedMedia.add(mediaId);
+        }
+        purgeMedia(mediaId);
+    }
+
+    private synchronized void applyRatingEvent(Integer userId, Integer mediaId, Integer stars) {
+        if (userId == null || mediaId == null || stars == null) {
+            return;
+        }
+        if (rebuilding) {
+            pendingEvents.add(new int[]{userId, mediaId, stars});
+        }
+        if (stars == 0) {
+            removeRating(userId, mediaId);
+        } else {
+            applyRating(userId, mediaId, stars);
+        }
+    }
+
+    // Muss unter dem Monitor laufen
+    private void applyRating(int userId, int mediaId, int stars) {
+        int item = model.set(userId, mediaId, stars);
+        refreshItem(item);
+    }
+
+    private void removeRating(int userId, int mediaId) {
+        int item = model.remove(userId, mediaId);
+        if (item >= 0) {
+            refreshItem(item);
+        }
+    }
+
+    // Entfernt ein gelöschtes Media komplett: verbliebene Ratings, eigene Zeile und alle Einträge in fremden
+    // Nachbarlisten (auch solche, die refreshItem nicht mehr erreicht, weil es keine gemeinsamen Bewerter mehr gibt)
+    private void purgeMedia(int mediaId) {
+        int item = model.items.find(mediaId);
+        if (item < 0) {
+            return;
+        }
+        SparseRow raters = model.itemRows[item];
+        while (raters.size > 0) {
+            model.remove(model.users.externalId(raters.idx[raters.size - 1]), mediaId);
+        }
+        model.itemNorm[item] = 0f;
+        if (item < neighbors.length) {
+            neighbors[item] = null;
+        }
+        for (int other = 0; other < neighbors.length; other++) {
+            Neighbors list = neighbors[other];
+            if (list != null && list.similarityOf(mediaId) != 0f) {
+                neighbors[other] = list.with(mediaId, 0f, neighborCount);
+            }
+        }
+    }
+
+    // Berechnet die Zeile eines Items neu und trägt die neuen Werte symmetrisch bei den Nachbarn ein
+    private void refreshItem(int item) {
+        int itemCount = model.items.size();
+        if (neighbors.length < itemCount) {
+            neighbors = Arrays.copyOf(neighbors, Math.max(itemCount, neighbors.length * 2));
+        }
+        model.itemNorm[item] = model.computeNorm(item);
+        int mediaId = model.items.externalId(item);
+        Neighbors previous = neighbors[item] != null ? neighbors[item] : Neighbors.EMPTY;
+
+        scratch.ensure(itemCount);
+        model.accumulateRow(item, scratch);
+        float[] sims = new float[scratch.touchedCount];
+        int[] ids = new int[scratch.touchedCount];
+        for (int t = 0; t < scratch.touchedCount; t++) {
+            int other = scratch.touched[t];
+            sims[t] = model.similarity(item, other, scratch);
+            ids[t] = model.items.externalId(other);
+            Neighbors otherList = neighbors[other] != null ? neighbors[other] : Neighbors.EMPTY;
+            neighbors[other] = otherList.with(mediaId, sims[t], neighborCount);
+        }
+        neighbors[item] = Neighbors.topOf(ids, sims, ids.length, neighborCount);
+
+        // Frühere Nachbarn ohne gemeinsame Bewerter mehr: Eintrag dort entfernen
+        for (int n = 0; n < previous.size(); n++) {
+            int other = model.items.find(previous.mediaIds[n]);
+            if (other >= 0 && scratch.co[other] == 0 && neighbors[other] != null) {
+                neighbors[other] = neighbors[other].with(mediaId, 0f, neighborCount);
+            }
+        }
+        scratch.reset();
+    }
+
+    // Fork/Join-Task: berechnet die Nachbarlisten für den Item-Bereich [from, to)
+    private final class RowTask extends RecursiveAction {
+        private final Model source;
+        private final Neighbors[] table;
+        private final int from;
+        private final int to;
+        private final int chunk;
+
+        RowTask(Model source, Neighbors[] table, int from, int to, int chunk) {
+            this.source = source;
+            this.table = table;
+            this.from = from;
+            this.to = to;
+            this.chunk = chunk;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > chunk) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new RowTask(source, table, from, mid, chunk), new RowTask(source, table, mid, to, chunk));
+                return;
+            }
+            // Scratch-Arrays pro Blatt-Task: keine geteilten Zustände zwischen Threads
+            Scratch local = new Scratch();
+            local.ensure(source.items.size());
+            int[] ids = new int[16];
+            float[] sims = new float[16];
+            for (int item = from; item < to; item++) {
+                source.accumulateRow(item, local);
+                if (ids.length < local.touchedCount) {
+                    ids = new int[local.touchedCount];
+                    sims = new float[local.touchedCount];
+                }
+                for (int t = 0; t < local.touchedCount; t++) {
+                    int other = local.touched[t];
+                    ids[t] = source.items.externalId(other);
+                    sims[t] = source.similarity(item, other, local);
+                }
+                table[item] = Neighbors.topOf(ids, sims, local.touchedCount, neighborCount);
+                local.reset();
+            }
+        }
+    }
+
+    // Wiederverwendbare Akkumulatoren für eine Zeilenberechnung (Skalarprodukte und Co-Rating-Zähler)
+    static final class Scratch {
+        float[] dot = new float[0];
+        int[] co = new int[0];
+        int[] touched = new int[0];
+        int touchedCount;
+
+        void ensure(int itemCount) {
+            if (dot.length < itemCount) {
+                int capacity = Math.max(itemCount, dot.length * 2);
+                dot = Arrays.copyOf(dot, capacity);
+                co = Arrays.copyOf(co, capacity);
+                touched = Arrays.copyOf(touched, capacity);
+            }
+        }
+
+        // Setzt nur die berührten Einträge zurück (O(berührte Items) statt O(alle Items))
+        void reset() {
+            for (int t = 0; t < touchedCount; t++) {
+                int other = touched[t];
+                dot[other] = 0f;
+                co[other] = 0;
+            }
+            touchedCount = 0;
+        }
+    }
+
+    // Dünne User x Item Matrix in beiden Richtungen plus abgeleitete Mittelwerte und Normen
+    static final class Model {
+        final IdMapper users = new IdMapper();
+        final IdMapper items = new IdMapper();
+        SparseRow[] userRows = new SparseRow[16];
+        SparseRow[] itemRows = new SparseRow[16];
+        float[] userSum = new float[16];
+        float[] itemNorm = new float[16];
+
+        void append(int userId, int mediaId, int stars) {
+            int user = userIndex(userId);
+            int item = itemIndex(mediaId);
+            userRows[user].append(item, stars);
+            itemRows[item].append(user, stars);
+            userSum[user] += stars;
+        }
+
+        // Insert oder Update, gibt den dichten Item-Index zurück
+        int set(int userId, int mediaId, int stars) {
+            int user = userIndex(userId);
+            int item = itemIndex(mediaId);
+            float previous = userRows[user].put(item, stars);
+            itemRows[item].put(user, stars);
+            userSum[user] += stars - (Float.isNaN(previous) ? 0f : previous);
+            return item;
+        }
+
+        // Entfernt ein Rating, gibt den Item-Index zurück (-1 wenn unbekannt)
+        int remove(int userId, int mediaId) {
+            int user = users.find(userId);
+            int item = items.find(mediaId);
+            if (user < 0 || item < 0) {
+                return -1;
+            }
+            float previous = userRows[user].remove(item);
+            itemRows[item].remove(user);
+            if (!Float.isNaN(previous)) {
+                userSum[user] -= previous;
+            }
+            return item;
+        }
+
+        float mean(int user) {
+            int count = userRows[user].size;
+            return count == 0 ? 0f : userSum[user] / count;
+        }
+
+        void computeNorms() {
+            for (int item = 0; item < items.size(); item++) {
+                itemNorm[item] = computeNorm(item);
+            }
+        }
+
+        // L2-Norm des mittelwertbereinigten Item-Vektors (Adjusted Cosine)
+        float computeNorm(int item) {
+            SparseRow row = itemRows[item];
+            double sum = 0;
+            for (int k = 0; k < row.size; k++) {
+                float deviation = row.val[k] - mean(row.idx[k]);
+                sum += deviation * deviation;
+            }
+            return (float) Math.sqrt(sum);
+        }
+
+        // Scatter: Skalarprodukte von item mit allen Items, die mindestens einen gemeinsamen Bewerter haben
+        void accumulateRow(int item, Scratch scratch) {
+            SparseRow raters = itemRows[item];
+            for (int k = 0; k < raters.size; k++) {
+                int user = raters.idx[k];
+                float mean = mean(user);
+                float deviation = raters.val[k] - mean;
+                SparseRow userItems = userRows[user];
+                for (int l = 0; l < userItems.size; l++) {
+                    int other = userItems.idx[l];
+                    if (other == item) {
+                        continue;
+                    }
+                    if (scratch.co[other] == 0) {
+                        scratch.touched[scratch.touchedCount++] = other;
+                    }
+                    scratch.co[other]++;
+                    scratch.dot[other] += deviation * (userItems.val[l] - mean);
+                }
+            }
+        }
+
+        float similarity(int item, int other, Scratch scratch) {
+            float denominator = itemNorm[item] * itemNorm[other];
+            if (denominator == 0f) {
+                return 0f;
+            }
+            int common = scratch.co[other];
+            return scratch.dot[other] / denominator * (common / (common + SHRINKAGE));
+        }
+
+        private int userIndex(int userId) {
+            int user = users.indexOf(userId);
+            if (user >= userRows.length) {
+                userRows = Arrays.copyOf(userRows, userRows.length * 2);
+                userSum = Arrays.copyOf(userSum, userRows.length);
+            }
+            if (userRows[user] == null) {
+                userRows[user] = new SparseRow();
+            }
+            return user;
+        }
+
+        private int itemIndex(int mediaId) {
+            int item = items.indexOf(mediaId);
+            if (item >= itemRows.length) {
+                itemRows = Arrays.copyOf(itemRows, itemRows.length * 2);
+                itemNorm = Arrays.copyOf(itemNorm, itemRows.length);
+            }
+            if (itemRows[item] == null) {
+                itemRows[item] = new SparseRow();
+            }
+            return item;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package org.example.recommendation;
+
+import java.util.Arrays;
+
+// Primitive Hash-Map long -> int mit Open Addressing (Linear Probing)
+// Keine Boxing-Objekte und keine Entry-Objekte: zwei parallele Arrays, Kapazität immer Zweierpotenz
+final class LongIntHashMap {
+    private static final long EMPTY = Long.MIN_VALUE;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    LongIntHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        this.keys = new long[capacity];
+        this.values = new int[capacity];
+        this.mask = capacity - 1;
+        Arrays.fill(keys, EMPTY);
+    }
+
+    int size() {
+        return size;
+    }
+
+    int get(long key, int defaultValue) {
+        int pos = slot(key);
+        while (keys[pos] != EMPTY) {
+            if (keys[pos] == key) {
+                return values[pos];
+            }
+            pos = (pos + 1) & mask;
+        }
+        return defaultValue;
+    }
+
+    void put(long key, int value) {
+        if (key == EMPTY) {
+            throw new IllegalArgumentException("Key " + EMPTY + " is reserved");
+        }
+        int pos = slot(key);
+        while (keys[pos] != EMPTY) {
+            if (keys[pos] == key) {
+                values[pos] = value;
+                return;
+            }
+            pos = (pos + 1) & mask;
+        }
+        keys[pos] = key;
+        values[pos] = value;
+        if (++size > keys.length * LOAD_FACTOR) {
+            resize(keys.length * 2);
+        }
+    }
+
+    // Entfernt den Schlüssel per Backward-Shift, damit keine Tombstones die Probe-Ketten verlängern
+    boolean remove(long key) {
+        int pos = slot(key);
+        while (keys[pos] != key) {
+            if (keys[pos] == EMPTY) {
+                return false;
+            }
+            pos = (pos + 1) & mask;
+        }
+        size--;
+        int gap = pos;
+        int next = (gap + 1) & mask;
+        while (keys[next] != EMPTY) {
+            int home = slot(keys[next]);
+            // Eintrag darf in die Lücke, wenn seine Heimatposition nicht zwischen Lücke und aktueller Position liegt
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[gap] = EMPTY;
+        return true;
+    }
+
+    private int slot(long key) {
+        // Fibonacci-Hashing verteilt auch gepackte, strukturierte Schlüssel gleichmäßig
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        size = 0;
+        Arrays.fill(keys, EMPTY);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+}
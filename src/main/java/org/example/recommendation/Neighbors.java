@@ -0,0 +1,134 @@
+package org.example.recommendation;
+
+import java.util.Arrays;
+
+// Unveränderliche Top-N-Nachbarliste eines Items: Media-IDs absteigend nach Ähnlichkeit sortiert
+// Unveränderlich, damit Änderungen durch einfaches Ersetzen der Referenz veröffentlicht werden
+final class Neighbors {
+    static final Neighbors EMPTY = new Neighbors(new int[0], new float[0]);
+
+    final int[] mediaIds;
+    final float[] similarities;
+
+    private Neighbors(int[] mediaIds, float[] similarities) {
+        this.mediaIds = mediaIds;
+        this.similarities = similarities;
+    }
+
+    int size() {
+        return mediaIds.length;
+    }
+
+    // Wählt die besten max Kandidaten (nur positive Ähnlichkeiten) per Min-Heap aus
+    static Neighbors topOf(int[] candidateIds, float[] candidateScores, int count, int max) {
+        int[] heapIds = new int[max];
+        float[] heapScores = new float[max];
+        int heapSize = 0;
+        for (int k = 0; k < count; k++) {
+            float score = candidateScores[k];
+            if (score <= 0f) {
+                continue;
+            }
+            if (heapSize < max) {
+                heapIds[heapSize] = candidateIds[k];
+                heapScores[heapSize] = score;
+                siftUp(heapIds, heapScores, heapSize++);
+            } else if (score > heapScores[0]) {
+                heapIds[0] = candidateIds[k];
+                heapScores[0] = score;
+                siftDown(heapIds, heapScores, heapSize);
+            }
+        }
+
+        // Heap absteigend auslesen: kleinstes Element wandert jeweils ans Ende
+        int[] ids = new int[heapSize];
+        float[] scores = new float[heapSize];
+        for (int pos = heapSize - 1; pos >= 0; pos--) {
+            ids[pos] = heapIds[0];
+            scores[pos] = heapScores[0];
+            heapSize--;
+            heapIds[0] = heapIds[heapSize];
+            heapScores[0] = heapScores[heapSize];
+            siftDown(heapIds, heapScores, heapSize);
+        }
+        return ids.length == 0 ? EMPTY : new Neighbors(ids, scores);
+    }
+
+    // Neue Liste, in der mediaId die Ähnlichkeit similarity hat (<= 0 entfernt den Eintrag)
+    Neighbors with(int mediaId, float similarity, int max) {
+        int[] ids = new int[mediaIds.length + 1];
+        float[] scores = new float[mediaIds.length + 1];
+        int n = 0;
+        boolean inserted = similarity <= 0f;
+        for (int k = 0; k < mediaIds.length; k++) {
+            if (mediaIds[k] == mediaId) {
+                continue;
+            }
+            if (!inserted && similarity > similarities[k]) {
+                ids[n] = mediaId;
+                scores[n++] = similarity;
+                inserted = true;
+            }
+            ids[n] = mediaIds[k];
+            scores[n++] = similarities[k];
+        }
+        if (!inserted) {
+            ids[n] = mediaId;
+            scores[n++] = similarity;
+        }
+        n = Math.min(n, max);
+        if (n == 0) {
+            return EMPTY;
+        }
+        return new Neighbors(Arrays.copyOf(ids, n), Arrays.copyOf(scores, n));
+    }
+
+    float similarityOf(int mediaId) {
+        for (int k = 0; k < mediaIds.length; k++) {
+            if (mediaIds[k] == mediaId) {
+                return similarities[k];
+            }
+        }
+        return 0f;
+    }
+
+    private static void siftUp(int[] ids, float[] scores, int pos) {
+        while (pos > 0) {
+            int parent = (pos - 1) >>> 1;
+            if (scores[parent] <= scores[pos]) {
+                return;
+            }
+            swap(ids, scores, parent, pos);
+            pos = parent;
+        }
+    }
+
+    private static void siftDown(int[] ids, float[] scores, int size) {
+        int pos = 0;
+        while (true) {
+            int left = 2 * pos + 1;
+            if (left >= size) {
+                return;
+            }
+            int smallest = left;
+            int right = left + 1;
+            if (right < size && scores[right] < scores[left]) {
+                smallest = right;
+            }
+            if (scores[pos] <= scores[smallest]) {
+                return;
+            }
+            swap(ids, scores, pos, smallest);
+            pos = smallest;
+        }
+    }
+
+    private static void swap(int[] ids, float[] scores, int a, int b) {
+        int id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+        float score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+    }
+}
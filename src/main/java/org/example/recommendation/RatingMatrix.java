@@ -0,0 +1,473 @@
+package org.example.recommendation;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Dünn besetzte User×Media-Rating-Matrix außerhalb des Java-Heaps, gleichzeitig als CSR (Zeilen = User)
+ * und CSC (Spalten = Media), in einer memory-mapped Datei.
+ * <p>
+ * Aufbau der Datei: Header, dann rowPtr (int je User + 1), colIdx (int je Rating), colPtr (int je Media + 1),
+ * rowIdx (int je Rating), dann die Sterne als byte in CSR- und in CSC-Reihenfolge. User- und Media-IDs sind direkt
+ * Zeilen- bzw. Spaltennummern. Innerhalb einer Zeile sind die Spalten aufsteigend sortiert und umgekehrt.
+ * <p>
+ * {@link #build} liest die Ratings als COPY-Textstrom, schreibt sie als feste Tripel in eine Zwischendatei und
+ * verteilt sie per Counting Sort in die Matrix - ohne ein Java-Objekt pro Rating. Die fertige Datei wird atomar
+ * umbenannt und kann nach einem Neustart mit {@link #open} sofort wieder gemappt werden.
+ * <p>
+ * Die Matrix ist nach dem Aufbau unveränderlich und darf von mehreren Threads gelesen werden; die Akkumulatoren
+ * für {@link #topSimilar(int, int)} hält jede Matrix pro Thread, sodass Abfragen nichts allozieren außer dem Ergebnis.
+ * Da ein einzelnes Mapping höchstens 2 GiB groß sein kann, reicht sie für etwa 200 Millionen Ratings.
+ */
+public final class RatingMatrix {
+    private static final int MAGIC = 0x4D52504D;
+    private static final int FORMAT = 1;
+    private static final int HEADER_BYTES = 32;
+    // Header-Offsets
+    private static final int H_MAGIC = 0;
+    private static final int H_FORMAT = 4;
+    private static final int H_ROWS = 8;
+    private static final int H_COLS = 12;
+    private static final int H_NNZ = 16;
+    private static final int H_BUILT_AT = 24;
+
+    // Zwischendatei beim Aufbau: User (int), Media (int), Sterne (byte)
+    private static final int TRIPLE_BYTES = 9;
+    private static final int IO_BUFFER_BYTES = TRIPLE_BYTES * 7282;
+    // Shrinkage wie im ItemSimilarityIndex: sim * n / (n + SHRINKAGE) bei n gemeinsamen Bewertern
+    private static final float SHRINKAGE = 5f;
+
+    /**
+     * Liefert die Ratings als COPY-Textstrom ("user_id\tmedia_id\tstars\n" pro Zeile).
+     */
+    @FunctionalInterface
+    public interface CopySource {
+        void copyTo(OutputStream out) throws SQLException, IOException;
+    }
+
+    public record Stats(int users, int media, int ratings, long bytes, long builtAtMillis) {
+    }
+
+    private final ByteBuffer buffer;
+    private final int rows;
+    private final int cols;
+    private final int nnz;
+    private final long builtAtMillis;
+    private final int rowPtrAt;
+    private final int colIdxAt;
+    private final int colPtrAt;
+    private final int rowIdxAt;
+    private final int rowValAt;
+    private final int colValAt;
+    // L2-Norm jeder Media-Spalte (ein float pro Media auf dem Heap, für die Kosinus-Ähnlichkeit)
+    private final float[] colNorms;
+    // Akkumulatoren je Request-Thread (5 Arrays mit je einem Eintrag pro Media), leben so lange wie die Matrix
+    private final ThreadLocal<Scratch> threadScratch = ThreadLocal.withInitial(this::newScratch);
+
+    private RatingMatrix(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(H_MAGIC) != MAGIC
+                || buffer.getInt(H_FORMAT) != FORMAT) {
+            throw new IOException("Not a rating matrix file (or incomplete)");
+        }
+        this.rows = buffer.getInt(H_ROWS);
+        this.cols = buffer.getInt(H_COLS);
+        this.nnz = buffer.getInt(H_NNZ);
+        this.builtAtMillis = buffer.getLong(H_BUILT_AT);
+        if (rows < 0 || cols < 0 || nnz < 0 || sizeOf(rows, cols, nnz) != buffer.capacity()) {
+            throw new IOException("Rating matrix header does not match the file size");
+        }
+        this.rowPtrAt = HEADER_BYTES;
+        this.colIdxAt = rowPtrAt + 4 * (rows + 1);
+        this.colPtrAt = colIdxAt + 4 * nnz;
+        this.rowIdxAt = colPtrAt + 4 * (cols + 1);
+        this.rowValAt = rowIdxAt + 4 * nnz;
+        this.colValAt = rowValAt + nnz;
+
+        this.colNorms = new float[cols];
+        for (int c = 0; c < cols; c++) {
+            long sum = 0;
+            for (int k = colPtr(c); k < colPtr(c + 1); k++) {
+                int s = buffer.get(colValAt + k);
+                sum += s * s;
+            }
+            colNorms[c] = (float) Math.sqrt(sum);
+        }
+    }
+
+    /**
+     * Mappt eine zuvor mit {@link #build} geschriebene Datei (nur lesend).
+     */
+    public static RatingMatrix open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("Not a rating matrix file: " + file);
+            }
+            // Das Mapping bleibt nach dem Schließen des Channels gültig
+            return new RatingMatrix(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    /**
+     * Baut die Matrix aus einem COPY-Strom auf, schreibt sie nach file (über eine temporäre Datei und atomares
+     * Umbenennen) und mappt das Ergebnis. Zeilen mit NULL oder ungültigen Werten werden übersprungen.
+     */
+    public static RatingMatrix build(CopySource source, Path file) throws SQLException, IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path triples = Files.createTempFile(directory, "ratings", ".triples");
+        Path partial = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            TripleWriter writer;
+            try (FileChannel channel = FileChannel.open(triples, StandardOpenOption.WRITE)) {
+                writer = new TripleWriter(channel);
+                source.copyTo(writer);
+                writer.finish();
+            }
+            writeMatrix(triples, writer, partial);
+            Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(triples);
+            Files.deleteIfExists(partial);
+        }
+        return open(file);
+    }
+
+    public int userCount() {
+        return rows;
+    }
+
+    public int mediaCount() {
+        return cols;
+    }
+
+    public int ratingCount() {
+        return nnz;
+    }
+
+    // Anzahl Ratings eines Media (0 wenn unbekannt)
+    public int ratingCount(int mediaId) {
+        return mediaId >= 0 && mediaId < cols ? colPtr(mediaId + 1) - colPtr(mediaId) : 0;
+    }
+
+    // Sterne eines Users für ein Media, 0 wenn nicht bewertet (binäre Suche in der sortierten Zeile)
+    public int stars(int userId, int mediaId) {
+        if (userId < 0 || userId >= rows) {
+            return 0;
+        }
+        int low = rowPtr(userId);
+        int high = rowPtr(userId + 1) - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int col = buffer.getInt(colIdxAt + 4 * mid);
+            if (col < mediaId) {
+                low = mid + 1;
+            } else if (col > mediaId) {
+                high = mid - 1;
+            } else {
+                return buffer.get(rowValAt + mid);
+            }
+        }
+        return 0;
+    }
+
+    public Scratch newScratch() {
+        return new Scratch(cols);
+    }
+
+    public List<ScoredItem> topSimilar(int mediaId, int limit) {
+        return topSimilar(mediaId, limit, threadScratch.get());
+    }
+
+    /**
+     * Die limit ähnlichsten Media zu mediaId (Kosinus über die Sterne, gedämpft bei wenigen gemeinsamen Bewertern).
+     * Scatter über die Bewerter der Spalte und deren Zeilen; Objekte entstehen nur für das Ergebnis.
+     */
+    public List<ScoredItem> topSimilar(int mediaId, int limit, Scratch scratch) {
+        if (mediaId < 0 || mediaId >= cols || limit <= 0 || colNorms[mediaId] == 0f) {
+            return List.of();
+        }
+        // Bei einer Ausnahme mittendrin zurücksetzen, sonst rechnet der nächste Aufruf dieses Threads mit Resten
+        try {
+            scatter(mediaId, scratch);
+        } catch (RuntimeException e) {
+            scratch.reset();
+            throw e;
+        }
+
+        int count = scratch.touchedCount;
+        for (int t = 0; t < count; t++) {
+            int other = scratch.touched[t];
+            int common = scratch.co[other];
+            scratch.ids[t] = other;
+            scratch.sims[t] = scratch.dot[other] / (colNorms[mediaId] * colNorms[other])
+                    * (common / (common + SHRINKAGE));
+        }
+        scratch.reset();
+
+        Neighbors top = Neighbors.topOf(scratch.ids, scratch.sims, count, limit);
+        List<ScoredItem> result = new ArrayList<>(top.size());
+        for (int n = 0; n < top.size(); n++) {
+            result.add(new ScoredItem(top.mediaIds[n], top.similarities[n]));
+        }
+        return result;
+    }
+
+    // Skalarprodukte und gemeinsame Bewerter von mediaId mit jedem Media, das ein Bewerter von mediaId auch bewertet hat
+    private void scatter(int mediaId, Scratch scratch) {
+        for (int k = colPtr(mediaId); k < colPtr(mediaId + 1); k++) {
+            int user = buffer.getInt(rowIdxAt + 4 * k);
+            int s = buffer.get(colValAt + k);
+            for (int l = rowPtr(user); l < rowPtr(user + 1); l++) {
+                int other = buffer.getInt(colIdxAt + 4 * l);
+                if (other == mediaId) {
+                    continue;
+                }
+                if (scratch.co[other] == 0) {
+                    scratch.touched[scratch.touchedCount++] = other;
+                }
+                scratch.co[other]++;
+                scratch.dot[other] += s * buffer.get(rowValAt + l);
+            }
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(rows, cols, nnz, buffer.capacity(), builtAtMillis);
+    }
+
+    private int rowPtr(int row) {
+        return buffer.getInt(rowPtrAt + 4 * row);
+    }
+
+    private int colPtr(int col) {
+        return buffer.getInt(colPtrAt + 4 * col);
+    }
+
+    private static long sizeOf(int rows, int cols, int nnz) {
+        return HEADER_BYTES + 4L * (rows + 1) + 4L * nnz + 4L * (cols + 1) + 4L * nnz + nnz + nnz;
+    }
+
+    // Counting Sort der Tripel in die Matrix, danach zweimal transponieren, damit beide Richtungen sortiert sind
+    private static void writeMatrix(Path triples, TripleWriter counts, Path target) throws IOException {
+        int rows = counts.maxUser + 1;
+        int cols = counts.maxMedia + 1;
+        int nnz = counts.count;
+        long size = sizeOf(rows, cols, nnz);
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Rating matrix would exceed 2 GiB (" + nnz + " ratings)");
+        }
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             FileChannel in = FileChannel.open(triples, StandardOpenOption.READ)) {
+            MappedByteBuffer matrix = out.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            MappedByteBuffer input = in.map(FileChannel.MapMode.READ_ONLY, 0, (long) nnz * TRIPLE_BYTES);
+            int rowPtrAt = HEADER_BYTES;
+            int colIdxAt = rowPtrAt + 4 * (rows + 1);
+            int colPtrAt = colIdxAt + 4 * nnz;
+            int rowIdxAt = colPtrAt + 4 * (cols + 1);
+            int rowValAt = rowIdxAt + 4 * nnz;
+            int colValAt = rowValAt + nnz;
+
+            // Zeiger = Präfixsummen der Zähler; die Cursor laufen beim Verteilen mit
+            int[] rowCursor = new int[rows];
+            int position = 0;
+            for (int r = 0; r < rows; r++) {
+                matrix.putInt(rowPtrAt + 4 * r, position);
+                rowCursor[r] = position;
+                position += counts.userCounts[r];
+            }
+            matrix.putInt(rowPtrAt + 4 * rows, position);
+            int[] colCursor = new int[cols];
+            position = 0;
+            for (int c = 0; c < cols; c++) {
+                matrix.putInt(colPtrAt + 4 * c, position);
+                colCursor[c] = position;
+                position += counts.mediaCounts[c];
+            }
+            matrix.putInt(colPtrAt + 4 * cols, position);
+
+            // 1. Tripel -> CSC, Zeilen innerhalb einer Spalte noch in Eingangsreihenfolge
+            for (int t = 0; t < nnz; t++) {
+                int user = input.getInt(t * TRIPLE_BYTES);
+                int media = input.getInt(t * TRIPLE_BYTES + 4);
+                int k = colCursor[media]++;
+                matrix.putInt(rowIdxAt + 4 * k, user);
+                matrix.put(colValAt + k, input.get(t * TRIPLE_BYTES + 8));
+            }
+            // 2. CSC spaltenweise -> CSR: die Spalten einer Zeile kommen dadurch aufsteigend an
+            for (int c = 0; c < cols; c++) {
+                int end = matrix.getInt(colPtrAt + 4 * (c + 1));
+                for (int k = matrix.getInt(colPtrAt + 4 * c); k < end; k++) {
+                    int l = rowCursor[matrix.getInt(rowIdxAt + 4 * k)]++;
+                    matrix.putInt(colIdxAt + 4 * l, c);
+                    matrix.put(rowValAt + l, matrix.get(colValAt + k));
+                }
+            }
+            // 3. CSR zeilenweise -> CSC: jetzt sind auch die Zeilen einer Spalte sortiert
+            for (int c = 0; c < cols; c++) {
+                colCursor[c] = matrix.getInt(colPtrAt + 4 * c);
+            }
+            for (int r = 0; r < rows; r++) {
+                int end = matrix.getInt(rowPtrAt + 4 * (r + 1));
+                for (int l = matrix.getInt(rowPtrAt + 4 * r); l < end; l++) {
+                    int k = colCursor[matrix.getInt(colIdxAt + 4 * l)]++;
+                    matrix.putInt(rowIdxAt + 4 * k, r);
+                    matrix.put(colValAt + k, matrix.get(rowValAt + l));
+                }
+            }
+
+            // Magic zuletzt: eine unvollständig geschriebene Datei wird beim Öffnen abgelehnt
+            matrix.putInt(H_FORMAT, FORMAT);
+            matrix.putInt(H_ROWS, rows);
+            matrix.putInt(H_COLS, cols);
+            matrix.putInt(H_NNZ, nnz);
+            matrix.putLong(H_BUILT_AT, System.currentTimeMillis());
+            matrix.putInt(H_MAGIC, MAGIC);
+            matrix.force();
+        }
+    }
+
+    /**
+     * Akkumulatoren für {@link #topSimilar(int, int, Scratch)}, eine Instanz pro Thread.
+     */
+    public static final class Scratch {
+        private final float[] dot;
+        private final int[] co;
+        private final int[] touched;
+        private final int[] ids;
+        private final float[] sims;
+        private int touchedCount;
+
+        private Scratch(int cols) {
+            this.dot = new float[cols];
+            this.co = new int[cols];
+            this.touched = new int[cols];
+            this.ids = new int[cols];
+            this.sims = new float[cols];
+        }
+
+        // Setzt nur die berührten Einträge zurück
+        private void reset() {
+            for (int t = 0; t < touchedCount; t++) {
+                dot[touched[t]] = 0f;
+                co[touched[t]] = 0;
+            }
+            touchedCount = 0;
+        }
+    }
+
+    // Parst den COPY-Textstrom Byte für Byte (Tab-getrennt, \N = NULL) und schreibt feste Tripel in die Datei
+    private static final class TripleWriter extends OutputStream {
+        private final FileChannel channel;
+        private final ByteBuffer out = ByteBuffer.allocateDirect(IO_BUFFER_BYTES);
+        private final int[] fields = new int[3];
+        private int field;
+        private long value;
+        private boolean digits;
+        private boolean invalid;
+
+        private int count;
+        private int maxUser = -1;
+        private int maxMedia = -1;
+        private int[] userCounts = new int[16];
+        private int[] mediaCounts = new int[16];
+
+        TripleWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            accept((byte) b);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            for (int i = offset; i < offset + length; i++) {
+                accept(bytes[i]);
+            }
+        }
+
+        private void accept(byte b) throws IOException {
+            if (b >= '0' && b <= '9') {
+                value = value * 10 + (b - '0');
+                digits = true;
+                invalid |= value > Integer.MAX_VALUE;
+            } else if (b == '\t') {
+                endField();
+            } else if (b == '\n') {
+                endField();
+                endRow();
+            } else if (b != '\r') {
+                // \N (NULL), Vorzeichen oder sonstige Zeichen: Zeile wird übersprungen
+                invalid = true;
+            }
+        }
+
+        private void endField() {
+            if (field < fields.length) {
+                fields[field] = invalid || !digits ? -1 : (int) value;
+            }
+            field++;
+            value = 0;
+            digits = false;
+            invalid = false;
+        }
+
+        private void endRow() throws IOException {
+            int user = fields[0];
+            int media = fields[1];
+            int stars = fields[2];
+            if (field == fields.length && user >= 0 && media >= 0 && stars >= 1 && stars <= Byte.MAX_VALUE) {
+                if (count == Integer.MAX_VALUE) {
+                    throw new IOException("Too many ratings for a rating matrix");
+                }
+                if (out.remaining() < TRIPLE_BYTES) {
+                    flush();
+                }
+                out.putInt(user).putInt(media).put((byte) stars);
+                count++;
+                maxUser = Math.max(maxUser, user);
+                maxMedia = Math.max(maxMedia, media);
+                userCounts = grow(userCounts, user);
+                mediaCounts = grow(mediaCounts, media);
+                userCounts[user]++;
+                mediaCounts[media]++;
+            }
+            field = 0;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flip();
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            out.clear();
+        }
+
+        void finish() throws IOException {
+            if (field > 0 || digits || invalid) {
+                throw new IOException("COPY stream ended in the middle of a row");
+            }
+            flush();
+        }
+
+        private static int[] grow(int[] array, int index) {
+            return index < array.length ? array : Arrays.copyOf(array, Math.max(index + 1, array.length * 2));
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package org.example.recommendation;
+
+/**
+ * Ergebnis eines Rankings: Media-ID mit Score (Bedeutung hängt vom Verfahren ab,
+ * z.B. vorhergesagte Sterne bei Collaborative Filtering).
+ */
+public record ScoredItem(int mediaId, double score) {
+}
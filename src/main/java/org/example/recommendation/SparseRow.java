@@ -0,0 +1,63 @@
+package org.example.recommendation;
+
+import java.util.Arrays;
+
+// Dünn besetzte Zeile einer Rating-Matrix: parallele primitive Arrays (Index -> Sterne)
+// Unsortiert, da die Ähnlichkeitsberechnung per Scatter/Gather arbeitet und keine Merge-Joins braucht
+final class SparseRow {
+    int[] idx;
+    float[] val;
+    int size;
+
+    SparseRow() {
+        this.idx = new int[4];
+        this.val = new float[4];
+    }
+
+    // Anhängen ohne Duplikat-Prüfung (nur beim Bulk-Load, wo (user, media) eindeutig ist)
+    void append(int index, float value) {
+        if (size == idx.length) {
+            idx = Arrays.copyOf(idx, size * 2);
+            val = Arrays.copyOf(val, size * 2);
+        }
+        idx[size] = index;
+        val[size] = value;
+        size++;
+    }
+
+    // Setzt einen Wert und gibt den vorherigen zurück (NaN wenn neu)
+    float put(int index, float value) {
+        for (int k = 0; k < size; k++) {
+            if (idx[k] == index) {
+                float previous = val[k];
+                val[k] = value;
+                return previous;
+            }
+        }
+        append(index, value);
+        return Float.NaN;
+    }
+
+    // Entfernt einen Eintrag (letztes Element rückt nach) und gibt den alten Wert zurück (NaN wenn nicht vorhanden)
+    float remove(int index) {
+        for (int k = 0; k < size; k++) {
+            if (idx[k] == index) {
+                float previous = val[k];
+                size--;
+                idx[k] = idx[size];
+                val[k] = val[size];
+                return previous;
+            }
+        }
+        return Float.NaN;
+    }
+
+    boolean contains(int index) {
+        for (int k = 0; k < size; k++) {
+            if (idx[k] == index) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
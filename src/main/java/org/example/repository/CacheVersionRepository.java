@@ -0,0 +1,36 @@
+package org.example.repository;
+
+import org.example.database.DatabaseConnection;
+
+import java.sql.*;
+import java.util.HashMap;
+import java.util.Map;
+
+// Repository für die Versionen der Invalidierungs-Themen
+// Die Versionen ziehen Trigger aus einer Sequenz pro Thema; hier wird nur gelesen (Abgleich bei verpassten Notifications)
+public class CacheVersionRepository {
+    private final Connection connection;
+
+    public CacheVersionRepository() throws SQLException {
+        this.connection = DatabaseConnection.getInstance().getConnection();
+    }
+
+    // Zuletzt vergebene Version pro Thema (0, solange die Sequenz noch nie benutzt wurde)
+    public Map<String, Long> findAll() throws SQLException {
+        String sql = """
+            SELECT sequencename, COALESCE(last_value, 0) AS version FROM pg_sequences
+            WHERE schemaname = current_schema() AND starts_with(sequencename, ?)
+            """;
+        Map<String, Long> versions = new HashMap<>();
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setString(1, DatabaseConnection.VERSION_SEQUENCE_PREFIX);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                String topic = rs.getString("sequencename")
+                        .substring(DatabaseConnection.VERSION_SEQUENCE_PREFIX.length()).replace('_', '-');
+                versions.put(topic, rs.getLong("version"));
+            }
+        }
+        return versions;
+    }
+}
@@ -0,0 +1,21 @@
+package org.example.repository;
+
+import org.example.model.MediaEntry;
+
+/**
+ * Callback für Schreibzugriffe auf die Media-Tabelle.
+ * Gegenstück zu {@link RatingListener}: In-Memory-Kataloge registrieren sich beim {@link MediaRepository}
+ * und werden nach jedem erfolgreichen Statement informiert.
+ */
+public interface MediaListener {
+
+    // Neuer MediaEntry wurde gespeichert (ID ist bereits gesetzt)
+    default void onMediaSaved(MediaEntry media) {
+    }
+
+    default void onMediaUpdated(MediaEntry media) {
+    }
+
+    default void onMediaDeleted(int mediaId) {
+    }
+}
@@ -7,29 +7,57 @@ import java.sql.*;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 // Repository für Media-Tabelle
 // Alle Datenbankoperationen für Media-Einträge (CRUD)
 public class MediaRepository {
+    private static final Logger LOGGER = Logger.getLogger(MediaRepository.class.getName());
+
     private final Connection connection;
 
+    // Listener werden nach erfolgreichen Writes benachrichtigt (z.B. Content-Katalog für Empfehlungen)
+    private final List<MediaListener> listeners = new CopyOnWriteArrayList<>();
+
     public MediaRepository() throws SQLException {
         this.connection = DatabaseConnection.getInstance().getConnection();
     }
 
+    public void addListener(MediaListener listener) {
+        listeners.add(listener);
+    }
+
+    // Wie im RatingRepository: ein fehlerhafter Listener wird geloggt und hält die übrigen nicht auf
+    private void notifyListeners(Consumer<MediaListener> event) {
+        for (MediaListener listener : listeners) {
+            try {
+                event.accept(listener);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Media listener " + listener.getClass().getSimpleName()
+                        + " failed after a write", e);
+            }
+        }
+    }
+
     // Neuen MediaEntry in DB speichern
     // RETURNING gibt die automatisch generierte ID und created_at zurück
     public MediaEntry save(MediaEntry media) throws SQLException {
         String sql = """
             INSERT INTO media (title, description, media_type, release_year, genres, age_restriction, creator_id, average_score)
-            VALUES (?, ?, ?, ?, ?, ?, ?, 0) RETURNING id, created_at
+            VALUES (?, ?, ?, ?, ?, ?, ?, 0) RETURNING id, created_at, version
             """;
 
         List<String> genres = media.getGenres() != null ? media.getGenres() : Collections.emptyList();
         Array genresArray = null;
         try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setQueryTimeout(DatabaseConnection.QUERY_TIMEOUT_SECONDS);
             stmt.setString(1, media.getTitle());
             stmt.setString(2, media.getDescription());
             stmt.setString(3, media.getMediaType());
@@ -45,13 +73,13 @@ public class MediaRepository {
                 if (rs.next()) {
                     // ID und Timestamp von DB zurückholen
                     media.setId(rs.getInt("id"));
+                    media.setVersion(rs.getLong("version"));
                     Timestamp ts = rs.getTimestamp("created_at");
                     if (ts != null) {
                         media.setCreatedAt(ts.toLocalDateTime());
                     }
                 }
             }
-            return media;
         } finally {
             // PostgreSQL Array manuell freigeben (Memory-Leak vermeiden)
             if (genresArray != null) {
@@ -61,11 +89,14 @@ public class MediaRepository {
                 }
             }
         }
+        notifyListeners(listener -> listener.onMediaSaved(media));
+        return media;
     }
 
     public Optional<MediaEntry> findById(Integer id) throws SQLException {
         String sql = "SELECT * FROM media WHERE id = ?";
         try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setQueryTimeout(DatabaseConnection.QUERY_TIMEOUT_SECONDS);
             stmt.setInt(1, id);
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
@@ -76,11 +107,50 @@ public class MediaRepository {
         }
     }
 
+    // Mehrere Media-Einträge in einem Round-Trip holen (WHERE id = ANY(?))
+    // Reihenfolge entspricht der übergebenen ID-Liste, unbekannte IDs werden übersprungen
+    public List<MediaEntry> findByIds(List<Integer> ids) throws SQLException {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Integer, MediaEntry> byId = new HashMap<>();
+        String sql = "SELECT * FROM media WHERE id = ANY(?)";
+        Array idArray = null;
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setQueryTimeout(DatabaseConnection.QUERY_TIMEOUT_SECONDS);
+            idArray = connection.createArrayOf("integer", ids.toArray(new Integer[0]));
+            stmt.setArray(1, idArray);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    MediaEntry media = mapRowToMedia(rs);
+                    byId.put(media.getId(), media);
+                }
+            }
+        } finally {
+            if (idArray != null) {
+                try {
+                    idArray.free();
+                } catch (SQLException ignored) {
+                }
+            }
+        }
+
+        List<MediaEntry> result = new ArrayList<>(byId.size());
+        for (Integer id : ids) {
+            MediaEntry media = byId.get(id);
+            if (media != null) {
+                result.add(media);
+            }
+        }
+        return result;
+    }
+
     // Alle Media-Einträge holen (sortiert nach ID)
     public List<MediaEntry> findAll() throws SQLException {
         List<MediaEntry> mediaList = new ArrayList<>();
         String sql = "SELECT * FROM media ORDER BY id ASC";
         try (Statement stmt = connection.createStatement()) {
+            stmt.setQueryTimeout(DatabaseConnection.QUERY_TIMEOUT_SECONDS);
             try (ResultSet rs = stmt.executeQuery(sql)) {
                 while (rs.next()) {
                     mediaList.add(mapRowToMedia(rs));
@@ -90,16 +160,30 @@ public class MediaRepository {
         return mediaList;
     }
 
-    // Bestehenden MediaEntry updaten (alle Felder)
+    // Nur die IDs aller Media-Einträge (für den Negativ-Cache)
+    public List<Integer> findAllIds() throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        try (Statement stmt = connection.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery("SELECT id FROM media")) {
+                while (rs.next()) {
+                    ids.add(rs.getInt(1));
+                }
+            }
+        }
+        return ids;
+    }
+
+    // Bestehenden MediaEntry updaten (alle Felder), die neue Version wird am Objekt gesetzt
     public void update(MediaEntry media) throws SQLException {
         String sql = "UPDATE media SET " +
                 "title = ?, description = ?, media_type = ?, release_year = ?, " +
-                "genres = ?, age_restriction = ?, average_score = ? " +
-                "WHERE id = ?";
+                "genres = ?, age_restriction = ?, average_score = ?, version = version + 1 " +
+                "WHERE id = ? RETURNING version";
 
         List<String> genres = media.getGenres() != null ? media.getGenres() : Collections.emptyList();
         Array genresArray = null;
         try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setQueryTimeout(DatabaseConnection.QUERY_TIMEOUT_SECONDS);
             stmt.setString(1, media.getTitle());
             stmt.setString(2, media.getDescription());
             stmt.setString(3, media.getMediaType());
@@ -109,7 +193,11 @@ public class MediaRepository {
             stmt.setInt(6, media.getAgeRestriction());
             stmt.setDouble(7, media.getAverageRating());
             stmt.setInt(8, media.getId());
-            stmt.executeUpdate();
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    media.setVersion(rs.getLong("version"));
+                }
+            }
         } finally {
             if (genresArray != null) {
                 try {
@@ -118,6 +206,7 @@ public class MediaRepository {
                 }
             }
         }
+        notifyListeners(listener -> listener.onMediaUpdated(media));
     }
 
     // MediaEntry und alle zugehörigen Ratings löschen
@@ -126,6 +215,7 @@ public class MediaRepository {
         // Erst alle Ratings zu diesem Media löschen
         String deleteRatingsSql = "DELETE FROM ratings WHERE media_id = ?";
         try (PreparedStatement stmt = connection.prepareStatement(deleteRatingsSql)) {
+            stmt.setQueryTimeout(DatabaseConnection.QUERY_TIMEOUT_SECONDS);
             stmt.setInt(1, id);
             stmt.executeUpdate();
         }
@@ -133,9 +223,11 @@ public class MediaRepository {
         // Dann Media-Eintrag selbst löschen
         String deleteMediaSql = "DELETE FROM media WHERE id = ?";
         try (PreparedStatement stmt = connection.prepareStatement(deleteMediaSql)) {
+            stmt.setQueryTimeout(DatabaseConnection.QUERY_TIMEOUT_SECONDS);
             stmt.setInt(1, id);
             stmt.executeUpdate();
         }
+        notifyListeners(listener -> listener.onMediaDeleted(id));
     }
 
     // Konvertiert eine Datenbank-Zeile (ResultSet) zu MediaEntry-Objekt
@@ -179,6 +271,7 @@ public class MediaRepository {
         media.setAgeRestriction(rs.getInt("age_restriction"));
         media.setCreatorId(rs.getInt("creator_id"));
         media.setAverageRating(rs.getDouble("average_score"));
+        media.setVersion(rs.getLong("version"));
 
         Timestamp timestamp = rs.getTimestamp("created_at");
         if (timestamp != null) {
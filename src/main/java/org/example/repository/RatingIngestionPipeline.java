@@ -0,0 +1,231 @@
+package org.example.repository;
+
+import org.example.database.CircuitBreaker;
+import org.example.exception.ServiceUnavailableException;
+import org.example.model.Rating;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Write-Behind für Ratings: Request-Threads legen ihr Rating in eine begrenzte Warteschlange und bekommen ein
+ * Future; ein einzelner Schreib-Thread sammelt Batches (bis batchSize Ratings oder maxDelay nach dem ersten)
+ * und schreibt jeden Batch mit einem Statement ({@link RatingRepository#upsertBatch}).
+ * <p>
+ * Mehrere Ratings desselben Users für dasselbe Media im selben Batch werden zusammengefasst: geschrieben wird
+ * nur das letzte, alle zugehörigen Futures bekommen dieses Rating (mit ID). Ist die Warteschlange voll, wird
+ * sofort mit {@link ServiceUnavailableException} (503) abgelehnt statt zu stauen. Schlägt ein Batch ohne
+ * DB-Ausfall fehl (z.B. Media inzwischen gelöscht), werden seine Ratings einzeln geschrieben, damit nur die
+ * betroffenen Requests den Fehler bekommen. Die Rating-Listener laufen auf dem Schreib-Thread, einmal pro Batch
+ * ({@link RatingListener#onRatingsUpserted}); ihre Fehler fängt das Repository ab, ein geschriebener Batch gilt
+ * also immer als erfolgreich.
+ */
+public class RatingIngestionPipeline {
+    public static final int DEFAULT_QUEUE_CAPACITY = 10_000;
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    public static final long DEFAULT_MAX_DELAY_MILLIS = 10;
+    private static final int RETRY_AFTER_SECONDS = 1;
+    // Wie oft der leere Schreib-Thread prüft, ob close() aufgerufen wurde
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    /**
+     * Schreibt einen Batch (jedes User/Media-Paar höchstens einmal) und setzt die IDs.
+     */
+    @FunctionalInterface
+    public interface BatchWriter {
+        void write(List<Rating> batch) throws SQLException;
+    }
+
+    /**
+     * Kennzahlen für /metrics.
+     */
+    public record Stats(int queued, int queueCapacity, long submitted, long rejected, long batches, long rows,
+                        long coalesced, long failed) {
+    }
+
+    private record Pending(Rating rating, CompletableFuture<Rating> result) {
+    }
+
+    private final BatchWriter writer;
+    private final BlockingQueue<Pending> queue;
+    private final int queueCapacity;
+    private final int batchSize;
+    private final long maxDelayNanos;
+    private final Thread worker;
+    private volatile boolean closed;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    public RatingIngestionPipeline(BatchWriter writer) {
+        this(writer, DEFAULT_QUEUE_CAPACITY, DEFAULT_BATCH_SIZE, DEFAULT_MAX_DELAY_MILLIS);
+    }
+
+    public RatingIngestionPipeline(BatchWriter writer, int queueCapacity, int batchSize, long maxDelayMillis) {
+        if (queueCapacity <= 0 || batchSize <= 0 || maxDelayMillis < 0) {
+            throw new IllegalArgumentException("Capacity and batch size must be positive, delay not negative");
+        }
+        this.writer = writer;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.queueCapacity = queueCapacity;
+        this.batchSize = batchSize;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        this.worker = new Thread(this::run, "mrp-rating-ingest");
+        this.worker.setDaemon(true);
+    }
+
+    public void start() {
+        worker.start();
+    }
+
+    /**
+     * Reiht ein Rating ein. Das Future liefert das geschriebene Rating (mit ID) oder den Fehler des Batches.
+     *
+     * @throws ServiceUnavailableException wenn die Warteschlange voll ist oder die Pipeline beendet wird
+     */
+    public CompletableFuture<Rating> submit(Rating rating) {
+        Pending pending = new Pending(rating, new CompletableFuture<>());
+        // Nach dem Einreihen erneut prüfen: close() könnte die Warteschlange schon ein letztes Mal geleert haben
+        if (closed || !queue.offer(pending) || (closed && queue.remove(pending))) {
+            rejected.increment();
+            throw new ServiceUnavailableException("Rating ingestion is busy, please retry.", RETRY_AFTER_SECONDS);
+        }
+        submitted.increment();
+        return pending.result();
+    }
+
+    /**
+     * Nimmt nichts mehr an, schreibt die Warteschlange noch leer (höchstens timeout lang) und beendet den Thread.
+     * Was danach noch wartet, wird mit {@link ServiceUnavailableException} abgeschlossen.
+     */
+    public void close(Duration timeout) {
+        closed = true;
+        try {
+            worker.join(Math.max(1, timeout.toMillis()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (worker.isAlive()) {
+            worker.interrupt();
+        }
+        List<Pending> leftovers = new ArrayList<>();
+        queue.drainTo(leftovers);
+        fail(leftovers, new ServiceUnavailableException("Server is shutting down.", RETRY_AFTER_SECONDS));
+    }
+
+    public Stats stats() {
+        return new Stats(queue.size(), queueCapacity, submitted.sum(), rejected.sum(), batches.sum(), rows.sum(),
+                coalesced.sum(), failed.sum());
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (!closed || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < batchSize) {
+                    if (queue.drainTo(batch, batchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    // Beim Shutdown nicht auf weitere Ratings warten
+                    if (remaining <= 0 || closed) {
+                        break;
+                    }
+                    Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                fail(batch, new ServiceUnavailableException("Server is shutting down.", RETRY_AFTER_SECONDS));
+                return;
+            } catch (RuntimeException e) {
+                // Darf den Schreib-Thread nicht beenden, sonst bleiben alle folgenden Futures offen
+                fail(batch, e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    // Fasst gleiche (User, Media)-Paare zusammen und schreibt den Batch; bei Fehlern ohne Ausfall einzeln
+    private void flush(List<Pending> batch) {
+        Map<Long, List<Pending>> byPair = new LinkedHashMap<>();
+        for (Pending pending : batch) {
+            Rating rating = pending.rating();
+            byPair.computeIfAbsent(RatingRepository.pairKey(rating.getUserId(), rating.getMediaId()),
+                    key -> new ArrayList<>(1)).add(pending);
+        }
+        coalesced.add(batch.size() - byPair.size());
+
+        List<Rating> latest = new ArrayList<>(byPair.size());
+        for (List<Pending> group : byPair.values()) {
+            latest.add(group.get(group.size() - 1).rating());
+        }
+        try {
+            write(latest);
+            complete(byPair.values());
+        } catch (SQLException e) {
+            if (latest.size() == 1 || CircuitBreaker.isOutage(e)) {
+                fail(batch, e);
+                return;
+            }
+            for (List<Pending> group : byPair.values()) {
+                try {
+                    write(List.of(group.get(group.size() - 1).rating()));
+                    complete(List.of(group));
+                } catch (SQLException single) {
+                    fail(group, single);
+                }
+            }
+        }
+    }
+
+    private void write(List<Rating> batch) throws SQLException {
+        writer.write(batch);
+        batches.increment();
+        rows.add(batch.size());
+    }
+
+    private static void complete(Iterable<List<Pending>> groups) {
+        for (List<Pending> group : groups) {
+            Rating written = group.get(group.size() - 1).rating();
+            for (Pending pending : group) {
+                pending.result().complete(written);
+            }
+        }
+    }
+
+    // Bereits abgeschlossene Futures (geschriebene Ratings) bleiben unverändert. Gezählt wird vor dem Abschließen,
+    // damit ein wartender Request den Zähler schon aktualisiert sieht; abgeschlossen wird nur der Schreib-Thread
+    // bzw. close() mit den nicht mehr entnommenen Ratings, also nie dasselbe Future von zwei Seiten
+    private void fail(List<Pending> pendings, Throwable cause) {
+        for (Pending pending : pendings) {
+            if (!pending.result().isDone()) {
+                failed.increment();
+                pending.result().completeExceptionally(cause);
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package org.example.repository;
+
+import org.example.model.Rating;
+
+import java.util.List;
+
+/**
+ * Callback für Schreibzugriffe auf die Ratings-Tabelle.
+ * In-Memory-Strukturen (z.B. Empfehlungen) registrieren sich beim {@link RatingRepository}
+ * und werden nach jedem erfolgreichen Statement informiert, statt die DB erneut abzufragen.
+ * Alle Methoden haben leere Default-Implementierungen, damit Listener nur die benötigten Events überschreiben.
+ */
+public interface RatingListener {
+
+    /**
+     * Ein Rating aus {@link RatingRepository#upsertBatch}: previousStars null = neu angelegt, sonst die Sterne
+     * vor dem Update.
+     */
+    record Upsert(Rating rating, Integer previousStars) {
+    }
+
+    // Neues Rating wurde gespeichert (ID ist bereits gesetzt)
+    default void onRatingSaved(Rating rating) {
+    }
+
+    // Sterne/Kommentar eines Ratings wurden geändert
+    // previousStars = Sterne vor dem Update (für inkrementelle Aggregate)
+    default void onRatingUpdated(Rating rating, int previousStars) {
+    }
+
+    // Mehrere Ratings mit einem Statement angelegt oder geändert (jedes User/Media-Paar höchstens einmal)
+    // Standard: einzeln als onRatingSaved/onRatingUpdated; Listener mit eigenen DB-Writes fassen sie zusammen
+    default void onRatingsUpserted(List<Upsert> upserts) {
+        for (Upsert upsert : upserts) {
+            if (upsert.previousStars() == null) {
+                onRatingSaved(upsert.rating());
+            } else {
+                onRatingUpdated(upsert.rating(), upsert.previousStars());
+            }
+        }
+    }
+
+    // Rating wurde gelöscht (enthält userId, mediaId und Sterne der gelöschten Zeile)
+    default void onRatingDeleted(Rating rating) {
+    }
+
+    // Neues Like auf ein Rating (nur wenn der User es nicht schon geliked hatte)
+    // ratingAuthorId = Verfasser des Ratings, likedByUserId = User, der geliked hat
+    default void onLikeAdded(int ratingId, int mediaId, int ratingAuthorId, int likedByUserId) {
+    }
+
+    // Kommentar eines Ratings wurde vom Media-Creator freigegeben (nur beim Wechsel auf confirmed)
+    default void onCommentConfirmed(int ratingId, int mediaId, int ratingAuthorId) {
+    }
+
+    // Media wurde zu den Favoriten eines Users hinzugefügt (nur wenn es noch kein Favorit war)
+    default void onFavoriteAdded(int userId, int mediaId) {
+    }
+
+    // Media wurde aus den Favoriten entfernt (nur wenn es tatsächlich ein Favorit war)
+    default void onFavoriteRemoved(int userId, int mediaId) {
+    }
+}
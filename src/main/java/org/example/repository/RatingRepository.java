@@ -2,23 +2,62 @@ package org.example.repository;
 
 import org.example.database.DatabaseConnection;
 import org.example.model.Rating;
+import org.postgresql.PGConnection;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Repository für Rating-Datenzugriff.
  * SOLID-Prinzip: Single Responsibility - zuständig nur für Rating-Persistierung.
  */
-public class RatingRepository {
+public class RatingRepository implements RatingSource {
+    private static final Logger LOGGER = Logger.getLogger(RatingRepository.class.getName());
+    private static final int MAX_UPSERT_ATTEMPTS = 3;
+
     private final Connection connection;
 
+    // Listener werden nach erfolgreichen Writes benachrichtigt (z.B. Empfehlungs-Index)
+    private final List<RatingListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Callback für {@link #forEachRating(RatingRowHandler)} - bekommt jede Zeile als primitive Werte,
+     * damit beim Laden großer Datenmengen keine Rating-Objekte erzeugt werden müssen.
+     */
+    @FunctionalInterface
+    public interface RatingRowHandler {
+        void accept(int userId, int mediaId, int stars, long timestampMillis);
+    }
+
+    // Callback für forEachUserActivity: eine Zeile pro User
+    @FunctionalInterface
+    public interface UserActivityHandler {
+        void accept(int userId, int ratings, int likesReceived, int confirmedComments);
+    }
+
     public RatingRepository() throws SQLException {
         this.connection = DatabaseConnection.getInstance().getConnection();
     }
 
+    // Mit eigener Verbindung, z.B. damit parallele Statements wirklich gleichzeitig in der DB laufen
+    public RatingRepository(Connection connection) {
+        this.connection = connection;
+    }
+
+    public void addListener(RatingListener listener) {
+        listeners.add(listener);
+    }
+
     public Rating save(Rating rating) throws SQLException {
         String sql = "INSERT INTO ratings (user_id, media_id, stars, comment, confirmed) VALUES (?, ?, ?, ?, ?) RETURNING id";
         try (PreparedStatement stmt = connection.prepareStatement(sql)) {
@@ -32,7 +71,110 @@ public class RatingRepository {
             if (rs.next()) {
                 rating.setId(rs.getInt("id"));
             }
-            return rating;
+        }
+        notifyListeners(listener -> listener.onRatingSaved(rating));
+        return rating;
+    }
+
+    /**
+     * Schreibt mehrere Ratings mit einem Statement: bestehende (User, Media)-Paare werden aktualisiert, neue per
+     * mehrzeiligem INSERT angelegt. Setzt die IDs und benachrichtigt die Listener gesammelt
+     * ({@link RatingListener#onRatingsUpserted}). Jedes (User, Media)-Paar darf im Batch nur einmal vorkommen.
+     * <p>
+     * Legt ein anderer Knoten ein Paar zwischen Lesen und Einfügen an, wird es hier nicht überschrieben
+     * (ON CONFLICT DO NOTHING), sondern mit dem nächsten Statement als Update nachgeholt - so kennen die Listener
+     * immer die alten Sterne und Aggregate zählen nichts doppelt. Die Listener laufen nach dem Write; ihre Fehler
+     * werden geloggt und nicht weitergereicht, denn die Ratings sind dann schon gespeichert.
+     */
+    public void upsertBatch(List<Rating> ratings) throws SQLException {
+        Map<Long, Rating> byKey = new HashMap<>();
+        for (Rating rating : ratings) {
+            if (byKey.put(pairKey(rating.getUserId(), rating.getMediaId()), rating) != null) {
+                throw new IllegalArgumentException("Duplicate rating for user " + rating.getUserId()
+                        + " and media " + rating.getMediaId() + " in one batch");
+            }
+        }
+        for (int attempt = 1; !byKey.isEmpty(); attempt++) {
+            // Praktisch nie mehr als zwei Runden: was beim Einfügen kollidiert, existiert in der nächsten schon
+            if (attempt > MAX_UPSERT_ATTEMPTS) {
+                throw new SQLException("Rating batch kept conflicting with concurrent inserts", "40001");
+            }
+            List<RatingListener.Upsert> written = upsertOnce(byKey);
+            for (RatingListener.Upsert upsert : written) {
+                Rating rating = upsert.rating();
+                byKey.remove(pairKey(rating.getUserId(), rating.getMediaId()));
+            }
+            notifyUpserted(written);
+        }
+    }
+
+    // Eine Runde von upsertBatch; liefert nur die Paare, die dieses Statement tatsächlich geschrieben hat
+    private List<RatingListener.Upsert> upsertOnce(Map<Long, Rating> byKey) throws SQLException {
+        StringBuilder values = new StringBuilder();
+        for (int k = 0; k < byKey.size(); k++) {
+            values.append(k == 0 ? "" : ", ").append("(?::int, ?::int, ?::int, ?::text)");
+        }
+        // previous sperrt und liest die alten Sterne vor dem Update (wie in update())
+        String sql = "WITH input (user_id, media_id, stars, comment) AS (VALUES " + values + "), "
+                + """
+                previous AS (
+                    SELECT r.id, r.user_id, r.media_id, r.stars FROM ratings r
+                    JOIN input i ON i.user_id = r.user_id AND i.media_id = r.media_id
+                    FOR UPDATE OF r
+                ),
+                updated AS (
+                    UPDATE ratings r SET stars = i.stars, comment = i.comment
+                    FROM previous p JOIN input i ON i.user_id = p.user_id AND i.media_id = p.media_id
+                    WHERE r.id = p.id
+                    RETURNING r.id, r.user_id, r.media_id, p.stars AS previous_stars
+                ),
+                inserted AS (
+                    INSERT INTO ratings (user_id, media_id, stars, comment, confirmed)
+                    SELECT i.user_id, i.media_id, i.stars, i.comment, FALSE FROM input i
+                    WHERE NOT EXISTS (SELECT 1 FROM previous p WHERE p.user_id = i.user_id AND p.media_id = i.media_id)
+                    ON CONFLICT (user_id, media_id) DO NOTHING
+                    RETURNING id, user_id, media_id, NULL::int AS previous_stars
+                )
+                SELECT * FROM updated UNION ALL SELECT * FROM inserted
+                """;
+        List<RatingListener.Upsert> written = new ArrayList<>(byKey.size());
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setQueryTimeout(DatabaseConnection.QUERY_TIMEOUT_SECONDS);
+            int index = 1;
+            for (Rating rating : byKey.values()) {
+                stmt.setInt(index++, rating.getUserId());
+                stmt.setInt(index++, rating.getMediaId());
+                stmt.setInt(index++, rating.getStars());
+                stmt.setString(index++, rating.getComment());
+            }
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                Rating rating = byKey.get(pairKey(rs.getInt("user_id"), rs.getInt("media_id")));
+                rating.setId(rs.getInt("id"));
+                int previous = rs.getInt("previous_stars");
+                written.add(new RatingListener.Upsert(rating, rs.wasNull() ? null : previous));
+            }
+        }
+        return written;
+    }
+
+    private void notifyUpserted(List<RatingListener.Upsert> written) {
+        if (!written.isEmpty()) {
+            notifyListeners(listener -> listener.onRatingsUpserted(written));
+        }
+    }
+
+    // Alle Listener nach einem Write benachrichtigen. Der Write ist zu dem Zeitpunkt schon gespeichert: ein
+    // fehlerhafter Listener wird geloggt, darf aber weder den Request scheitern lassen noch die übrigen Listener
+    // um das Event bringen
+    private void notifyListeners(Consumer<RatingListener> event) {
+        for (RatingListener listener : listeners) {
+            try {
+                event.accept(listener);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Rating listener " + listener.getClass().getSimpleName()
+                        + " failed after a write", e);
+            }
         }
     }
 
@@ -78,6 +220,7 @@ public class RatingRepository {
         List<Rating> ratings = new ArrayList<>();
         String sql = "SELECT * FROM ratings WHERE media_id = ? ORDER BY timestamp DESC";
         try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setQueryTimeout(DatabaseConnection.QUERY_TIMEOUT_SECONDS);
             stmt.setInt(1, mediaId);
             ResultSet rs = stmt.executeQuery();
             while (rs.next()) {
@@ -87,21 +230,94 @@ public class RatingRepository {
         return ratings;
     }
 
+    // Update liefert per RETURNING die alten Sterne mit, damit Listener ihre Aggregate
+    // inkrementell korrigieren können (Subquery mit FOR UPDATE liest den Wert vor dem Update)
     public void update(Rating rating) throws SQLException {
-        String sql = "UPDATE ratings SET stars = ?, comment = ? WHERE id = ?";
+        String sql = """
+            UPDATE ratings r SET stars = ?, comment = ?
+            FROM (SELECT id, stars FROM ratings WHERE id = ? FOR UPDATE) old
+            WHERE r.id = old.id
+            RETURNING r.user_id, r.media_id, old.stars AS previous_stars
+            """;
+        int previousStars;
         try (PreparedStatement stmt = connection.prepareStatement(sql)) {
             stmt.setInt(1, rating.getStars());
             stmt.setString(2, rating.getComment());
             stmt.setInt(3, rating.getId());
-            stmt.executeUpdate();
+            ResultSet rs = stmt.executeQuery();
+            if (!rs.next()) {
+                return; // Rating existiert nicht (mehr)
+            }
+            rating.setUserId(rs.getInt("user_id"));
+            rating.setMediaId(rs.getInt("media_id"));
+            previousStars = rs.getInt("previous_stars");
         }
+        notifyListeners(listener -> listener.onRatingUpdated(rating, previousStars));
     }
 
     public void delete(Integer id) throws SQLException {
-        String sql = "DELETE FROM ratings WHERE id = ?";
+        String sql = "DELETE FROM ratings WHERE id = ? RETURNING user_id, media_id, stars";
+        Rating deleted = null;
         try (PreparedStatement stmt = connection.prepareStatement(sql)) {
             stmt.setInt(1, id);
-            stmt.executeUpdate();
+            ResultSet rs = stmt.executeQuery();
+            if (rs.next()) {
+                deleted = new Rating(rs.getInt("user_id"), rs.getInt("media_id"), rs.getInt("stars"), null);
+                deleted.setId(id);
+            }
+        }
+        if (deleted != null) {
+            Rating event = deleted;
+            notifyListeners(listener -> listener.onRatingDeleted(event));
+        }
+    }
+
+    /**
+     * Löscht alle Ratings eines Media (vor dem Löschen des Media selbst) und meldet jedes einzeln
+     * als gelöscht - sonst behalten Ranglisten und Statistiken die Sterne eines Media, das es nicht mehr gibt.
+     */
+    public int deleteByMedia(int mediaId) throws SQLException {
+        String sql = "DELETE FROM ratings WHERE media_id = ? RETURNING id, user_id, stars";
+        List<Rating> deleted = new ArrayList<>();
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setInt(1, mediaId);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                Rating rating = new Rating(rs.getInt("user_id"), mediaId, rs.getInt("stars"), null);
+                rating.setId(rs.getInt("id"));
+                deleted.add(rating);
+            }
+        }
+        for (Rating rating : deleted) {
+            notifyListeners(listener -> listener.onRatingDeleted(rating));
+        }
+        return deleted.size();
+    }
+
+    // Liest alle Ratings als primitive Werte (für den Aufbau von In-Memory-Indizes beim Start)
+    @Override
+    public void forEachRating(RatingRowHandler handler) throws SQLException {
+        String sql = "SELECT user_id, media_id, stars, timestamp FROM ratings";
+        try (Statement stmt = connection.createStatement()) {
+            stmt.setFetchSize(10_000);
+            try (ResultSet rs = stmt.executeQuery(sql)) {
+                while (rs.next()) {
+                    Timestamp ts = rs.getTimestamp("timestamp");
+                    handler.accept(rs.getInt("user_id"), rs.getInt("media_id"), rs.getInt("stars"),
+                            ts != null ? ts.getTime() : 0L);
+                }
+            }
+        }
+    }
+
+    /**
+     * Streamt (user_id, media_id, stars) aller Ratings per COPY im Textformat nach out - ohne ResultSet und ohne
+     * Objekte pro Zeile. Läuft auf einer eigenen Verbindung, damit der lange Export die gemeinsame nicht blockiert.
+     */
+    public void copyRatings(OutputStream out) throws SQLException, IOException {
+        try (Connection copyConnection = DatabaseConnection.openConnection()) {
+            copyConnection.unwrap(PGConnection.class).getCopyAPI()
+                    .copyOut("COPY ratings (user_id, media_id, stars) TO STDOUT", out);
         }
     }
 
@@ -109,11 +325,20 @@ public class RatingRepository {
      * Bestätigt einen Kommentar - nur der Media-Creator kann dies tun.
      */
     public void confirmComment(Integer ratingId) throws SQLException {
-        String sql = "UPDATE ratings SET confirmed = TRUE WHERE id = ?";
+        // "AND confirmed = FALSE": nur ein echter Statuswechsel liefert eine Zeile und damit ein Event
+        String sql = "UPDATE ratings SET confirmed = TRUE WHERE id = ? AND confirmed = FALSE RETURNING media_id, user_id";
+        int mediaId;
+        int authorId;
         try (PreparedStatement stmt = connection.prepareStatement(sql)) {
             stmt.setInt(1, ratingId);
-            stmt.executeUpdate();
+            ResultSet rs = stmt.executeQuery();
+            if (!rs.next()) {
+                return;
+            }
+            mediaId = rs.getInt("media_id");
+            authorId = rs.getInt("user_id");
         }
+        notifyListeners(listener -> listener.onCommentConfirmed(ratingId, mediaId, authorId));
     }
 
     /**
@@ -135,18 +360,30 @@ public class RatingRepository {
     public void addLike(Integer ratingId, Integer userId) throws SQLException {
         // ON CONFLICT DO NOTHING: verhindert doppelte Likes
         String sql = "INSERT INTO rating_likes (rating_id, user_id) VALUES (?, ?) ON CONFLICT DO NOTHING";
+        boolean inserted;
         try (PreparedStatement stmt = connection.prepareStatement(sql)) {
             stmt.setInt(1, ratingId);
             stmt.setInt(2, userId);
-            stmt.executeUpdate();
+            inserted = stmt.executeUpdate() > 0;
         }
 
-        // Aktualisiere den Like-Counter
-        String updateSql = "UPDATE ratings SET likes = (SELECT COUNT(*) FROM rating_likes WHERE rating_id = ?) WHERE id = ?";
+        // Aktualisiere den Like-Counter (RETURNING liefert Media und Verfasser für die Listener)
+        String updateSql = "UPDATE ratings SET likes = (SELECT COUNT(*) FROM rating_likes WHERE rating_id = ?) "
+                + "WHERE id = ? RETURNING media_id, user_id";
+        int mediaId;
+        int authorId;
         try (PreparedStatement stmt = connection.prepareStatement(updateSql)) {
             stmt.setInt(1, ratingId);
             stmt.setInt(2, ratingId);
-            stmt.executeUpdate();
+            ResultSet rs = stmt.executeQuery();
+            if (!rs.next()) {
+                return;
+            }
+            mediaId = rs.getInt("media_id");
+            authorId = rs.getInt("user_id");
+        }
+        if (inserted) {
+            notifyListeners(listener -> listener.onLikeAdded(ratingId, mediaId, authorId, userId));
         }
     }
 
@@ -158,8 +395,11 @@ public class RatingRepository {
         try (PreparedStatement stmt = connection.prepareStatement(sql)) {
             stmt.setInt(1, userId);
             stmt.setInt(2, mediaId);
-            stmt.executeUpdate();
+            if (stmt.executeUpdate() == 0) {
+                return;
+            }
         }
+        notifyListeners(listener -> listener.onFavoriteAdded(userId, mediaId));
     }
 
     public void removeFavorite(Integer userId, Integer mediaId) throws SQLException {
@@ -167,8 +407,11 @@ public class RatingRepository {
         try (PreparedStatement stmt = connection.prepareStatement(sql)) {
             stmt.setInt(1, userId);
             stmt.setInt(2, mediaId);
-            stmt.executeUpdate();
+            if (stmt.executeUpdate() == 0) {
+                return;
+            }
         }
+        notifyListeners(listener -> listener.onFavoriteRemoved(userId, mediaId));
     }
 
     public List<Integer> getFavoriteMediaIds(Integer userId) throws SQLException {
@@ -184,10 +427,35 @@ public class RatingRepository {
         return mediaIds;
     }
 
+    /**
+     * Aktivitäts-Aggregat pro User (Ratings, erhaltene Likes, freigegebene Kommentare).
+     * Teure GROUP-BY-Abfrage - nur für den periodischen Abgleich der In-Memory-Zähler gedacht.
+     */
+    public void forEachUserActivity(UserActivityHandler handler) throws SQLException {
+        String sql = """
+            SELECT user_id, COUNT(*) AS ratings, COALESCE(SUM(likes), 0) AS likes_received,
+                   COUNT(*) FILTER (WHERE confirmed) AS confirmed_comments
+            FROM ratings GROUP BY user_id
+            """;
+        try (Statement stmt = connection.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery(sql)) {
+                while (rs.next()) {
+                    handler.accept(rs.getInt("user_id"), rs.getInt("ratings"),
+                            rs.getInt("likes_received"), rs.getInt("confirmed_comments"));
+                }
+            }
+        }
+    }
+
     public List<Rating> getRatingsByUserId(int userId) throws SQLException {
         return findByUserId(userId);
     }
 
+    // (User, Media) als ein long, z.B. als Map-Schlüssel
+    public static long pairKey(int userId, int mediaId) {
+        return ((long) userId << 32) | (mediaId & 0xFFFFFFFFL);
+    }
+
     // Helper: Wandelt eine Datenbankzeile in ein Rating-Objekt um
     private Rating mapRowToRating(ResultSet rs) throws SQLException {
         Rating rating = new Rating();
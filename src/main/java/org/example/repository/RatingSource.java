@@ -0,0 +1,13 @@
+package org.example.repository;
+
+import java.sql.SQLException;
+
+/**
+ * Quelle für einen vollständigen Durchlauf über alle Ratings (primitive Werte, keine Rating-Objekte).
+ * Implementiert von {@link RatingRepository} (Datenbank) und dem In-Memory-Spaltenspeicher, damit
+ * In-Memory-Indizes beim Start nicht jeweils selbst die ganze Tabelle lesen müssen.
+ */
+@FunctionalInterface
+public interface RatingSource {
+    void forEachRating(RatingRepository.RatingRowHandler handler) throws SQLException;
+}
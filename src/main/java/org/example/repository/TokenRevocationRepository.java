@@ -0,0 +1,54 @@
+package org.example.repository;
+
+import org.example.database.DatabaseConnection;
+
+import java.sql.*;
+import java.util.HashMap;
+import java.util.Map;
+
+// Repository für die Tabelle token_revocations
+// Pro User ein Zeitpunkt: alle signierten Tokens, die davor ausgestellt wurden, sind widerrufen
+public class TokenRevocationRepository {
+    private final Connection connection;
+
+    public TokenRevocationRepository() throws SQLException {
+        this.connection = DatabaseConnection.getInstance().getConnection();
+    }
+
+    // Widerruft alle Tokens des Users, die vor revokedBeforeMillis ausgestellt wurden (Zeitpunkt wird nie zurückgesetzt)
+    public void revokeBefore(int userId, long revokedBeforeMillis) throws SQLException {
+        String sql = """
+            INSERT INTO token_revocations (user_id, revoked_before) VALUES (?, ?)
+            ON CONFLICT (user_id) DO UPDATE
+                SET revoked_before = GREATEST(token_revocations.revoked_before, EXCLUDED.revoked_before)
+            """;
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setInt(1, userId);
+            stmt.setTimestamp(2, new Timestamp(revokedBeforeMillis));
+            stmt.executeUpdate();
+        }
+    }
+
+    // Alle Widerrufe, die nach sinceMillis liegen (ältere betreffen nur noch abgelaufene Tokens)
+    public Map<Integer, Long> findRevokedSince(long sinceMillis) throws SQLException {
+        Map<Integer, Long> revocations = new HashMap<>();
+        String sql = "SELECT user_id, revoked_before FROM token_revocations WHERE revoked_before > ?";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setTimestamp(1, new Timestamp(sinceMillis));
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                revocations.put(rs.getInt("user_id"), rs.getTimestamp("revoked_before").getTime());
+            }
+        }
+        return revocations;
+    }
+
+    // Widerrufe entfernen, die nur noch abgelaufene Tokens betreffen
+    public void deleteRevokedBefore(long beforeMillis) throws SQLException {
+        String sql = "DELETE FROM token_revocations WHERE revoked_before <= ?";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setTimestamp(1, new Timestamp(beforeMillis));
+            stmt.executeUpdate();
+        }
+    }
+}
@@ -4,6 +4,11 @@ import org.example.database.DatabaseConnection;
 import org.example.model.User;
 
 import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 // Repository für User-Tabelle
@@ -12,24 +17,35 @@ public class UserRepository {
     private final Connection connection;
 
     public UserRepository() throws SQLException {
-        this.connection = DatabaseConnection.getInstance().getConnection();
+        this(DatabaseConnection.getInstance().getConnection());
     }
 
-    // User in DB speichern (INSERT)
-    // RETURNING gibt automatisch generierte Werte (id, created_at) zurück
-    public User save(User user) throws SQLException {
-        String sql = "INSERT INTO users (username, password) VALUES (?, ?) RETURNING id, created_at";
+    // Mit eigener Verbindung, z.B. damit parallele Statements wirklich gleichzeitig in der DB laufen
+    public UserRepository(Connection connection) {
+        this.connection = connection;
+    }
+
+    // User anlegen, falls der Username noch frei ist (INSERT ... ON CONFLICT DO NOTHING)
+    // Prüfen und Einfügen in einem Statement: ein Round-Trip und kein Race zwischen zwei parallelen Registrierungen
+    // RETURNING gibt automatisch generierte Werte (id, created_at) zurück, leer wenn der Username vergeben ist
+    public Optional<User> saveIfAbsent(User user) throws SQLException {
+        String sql = """
+            INSERT INTO users (username, password) VALUES (?, ?)
+            ON CONFLICT (username) DO NOTHING
+            RETURNING id, created_at
+            """;
         try (PreparedStatement stmt = connection.prepareStatement(sql)) {
             stmt.setString(1, user.getUsername());
             stmt.setString(2, user.getPassword());
 
             ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                // Auto-generierte ID und Timestamp zurückholen
-                user.setId(rs.getInt("id"));
-                user.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
+            if (!rs.next()) {
+                return Optional.empty();
             }
-            return user;
+            // Auto-generierte ID und Timestamp zurückholen
+            user.setId(rs.getInt("id"));
+            user.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
+            return Optional.of(user);
         }
     }
 
@@ -47,8 +63,9 @@ public class UserRepository {
     }
 
     // User anhand Token suchen (für Authentifizierung bei jedem Request)
+    // Abgelaufene Tokens (und alte Tokens ohne Ablaufzeit) werden nicht gefunden
     public Optional<User> findByToken(String token) throws SQLException {
-        String sql = "SELECT * FROM users WHERE token = ?";
+        String sql = "SELECT * FROM users WHERE token = ? AND token_expires_at > CURRENT_TIMESTAMP";
         try (PreparedStatement stmt = connection.prepareStatement(sql)) {
             stmt.setString(1, token);
             ResultSet rs = stmt.executeQuery();
@@ -59,6 +76,22 @@ public class UserRepository {
         }
     }
 
+    // SHA-256-Hashes aller aktuell gültigen Tokens (für den Negativ-Cache unbekannter Tokens)
+    // Gehasht wird in der DB, damit nicht alle gültigen Tokens im Klartext über die Leitung gehen
+    public List<String> findActiveTokenHashes() throws SQLException {
+        String sql = "SELECT encode(sha256(convert_to(token, 'UTF8')), 'hex') FROM users"
+                + " WHERE token IS NOT NULL AND token_expires_at > CURRENT_TIMESTAMP";
+        List<String> tokens = new ArrayList<>();
+        try (Statement stmt = connection.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery(sql)) {
+                while (rs.next()) {
+                    tokens.add(rs.getString(1));
+                }
+            }
+        }
+        return tokens;
+    }
+
     public Optional<User> findById(Integer id) throws SQLException {
         String sql = "SELECT * FROM users WHERE id = ?";
         try (PreparedStatement stmt = connection.prepareStatement(sql)) {
@@ -71,12 +104,65 @@ public class UserRepository {
         }
     }
 
-    // Token in DB speichern (nach erfolgreichem Login)
-    public void updateToken(Integer userId, String token) throws SQLException {
-        String sql = "UPDATE users SET token = ? WHERE id = ?";
+    // Usernames zu mehreren IDs in einem Round-Trip (z.B. für Ranglisten)
+    public Map<Integer, String> findUsernamesByIds(List<Integer> ids) throws SQLException {
+        Map<Integer, String> usernames = new HashMap<>();
+        if (ids.isEmpty()) {
+            return usernames;
+        }
+        String sql = "SELECT id, username FROM users WHERE id = ANY(?)";
+        Array idArray = connection.createArrayOf("integer", ids.toArray(new Integer[0]));
         try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, token);
+            stmt.setArray(1, idArray);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                usernames.put(rs.getInt("id"), rs.getString("username"));
+            }
+        } finally {
+            try {
+                idArray.free();
+            } catch (SQLException ignored) {
+            }
+        }
+        return usernames;
+    }
+
+    // Gespeicherten Passwort-Hash ersetzen (z.B. Rehash mit höheren Kosten beim Login)
+    // Nur wenn noch der erwartete Wert gespeichert ist, eine parallele Passwortänderung gewinnt
+    public boolean updatePassword(Integer userId, String expectedPassword, String passwordHash) throws SQLException {
+        String sql = "UPDATE users SET password = ? WHERE id = ? AND password = ?";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setString(1, passwordHash);
             stmt.setInt(2, userId);
+            stmt.setString(3, expectedPassword);
+            return stmt.executeUpdate() == 1;
+        }
+    }
+
+    // Login-Token setzen, aber nur wenn der Passwort-Hash noch der gerade geprüfte ist (Compare-and-Set)
+    // Ein Statement statt "Passwort nochmal lesen + Token schreiben"; false wenn sich das Passwort inzwischen geändert hat
+    public boolean issueToken(Integer userId, String verifiedPassword, String token, LocalDateTime expiresAt)
+            throws SQLException {
+        String sql = """
+            UPDATE users SET token = ?, token_expires_at = ?
+            WHERE id = ? AND password = ?
+            RETURNING id
+            """;
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setString(1, token);
+            stmt.setTimestamp(2, Timestamp.valueOf(expiresAt));
+            stmt.setInt(3, userId);
+            stmt.setString(4, verifiedPassword);
+            ResultSet rs = stmt.executeQuery();
+            return rs.next();
+        }
+    }
+
+    // Token entfernen (Logout)
+    public void clearToken(Integer userId) throws SQLException {
+        String sql = "UPDATE users SET token = NULL, token_expires_at = NULL WHERE id = ?";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setInt(1, userId);
             stmt.executeUpdate();
         }
     }
@@ -101,6 +187,10 @@ public class UserRepository {
         user.setEmail(rs.getString("email"));
         user.setFavoriteGenre(rs.getString("favorite_genre"));
         user.setToken(rs.getString("token"));
+        Timestamp tokenExpiresAt = rs.getTimestamp("token_expires_at");
+        if (tokenExpiresAt != null) {
+            user.setTokenExpiresAt(tokenExpiresAt.toLocalDateTime());
+        }
         Timestamp timestamp = rs.getTimestamp("created_at");
         if (timestamp != null) {
             user.setCreatedAt(timestamp.toLocalDateTime());
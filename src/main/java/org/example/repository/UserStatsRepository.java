@@ -0,0 +1,251 @@
+package org.example.repository;
+
+import org.example.database.DatabaseConnection;
+import org.example.model.UserStats;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+// Repository für die materialisierten Tabellen user_stats und user_genre_stats
+// Statt die Statistik bei jedem Profilaufruf aus ratings/favorites/media zu berechnen,
+// werden die Summen bei jedem Event per Upsert fortgeschrieben
+public class UserStatsRepository {
+    private final Connection connection;
+
+    /**
+     * Änderung der Statistik eines Users durch ein Event auf einem Media (für {@link #applyDeltas}).
+     */
+    public record Delta(int userId, int mediaId, int ratingDelta, int starDelta, int favoriteDelta) {
+    }
+
+    public UserStatsRepository() throws SQLException {
+        this.connection = DatabaseConnection.getInstance().getConnection();
+    }
+
+    /**
+     * Schreibt Deltas für einen User fort und passt die Genre-Verteilung anhand der Genres des Media an.
+     * Beide Upserts laufen in einem Statement (Data-Modifying CTE), sind also auch ohne Transaktion atomar.
+     *
+     * @return die Genres des Media, damit der Aufrufer dieselbe Änderung im Cache nachziehen kann
+     */
+    public List<String> applyDelta(int userId, int mediaId, int ratingDelta, int starDelta, int favoriteDelta)
+            throws SQLException {
+        String sql = """
+            WITH genre_update AS (
+                INSERT INTO user_genre_stats (user_id, genre, rated, favorited)
+                SELECT ?::int, g, ?::int, ?::int
+                FROM (SELECT DISTINCT unnest(genres) AS g FROM media WHERE id = ?) media_genres
+                WHERE ?
+                ON CONFLICT (user_id, genre) DO UPDATE
+                    SET rated = user_genre_stats.rated + EXCLUDED.rated,
+                        favorited = user_genre_stats.favorited + EXCLUDED.favorited
+                RETURNING genre
+            ), stats_update AS (
+                INSERT INTO user_stats (user_id, rating_count, star_sum, favorite_count)
+                VALUES (?, ?, ?, ?)
+                ON CONFLICT (user_id) DO UPDATE
+                    SET rating_count = user_stats.rating_count + EXCLUDED.rating_count,
+                        star_sum = user_stats.star_sum + EXCLUDED.star_sum,
+                        favorite_count = user_stats.favorite_count + EXCLUDED.favorite_count,
+                        updated_at = CURRENT_TIMESTAMP
+            )
+            SELECT genre FROM genre_update
+            """;
+        List<String> genres = new ArrayList<>();
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setInt(1, userId);
+            stmt.setInt(2, ratingDelta);
+            stmt.setInt(3, favoriteDelta);
+            stmt.setInt(4, mediaId);
+            // Reine Sterne-Änderung (Update) verschiebt die Genre-Verteilung nicht
+            stmt.setBoolean(5, ratingDelta != 0 || favoriteDelta != 0);
+            stmt.setInt(6, userId);
+            stmt.setInt(7, ratingDelta);
+            stmt.setLong(8, starDelta);
+            stmt.setInt(9, favoriteDelta);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                genres.add(rs.getString("genre"));
+            }
+        }
+        return genres;
+    }
+
+    /**
+     * Wie {@link #applyDelta}, aber für viele Deltas in einem Statement (z.B. ein Batch der Rating-Ingestion):
+     * Deltas werden pro User bzw. pro User und Genre summiert, bevor sie per Upsert fortgeschrieben werden.
+     *
+     * @return pro Delta (gleicher Index) die Genres seines Media; leer bei reinen Sterne-Änderungen
+     */
+    public List<List<String>> applyDeltas(List<Delta> deltas) throws SQLException {
+        String sql = """
+            WITH delta AS (
+                SELECT * FROM unnest(?::int[], ?::int[], ?::int[], ?::bigint[], ?::int[])
+                    WITH ORDINALITY AS d(user_id, media_id, rating_delta, star_delta, favorite_delta, idx)
+            ), delta_genres AS (
+                SELECT d.idx, d.user_id, d.rating_delta, d.favorite_delta, g.genre
+                FROM delta d
+                JOIN media m ON m.id = d.media_id
+                CROSS JOIN LATERAL (SELECT DISTINCT unnest(m.genres) AS genre) g
+                WHERE d.rating_delta <> 0 OR d.favorite_delta <> 0
+            ), genre_update AS (
+                INSERT INTO user_genre_stats (user_id, genre, rated, favorited)
+                SELECT user_id, genre, SUM(rating_delta), SUM(favorite_delta) FROM delta_genres
+                GROUP BY user_id, genre
+                ON CONFLICT (user_id, genre) DO UPDATE
+                    SET rated = user_genre_stats.rated + EXCLUDED.rated,
+                        favorited = user_genre_stats.favorited + EXCLUDED.favorited
+            ), stats_update AS (
+                INSERT INTO user_stats (user_id, rating_count, star_sum, favorite_count)
+                SELECT user_id, SUM(rating_delta), SUM(star_delta), SUM(favorite_delta) FROM delta
+                GROUP BY user_id
+                ON CONFLICT (user_id) DO UPDATE
+                    SET rating_count = user_stats.rating_count + EXCLUDED.rating_count,
+                        star_sum = user_stats.star_sum + EXCLUDED.star_sum,
+                        favorite_count = user_stats.favorite_count + EXCLUDED.favorite_count,
+                        updated_at = CURRENT_TIMESTAMP
+            )
+            SELECT idx, genre FROM delta_genres
+            """;
+        int size = deltas.size();
+        Integer[] userIds = new Integer[size];
+        Integer[] mediaIds = new Integer[size];
+        Integer[] ratingDeltas = new Integer[size];
+        Long[] starDeltas = new Long[size];
+        Integer[] favoriteDeltas = new Integer[size];
+        List<List<String>> genres = new ArrayList<>(size);
+        for (int k = 0; k < size; k++) {
+            Delta delta = deltas.get(k);
+            userIds[k] = delta.userId();
+            mediaIds[k] = delta.mediaId();
+            ratingDeltas[k] = delta.ratingDelta();
+            starDeltas[k] = (long) delta.starDelta();
+            favoriteDeltas[k] = delta.favoriteDelta();
+            genres.add(new ArrayList<>());
+        }
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setArray(1, connection.createArrayOf("integer", userIds));
+            stmt.setArray(2, connection.createArrayOf("integer", mediaIds));
+            stmt.setArray(3, connection.createArrayOf("integer", ratingDeltas));
+            stmt.setArray(4, connection.createArrayOf("bigint", starDeltas));
+            stmt.setArray(5, connection.createArrayOf("integer", favoriteDeltas));
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                // WITH ORDINALITY zählt ab 1
+                genres.get((int) rs.getLong("idx") - 1).add(rs.getString("genre"));
+            }
+        }
+        return genres;
+    }
+
+    // Statistik inkl. Genre-Verteilung in einer Abfrage, leer wenn es (noch) keine Zeile gibt
+    public Optional<UserStats> findByUserId(int userId) throws SQLException {
+        String sql = """
+            SELECT s.rating_count, s.star_sum, s.favorite_count, g.genre, g.rated, g.favorited
+            FROM user_stats s LEFT JOIN user_genre_stats g ON g.user_id = s.user_id
+            WHERE s.user_id = ?
+            """;
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setInt(1, userId);
+            ResultSet rs = stmt.executeQuery();
+            if (!rs.next()) {
+                return Optional.empty();
+            }
+            int ratingCount = rs.getInt("rating_count");
+            long starSum = rs.getLong("star_sum");
+            int favoriteCount = rs.getInt("favorite_count");
+            Map<String, Integer> rated = new HashMap<>();
+            Map<String, Integer> favorited = new HashMap<>();
+            do {
+                String genre = rs.getString("genre");
+                if (genre != null) {
+                    if (rs.getInt("rated") > 0) {
+                        rated.put(genre, rs.getInt("rated"));
+                    }
+                    if (rs.getInt("favorited") > 0) {
+                        favorited.put(genre, rs.getInt("favorited"));
+                    }
+                }
+            } while (rs.next());
+            return Optional.of(new UserStats(userId, ratingCount, starSum, favoriteCount, rated, favorited));
+        }
+    }
+
+    /**
+     * Berechnet die Statistik aus ratings/favorites neu und überschreibt abweichende Zeilen (nur die,
+     * damit der Invalidierungs-Trigger nicht für unveränderte User feuert). Füllt beim ersten Start auch
+     * leere Tabellen und repariert Abweichungen, die ein fehlgeschlagener {@link #applyDelta} hinterlassen hat.
+     * Ein Statement, also atomar; läuft parallel ein Event, kann der User bis zum nächsten Abgleich abweichen.
+     *
+     * @param userId nur diesen User abgleichen, null für alle
+     */
+    public void reconcile(Integer userId) throws SQLException {
+        String sql = """
+            WITH rating_totals AS (
+                SELECT user_id, COUNT(*) AS cnt, SUM(stars) AS stars FROM ratings
+                WHERE ?::int IS NULL OR user_id = ?
+                GROUP BY user_id
+            ), favorite_totals AS (
+                SELECT user_id, COUNT(*) AS cnt FROM favorites
+                WHERE ?::int IS NULL OR user_id = ?
+                GROUP BY user_id
+            ), stats_update AS (
+                INSERT INTO user_stats (user_id, rating_count, star_sum, favorite_count)
+                SELECT u.id, COALESCE(r.cnt, 0), COALESCE(r.stars, 0), COALESCE(f.cnt, 0)
+                FROM users u
+                LEFT JOIN rating_totals r ON r.user_id = u.id
+                LEFT JOIN favorite_totals f ON f.user_id = u.id
+                WHERE (?::int IS NULL OR u.id = ?)
+                  AND (r.user_id IS NOT NULL OR f.user_id IS NOT NULL
+                       OR EXISTS (SELECT 1 FROM user_stats s WHERE s.user_id = u.id))
+                ON CONFLICT (user_id) DO UPDATE
+                    SET rating_count = EXCLUDED.rating_count,
+                        star_sum = EXCLUDED.star_sum,
+                        favorite_count = EXCLUDED.favorite_count,
+                        updated_at = CURRENT_TIMESTAMP
+                    WHERE (user_stats.rating_count, user_stats.star_sum, user_stats.favorite_count)
+                        IS DISTINCT FROM (EXCLUDED.rating_count, EXCLUDED.star_sum, EXCLUDED.favorite_count)
+            ), genre_totals AS (
+                SELECT user_id, genre, SUM(rated) AS rated, SUM(favorited) AS favorited
+                FROM (
+                    SELECT r.user_id, gs.genre, 1 AS rated, 0 AS favorited
+                    FROM ratings r JOIN media m ON m.id = r.media_id
+                    CROSS JOIN LATERAL (SELECT DISTINCT unnest(m.genres) AS genre) gs
+                    WHERE ?::int IS NULL OR r.user_id = ?
+                    UNION ALL
+                    SELECT f.user_id, gs.genre, 0, 1
+                    FROM favorites f JOIN media m ON m.id = f.media_id
+                    CROSS JOIN LATERAL (SELECT DISTINCT unnest(m.genres) AS genre) gs
+                    WHERE ?::int IS NULL OR f.user_id = ?
+                ) contributions
+                GROUP BY user_id, genre
+            ), genre_reset AS (
+                UPDATE user_genre_stats g SET rated = 0, favorited = 0
+                WHERE (?::int IS NULL OR g.user_id = ?)
+                  AND (g.rated <> 0 OR g.favorited <> 0)
+                  AND NOT EXISTS (SELECT 1 FROM genre_totals t WHERE t.user_id = g.user_id AND t.genre = g.genre)
+            )
+            INSERT INTO user_genre_stats (user_id, genre, rated, favorited)
+            SELECT user_id, genre, rated, favorited FROM genre_totals
+            ON CONFLICT (user_id, genre) DO UPDATE
+                SET rated = EXCLUDED.rated, favorited = EXCLUDED.favorited
+                WHERE (user_genre_stats.rated, user_genre_stats.favorited)
+                    IS DISTINCT FROM (EXCLUDED.rated, EXCLUDED.favorited)
+            """;
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            // Jeder Filter kommt als Paar (?::int IS NULL OR ... = ?) vor
+            for (int index = 1; index <= 12; index++) {
+                if (userId == null) {
+                    stmt.setNull(index, Types.INTEGER);
+                } else {
+                    stmt.setInt(index, userId);
+                }
+            }
+            stmt.executeUpdate();
+        }
+    }
+}
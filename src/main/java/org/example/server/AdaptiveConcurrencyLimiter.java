@@ -0,0 +1,114 @@
+package org.example.server;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Adaptives Limit für gleichzeitig laufende Requests einer Routengruppe (Gradient-Verfahren).
+ * <p>
+ * Verglichen werden zwei gleitende Mittel der Antwortzeit: ein kurzes (aktuelle Lage) und ein langes
+ * (Normalzustand). Steigt die kurze deutlich über die lange, stauen sich Requests irgendwo (z.B. an der DB) und
+ * das Limit sinkt proportional; sonst wächst es um etwa √limit, damit eine kleine Warteschlange entstehen darf.
+ * Requests über dem Limit werden sofort abgewiesen, statt sich in den Request-Threads zu stapeln.
+ * <p>
+ * {@link #tryAcquire()} ist lock-frei; nur die Neuberechnung in {@link #release(long)} ist synchronisiert.
+ */
+public class AdaptiveConcurrencyLimiter {
+    // Fenster der gleitenden Mittel in Samples
+    private static final double SHORT_WINDOW = 10;
+    private static final double LONG_WINDOW = 600;
+    // So viel langsamer als normal darf es werden, bevor das Limit sinkt
+    private static final double RTT_TOLERANCE = 1.5;
+    // Pro Update höchstens halbieren
+    private static final double MIN_GRADIENT = 0.5;
+    // Anteil des neuen Werts pro Update, dämpft Sprünge
+    private static final double SMOOTHING = 0.2;
+
+    /**
+     * Momentaufnahme für /metrics.
+     */
+    public record Metrics(int limit, int inFlight, long accepted, long rejected,
+                          double shortRttMillis, double longRttMillis) {
+    }
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile int limit;
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    // Nur unter dem Monitor verändert
+    private double estimatedLimit;
+    private double shortRttNanos;
+    private double longRttNanos;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+        if (minLimit < 1 || initialLimit < minLimit || maxLimit < initialLimit) {
+            throw new IllegalArgumentException("Limits must satisfy 1 <= min <= initial <= max");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.estimatedLimit = initialLimit;
+        this.limit = initialLimit;
+    }
+
+    // Platz reservieren; false heißt: sofort mit 503 abweisen
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                rejected.increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                accepted.increment();
+                return true;
+            }
+        }
+    }
+
+    // Platz freigeben und die gemessene Antwortzeit einrechnen (nur nach erfolgreichem tryAcquire aufrufen)
+    public void release(long rttNanos) {
+        int inFlightBefore = inFlight.getAndDecrement();
+        update(Math.max(1, rttNanos), inFlightBefore);
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public synchronized Metrics metrics() {
+        return new Metrics(limit, inFlight.get(), accepted.sum(), rejected.sum(),
+                shortRttNanos / 1e6, longRttNanos / 1e6);
+    }
+
+    private synchronized void update(long rttNanos, int inFlightBefore) {
+        if (longRttNanos == 0) {
+            shortRttNanos = rttNanos;
+            longRttNanos = rttNanos;
+        } else {
+            shortRttNanos += (rttNanos - shortRttNanos) / SHORT_WINDOW;
+            longRttNanos += (rttNanos - longRttNanos) / LONG_WINDOW;
+        }
+        // Bleibt es dauerhaft langsam, holt das lange Mittel schneller auf; sonst bliebe das Limit ewig unten
+        if (longRttNanos / shortRttNanos > 2) {
+            longRttNanos *= 0.95;
+        }
+        // Kaum ausgelastet: die Messung sagt nichts darüber, ob mehr Parallelität verträglich wäre
+        if (inFlightBefore < estimatedLimit / 2) {
+            return;
+        }
+
+        double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, RTT_TOLERANCE * longRttNanos / shortRttNanos));
+        double target = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        double next = estimatedLimit * (1 - SMOOTHING) + target * SMOOTHING;
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, next));
+        limit = (int) estimatedLimit;
+    }
+}
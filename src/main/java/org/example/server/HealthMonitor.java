@@ -0,0 +1,74 @@
+package org.example.server;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Readiness-Status aus mehreren Checks (DB, Warm-up, Last ...), geprüft von einem Hintergrund-Job.
+ * <p>
+ * {@link #probe()} wertet alle Checks aus und legt das Ergebnis als unveränderliche Momentaufnahme ab;
+ * {@link #current()} liest nur diese. Health-Requests selbst lösen also nie eine DB-Abfrage aus und konkurrieren
+ * unter Last nicht mit echten Requests. Ist die letzte Prüfung älter als {@code maxAgeMillis} (Prober hängt),
+ * gilt der Server als nicht bereit.
+ */
+public class HealthMonitor {
+
+    /**
+     * Einzelner Check; eine Exception zählt als "nicht gesund".
+     */
+    @FunctionalInterface
+    public interface Check {
+        boolean isHealthy() throws Exception;
+    }
+
+    /**
+     * Ergebnis einer Prüfung; checkedAtMillis = 0 heißt "noch nie geprüft".
+     */
+    public record Status(boolean ready, Map<String, Boolean> checks, long checkedAtMillis) {
+    }
+
+    private final Map<String, Check> checks = new LinkedHashMap<>();
+    private final long maxAgeMillis;
+    private final LongSupplier clock;
+    private volatile Status status = new Status(false, Map.of(), 0);
+
+    public HealthMonitor(long maxAgeMillis, LongSupplier clock) {
+        this.maxAgeMillis = maxAgeMillis;
+        this.clock = clock;
+    }
+
+    // Checks vor dem ersten probe() registrieren
+    public synchronized HealthMonitor register(String name, Check check) {
+        checks.put(name, check);
+        return this;
+    }
+
+    // Alle Checks ausführen und das Ergebnis als aktuellen Status ablegen
+    public synchronized Status probe() {
+        Map<String, Boolean> results = new LinkedHashMap<>();
+        boolean ready = true;
+        for (Map.Entry<String, Check> entry : checks.entrySet()) {
+            boolean healthy;
+            try {
+                healthy = entry.getValue().isHealthy();
+            } catch (Exception e) {
+                healthy = false;
+            }
+            results.put(entry.getKey(), healthy);
+            ready &= healthy;
+        }
+        status = new Status(ready, Collections.unmodifiableMap(results), clock.getAsLong());
+        return status;
+    }
+
+    // Zuletzt geprüfter Status, ohne selbst zu prüfen; veraltet = nicht bereit
+    public Status current() {
+        Status snapshot = status;
+        if (snapshot.ready() && clock.getAsLong() - snapshot.checkedAtMillis() > maxAgeMillis) {
+            return new Status(false, snapshot.checks(), snapshot.checkedAtMillis());
+        }
+        return snapshot;
+    }
+}
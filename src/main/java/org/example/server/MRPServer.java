@@ -1,49 +1,342 @@
 package org.example.server;
 
 import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
+import org.example.analytics.RatingColumnStore;
+import org.example.auth.DatabaseTokenStrategy;
+import org.example.auth.PasswordHasher;
+import org.example.auth.PasswordHashingPool;
+import org.example.auth.SessionTable;
+import org.example.auth.SignedTokenStrategy;
+import org.example.auth.TokenDenyList;
+import org.example.auth.TokenMode;
+import org.example.auth.TokenStrategy;
+import org.example.cache.InvalidationBus;
+import org.example.cache.MappedArenaCache;
+import org.example.cache.NegativeCache;
 import org.example.controller.AuthController;
+import org.example.controller.HealthController;
 import org.example.controller.MediaController;
+import org.example.controller.MetricsController;
+import org.example.controller.UserController;
+import org.example.database.CircuitBreaker;
+import org.example.database.DatabaseConnection;
+import org.example.exception.CircuitOpenException;
+import org.example.model.MediaEntry;
 import org.example.model.User;
+import org.example.ranking.ActiveUserLeaderboard;
+import org.example.ranking.TopRatedLeaderboard;
+import org.example.ranking.TrendingTracker;
+import org.example.recommendation.CoRatingCounter;
+import org.example.recommendation.ContentIndex;
+import org.example.recommendation.ItemSimilarityIndex;
+import org.example.recommendation.RatingMatrix;
+import org.example.repository.CacheVersionRepository;
 import org.example.repository.MediaRepository;
+import org.example.repository.RatingIngestionPipeline;
 import org.example.repository.RatingRepository;
+import org.example.repository.TokenRevocationRepository;
 import org.example.repository.UserRepository;
+import org.example.repository.UserStatsRepository;
 import org.example.service.AuthService;
 import org.example.service.MediaService;
+import org.example.service.RankingService;
+import org.example.service.RatingService;
+import org.example.service.RecommendationService;
+import org.example.service.UserStatsService;
 
 import java.io.IOException;
 import java.io.OutputStream;
 import java.net.InetSocketAddress;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.SecureRandom;
 import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 // Haupt-Server: Startet HTTP-Server, registriert alle Endpoints und handled das Routing
 public class MRPServer {
+    private static final Logger LOGGER = Logger.getLogger(MRPServer.class.getName());
+    private static final int TRENDING_REFRESH_SECONDS = 30;
+    private static final int LEADERBOARD_RECALIBRATION_MINUTES = 10;
+    private static final int ACTIVITY_RECONCILE_MINUTES = 15;
+    // Fehlgeschlagene Statistik-Deltas einzelner User nachholen bzw. alle User aus den Rohdaten abgleichen
+    private static final int USER_STATS_RETRY_MINUTES = 1;
+    private static final int USER_STATS_RECONCILE_MINUTES = 24 * 60;
+    private static final int DENY_LIST_REFRESH_SECONDS = 30;
+    private static final int CACHE_VERSION_CHECK_SECONDS = 30;
+    private static final int RATE_LIMIT_EVICTION_SECONDS = 60;
+    // Bloom-Filter der Negativ-Caches neu aufbauen: gelöschte IDs/Tokens fallen heraus, Größe wächst mit
+    private static final int NEGATIVE_CACHE_REBUILD_MINUTES = 5;
+
+    // Rate-Limit-Routen: "ip" gilt für jeden Request pro Client-IP (vor der Authentifizierung),
+    // "auth" für Register/Login pro IP, die übrigen pro eingeloggtem User
+    // Überschreibbar per MRP_RATE_LIMIT_<ROUTE>=<burst>/<proSekunde>, z.B. MRP_RATE_LIMIT_MEDIA_READ=100/50
+    private static final String RATE_IP = "ip";
+    private static final String RATE_AUTH = "auth";
+    private static final String RATE_USER = "user";
+    private static final String RATE_MEDIA_READ = "media-read";
+    private static final String RATE_MEDIA_WRITE = "media-write";
+    private static final String RATE_LIMIT_ENV_PREFIX = "MRP_RATE_LIMIT_";
+
+    // Request-Threads; die Maxima der Concurrency-Limits zusammen bleiben darunter,
+    // damit sich vor den Limits keine Warteschlange im Executor bildet.
+    // Einschränkung: alle Repositories teilen sich eine JDBC-Verbindung, DB-Zugriffe laufen also nacheinander.
+    // Parallel sind nur Hashing, Caches und In-Memory-Indizes; die Antwortzeit der Limiter misst bei DB-lastigen
+    // Requests vor allem das Warten auf diese Verbindung (ohne Connection-Pool keine echte DB-Parallelität)
+    private static final int REQUEST_THREADS = 64;
+    // So lange darf ein Shutdown auf laufende Requests warten
+    public static final Duration DEFAULT_DRAIN_TIMEOUT = Duration.ofSeconds(20);
+    // Beim Shutdown erst nur die Readiness auf 503 stellen und so lange weiter bedienen, bis der Load Balancer
+    // das bei seiner nächsten Probe gesehen hat (mindestens ein Probe-Intervall des Load Balancers);
+    // MRP_PRESTOP_GRACE_SECONDS überschreibt den Default, 0 schaltet ab (z.B. lokal ohne Load Balancer)
+    private static final String PRESTOP_GRACE_ENV = "MRP_PRESTOP_GRACE_SECONDS";
+    public static final Duration DEFAULT_PRESTOP_GRACE = Duration.ofSeconds(10);
+    // Readiness wird im Hintergrund geprüft; ist die letzte Prüfung älter als das Maximum, gilt "nicht bereit"
+    private static final int HEALTH_PROBE_SECONDS = 2;
+    private static final long HEALTH_MAX_AGE_MILLIS = 10_000;
+    private static final int HEALTH_DB_TIMEOUT_SECONDS = 2;
+
+    // Token-Format pro Deployment: MRP_TOKEN_MODE=database (Default) oder signed
+    // Im signed-Modus müssen alle Knoten denselben Schlüssel haben (MRP_TOKEN_SECRET, Base64, mind. 32 Bytes)
+    private static final String TOKEN_MODE_ENV = "MRP_TOKEN_MODE";
+    private static final String TOKEN_SECRET_ENV = "MRP_TOKEN_SECRET";
+
+    // L2-Cache für Media-Einträge als memory-mapped Datei, übersteht Neustarts; MRP_L2_CACHE_PATH=off schaltet ab
+    private static final String L2_CACHE_PATH_ENV = "MRP_L2_CACHE_PATH";
+    private static final String DEFAULT_L2_CACHE_PATH = "cache/media-l2.bin";
+    private static final int L2_CACHE_SLOTS = 65_536;
+    private static final long L2_CACHE_BYTES = 64L * 1024 * 1024;
+
+    // Off-Heap-Rating-Matrix (User×Media) als Datei, beim Start gemappt und periodisch per COPY neu aufgebaut
+    // MRP_RATING_MATRIX_PATH=off schaltet ab
+    private static final String RATING_MATRIX_PATH_ENV = "MRP_RATING_MATRIX_PATH";
+    private static final String DEFAULT_RATING_MATRIX_PATH = "cache/ratings.matrix";
+    private static final int RATING_MATRIX_REBUILD_MINUTES = 6 * 60;
+
     private final HttpServer server;
     private final AuthController authController;
     private final MediaController mediaController;
+    private final UserController userController;
+    private final MetricsController metricsController;
+    private final HealthController healthController;
+    private final HealthMonitor healthMonitor;
+    // Invalidiert lokale Caches, wenn ein anderer Knoten schreibt (LISTEN/NOTIFY)
+    private final InvalidationBus invalidationBus;
     private final AuthService authService;
+    // Eigener Pool für Passwort-Hashing, damit Login-Wellen keine Request-Threads blockieren
+    private final PasswordHashingPool hashingPool;
+    private final TrendingTracker trendingTracker;
+    private final TopRatedLeaderboard topRatedLeaderboard;
+    private final ActiveUserLeaderboard activeUserLeaderboard;
+    private final RatingRepository ratingRepository;
+    // Bündelt Rating-Writes zu Batches; wird beim Stop nach den Requests leer geschrieben
+    private final RatingIngestionPipeline ratingIngestion;
+    private final UserRepository userRepository;
+    private final MediaService mediaService;
+    private final UserStatsService userStatsService;
+    private final RecommendationService recommendationService;
+    // null, wenn abgeschaltet
+    private final Path ratingMatrixPath;
+    // Aufbauzeit der beim Start gemappten Matrix, 0 wenn keine vorhanden war
+    private final long ratingMatrixBuiltAt;
+    // null, wenn abgeschaltet oder die Datei nicht geöffnet werden konnte
+    private final MappedArenaCache mediaL2Cache;
+    // Nur im signed-Modus gesetzt
+    private final TokenDenyList tokenDenyList;
+    // Nur im database-Modus gesetzt: geprüfte Tokens, Ablauf über Timing Wheels
+    private final SessionTable sessionTable;
+    // Nur im database-Modus gesetzt: unbekannte Tokens ohne DB-Lookup ablehnen
+    private final NegativeCache<String> unknownTokens;
+    private final RateLimiter rateLimiter;
+    // Getrennte adaptive Limits, damit eine langsame DB bei Media-Requests keine Logins blockiert (und umgekehrt)
+    private final AdaptiveConcurrencyLimiter authConcurrency = new AdaptiveConcurrencyLimiter(8, 2, 16);
+    private final AdaptiveConcurrencyLimiter mediaConcurrency = new AdaptiveConcurrencyLimiter(20, 4, 48);
+    private final ExecutorService requestExecutor;
+    // Gesetzt sobald der Shutdown beginnt: Health-Check meldet dann 503, damit kein neuer Traffic kommt
+    private volatile boolean draining;
+    // Erster Trending-Snapshot berechnet (die übrigen Indizes werden schon im Konstruktor geladen)
+    private volatile boolean warmedUp;
+    // Abgewiesene Requests bei der letzten Readiness-Prüfung, nur in healthMonitor.probe() benutzt (synchronisiert)
+    private long lastShedCount;
+    private final AtomicBoolean stopped = new AtomicBoolean();
+
+    // Ein Hintergrund-Thread für periodische Jobs (z.B. Trending-Snapshot), Daemon damit er den Shutdown nicht blockiert
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "mrp-scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Eigener Thread für den Neuaufbau der Rating-Matrix (lange COPY-Exporte halten sonst die übrigen Jobs auf)
+    private final ScheduledExecutorService matrixScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "mrp-matrix");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Eigener Thread für den Readiness-Prober, damit lange Jobs (z.B. Abgleich mit der DB) ihn nicht aufhalten
+    private final ScheduledExecutorService healthScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "mrp-health");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     // Regex zum Parsen von URLs wie "/api/media/123" -> extrahiert die "123"
     private static final Pattern MEDIA_ID_PATTERN = Pattern.compile("/api/media/(\\d+)");
+    private static final Pattern MEDIA_RELATED_PATTERN = Pattern.compile("/api/media/(\\d+)/related");
+    private static final Pattern MEDIA_RATINGS_PATTERN = Pattern.compile("/api/media/(\\d+)/ratings");
+    private static final Pattern USER_RECOMMENDATIONS_PATTERN = Pattern.compile("/api/users/(\\d+)/recommendations");
+    private static final Pattern USER_PROFILE_PATTERN = Pattern.compile("/api/users/(\\d+)/profile");
 
     public MRPServer(int port) throws IOException, SQLException {
         this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        // Ohne eigenen Executor verarbeitet HttpServer alle Requests nacheinander im Dispatcher-Thread
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.requestExecutor = Executors.newFixedThreadPool(REQUEST_THREADS, runnable ->
+                new Thread(runnable, "mrp-http-" + threadCounter.incrementAndGet()));
+        server.setExecutor(requestExecutor);
 
         // Dependency Injection: Repositories -> Services -> Controllers
         // Jede Schicht kennt nur die darunterliegende Schicht
-        UserRepository userRepository = new UserRepository();
+        this.userRepository = new UserRepository();
         MediaRepository mediaRepository = new MediaRepository();
-        RatingRepository ratingRepository = new RatingRepository();
+        this.ratingRepository = new RatingRepository();
+
+        // Alle Ratings einmal aus der DB in den Spaltenspeicher laden; die Indizes unten bauen daraus auf,
+        // statt jeder für sich die ganze Tabelle zu lesen
+        RatingColumnStore ratingStore = new RatingColumnStore();
+        ratingRepository.addListener(ratingStore);
+        mediaRepository.addListener(ratingStore);
+        ratingStore.load(ratingRepository);
+        // Empfehlungs-Index einmal beim Start aufbauen, danach über Rating-Events aktuell halten
+        // Listener zuerst registrieren, damit Events während des Rebuilds gepuffert werden
+        ItemSimilarityIndex similarityIndex = new ItemSimilarityIndex();
+        ratingRepository.addListener(similarityIndex);
+        mediaRepository.addListener(similarityIndex);
+        similarityIndex.rebuild(ratingStore);
+        // Content-Katalog (Genres, Altersfreigabe, Score) für content-basierte Empfehlungen
+        ContentIndex contentIndex = new ContentIndex();
+        mediaRepository.addListener(contentIndex);
+        List<MediaEntry> catalog = mediaRepository.findAll();
+        contentIndex.load(catalog);
+        // Co-Rating-Zähler für "User, die dieses Media bewertet haben, bewerteten auch ..."
+        CoRatingCounter coRatingCounter = new CoRatingCounter();
+        ratingRepository.addListener(coRatingCounter);
+        mediaRepository.addListener(coRatingCounter);
+        coRatingCounter.load(ratingStore);
+        // Trending: zerfallende Zähler pro Media, Snapshot wird periodisch in start() aktualisiert
+        this.trendingTracker = new TrendingTracker(mediaRepository);
+        ratingRepository.addListener(trendingTracker);
+        mediaRepository.addListener(trendingTracker);
+        trendingTracker.load(ratingStore);
+        // Top-Rated: Bayes'scher Durchschnitt in einer Skip-List, O(log n) pro Rating-Änderung
+        this.topRatedLeaderboard = new TopRatedLeaderboard();
+        ratingRepository.addListener(topRatedLeaderboard);
+        mediaRepository.addListener(topRatedLeaderboard);
+        topRatedLeaderboard.load(ratingStore);
+        // Aktivste User: Zähler über Events, periodischer Abgleich mit der DB in start()
+        this.activeUserLeaderboard = new ActiveUserLeaderboard();
+        ratingRepository.addListener(activeUserLeaderboard);
+        activeUserLeaderboard.reconcile(ratingRepository);
+
+        // Eine gemeinsame Sicherung für alle DB-Zugriffe der Services: fällt die DB aus, öffnet sie für alle
+        CircuitBreaker databaseBreaker = new CircuitBreaker();
 
-        this.authService = new AuthService(userRepository);
-        MediaService mediaService = new MediaService(mediaRepository, ratingRepository);
+        // Profil-Statistiken: materialisiert in user_stats, beim ersten Start einmalig aus ratings/favorites befüllt
+        UserStatsRepository userStatsRepository = new UserStatsRepository();
+        this.userStatsService = new UserStatsService(userStatsRepository, userRepository, databaseBreaker);
+        // Füllt beim ersten Start die Tabellen und repariert Abweichungen aus dem letzten Lauf
+        userStatsService.reconcileAll();
+        ratingRepository.addListener(userStatsService);
+
+        TokenMode tokenMode = TokenMode.parse(System.getenv(TOKEN_MODE_ENV));
+        TokenStrategy tokenStrategy;
+        if (tokenMode == TokenMode.SIGNED) {
+            long lifetimeMillis = SignedTokenStrategy.DEFAULT_LIFETIME.toMillis();
+            this.tokenDenyList = new TokenDenyList(new TokenRevocationRepository(), lifetimeMillis,
+                    System::currentTimeMillis);
+            tokenDenyList.refresh();
+            tokenStrategy = new SignedTokenStrategy(loadTokenSecret(), SignedTokenStrategy.DEFAULT_LIFETIME,
+                    tokenDenyList, System::currentTimeMillis);
+            this.sessionTable = null;
+            this.unknownTokens = null;
+        } else {
+            this.tokenDenyList = null;
+            this.sessionTable = new SessionTable(System::currentTimeMillis);
+            this.unknownTokens = DatabaseTokenStrategy.newUnknownTokenCache(System::currentTimeMillis);
+            unknownTokens.rebuild(userRepository::findActiveTokenHashes);
+            tokenStrategy = new DatabaseTokenStrategy(userRepository, sessionTable,
+                    DatabaseTokenStrategy.DEFAULT_LIFETIME, System::currentTimeMillis, unknownTokens);
+        }
+        LOGGER.info("Token mode: " + tokenMode);
+
+        this.hashingPool = new PasswordHashingPool();
+        this.authService = new AuthService(userRepository, tokenStrategy, new PasswordHasher(), hashingPool,
+                databaseBreaker);
+        this.mediaL2Cache = openL2Cache();
+        this.mediaService = new MediaService(mediaRepository, ratingRepository, mediaL2Cache, databaseBreaker);
+        // Aktuelle Versionen aus dem Katalog, damit L2-Einträge vom letzten Lauf sofort gültig sind
+        mediaService.primeCatalog(catalog);
+        RankingService rankingService = new RankingService(trendingTracker, topRatedLeaderboard,
+                activeUserLeaderboard, mediaRepository, userRepository, databaseBreaker);
+        this.recommendationService = new RecommendationService(similarityIndex, contentIndex,
+                coRatingCounter, mediaRepository, ratingRepository, userRepository, databaseBreaker);
+        this.ratingMatrixPath = ratingMatrixPath();
+        RatingMatrix ratingMatrix = openRatingMatrix(ratingMatrixPath);
+        recommendationService.useRatingMatrix(ratingMatrix);
+        this.ratingMatrixBuiltAt = ratingMatrix != null ? ratingMatrix.stats().builtAtMillis() : 0L;
+
+        this.ratingIngestion = new RatingIngestionPipeline(batch -> databaseBreaker.call(() -> {
+            ratingRepository.upsertBatch(batch);
+            return null;
+        }));
+        RatingService ratingService = new RatingService(mediaService, ratingIngestion);
 
         this.authController = new AuthController(authService);
-        this.mediaController = new MediaController(mediaService);
+        this.mediaController = new MediaController(mediaService, recommendationService, rankingService,
+                ratingService);
+        this.userController = new UserController(recommendationService, rankingService, userStatsService);
+        this.metricsController = new MetricsController(hashingPool,
+                Map.of("auth", authConcurrency, "media", mediaConcurrency), mediaService, unknownTokens, ratingStore,
+                ratingIngestion);
+        this.rateLimiter = new RateLimiter(loadRateLimits());
+
+        // Trigger in der DB melden Writes aller Knoten; hier werden die betroffenen Schlüssel lokal verworfen
+        this.invalidationBus = new InvalidationBus(DatabaseConnection::openConnection,
+                new CacheVersionRepository()::findAll);
+        invalidationBus.subscribe("media", key -> mediaService.evict(Integer.parseInt(key)), mediaService::evictAll);
+        invalidationBus.subscribe("user-stats", key -> userStatsService.evict(Integer.parseInt(key)),
+                userStatsService::evictAll);
+        if (sessionTable != null) {
+            invalidationBus.subscribe("session", key -> sessionTable.removeUser(Integer.parseInt(key)),
+                    sessionTable::clear);
+            invalidationBus.subscribe("token", unknownTokens::added, unknownTokens::disableFilter);
+        }
+        if (tokenDenyList != null) {
+            invalidationBus.subscribe("revocation", key -> refreshDenyList(), this::refreshDenyList);
+        }
+        this.healthMonitor = new HealthMonitor(HEALTH_MAX_AGE_MILLIS, System::currentTimeMillis)
+                .register("database", () -> DatabaseConnection.isConnectionValid(HEALTH_DB_TIMEOUT_SECONDS))
+                .register("warmup", () -> warmedUp)
+                .register("load", this::notSheddingLoad)
+                .register("accepting", () -> !draining);
+        this.healthController = new HealthController(healthMonitor);
 
         setupRoutes();
     }
@@ -52,18 +345,54 @@ public class MRPServer {
     // Context = ein URL-Pfad-Prefix
     private void setupRoutes() {
         server.createContext("/", this::handleRoot);
-        server.createContext("/api/users/", this::handleAuthRoutes);
-        server.createContext("/api/media", this::handleMediaRoutes);
-        server.createContext("/api/media/", this::handleMediaRoutes);
+        server.createContext("/metrics", metricsController::handleGetMetrics);
+        server.createContext("/health/live", healthController::handleLive);
+        server.createContext("/health/ready", healthController::handleReady);
+        server.createContext("/api/users/", exchange ->
+                handleWithConcurrencyLimit(exchange, concurrencyLimiterForUserRoute(exchange), this::handleUserRoutes));
+        server.createContext("/api/media", exchange ->
+                handleWithConcurrencyLimit(exchange, mediaConcurrency, this::handleMediaRoutes));
+        server.createContext("/api/media/", exchange ->
+                handleWithConcurrencyLimit(exchange, mediaConcurrency, this::handleMediaRoutes));
+    }
+
+    // Load-Shedding: über dem Limit sofort 503, noch bevor der Request-Body gelesen wird
+    // Die Antwortzeit der angenommenen Requests steuert das Limit
+    private void handleWithConcurrencyLimit(HttpExchange exchange, AdaptiveConcurrencyLimiter limiter,
+                                            HttpHandler handler) throws IOException {
+        if (!limiter.tryAcquire()) {
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            sendError(exchange, 503, "Server is overloaded, please retry.");
+            return;
+        }
+        long startedAt = System.nanoTime();
+        try {
+            handler.handle(exchange);
+        } finally {
+            limiter.release(System.nanoTime() - startedAt);
+        }
+    }
+
+    // Register/Login/Logout zählen zu Auth (Passwort-Hashing, Token-Schreiben),
+    // die übrigen User-Endpoints lesen Katalogdaten und teilen sich das Media-Limit
+    private AdaptiveConcurrencyLimiter concurrencyLimiterForUserRoute(HttpExchange exchange) {
+        String path = exchange.getRequestURI().getPath();
+        if ("/api/users/register".equals(path) || "/api/users/login".equals(path)
+                || "/api/users/logout".equals(path)) {
+            return authConcurrency;
+        }
+        return mediaConcurrency;
     }
 
     // Root-Endpoint "/" für Health-Check (ob Server läuft)
     private void handleRoot(HttpExchange exchange) throws IOException {
         String path = exchange.getRequestURI().getPath();
         if ("/".equals(path)) {
-            String response = "{\"status\":\"MRP Server is running\",\"version\":\"1.0\"}";
+            String response = draining
+                    ? "{\"status\":\"MRP Server is shutting down\",\"version\":\"1.0\"}"
+                    : "{\"status\":\"MRP Server is running\",\"version\":\"1.0\"}";
             exchange.getResponseHeaders().set("Content-Type", "application/json");
-            exchange.sendResponseHeaders(200, response.getBytes().length);
+            exchange.sendResponseHeaders(draining ? 503 : 200, response.getBytes().length);
             try (OutputStream os = exchange.getResponseBody()) {
                 os.write(response.getBytes());
             }
@@ -72,18 +401,53 @@ public class MRPServer {
         }
     }
 
-    // Routing für Auth-Endpoints: /api/users/register und /api/users/login
-    // Keine Authentifizierung nötig (das sind ja die Login-Endpoints)
-    private void handleAuthRoutes(HttpExchange exchange) throws IOException {
+    // Routing für User-Endpoints
+    // /api/users/register und /api/users/login brauchen keine Authentifizierung (das sind ja die Login-Endpoints)
+    // alle anderen (z.B. /api/users/leaderboard, /api/users/{id}/recommendations) erfordern einen gültigen Token
+    private void handleUserRoutes(HttpExchange exchange) throws IOException {
         String path = exchange.getRequestURI().getPath();
+        Matcher recommendationsMatcher = USER_RECOMMENDATIONS_PATTERN.matcher(path);
+        Matcher profileMatcher = USER_PROFILE_PATTERN.matcher(path);
         try {
-            if ("/api/users/register".equals(path)) {
-                authController.handleRegister(exchange);
-            } else if ("/api/users/login".equals(path)) {
-                authController.handleLogin(exchange);
-            } else {
+            String clientIp = clientIp(exchange);
+            if (!allowRequest(exchange, RATE_IP, clientIp)) {
+                return;
+            }
+            if ("/api/users/register".equals(path) || "/api/users/login".equals(path)) {
+                // Noch kein User bekannt, daher pro IP begrenzen (bremst auch Passwort-Raten)
+                if (!allowRequest(exchange, RATE_AUTH, clientIp)) {
+                    return;
+                }
+                if ("/api/users/register".equals(path)) {
+                    authController.handleRegister(exchange);
+                } else {
+                    authController.handleLogin(exchange);
+                }
+                return;
+            }
+            if (!"/api/users/logout".equals(path) && !"/api/users/leaderboard".equals(path)
+                    && !recommendationsMatcher.matches() && !profileMatcher.matches()) {
                 sendError(exchange, 404, "Endpoint not found");
+                return;
+            }
+
+            // Alle übrigen Endpoints: erst authentifizieren, dann pro User begrenzen
+            User authenticatedUser = authenticateRequest(exchange);
+            if (!allowRequest(exchange, RATE_USER, userKey(authenticatedUser))) {
+                return;
+            }
+            if ("/api/users/logout".equals(path)) {
+                authController.handleLogout(exchange, authenticatedUser);
+            } else if ("/api/users/leaderboard".equals(path)) {
+                userController.handleGetLeaderboard(exchange);
+            } else if (recommendationsMatcher.matches()) {
+                Integer userId = Integer.parseInt(recommendationsMatcher.group(1));
+                userController.handleGetRecommendations(exchange, userId, authenticatedUser);
+            } else {
+                userController.handleGetProfile(exchange, Integer.parseInt(profileMatcher.group(1)));
             }
+        } catch (SecurityException e) {
+            sendAuthError(exchange, e);
         } catch (Exception e) {
             sendError(exchange, 500, "Internal server error: " + e.getMessage());
         }
@@ -95,13 +459,28 @@ public class MRPServer {
         String path = exchange.getRequestURI().getPath();
         String method = exchange.getRequestMethod();
         Matcher mediaIdMatcher = MEDIA_ID_PATTERN.matcher(path);
+        Matcher relatedMatcher = MEDIA_RELATED_PATTERN.matcher(path);
+        Matcher ratingsMatcher = MEDIA_RATINGS_PATTERN.matcher(path);
 
         try {
+            if (!allowRequest(exchange, RATE_IP, clientIp(exchange))) {
+                return;
+            }
             // Token validieren - User muss eingeloggt sein
             User authenticatedUser = authenticateRequest(exchange);
+            // Lesen und Schreiben getrennt begrenzen, Schreibzugriffe sind teurer
+            String rateRoute = "GET".equals(method) ? RATE_MEDIA_READ : RATE_MEDIA_WRITE;
+            if (!allowRequest(exchange, rateRoute, userKey(authenticatedUser))) {
+                return;
+            }
 
-            // URL mit ID? (z.B. /api/media/5)
-            if (mediaIdMatcher.matches()) {
+            if ("/api/media/trending".equals(path)) {
+                // Trending-Liste aus dem In-Memory-Snapshot
+                mediaController.handleGetTrending(exchange);
+            } else if ("/api/media/top-rated".equals(path)) {
+                mediaController.handleGetTopRated(exchange);
+            } else if (mediaIdMatcher.matches()) {
+                // URL mit ID? (z.B. /api/media/5)
                 // Regex-Gruppe 1 ist die ID
                 Integer mediaId = Integer.parseInt(mediaIdMatcher.group(1));
                 switch (method) {
@@ -119,6 +498,17 @@ public class MRPServer {
                     default:
                         sendError(exchange, 405, "Method Not Allowed");
                 }
+            } else if (ratingsMatcher.matches()) {
+                Integer mediaId = Integer.parseInt(ratingsMatcher.group(1));
+                if ("POST".equals(method)) {
+                    // Eigenes Rating abgeben - User kommt aus dem Token
+                    mediaController.handleRateMedia(exchange, mediaId, authenticatedUser);
+                } else {
+                    mediaController.handleGetMediaRatings(exchange, mediaId, authenticatedUser);
+                }
+            } else if (relatedMatcher.matches()) {
+                // Verwandte Media über gemeinsame Bewerter
+                mediaController.handleGetRelatedMedia(exchange, Integer.parseInt(relatedMatcher.group(1)));
             } else if ("/api/media".equals(path)) {
                 // Ohne ID = Listenoperationen
                 switch (method) {
@@ -137,12 +527,7 @@ public class MRPServer {
                 sendError(exchange, 404, "Endpoint not found");
             }
         } catch (SecurityException e) {
-            // Auth-Fehler
-            if (e.getCause() instanceof SQLException) {
-                sendError(exchange, 500, "Authentication failed due to server error.");
-            } else {
-                sendError(exchange, 401, "Unauthorized: " + e.getMessage());
-            }
+            sendAuthError(exchange, e);
         } catch (Exception e) {
             sendError(exchange, 500, "Internal server error: " + e.getMessage());
         }
@@ -166,6 +551,43 @@ public class MRPServer {
         }
     }
 
+    // Auth-Fehler: DB-Ausfall 503 mit Retry-After, andere DB-Probleme sind Serverfehler, alles andere 401
+    private void sendAuthError(HttpExchange exchange, SecurityException e) throws IOException {
+        if (e.getCause() instanceof SQLException sqlException && CircuitBreaker.isOutage(sqlException)) {
+            int retryAfter = sqlException instanceof CircuitOpenException open ? open.getRetryAfterSeconds() : 1;
+            exchange.getResponseHeaders().set("Retry-After", String.valueOf(retryAfter));
+            sendError(exchange, 503, "Database unavailable, please retry.");
+        } else if (e.getCause() instanceof SQLException) {
+            sendError(exchange, 500, "Authentication failed due to server error.");
+        } else {
+            sendError(exchange, 401, "Unauthorized: " + e.getMessage());
+        }
+    }
+
+    // Rate-Limit prüfen; bei Überschreitung 429 mit Retry-After (ganze Sekunden, aufgerundet) senden
+    private boolean allowRequest(HttpExchange exchange, String route, String subject) throws IOException {
+        long waitNanos = rateLimiter.tryAcquire(route, subject);
+        if (waitNanos == 0) {
+            return true;
+        }
+        long retryAfterSeconds = Math.max(1, (waitNanos + 999_999_999L) / 1_000_000_000L);
+        exchange.getResponseHeaders().set("Retry-After", String.valueOf(retryAfterSeconds));
+        sendError(exchange, 429, "Too many requests, please retry later.");
+        return false;
+    }
+
+    private static String clientIp(HttpExchange exchange) {
+        InetSocketAddress remote = exchange.getRemoteAddress();
+        if (remote == null || remote.getAddress() == null) {
+            return "unknown";
+        }
+        return remote.getAddress().getHostAddress();
+    }
+
+    private static String userKey(User user) {
+        return String.valueOf(user.getId());
+    }
+
     private void sendError(HttpExchange exchange, int statusCode, String message) throws IOException {
         exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
         String responseBody = String.format("{\"error\":\"%s\"}", message.replace("\"", "\\\""));
@@ -177,9 +599,278 @@ public class MRPServer {
 
     public void start() {
         server.start();
+        healthScheduler.scheduleWithFixedDelay(this::probeHealth, 0, HEALTH_PROBE_SECONDS, TimeUnit.SECONDS);
+        scheduler.scheduleAtFixedRate(this::refreshTrending, 0, TRENDING_REFRESH_SECONDS, TimeUnit.SECONDS);
+        scheduler.scheduleAtFixedRate(topRatedLeaderboard::recalibrate,
+                LEADERBOARD_RECALIBRATION_MINUTES, LEADERBOARD_RECALIBRATION_MINUTES, TimeUnit.MINUTES);
+        scheduler.scheduleAtFixedRate(userStatsService::reconcileDirty,
+                USER_STATS_RETRY_MINUTES, USER_STATS_RETRY_MINUTES, TimeUnit.MINUTES);
+        scheduler.scheduleAtFixedRate(this::reconcileUserStats,
+                USER_STATS_RECONCILE_MINUTES, USER_STATS_RECONCILE_MINUTES, TimeUnit.MINUTES);
+        scheduler.scheduleAtFixedRate(this::reconcileActivity,
+                ACTIVITY_RECONCILE_MINUTES, ACTIVITY_RECONCILE_MINUTES, TimeUnit.MINUTES);
+        if (tokenDenyList != null) {
+            scheduler.scheduleAtFixedRate(this::refreshDenyList,
+                    DENY_LIST_REFRESH_SECONDS, DENY_LIST_REFRESH_SECONDS, TimeUnit.SECONDS);
+        }
+        if (sessionTable != null) {
+            // Ein Tick für alle Sessions statt eines Timers pro Session
+            scheduler.scheduleAtFixedRate(sessionTable::expire,
+                    SessionTable.DEFAULT_TICK_MILLIS, SessionTable.DEFAULT_TICK_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        invalidationBus.start();
+        ratingIngestion.start();
+        scheduler.scheduleAtFixedRate(this::checkCacheVersions,
+                CACHE_VERSION_CHECK_SECONDS, CACHE_VERSION_CHECK_SECONDS, TimeUnit.SECONDS);
+        scheduler.scheduleAtFixedRate(this::rebuildNegativeCaches,
+                NEGATIVE_CACHE_REBUILD_MINUTES, NEGATIVE_CACHE_REBUILD_MINUTES, TimeUnit.MINUTES);
+        // Volle Buckets wegwerfen, sonst wächst die Map mit jeder je gesehenen IP
+        scheduler.scheduleAtFixedRate(rateLimiter::evictIdle,
+                RATE_LIMIT_EVICTION_SECONDS, RATE_LIMIT_EVICTION_SECONDS, TimeUnit.SECONDS);
+        if (ratingMatrixPath != null) {
+            // Erster Neuaufbau, wenn die Datei vom letzten Lauf fällig ist (ohne Datei sofort)
+            long ageMinutes = TimeUnit.MILLISECONDS.toMinutes(System.currentTimeMillis() - ratingMatrixBuiltAt);
+            long initialDelay = Math.max(0, RATING_MATRIX_REBUILD_MINUTES - ageMinutes);
+            matrixScheduler.scheduleAtFixedRate(this::rebuildRatingMatrix,
+                    initialDelay, RATING_MATRIX_REBUILD_MINUTES, TimeUnit.MINUTES);
+        }
     }
 
     public void stop() {
-        server.stop(0);
+        stop(preStopGrace(), DEFAULT_DRAIN_TIMEOUT);
+    }
+
+    /**
+     * Fährt den Server kontrolliert herunter, ohne laufende Requests abzubrechen:
+     * Readiness auf 503 stellen und preStopGrace lang weiter annehmen, damit der Load Balancer den Knoten austrägt,
+     * bevor der Socket zugeht; dann keine neuen Verbindungen mehr annehmen, bis zu drainTimeout auf laufende
+     * Requests warten, Hintergrund-Jobs und Pools beenden und zuletzt die DB-Verbindung schließen.
+     * Mehrfache Aufrufe (z.B. Shutdown-Hook und explizites stop) sind harmlos.
+     */
+    public void stop(Duration preStopGrace, Duration drainTimeout) {
+        if (!stopped.compareAndSet(false, true)) {
+            return;
+        }
+        draining = true;
+        // Sofort neu prüfen, nicht erst beim nächsten Tick des Probers
+        healthMonitor.probe();
+        boolean interrupted = false;
+        if (!preStopGrace.isZero() && !preStopGrace.isNegative()) {
+            LOGGER.info("Not ready, still accepting for " + preStopGrace.toSeconds()
+                    + " s until the load balancer notices");
+            try {
+                Thread.sleep(preStopGrace.toMillis());
+            } catch (InterruptedException e) {
+                // Shutdown trotzdem vollständig durchziehen, Interrupt am Ende wiederherstellen
+                interrupted = true;
+            }
+        }
+        long deadline = System.nanoTime() + drainTimeout.toNanos();
+        LOGGER.info("Draining: waiting up to " + drainTimeout.toSeconds() + " s for in-flight requests");
+
+        // Schließt den Listen-Socket sofort und wartet, bis alle laufenden Exchanges fertig sind (höchstens delay)
+        server.stop((int) Math.max(0, (drainTimeout.toMillis() + 999) / 1000));
+        requestExecutor.shutdown();
+        try {
+            long remaining = Math.max(0, deadline - System.nanoTime());
+            if (!requestExecutor.awaitTermination(remaining, TimeUnit.NANOSECONDS)) {
+                LOGGER.warning("Drain timeout reached, aborting remaining requests");
+                requestExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            requestExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+
+        // Keine Requests mehr: angenommene Ratings noch schreiben, solange die DB-Verbindung offen ist
+        ratingIngestion.close(Duration.ofNanos(Math.max(0, deadline - System.nanoTime())));
+
+        scheduler.shutdownNow();
+        healthScheduler.shutdownNow();
+        matrixScheduler.shutdownNow();
+        invalidationBus.stop();
+        hashingPool.shutdown();
+        if (mediaL2Cache != null) {
+            try {
+                mediaL2Cache.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to close L2 cache", e);
+            }
+        }
+        try {
+            DatabaseConnection.closeInstance();
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Failed to close database connection", e);
+        }
+        LOGGER.info("Server stopped");
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Grace-Periode vor dem Schließen des Sockets aus der Umgebung; ungültige Werte fallen auf den Default zurück
+    private static Duration preStopGrace() {
+        String configured = System.getenv(PRESTOP_GRACE_ENV);
+        if (configured == null || configured.isBlank()) {
+            return DEFAULT_PRESTOP_GRACE;
+        }
+        try {
+            return Duration.ofSeconds(Math.max(0, Long.parseLong(configured.trim())));
+        } catch (NumberFormatException e) {
+            LOGGER.warning(PRESTOP_GRACE_ENV + " is not a number, using " + DEFAULT_PRESTOP_GRACE.toSeconds() + " s");
+            return DEFAULT_PRESTOP_GRACE;
+        }
+    }
+
+    public boolean isDraining() {
+        return draining;
+    }
+
+    // Ein defekter oder nicht beschreibbarer Cache-Pfad darf den Start nicht verhindern, dann eben ohne L2
+    private static MappedArenaCache openL2Cache() {
+        String configured = System.getenv(L2_CACHE_PATH_ENV);
+        if ("off".equalsIgnoreCase(configured)) {
+            return null;
+        }
+        Path path = Path.of(configured == null || configured.isBlank() ? DEFAULT_L2_CACHE_PATH : configured);
+        try {
+            return new MappedArenaCache(path, L2_CACHE_SLOTS, L2_CACHE_BYTES);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "L2 cache disabled, could not open " + path, e);
+            return null;
+        }
+    }
+
+    private static Path ratingMatrixPath() {
+        String configured = System.getenv(RATING_MATRIX_PATH_ENV);
+        if ("off".equalsIgnoreCase(configured)) {
+            return null;
+        }
+        return Path.of(configured == null || configured.isBlank() ? DEFAULT_RATING_MATRIX_PATH : configured);
+    }
+
+    // Fehlende oder beschädigte Datei: ohne Matrix starten, der erste Neuaufbau legt sie an
+    private static RatingMatrix openRatingMatrix(Path path) {
+        if (path == null || !Files.exists(path)) {
+            return null;
+        }
+        try {
+            return RatingMatrix.open(path);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Ignoring unreadable rating matrix " + path, e);
+            return null;
+        }
+    }
+
+    private void rebuildRatingMatrix() {
+        try {
+            long started = System.nanoTime();
+            RatingMatrix matrix = RatingMatrix.build(ratingRepository::copyRatings, ratingMatrixPath);
+            recommendationService.useRatingMatrix(matrix);
+            LOGGER.info("Rating matrix rebuilt: " + matrix.ratingCount() + " ratings, "
+                    + matrix.stats().bytes() / (1024 * 1024) + " MiB in "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) + " ms");
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Failed to rebuild rating matrix", e);
+        }
+    }
+
+    // Fehler im periodischen Job nur loggen, sonst würde der Scheduler den Job abbrechen
+    private void refreshTrending() {
+        try {
+            trendingTracker.refresh();
+            warmedUp = true;
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Failed to refresh trending snapshot", e);
+        }
+    }
+
+    private void probeHealth() {
+        try {
+            healthMonitor.probe();
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Failed to probe health", e);
+        }
+    }
+
+    // Nicht bereit, solange seit der letzten Prüfung Requests wegen Überlast abgewiesen wurden
+    private boolean notSheddingLoad() {
+        long shed = authConcurrency.metrics().rejected() + mediaConcurrency.metrics().rejected();
+        boolean shedding = shed > lastShedCount;
+        lastShedCount = shed;
+        return !shedding;
+    }
+
+    private void reconcileActivity() {
+        try {
+            activeUserLeaderboard.reconcile(ratingRepository);
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Failed to reconcile user activity counters", e);
+        }
+    }
+
+    private void reconcileUserStats() {
+        try {
+            userStatsService.reconcileAll();
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Failed to reconcile user stats", e);
+        }
+    }
+
+    private void checkCacheVersions() {
+        try {
+            invalidationBus.checkVersions();
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Failed to check cache versions", e);
+        }
+    }
+
+    private void rebuildNegativeCaches() {
+        try {
+            mediaService.refreshKnownIds();
+            if (unknownTokens != null) {
+                unknownTokens.rebuild(userRepository::findActiveTokenHashes);
+            }
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Failed to rebuild negative caches", e);
+        }
+    }
+
+    private void refreshDenyList() {
+        try {
+            tokenDenyList.refresh();
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Failed to refresh token deny-list", e);
+        }
+    }
+
+    // Standard-Limits, einzeln per Umgebungsvariable überschreibbar
+    private static Map<String, RateLimiter.Limit> loadRateLimits() {
+        Map<String, RateLimiter.Limit> limits = new HashMap<>(Map.of(
+                RATE_IP, new RateLimiter.Limit(200, 100),
+                RATE_AUTH, new RateLimiter.Limit(10, 1),
+                RATE_USER, new RateLimiter.Limit(30, 10),
+                RATE_MEDIA_READ, new RateLimiter.Limit(60, 20),
+                RATE_MEDIA_WRITE, new RateLimiter.Limit(10, 2)));
+        for (String route : limits.keySet()) {
+            String configured = System.getenv(RATE_LIMIT_ENV_PREFIX + route.toUpperCase().replace('-', '_'));
+            if (configured != null && !configured.isBlank()) {
+                limits.put(route, RateLimiter.Limit.parse(configured));
+            }
+        }
+        return limits;
+    }
+
+    // Schlüssel für signierte Tokens aus der Umgebung; ohne Angabe ein zufälliger Schlüssel
+    // (Tokens sind dann nach einem Neustart ungültig und nur auf diesem Knoten gültig)
+    private static byte[] loadTokenSecret() {
+        String configured = System.getenv(TOKEN_SECRET_ENV);
+        if (configured != null && !configured.isBlank()) {
+            return Base64.getDecoder().decode(configured.trim());
+        }
+        LOGGER.warning(TOKEN_SECRET_ENV + " not set, using a random key for signed tokens");
+        byte[] secret = new byte[SignedTokenStrategy.MIN_KEY_BYTES];
+        new SecureRandom().nextBytes(secret);
+        return secret;
     }
 }
@@ -0,0 +1,105 @@
+package org.example.server;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Token-Bucket-Rate-Limiter pro Route und Subjekt (User-ID oder IP).
+ * <p>
+ * Jeder Bucket ist ein einziger {@link AtomicLong} mit der "theoretischen Ankunftszeit" (GCRA-Form des
+ * Token Buckets): ein Request schiebt sie um ein Intervall (1 / Rate) nach vorn und ist erlaubt, solange sie
+ * höchstens {@code burst} Intervalle in der Zukunft liegt. Das Auffüllen passiert dadurch implizit beim
+ * nächsten Zugriff (lazy refill), ohne Timer und ohne Lock - nur ein CAS pro Request.
+ * <p>
+ * Ein Bucket, dessen Ankunftszeit in der Vergangenheit liegt, ist voll und kann ohne Verhaltensänderung
+ * verworfen werden; {@link #evictIdle()} räumt solche Buckets periodisch ab.
+ */
+public class RateLimiter {
+
+    /**
+     * Limit einer Route: bis zu {@code burst} Requests auf einmal, danach {@code perSecond} pro Sekunde.
+     */
+    public record Limit(int burst, double perSecond) {
+        public Limit {
+            if (burst < 1 || perSecond <= 0) {
+                throw new IllegalArgumentException("Burst and rate must be positive");
+            }
+        }
+
+        // Format "burst/perSecond", z.B. "20/5"
+        public static Limit parse(String value) {
+            String[] parts = value.trim().split("/");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Rate limit must look like <burst>/<perSecond>: " + value);
+            }
+            return new Limit(Integer.parseInt(parts[0].trim()), Double.parseDouble(parts[1].trim()));
+        }
+
+        long intervalNanos() {
+            return (long) (1_000_000_000L / perSecond);
+        }
+    }
+
+    private final Map<String, Limit> limits;
+    private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final LongSupplier nanoClock;
+
+    public RateLimiter(Map<String, Limit> limits) {
+        this(limits, System::nanoTime);
+    }
+
+    public RateLimiter(Map<String, Limit> limits, LongSupplier nanoClock) {
+        this.limits = Map.copyOf(limits);
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Versucht, einen Request für route/subject zuzulassen.
+     *
+     * @return 0 wenn erlaubt, sonst die Wartezeit in Nanosekunden bis zum nächsten freien Token
+     */
+    public long tryAcquire(String route, String subject) {
+        Limit limit = limits.get(route);
+        if (limit == null) {
+            return 0;
+        }
+        long interval = limit.intervalNanos();
+        long tolerance = interval * limit.burst();
+        AtomicLong bucket = buckets.computeIfAbsent(route + '|' + subject, key -> new AtomicLong(Long.MIN_VALUE));
+        while (true) {
+            long now = nanoClock.getAsLong();
+            long current = bucket.get();
+            long next = Math.max(current, now) + interval;
+            long wait = next - now - tolerance;
+            if (wait > 0) {
+                return wait;
+            }
+            if (bucket.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Entfernt alle vollen (= seit einer Weile unbenutzten) Buckets.
+     * Ein Request, der genau jetzt einen entfernten Bucket benutzt, verliert höchstens seinen einen Token.
+     *
+     * @return Anzahl entfernter Buckets
+     */
+    public int evictIdle() {
+        long now = nanoClock.getAsLong();
+        int evicted = 0;
+        for (Map.Entry<String, AtomicLong> entry : buckets.entrySet()) {
+            if (entry.getValue().get() <= now && buckets.remove(entry.getKey(), entry.getValue())) {
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+}
@@ -1,23 +1,51 @@
 package org.example.service;
 
+import org.example.auth.DatabaseTokenStrategy;
+import org.example.auth.PasswordHasher;
+import org.example.auth.PasswordHashingPool;
+import org.example.auth.TokenStrategy;
+import org.example.database.CircuitBreaker;
 import org.example.model.User;
 import org.example.repository.UserRepository;
 
 import java.sql.SQLException;
 import java.util.Optional;
-import java.util.UUID;
 
 // Service-Layer für User-Authentifizierung
 // Enthält die Business-Logik für Register/Login/Token-Validierung
 public class AuthService {
     private final UserRepository userRepository;
+    private final TokenStrategy tokenStrategy;
+    private final PasswordHasher passwordHasher;
+    private final PasswordHashingPool hashingPool;
+    // Dieselbe Sicherung wie vor den übrigen DB-Zugriffen: bei DB-Ausfall sofort 503 statt auf JDBC zu warten
+    private final CircuitBreaker databaseBreaker;
 
+    // Ergebnis einer Passwort-Prüfung im Pool; rehash != null wenn der gespeicherte Wert ersetzt werden soll
+    private record Verification(boolean matches, String rehash) {
+    }
+
+    // Ohne Angabe: Tokens in der DB (users.token), Standard-Hashing-Kosten und eigener Pool
     public AuthService(UserRepository userRepository) {
+        this(userRepository, new DatabaseTokenStrategy(userRepository), new PasswordHasher(), new PasswordHashingPool());
+    }
+
+    public AuthService(UserRepository userRepository, TokenStrategy tokenStrategy,
+                       PasswordHasher passwordHasher, PasswordHashingPool hashingPool) {
+        this(userRepository, tokenStrategy, passwordHasher, hashingPool, new CircuitBreaker());
+    }
+
+    public AuthService(UserRepository userRepository, TokenStrategy tokenStrategy,
+                       PasswordHasher passwordHasher, PasswordHashingPool hashingPool, CircuitBreaker databaseBreaker) {
         this.userRepository = userRepository;
+        this.tokenStrategy = tokenStrategy;
+        this.passwordHasher = passwordHasher;
+        this.hashingPool = hashingPool;
+        this.databaseBreaker = databaseBreaker;
     }
 
     // Neuen User registrieren
-    // Validiert Input und prüft ob Username schon existiert
+    // Validiert Input; ob der Username frei ist, entscheidet das INSERT selbst (ein Round-Trip, kein Race)
     public User register(String username, String password) throws SQLException {
         // Input-Validierung
         if (username == null || username.trim().isEmpty()) {
@@ -27,34 +55,51 @@ public class AuthService {
             throw new IllegalArgumentException("Password must be at least 3 characters long");
         }
 
-        // Prüfen ob Username schon vergeben ist
-        if (userRepository.findByUsername(username).isPresent()) {
-            throw new IllegalArgumentException("Username already exists");
-        }
-
-        // User in DB speichern
-        User user = new User(username, password);
-        return userRepository.save(user);
+        // Passwort im Hashing-Pool hashen (nicht im Request-Thread), dann anlegen falls der Username frei ist
+        String passwordHash = hashingPool.call(() -> passwordHasher.hash(password));
+        User user = new User(username, passwordHash);
+        return databaseBreaker.call(() -> userRepository.saveIfAbsent(user))
+                .orElseThrow(() -> new IllegalArgumentException("Username already exists"));
     }
 
     // User einloggen und Token generieren
-    // Token wird in DB gespeichert für spätere Validierung
+    // Format und Speicherung bestimmt die TokenStrategy (DB-Token oder signiertes Token)
+    // Im DB-Modus zwei Round-Trips: Hash lesen, dann Token per Compare-and-Set auf den geprüften Hash schreiben
     public String login(String username, String password) throws SQLException {
-        // User aus DB holen
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new IllegalArgumentException("Invalid username or password"));
+        // User aus DB holen; unbekannter Username: trotzdem PBKDF2 rechnen (gegen einen festen Dummy-Hash),
+        // sonst ist die Antwort messbar schneller und verrät, welche Usernamen existieren
+        Optional<User> found = databaseBreaker.call(() -> userRepository.findByUsername(username));
+        if (found.isEmpty()) {
+            hashingPool.call(() -> passwordHasher.verify(password, passwordHasher.dummyHash()));
+            throw new IllegalArgumentException("Invalid username or password");
+        }
+        User user = found.get();
 
-        // Passwort-Check (Plaintext für dieses Lernprojekt - Produktion würde BCrypt verwenden)
-        if (!user.getPassword().equals(password)) {
+        // Passwort-Check im Hashing-Pool; alte Klartext-Passwörter oder zu billige Hashes werden dabei
+        // gleich neu gehasht (Rehash-on-Login), der User merkt davon nichts
+        String stored = user.getPassword();
+        Verification verification = hashingPool.call(() -> {
+            boolean matches = passwordHasher.verify(password, stored);
+            String rehash = matches && passwordHasher.needsRehash(stored) ? passwordHasher.hash(password) : null;
+            return new Verification(matches, rehash);
+        });
+        if (!verification.matches()) {
             throw new IllegalArgumentException("Invalid username or password");
         }
+        if (verification.rehash() != null && databaseBreaker.call(
+                () -> userRepository.updatePassword(user.getId(), stored, verification.rehash()))) {
+            user.setPassword(verification.rehash());
+        }
 
-        // Token generieren im Format: "username-mrpToken-UUID"
-        // Beispiel: "berdan-mrpToken-c2182eeb-418b-4fec-b637-ea235775b0cb"
-        String token = username + "-mrpToken-" + UUID.randomUUID();
-        userRepository.updateToken(user.getId(), token);
+        return databaseBreaker.call(() -> tokenStrategy.issue(user));
+    }
 
-        return token;
+    // Logout: alle Tokens des Users widerrufen
+    public void logout(User user) throws SQLException {
+        databaseBreaker.call(() -> {
+            tokenStrategy.revoke(user);
+            return null;
+        });
     }
 
     // Token validieren und zugehörigen User zurückgeben
@@ -63,7 +108,6 @@ public class AuthService {
         if (token == null || token.isEmpty()) {
             throw new SecurityException("Token cannot be empty");
         }
-        // Token aus DB suchen
-        return userRepository.findByToken(token);
+        return databaseBreaker.call(() -> tokenStrategy.validate(token));
     }
 }
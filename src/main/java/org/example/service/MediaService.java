@@ -1,39 +1,222 @@
 package org.example.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.cache.CachedRead;
+import org.example.cache.MappedArenaCache;
+import org.example.cache.NegativeCache;
+import org.example.cache.SegmentedLruCache;
+import org.example.cache.SingleFlight;
+import org.example.database.CircuitBreaker;
 import org.example.exception.ForbiddenException;
+import org.example.model.CompactMedia;
 import org.example.model.MediaEntry;
+import org.example.model.Rating;
 import org.example.repository.MediaRepository;
 import org.example.repository.RatingRepository;
 
+import java.io.IOException;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 // Service-Layer für Media-Verwaltung
 // Enthält Business-Logik und Autorisierungsprüfungen
 public class MediaService {
+    private static final Logger LOGGER = Logger.getLogger(MediaService.class.getName());
+    public static final long DEFAULT_CACHE_BYTES = 16L * 1024 * 1024;
+    private static final int MAX_MISSING_IDS = 10_000;
+    private static final long MISSING_ID_TTL_MILLIS = 30_000;
+
     private final MediaRepository mediaRepository;
     private final RatingRepository ratingRepository;
+    // Read-Through-Cache für einzelne Media-Einträge, Writes invalidieren ihn
+    // Einträge in kompakter Form (UTF-8-Bytes, Enum, Genre-Bitmaske), bei jedem Treffer neu ausgepackt
+    private final SegmentedLruCache<Integer, CompactMedia> mediaCache;
+    // Gleichzeitige Cache-Misses für dieselbe Abfrage teilen sich einen DB-Zugriff
+    private final SingleFlight<Integer, CachedRead<Optional<MediaEntry>>> mediaLoads = new SingleFlight<>();
+    private final SingleFlight<String, List<MediaEntry>> listLoads = new SingleFlight<>();
+    private final SingleFlight<Integer, List<Rating>> ratingLoads = new SingleFlight<>();
+    private static final String ALL_MEDIA = "all";
+
+    // Optionaler L2-Cache außerhalb des Heaps (serialisiertes JSON, übersteht Neustarts), null = aus
+    private final MappedArenaCache l2Cache;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    // Bekannte aktuelle Version pro Media; ein L2-Eintrag zählt nur mit genau dieser Version.
+    // Fehlt die Version (z.B. nach Invalidierung durch einen anderen Knoten), geht der Lesezugriff an die DB
+    private final Map<Integer, Long> knownVersions = new ConcurrentHashMap<>();
+    // Invalidierung und "in L1 ablegen + Version merken" dürfen sich nicht überholen
+    private final Object versionLock = new Object();
+
+    // Alle DB-Zugriffe laufen durch die Sicherung; ist sie offen, werden Lesezugriffe aus veralteten
+    // Cache-Ständen bedient (L2-Cache, letzte Media-Liste) und Writes schlagen sofort fehl
+    private final CircuitBreaker databaseBreaker;
+    private volatile ListSnapshot lastMediaList;
+    // Nicht existierende IDs (Bloom-Filter aller IDs + kurzlebige Fehlschläge) beantworten 404 ohne DB-Abfrage
+    private final NegativeCache<Integer> missingMedia = new NegativeCache<>(Integer::longValue, MAX_MISSING_IDS,
+            MISSING_ID_TTL_MILLIS, System::currentTimeMillis);
+
+    private record ListSnapshot(List<MediaEntry> media, long loadedAtMillis) {
+    }
 
     public MediaService(MediaRepository mediaRepository, RatingRepository ratingRepository) {
+        this(mediaRepository, ratingRepository, null, new CircuitBreaker());
+    }
+
+    public MediaService(MediaRepository mediaRepository, RatingRepository ratingRepository,
+                        MappedArenaCache l2Cache, CircuitBreaker databaseBreaker) {
+        this(mediaRepository, ratingRepository,
+                new SegmentedLruCache<>(DEFAULT_CACHE_BYTES, CompactMedia::estimateBytes), l2Cache, databaseBreaker);
+    }
+
+    public MediaService(MediaRepository mediaRepository, RatingRepository ratingRepository,
+                        SegmentedLruCache<Integer, CompactMedia> mediaCache, MappedArenaCache l2Cache,
+                        CircuitBreaker databaseBreaker) {
         this.mediaRepository = mediaRepository;
         this.ratingRepository = ratingRepository;
+        this.mediaCache = mediaCache;
+        this.l2Cache = l2Cache;
+        this.databaseBreaker = databaseBreaker;
+    }
+
+    // Versionen und IDs aus einem beim Start ohnehin geladenen Katalog übernehmen,
+    // damit L2-Cache und Negativ-Cache sofort nutzbar sind
+    public void primeCatalog(Collection<MediaEntry> catalog) throws SQLException {
+        for (MediaEntry media : catalog) {
+            knownVersions.put(media.getId(), media.getVersion());
+        }
+        missingMedia.rebuild(() -> catalog.stream().map(MediaEntry::getId).toList());
+    }
+
+    // Periodisch: Filter neu aufbauen, damit gelöschte IDs herausfallen
+    public void refreshKnownIds() throws SQLException {
+        missingMedia.rebuild(() -> databaseBreaker.call(mediaRepository::findAllIds));
     }
 
     // Neuen Media-Eintrag erstellen
     // Creator-ID wird automatisch gesetzt (ist der eingeloggte User)
     public MediaEntry createMedia(MediaEntry media, Integer creatorId) throws SQLException {
         media.setCreatorId(creatorId);
-        return mediaRepository.save(media);
+        try {
+            MediaEntry saved = databaseBreaker.call(() -> mediaRepository.save(media));
+            missingMedia.added(saved.getId());
+            return saved;
+        } finally {
+            listLoads.forget(ALL_MEDIA);
+        }
     }
 
+    // Aus dem Cache, sonst aus der DB (und dann cachen)
+    // Das Ergebnis kann mit gleichzeitigen Aufrufern geteilt sein und darf nicht verändert werden
     public Optional<MediaEntry> getMediaById(Integer id) throws SQLException {
-        return mediaRepository.findById(id);
+        return readMediaById(id).value();
+    }
+
+    // Wie getMediaById; ist die DB nicht erreichbar, notfalls der letzte Stand aus dem L2-Cache (als veraltet markiert)
+    public CachedRead<Optional<MediaEntry>> readMediaById(Integer id) throws SQLException {
+        CompactMedia cached = mediaCache.get(id);
+        if (cached != null) {
+            return CachedRead.fresh(Optional.of(cached.toMediaEntry()));
+        }
+        if (missingMedia.isKnownMissing(id)) {
+            return CachedRead.fresh(Optional.empty());
+        }
+        // Nur der ladende Thread legt das Ergebnis ab, mit der Generation von vor seiner Abfrage
+        return mediaLoads.load(id, () -> {
+            long generation = mediaCache.generation();
+            long missGeneration = missingMedia.generation();
+            MediaEntry fromL2 = readL2(id);
+            if (fromL2 != null) {
+                mediaCache.putIfUnchanged(id, CompactMedia.of(fromL2), generation);
+                return CachedRead.fresh(Optional.of(fromL2));
+            }
+            Optional<MediaEntry> media;
+            try {
+                media = databaseBreaker.call(() -> mediaRepository.findById(id));
+            } catch (SQLException e) {
+                CachedRead<Optional<MediaEntry>> stale = readStaleL2(id, e);
+                if (stale == null) {
+                    throw e;
+                }
+                return stale;
+            }
+            if (media.isEmpty()) {
+                missingMedia.recordMiss(id, missGeneration);
+            }
+            media.ifPresent(found -> {
+                boolean current;
+                synchronized (versionLock) {
+                    current = mediaCache.putIfUnchanged(id, CompactMedia.of(found), generation);
+                    if (current) {
+                        knownVersions.put(id, found.getVersion());
+                    }
+                }
+                if (current) {
+                    writeL2(found);
+                }
+            });
+            return CachedRead.fresh(media);
+        });
     }
 
+    // Liste wird an alle gleichzeitigen Aufrufer geteilt und darf nicht verändert werden
     public List<MediaEntry> getAllMedia() throws SQLException {
-        return mediaRepository.findAll();
+        return readAllMedia().value();
+    }
+
+    // Wie getAllMedia; ist die DB nicht erreichbar, notfalls die zuletzt geladene Liste (als veraltet markiert)
+    public CachedRead<List<MediaEntry>> readAllMedia() throws SQLException {
+        try {
+            List<MediaEntry> media = listLoads.load(ALL_MEDIA, () -> databaseBreaker.call(mediaRepository::findAll));
+            lastMediaList = new ListSnapshot(media, System.currentTimeMillis());
+            return CachedRead.fresh(media);
+        } catch (SQLException e) {
+            ListSnapshot last = lastMediaList;
+            if (last == null || !CircuitBreaker.isOutage(e)) {
+                throw e;
+            }
+            return CachedRead.stale(last.media(), last.loadedAtMillis());
+        }
+    }
+
+    // Alle Ratings zu einem Media, neueste zuerst
+    // Nicht freigegebene Kommentare (confirmed=false) sehen nur der Autor des Ratings und der Creator des Media,
+    // alle anderen bekommen das Rating ohne Kommentartext
+    public List<Rating> getRatingsForMedia(Integer mediaId, Integer requesterId) throws SQLException {
+        Optional<MediaEntry> media = getMediaById(mediaId);
+        if (media.isEmpty()) {
+            throw new IllegalArgumentException("Media with ID " + mediaId + " not found.");
+        }
+        int creatorId = media.get().getCreatorId();
+        List<Rating> ratings = ratingLoads.load(mediaId,
+                () -> databaseBreaker.call(() -> ratingRepository.findByMediaId(mediaId)));
+        if (Objects.equals(requesterId, creatorId)) {
+            return ratings;
+        }
+        List<Rating> visible = new ArrayList<>(ratings.size());
+        for (Rating rating : ratings) {
+            boolean hidden = rating.getComment() != null && !Boolean.TRUE.equals(rating.getConfirmed())
+                    && !Objects.equals(requesterId, rating.getUserId());
+            visible.add(hidden ? withoutComment(rating) : rating);
+        }
+        return visible;
+    }
+
+    // Kopie statt Änderung: die geladene Liste wird mit parallelen Aufrufern geteilt
+    private static Rating withoutComment(Rating rating) {
+        Rating copy = new Rating(rating.getUserId(), rating.getMediaId(), rating.getStars(), null);
+        copy.setId(rating.getId());
+        copy.setTimestamp(rating.getTimestamp());
+        copy.setLikes(rating.getLikes());
+        copy.setConfirmed(rating.getConfirmed());
+        return copy;
     }
 
     // Media-Eintrag aktualisieren
@@ -41,7 +224,7 @@ public class MediaService {
     // requesterId = ID des eingeloggten Users
     public void updateMedia(Integer mediaId, MediaEntry updatedMedia, Integer requesterId) throws SQLException {
         // Prüfen ob Media existiert
-        MediaEntry existingMedia = mediaRepository.findById(mediaId)
+        MediaEntry existingMedia = getMediaById(mediaId)
                 .orElseThrow(() -> new IllegalArgumentException("Media with ID " + mediaId + " not found."));
 
         // Autorisierungsprüfung: Ist der eingeloggte User auch der Creator?
@@ -51,14 +234,22 @@ public class MediaService {
 
         // ID muss gleich bleiben
         updatedMedia.setId(mediaId);
-        mediaRepository.update(updatedMedia);
+        try {
+            databaseBreaker.call(() -> {
+                mediaRepository.update(updatedMedia);
+                return null;
+            });
+        } finally {
+            // Auch bei einem Fehler: ob das Statement gegriffen hat, ist dann unklar
+            invalidate(mediaId);
+        }
     }
 
     // Media-Eintrag löschen
     // Nur der Creator darf seinen eigenen Eintrag löschen
     public void deleteMedia(Integer mediaId, Integer requesterId) throws SQLException {
         // Prüfen ob Media existiert
-        MediaEntry existingMedia = mediaRepository.findById(mediaId)
+        MediaEntry existingMedia = getMediaById(mediaId)
                 .orElseThrow(() -> new IllegalArgumentException("Media with ID " + mediaId + " not found."));
 
         // Autorisierungsprüfung
@@ -66,7 +257,123 @@ public class MediaService {
             throw new ForbiddenException("User is not authorized to delete this media entry.");
         }
 
-        // Löscht auch automatisch alle zugehörigen Ratings (CASCADE)
-        mediaRepository.delete(mediaId);
+        // Ratings zuerst über das RatingRepository löschen, damit Ranglisten und Indizes sie als gelöscht sehen;
+        // mediaRepository.delete räumt danach nur noch Ratings ab, die zwischendurch dazugekommen sind
+        try {
+            databaseBreaker.call(() -> {
+                ratingRepository.deleteByMedia(mediaId);
+                mediaRepository.delete(mediaId);
+                return null;
+            });
+        } finally {
+            invalidate(mediaId);
+            if (l2Cache != null) {
+                l2Cache.remove(mediaId);
+            }
+        }
+    }
+
+    // Von einem anderen Knoten angelegt, geändert oder gelöscht (Invalidierungs-Bus)
+    public void evict(int mediaId) {
+        invalidate(mediaId);
+        // Kann ein neuer Eintrag sein; bei Update/Delete schadet es nicht (Filter sagt dann nur "vielleicht")
+        missingMedia.added(mediaId);
+    }
+
+    // Notifications verpasst: alles verwerfen
+    public void evictAll() {
+        missingMedia.disableFilter();
+        synchronized (versionLock) {
+            knownVersions.clear();
+            mediaCache.invalidateAll();
+        }
+        mediaLoads.forgetAll();
+        ratingLoads.forgetAll();
+        listLoads.forgetAll();
+    }
+
+    // Cache-Eintrag und laufende Ladevorgänge verwerfen, damit spätere Leser den neuen Stand sehen
+    private void invalidate(Integer mediaId) {
+        synchronized (versionLock) {
+            knownVersions.remove(mediaId);
+            mediaCache.invalidate(mediaId);
+        }
+        mediaLoads.forget(mediaId);
+        ratingLoads.forget(mediaId);
+        listLoads.forget(ALL_MEDIA);
+    }
+
+    public SegmentedLruCache.Stats cacheStats() {
+        return mediaCache.stats();
+    }
+
+    public NegativeCache.Stats negativeCacheStats() {
+        return missingMedia.stats();
+    }
+
+    public CircuitBreaker.Stats breakerStats() {
+        return databaseBreaker.stats();
+    }
+
+    // null, wenn kein L2-Cache konfiguriert ist
+    public MappedArenaCache.Stats l2Stats() {
+        return l2Cache != null ? l2Cache.stats() : null;
+    }
+
+    // L2-Eintrag nur mit der bekannten aktuellen Version, sonst null
+    private MediaEntry readL2(int mediaId) {
+        Long version = knownVersions.get(mediaId);
+        if (l2Cache == null || version == null) {
+            return null;
+        }
+        byte[] bytes = l2Cache.get(mediaId, version);
+        if (bytes == null) {
+            return null;
+        }
+        try {
+            MediaEntry media = objectMapper.readValue(bytes, MediaEntry.class);
+            media.setVersion(version);
+            return media;
+        } catch (IOException e) {
+            l2Cache.remove(mediaId);
+            return null;
+        }
+    }
+
+    // Notbetrieb: letzter Stand aus dem L2-Cache ohne Versionsprüfung, nur bei Ausfall der DB
+    private CachedRead<Optional<MediaEntry>> readStaleL2(int mediaId, SQLException failure) {
+        if (l2Cache == null || !CircuitBreaker.isOutage(failure)) {
+            return null;
+        }
+        MappedArenaCache.Entry entry = l2Cache.getLatest(mediaId);
+        if (entry == null) {
+            return null;
+        }
+        try {
+            MediaEntry media = objectMapper.readValue(entry.value(), MediaEntry.class);
+            media.setVersion(entry.version());
+            return CachedRead.stale(Optional.of(media), entry.writtenAtMillis());
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void writeL2(MediaEntry media) {
+        if (l2Cache == null) {
+            return;
+        }
+        try {
+            l2Cache.put(media.getId(), media.getVersion(), objectMapper.writeValueAsBytes(media));
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Failed to serialize media " + media.getId() + " for the L2 cache", e);
+        }
+    }
+
+    public Map<String, SingleFlight.Stats> coalescingStats() {
+        Map<String, SingleFlight.Stats> stats = new LinkedHashMap<>();
+        stats.put("media", mediaLoads.stats());
+        stats.put("mediaList", listLoads.stats());
+        stats.put("ratings", ratingLoads.stats());
+        return stats;
     }
 }
@@ -0,0 +1,114 @@
+package org.example.service;
+
+import org.example.database.CircuitBreaker;
+import org.example.model.MediaEntry;
+import org.example.model.RankedMedia;
+import org.example.model.UserActivity;
+import org.example.ranking.ActiveUserLeaderboard;
+import org.example.ranking.TopRatedLeaderboard;
+import org.example.ranking.TrendingTracker;
+import org.example.repository.MediaRepository;
+import org.example.repository.UserRepository;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Service-Layer für Ranglisten (Trending, Top-Rated usw.)
+// Alle Ranglisten werden im Speicher gepflegt, die DB liefert höchstens noch die Media-Details
+// (über dieselbe Sicherung wie die übrigen Services, bei DB-Ausfall also schnell CircuitOpenException)
+public class RankingService {
+    public static final int DEFAULT_LIMIT = 10;
+    private static final int MAX_LIMIT = 50;
+
+    private final TrendingTracker trendingTracker;
+    private final TopRatedLeaderboard topRatedLeaderboard;
+    private final ActiveUserLeaderboard activeUserLeaderboard;
+    private final MediaRepository mediaRepository;
+    private final UserRepository userRepository;
+    private final CircuitBreaker databaseBreaker;
+
+    public RankingService(TrendingTracker trendingTracker, TopRatedLeaderboard topRatedLeaderboard,
+                          ActiveUserLeaderboard activeUserLeaderboard, MediaRepository mediaRepository,
+                          UserRepository userRepository) {
+        this(trendingTracker, topRatedLeaderboard, activeUserLeaderboard, mediaRepository, userRepository,
+                new CircuitBreaker());
+    }
+
+    public RankingService(TrendingTracker trendingTracker, TopRatedLeaderboard topRatedLeaderboard,
+                          ActiveUserLeaderboard activeUserLeaderboard, MediaRepository mediaRepository,
+                          UserRepository userRepository, CircuitBreaker databaseBreaker) {
+        this.trendingTracker = trendingTracker;
+        this.topRatedLeaderboard = topRatedLeaderboard;
+        this.activeUserLeaderboard = activeUserLeaderboard;
+        this.mediaRepository = mediaRepository;
+        this.userRepository = userRepository;
+        this.databaseBreaker = databaseBreaker;
+    }
+
+    // Media mit der meisten Rating-/Like-Aktivität in letzter Zeit
+    public List<MediaEntry> getTrendingMedia(int limit) {
+        checkLimit(limit);
+        return trendingTracker.getTrending(limit);
+    }
+
+    // Bestbewertete Media nach Bayes'schem Durchschnitt, seitenweise (page beginnt bei 0)
+    public List<RankedMedia> getTopRatedMedia(int page, int size) throws SQLException {
+        checkLimit(size);
+        if (page < 0) {
+            throw new IllegalArgumentException("Page must not be negative");
+        }
+        List<TopRatedLeaderboard.Entry> entries = topRatedLeaderboard.page(page, size);
+        List<Integer> ids = new ArrayList<>(entries.size());
+        for (TopRatedLeaderboard.Entry entry : entries) {
+            ids.add(entry.mediaId());
+        }
+        Map<Integer, MediaEntry> byId = new HashMap<>();
+        for (MediaEntry media : databaseBreaker.call(() -> mediaRepository.findByIds(ids))) {
+            byId.put(media.getId(), media);
+        }
+
+        List<RankedMedia> result = new ArrayList<>(entries.size());
+        int rank = page * size + 1;
+        for (TopRatedLeaderboard.Entry entry : entries) {
+            MediaEntry media = byId.get(entry.mediaId());
+            if (media == null) {
+                // In der DB nicht mehr vorhanden (z.B. auf einem anderen Knoten gelöscht): aus der Rangliste
+                // nehmen, damit der Rang nicht frei bleibt und die nächsten Seiten wieder voll sind
+                topRatedLeaderboard.onMediaDeleted(entry.mediaId());
+                continue;
+            }
+            result.add(new RankedMedia(rank++, entry.score(), entry.ratingCount(), media));
+        }
+        return result;
+    }
+
+    // Aktivste User (Ratings, erhaltene Likes, freigegebene Kommentare), Usernamen in einer Abfrage nachladen
+    public List<UserActivity> getMostActiveUsers(int limit) throws SQLException {
+        checkLimit(limit);
+        List<ActiveUserLeaderboard.Standing> standings = activeUserLeaderboard.top(limit);
+        List<Integer> ids = new ArrayList<>(standings.size());
+        for (ActiveUserLeaderboard.Standing standing : standings) {
+            ids.add(standing.userId());
+        }
+        Map<Integer, String> usernames = databaseBreaker.call(() -> userRepository.findUsernamesByIds(ids));
+
+        List<UserActivity> result = new ArrayList<>(standings.size());
+        for (ActiveUserLeaderboard.Standing standing : standings) {
+            String username = usernames.get(standing.userId());
+            if (username != null) {
+                result.add(new UserActivity(result.size() + 1, standing.userId(), username, standing.ratings(),
+                        standing.likesReceived(), standing.confirmedComments(), standing.score()));
+            }
+        }
+        return result;
+    }
+
+    private void checkLimit(int limit) {
+        if (limit <= 0 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_LIMIT);
+        }
+    }
+}
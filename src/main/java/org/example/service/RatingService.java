@@ -0,0 +1,54 @@
+package org.example.service;
+
+import org.example.exception.ServiceUnavailableException;
+import org.example.model.Rating;
+import org.example.repository.RatingIngestionPipeline;
+
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Service-Layer für das Abgeben von Ratings
+// Geschrieben wird nicht direkt, sondern gebündelt über die Ingestion-Pipeline; der Request wartet auf seinen Batch
+public class RatingService {
+    // Länger als ein Batch normalerweise braucht, aber kürzer als typische Client-Timeouts
+    private static final long WRITE_TIMEOUT_SECONDS = 10;
+    private static final int RETRY_AFTER_SECONDS = 1;
+
+    private final MediaService mediaService;
+    private final RatingIngestionPipeline ingestionPipeline;
+
+    public RatingService(MediaService mediaService, RatingIngestionPipeline ingestionPipeline) {
+        this.mediaService = mediaService;
+        this.ingestionPipeline = ingestionPipeline;
+    }
+
+    // Rating anlegen oder überschreiben (ein Rating pro User und Media), liefert das gespeicherte Rating mit ID
+    public Rating rateMedia(Integer mediaId, Integer userId, int stars, String comment) throws SQLException {
+        if (mediaService.getMediaById(mediaId).isEmpty()) {
+            throw new IllegalArgumentException("Media with ID " + mediaId + " not found.");
+        }
+
+        CompletableFuture<Rating> written = ingestionPipeline.submit(new Rating(userId, mediaId, stars, comment));
+        try {
+            return written.get(WRITE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            // Der Batch kann trotzdem noch geschrieben werden - ein erneuter Versuch überschreibt nur dasselbe Rating
+            throw new ServiceUnavailableException("Saving the rating timed out, please retry.", RETRY_AFTER_SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Saving the rating was interrupted.", RETRY_AFTER_SECONDS);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException sqlException) {
+                throw sqlException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Saving the rating failed", cause);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package org.example.service;
+
+import org.example.database.CircuitBreaker;
+import org.example.model.MediaEntry;
+import org.example.model.User;
+import org.example.recommendation.CoRatingCounter;
+import org.example.recommendation.ContentIndex;
+import org.example.recommendation.ItemSimilarityIndex;
+import org.example.recommendation.RatingMatrix;
+import org.example.recommendation.ScoredItem;
+import org.example.repository.MediaRepository;
+import org.example.repository.RatingRepository;
+import org.example.repository.UserRepository;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Service-Layer für Empfehlungen
+// Das Ranking kommt komplett aus den In-Memory-Indizes, die DB liefert nur noch die Media-Details (ein Round-Trip)
+// Alle DB-Zugriffe laufen über die gemeinsame Sicherung
+public class RecommendationService {
+    public static final int DEFAULT_LIMIT = 10;
+    public static final String TYPE_COLLABORATIVE = "collaborative";
+    public static final String TYPE_CONTENT = "content";
+    private static final int MAX_LIMIT = 100;
+
+    private final ItemSimilarityIndex similarityIndex;
+    private final ContentIndex contentIndex;
+    private final CoRatingCounter coRatingCounter;
+    private final MediaRepository mediaRepository;
+    private final RatingRepository ratingRepository;
+    private final UserRepository userRepository;
+    private final CircuitBreaker databaseBreaker;
+    // Wird periodisch neu aufgebaut und ausgetauscht, null solange keine vorhanden ist
+    private volatile RatingMatrix ratingMatrix;
+
+    public RecommendationService(ItemSimilarityIndex similarityIndex, ContentIndex contentIndex,
+                                 CoRatingCounter coRatingCounter, MediaRepository mediaRepository,
+                                 RatingRepository ratingRepository, UserRepository userRepository) {
+        this(similarityIndex, contentIndex, coRatingCounter, mediaRepository, ratingRepository, userRepository,
+                new CircuitBreaker());
+    }
+
+    public RecommendationService(ItemSimilarityIndex similarityIndex, ContentIndex contentIndex,
+                                 CoRatingCounter coRatingCounter, MediaRepository mediaRepository,
+                                 RatingRepository ratingRepository, UserRepository userRepository,
+                                 CircuitBreaker databaseBreaker) {
+        this.similarityIndex = similarityIndex;
+        this.contentIndex = contentIndex;
+        this.coRatingCounter = coRatingCounter;
+        this.mediaRepository = mediaRepository;
+        this.ratingRepository = ratingRepository;
+        this.userRepository = userRepository;
+        this.databaseBreaker = databaseBreaker;
+    }
+
+    // type = "collaborative" (Default) oder "content"
+    // Collaborative Filtering fällt auf content-basiert zurück, solange der User noch nichts bewertet hat (Cold Start)
+    public List<MediaEntry> getRecommendations(User user, String type, int limit) throws SQLException {
+        checkLimit(limit);
+        String effectiveType = type != null ? type : TYPE_COLLABORATIVE;
+
+        List<ScoredItem> ranked;
+        switch (effectiveType) {
+            case TYPE_COLLABORATIVE:
+                ranked = similarityIndex.recommend(user.getId(), limit);
+                if (ranked.isEmpty()) {
+                    ranked = rankByContent(user, limit);
+                }
+                break;
+            case TYPE_CONTENT:
+                ranked = rankByContent(user, limit);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown recommendation type: " + type);
+        }
+
+        return loadMedia(ranked);
+    }
+
+    // "User, die dieses Media bewertet haben, bewerteten auch ..." (Detailseite)
+    // Hat der Sketch zu diesem Media keine Paare (selten bewertet, verdrängt), rechnet die Off-Heap-Matrix nach
+    public List<MediaEntry> getRelatedMedia(Integer mediaId, int limit) throws SQLException {
+        checkLimit(limit);
+        List<ScoredItem> related = coRatingCounter.relatedTo(mediaId, limit);
+        RatingMatrix matrix = ratingMatrix;
+        if (related.isEmpty() && matrix != null) {
+            related = matrix.topSimilar(mediaId, limit);
+        }
+        return loadMedia(related);
+    }
+
+    // Neu aufgebaute Matrix übernehmen (null = ohne Fallback)
+    public void useRatingMatrix(RatingMatrix matrix) {
+        this.ratingMatrix = matrix;
+    }
+
+    // Content-basiert: Genres der Favoriten + Lieblingsgenre aus dem Profil
+    // Signierte Tokens liefern nur ID und Username - fehlt das Lieblingsgenre, wird das Profil nachgeladen
+    private List<ScoredItem> rankByContent(User user, int limit) throws SQLException {
+        List<Integer> favorites = databaseBreaker.call(() -> ratingRepository.getFavoriteMediaIds(user.getId()));
+        String favoriteGenre = user.getFavoriteGenre();
+        if (favoriteGenre == null) {
+            favoriteGenre = databaseBreaker.call(() -> userRepository.findById(user.getId()))
+                    .map(User::getFavoriteGenre).orElse(null);
+        }
+        return contentIndex.recommend(favoriteGenre, favorites, limit);
+    }
+
+    private void checkLimit(int limit) {
+        if (limit <= 0 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_LIMIT);
+        }
+    }
+
+    // Rangfolge beibehalten, Details in einem Round-Trip laden
+    private List<MediaEntry> loadMedia(List<ScoredItem> ranked) throws SQLException {
+        List<Integer> ids = new ArrayList<>(ranked.size());
+        for (ScoredItem item : ranked) {
+            ids.add(item.mediaId());
+        }
+        return databaseBreaker.call(() -> mediaRepository.findByIds(ids));
+    }
+}
@@ -0,0 +1,245 @@
+package org.example.service;
+
+import org.example.database.CircuitBreaker;
+import org.example.model.Rating;
+import org.example.model.UserStats;
+import org.example.repository.RatingListener;
+import org.example.repository.UserRepository;
+import org.example.repository.UserStatsRepository;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Service-Layer für Profil-Statistiken
+// Pflegt die Projektion user_stats über Rating-/Favoriten-Events und hält gelesene Profile im Speicher,
+// ein Profilaufruf ist damit ein Map-Lookup (beim ersten Mal eine Abfrage)
+public class UserStatsService implements RatingListener {
+    private static final Logger LOGGER = Logger.getLogger(UserStatsService.class.getName());
+
+    private final UserStatsRepository userStatsRepository;
+    private final UserRepository userRepository;
+    private final CircuitBreaker databaseBreaker;
+    private final Map<Integer, UserStats> cache = new ConcurrentHashMap<>();
+    // Zählt Beginn und Ende jedes Writes; ein Ladevorgang cached nur, wenn beim Start kein Write lief und seitdem
+    // keiner begonnen oder geendet hat (sonst evtl. alter Stand oder ein Delta doppelt).
+    // Hochzählen und Prüfen+Einfügen laufen unter demselben Lock (ohne I/O darin)
+    private final Object generationLock = new Object();
+    private long writeGeneration;
+    private int writesInFlight;
+    // User, deren Delta nicht geschrieben werden konnte; werden per reconcileDirty() aus den Rohdaten neu berechnet
+    private final Set<Integer> dirtyUsers = ConcurrentHashMap.newKeySet();
+
+    public UserStatsService(UserStatsRepository userStatsRepository, UserRepository userRepository) {
+        this(userStatsRepository, userRepository, new CircuitBreaker());
+    }
+
+    public UserStatsService(UserStatsRepository userStatsRepository, UserRepository userRepository,
+                            CircuitBreaker databaseBreaker) {
+        this.userStatsRepository = userStatsRepository;
+        this.userRepository = userRepository;
+        this.databaseBreaker = databaseBreaker;
+    }
+
+    // Statistik eines Users, leer wenn der User nicht existiert
+    public Optional<UserStats> getStats(int userId) throws SQLException {
+        UserStats cached = cache.get(userId);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        long generation;
+        boolean cacheable;
+        synchronized (generationLock) {
+            generation = writeGeneration;
+            cacheable = writesInFlight == 0;
+        }
+        Optional<UserStats> loaded = databaseBreaker.call(() -> userStatsRepository.findByUserId(userId));
+        if (loaded.isEmpty()) {
+            // Keine Zeile = User ohne Aktivität (oder gar nicht vorhanden)
+            if (databaseBreaker.call(() -> userRepository.findById(userId)).isEmpty()) {
+                return Optional.empty();
+            }
+            loaded = Optional.of(UserStats.empty(userId));
+        }
+        synchronized (generationLock) {
+            if (cacheable && writeGeneration == generation) {
+                cache.putIfAbsent(userId, loaded.get());
+            }
+        }
+        return loaded;
+    }
+
+    // Eintrag verwerfen, weil er auf einem anderen Knoten geändert wurde; der nächste Aufruf lädt neu
+    public void evict(int userId) {
+        synchronized (generationLock) {
+            writeGeneration++;
+            cache.remove(userId);
+        }
+    }
+
+    public void evictAll() {
+        synchronized (generationLock) {
+            writeGeneration++;
+            cache.clear();
+        }
+    }
+
+    /**
+     * Berechnet die User neu, deren Delta fehlgeschlagen ist. Wer dabei wieder scheitert, bleibt vorgemerkt.
+     *
+     * @return Anzahl abgeglichener User
+     */
+    public int reconcileDirty() {
+        int reconciled = 0;
+        for (Integer userId : List.copyOf(dirtyUsers)) {
+            try {
+                databaseBreaker.call(() -> {
+                    userStatsRepository.reconcile(userId);
+                    return null;
+                });
+                dirtyUsers.remove(userId);
+                evict(userId);
+                reconciled++;
+            } catch (SQLException e) {
+                LOGGER.log(Level.WARNING, "Failed to reconcile user stats for user " + userId, e);
+            }
+        }
+        return reconciled;
+    }
+
+    // Alle User aus den Rohdaten neu berechnen (beim Start und periodisch gegen schleichende Abweichungen)
+    public void reconcileAll() throws SQLException {
+        databaseBreaker.call(() -> {
+            userStatsRepository.reconcile(null);
+            return null;
+        });
+        dirtyUsers.clear();
+        evictAll();
+    }
+
+    @Override
+    public void onRatingSaved(Rating rating) {
+        if (rating.getUserId() != null && rating.getMediaId() != null && rating.getStars() != null) {
+            apply(rating.getUserId(), rating.getMediaId(), 1, rating.getStars(), 0);
+        }
+    }
+
+    @Override
+    public void onRatingUpdated(Rating rating, int previousStars) {
+        if (rating.getUserId() != null && rating.getMediaId() != null && rating.getStars() != null
+                && rating.getStars() != previousStars) {
+            apply(rating.getUserId(), rating.getMediaId(), 0, rating.getStars() - previousStars, 0);
+        }
+    }
+
+    // Batch aus der Rating-Ingestion: ein Statement für alle Deltas statt eines pro Rating
+    @Override
+    public void onRatingsUpserted(List<Upsert> upserts) {
+        List<UserStatsRepository.Delta> deltas = new ArrayList<>(upserts.size());
+        for (Upsert upsert : upserts) {
+            Rating rating = upsert.rating();
+            if (rating.getUserId() == null || rating.getMediaId() == null || rating.getStars() == null) {
+                continue;
+            }
+            if (upsert.previousStars() == null) {
+                deltas.add(new UserStatsRepository.Delta(rating.getUserId(), rating.getMediaId(), 1,
+                        rating.getStars(), 0));
+            } else if (rating.getStars() != upsert.previousStars().intValue()) {
+                deltas.add(new UserStatsRepository.Delta(rating.getUserId(), rating.getMediaId(), 0,
+                        rating.getStars() - upsert.previousStars(), 0));
+            }
+        }
+        if (!deltas.isEmpty()) {
+            applyAll(deltas);
+        }
+    }
+
+    @Override
+    public void onRatingDeleted(Rating rating) {
+        if (rating.getUserId() != null && rating.getMediaId() != null && rating.getStars() != null) {
+            apply(rating.getUserId(), rating.getMediaId(), -1, -rating.getStars(), 0);
+        }
+    }
+
+    @Override
+    public void onFavoriteAdded(int userId, int mediaId) {
+        apply(userId, mediaId, 0, 0, 1);
+    }
+
+    @Override
+    public void onFavoriteRemoved(int userId, int mediaId) {
+        apply(userId, mediaId, 0, 0, -1);
+    }
+
+    // Delta in der DB fortschreiben und denselben Delta auf einen gecachten Eintrag anwenden.
+    // Beginn und Ende des Writes zählen die Generation hoch: ein Ladevorgang, der sich mit dem Write überschneidet,
+    // wird nicht gecacht. Ein vorher gecachter Eintrag bekommt den Delta über computeIfPresent
+    private void apply(int userId, int mediaId, int ratingDelta, int starDelta, int favoriteDelta) {
+        synchronized (generationLock) {
+            writeGeneration++;
+            writesInFlight++;
+        }
+        List<String> genres = null;
+        try {
+            genres = databaseBreaker.call(
+                    () -> userStatsRepository.applyDelta(userId, mediaId, ratingDelta, starDelta, favoriteDelta));
+        } catch (SQLException e) {
+            // Projektion ist für diesen User jetzt ungenau - vormerken für den Abgleich aus den Rohdaten
+            dirtyUsers.add(userId);
+            LOGGER.log(Level.WARNING, "Failed to update user stats for user " + userId, e);
+        } finally {
+            List<String> writtenGenres = genres;
+            synchronized (generationLock) {
+                writeGeneration++;
+                writesInFlight--;
+                if (writtenGenres == null) {
+                    cache.remove(userId);
+                } else {
+                    cache.computeIfPresent(userId, (id, stats) -> stats
+                            .withRating(ratingDelta, starDelta, writtenGenres)
+                            .withFavorite(favoriteDelta, writtenGenres));
+                }
+            }
+        }
+    }
+
+    // Wie apply(), für mehrere Deltas mit einem Statement; schlägt es fehl, sind alle betroffenen User vorgemerkt
+    private void applyAll(List<UserStatsRepository.Delta> deltas) {
+        synchronized (generationLock) {
+            writeGeneration++;
+            writesInFlight++;
+        }
+        List<List<String>> genres = null;
+        try {
+            genres = databaseBreaker.call(() -> userStatsRepository.applyDeltas(deltas));
+        } catch (SQLException e) {
+            for (UserStatsRepository.Delta delta : deltas) {
+                dirtyUsers.add(delta.userId());
+            }
+            LOGGER.log(Level.WARNING, "Failed to update user stats for " + deltas.size() + " ratings", e);
+        } finally {
+            synchronized (generationLock) {
+                writeGeneration++;
+                writesInFlight--;
+                for (int k = 0; k < deltas.size(); k++) {
+                    UserStatsRepository.Delta delta = deltas.get(k);
+                    if (genres == null) {
+                        cache.remove(delta.userId());
+                    } else {
+                        List<String> writtenGenres = genres.get(k);
+                        cache.computeIfPresent(delta.userId(), (id, stats) -> stats
+                                .withRating(delta.ratingDelta(), delta.starDelta(), writtenGenres)
+                                .withFavorite(delta.favoriteDelta(), writtenGenres));
+                    }
+                }
+            }
+        }
+    }
+}
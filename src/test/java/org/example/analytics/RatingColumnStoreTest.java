@@ -0,0 +1,141 @@
+package org.example.analytics;
+
+import org.example.model.Rating;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the columnar in-memory rating store.
+ */
+class RatingColumnStoreTest {
+
+    private RatingColumnStore loadedStore() throws SQLException {
+        RatingColumnStore store = new RatingColumnStore();
+        store.load(handler -> {
+            handler.accept(1, 10, 5, 1_700_000_000_000L);
+            handler.accept(2, 10, 3, 1_700_000_001_000L);
+            handler.accept(1, 20, 4, 1_700_000_002_000L);
+            handler.accept(3, 10, 4, 1_700_000_003_000L);
+        });
+        return store;
+    }
+
+    /**
+     * Per-media averages and histograms are computed from the loaded columns.
+     */
+    @Test
+    void testLoad_AggregatesPerMedia() throws SQLException {
+        // Arrange
+        RatingColumnStore store = loadedStore();
+
+        // Act
+        double average = store.averageStars(10);
+        int[] histogram = store.histogram(10);
+
+        // Assert
+        assertEquals(4.0, average, 1e-9);
+        assertArrayEquals(new int[]{0, 0, 0, 1, 1, 1}, histogram);
+        assertTrue(Double.isNaN(store.averageStars(99)));
+        assertEquals(4, store.stats().ratings());
+    }
+
+    /**
+     * Saves are appended, updates change stars in place and deletes leave a tombstone.
+     */
+    @Test
+    void testEvents_AppendUpdateAndDelete() throws SQLException {
+        // Arrange
+        RatingColumnStore store = loadedStore();
+
+        // Act
+        store.onRatingSaved(new Rating(4, 20, 2, null));
+        store.onRatingUpdated(new Rating(1, 10, 1, null), 5);
+        store.onRatingDeleted(new Rating(1, 20, 4, null));
+
+        // Assert
+        assertEquals(2.0, store.averageStars(20), 1e-9);
+        assertEquals((1 + 3 + 4) / 3.0, store.averageStars(10), 1e-9);
+        RatingColumnStore.Stats stats = store.stats();
+        assertEquals(4, stats.ratings());
+        assertEquals(1, stats.tailRows());
+        assertEquals(1, stats.deletedRows());
+        assertArrayEquals(new int[]{0, 1, 1, 1, 1, 0}, stats.histogram());
+    }
+
+    /**
+     * A long tail of appended ratings is compacted into the sorted part without losing or duplicating rows.
+     */
+    @Test
+    void testCompaction_KeepsAllLiveRatings() throws SQLException {
+        // Arrange
+        RatingColumnStore store = loadedStore();
+        store.onRatingDeleted(new Rating(2, 10, 3, null));
+
+        // Act
+        for (int user = 100; user < 10_100; user++) {
+            store.onRatingSaved(new Rating(user, user % 7, 1 + user % 5, null));
+        }
+        store.onRatingUpdated(new Rating(150, 150 % 7, 5, null), 1);
+
+        // Assert
+        RatingColumnStore.Stats stats = store.stats();
+        assertEquals(10_003, stats.ratings());
+        assertEquals(0, stats.deletedRows());
+        assertTrue(stats.sortedRows() > 4, "tail should have been compacted");
+        assertEquals(4.5, store.averageStars(10), 1e-9);
+        long expectedSum = 0;
+        int expectedCount = 0;
+        for (int user = 100; user < 10_100; user++) {
+            if (user % 7 == 3) {
+                expectedSum += user == 150 ? 5 : 1 + user % 5;
+                expectedCount++;
+            }
+        }
+        assertEquals((double) expectedSum / expectedCount, store.averageStars(3), 1e-9);
+    }
+
+    /**
+     * A full scan returns every live rating with second-precision timestamps.
+     */
+    @Test
+    void testForEachRating_ReturnsLiveRows() throws SQLException {
+        // Arrange
+        RatingColumnStore store = loadedStore();
+        store.onRatingDeleted(new Rating(3, 10, 4, null));
+        List<long[]> rows = new ArrayList<>();
+
+        // Act
+        store.forEachRating((userId, mediaId, stars, timestamp) ->
+                rows.add(new long[]{userId, mediaId, stars, timestamp}));
+
+        // Assert
+        assertEquals(3, rows.size());
+        assertTrue(rows.stream().anyMatch(r -> r[0] == 2 && r[1] == 10 && r[2] == 3 && r[3] == 1_700_000_001_000L));
+        assertTrue(rows.stream().noneMatch(r -> r[0] == 3));
+    }
+
+    /**
+     * Deleting a media tombstones its remaining rows in the sorted part and in the tail.
+     */
+    @Test
+    void testOnMediaDeleted_TombstonesSortedAndTailRows() throws SQLException {
+        // Arrange
+        RatingColumnStore store = loadedStore();
+        store.onRatingSaved(new Rating(4, 10, 2, null));
+
+        // Act
+        store.onMediaDeleted(10);
+
+        // Assert
+        assertTrue(Double.isNaN(store.averageStars(10)));
+        assertEquals(1, store.stats().ratings());
+        List<Integer> media = new ArrayList<>();
+        store.forEachRating((userId, mediaId, stars, timestamp) -> media.add(mediaId));
+        assertEquals(List.of(20), media);
+    }
+}
@@ -0,0 +1,81 @@
+package org.example.auth;
+
+import org.example.cache.NegativeCache;
+import org.example.model.User;
+import org.example.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the DatabaseTokenStrategy's handling of the unknown-token cache.
+ */
+class DatabaseTokenStrategyTest {
+
+    private final AtomicLong clock = new AtomicLong(1_000_000);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final NegativeCache<String> unknownTokens = DatabaseTokenStrategy.newUnknownTokenCache(clock::get);
+    private final DatabaseTokenStrategy strategy = new DatabaseTokenStrategy(userRepository,
+            new SessionTable(clock::get), DatabaseTokenStrategy.DEFAULT_LIFETIME, clock::get, unknownTokens);
+
+    /**
+     * The hash matches PostgreSQL's encode(sha256(...), 'hex'), which the NOTIFY trigger sends.
+     */
+    @Test
+    void testTokenHash_MatchesSha256Hex() {
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad",
+                DatabaseTokenStrategy.tokenHash("abc"));
+    }
+
+    /**
+     * The cache is keyed by token hash: a miss is remembered under the hash, and an invalidation carrying
+     * the hash of a newly issued token clears it.
+     */
+    @Test
+    void testUnknownTokens_KeyedByHash() throws SQLException {
+        // Arrange
+        String token = "alice-mrpToken-1";
+        when(userRepository.findByToken(token)).thenReturn(Optional.empty());
+        strategy.validate(token);
+
+        // Act & Assert: the second lookup is answered from the miss cache, which only knows the hash
+        assertTrue(strategy.validate(token).isEmpty());
+        verify(userRepository, times(1)).findByToken(token);
+        assertFalse(unknownTokens.isKnownMissing(token));
+        assertTrue(unknownTokens.isKnownMissing(DatabaseTokenStrategy.tokenHash(token)));
+
+        // Another node issued the token: its NOTIFY payload carries only the hash
+        unknownTokens.added(DatabaseTokenStrategy.tokenHash(token));
+        assertFalse(unknownTokens.isKnownMissing(DatabaseTokenStrategy.tokenHash(token)));
+    }
+
+    /**
+     * A locally issued token is registered by hash, not in plaintext.
+     */
+    @Test
+    void testIssue_RegistersHash() throws SQLException {
+        // Arrange
+        when(userRepository.issueToken(anyInt(), anyString(), anyString(), any(LocalDateTime.class))).thenReturn(true);
+        String probe = "bob-mrpToken-probe";
+        when(userRepository.findByToken(anyString())).thenReturn(Optional.empty());
+        strategy.validate(probe);
+
+        // Act
+        String token = strategy.issue(new User(1, "bob", "hash"));
+
+        // Assert: issuing bumped the generation and the miss cache still holds only hashes
+        assertNotEquals(probe, token);
+        assertTrue(unknownTokens.isKnownMissing(DatabaseTokenStrategy.tokenHash(probe)));
+        assertFalse(unknownTokens.isKnownMissing(DatabaseTokenStrategy.tokenHash(token)));
+        assertEquals(1, unknownTokens.stats().missEntries());
+    }
+}
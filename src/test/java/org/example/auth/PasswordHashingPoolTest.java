@@ -0,0 +1,67 @@
+package org.example.auth;
+
+import org.example.exception.ServiceUnavailableException;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the PasswordHasher and the bounded PasswordHashingPool.
+ */
+class PasswordHashingPoolTest {
+
+    /**
+     * Hashes verify against the original password and record their cost for rehash detection.
+     */
+    @Test
+    void testHasher_VerifyAndRehash() {
+        PasswordHasher cheap = new PasswordHasher(1_000);
+        PasswordHasher stronger = new PasswordHasher(2_000);
+
+        String hash = cheap.hash("secret");
+
+        assertTrue(cheap.verify("secret", hash));
+        assertFalse(cheap.verify("wrong", hash));
+        assertFalse(cheap.needsRehash(hash));
+        assertTrue(stronger.needsRehash(hash));
+        // Legacy plaintext passwords still verify but must be rehashed
+        assertTrue(cheap.verify("secret", "secret"));
+        assertTrue(cheap.needsRehash("secret"));
+    }
+
+    /**
+     * A full queue rejects immediately with 503 instead of blocking the caller.
+     */
+    @Test
+    void testPool_RejectsWhenQueueFull() throws InterruptedException {
+        // Arrange: one worker blocked on a latch and one queue slot taken
+        PasswordHashingPool pool = new PasswordHashingPool(1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch running = new CountDownLatch(1);
+        Thread blocker = new Thread(() -> pool.call(() -> {
+            running.countDown();
+            return release.await(5, TimeUnit.SECONDS);
+        }));
+        blocker.start();
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        Thread queued = new Thread(() -> pool.call(() -> true));
+        queued.start();
+        while (pool.metrics().queued() == 0) {
+            Thread.onSpinWait();
+        }
+
+        // Act & Assert
+        ServiceUnavailableException e = assertThrows(ServiceUnavailableException.class, () -> pool.call(() -> true));
+        assertEquals(1, e.getRetryAfterSeconds());
+        assertEquals(1, pool.metrics().rejected());
+
+        release.countDown();
+        blocker.join();
+        queued.join();
+        assertEquals(2, pool.metrics().completed());
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,137 @@
+package org.example.auth;
+
+import org.example.model.User;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the TimingWheel and the SessionTable built on top of it.
+ */
+class SessionTableTest {
+
+    private static final class TestTimer extends TimingWheel.Timer {
+        final int id;
+
+        TestTimer(int id) {
+            this.id = id;
+        }
+    }
+
+    /**
+     * Timers expire at their deadline, including delays longer than one wheel revolution.
+     */
+    @Test
+    void testWheel_ExpiresAtDeadline() {
+        // Arrange: 8 slots of 10 ms = 80 ms per revolution
+        TimingWheel<TestTimer> wheel = new TimingWheel<>(8, 10, 0);
+        List<Integer> expired = new ArrayList<>();
+        wheel.schedule(new TestTimer(1), 30);
+        wheel.schedule(new TestTimer(2), 250);
+
+        // Act & Assert
+        wheel.advance(29, timer -> expired.add(timer.id));
+        assertTrue(expired.isEmpty());
+        wheel.advance(30, timer -> expired.add(timer.id));
+        assertEquals(List.of(1), expired);
+        wheel.advance(249, timer -> expired.add(timer.id));
+        assertEquals(List.of(1), expired);
+        wheel.advance(250, timer -> expired.add(timer.id));
+        assertEquals(List.of(1, 2), expired);
+        assertEquals(0, wheel.size());
+    }
+
+    /**
+     * Cancelled timers never fire.
+     */
+    @Test
+    void testWheel_Cancel() {
+        TimingWheel<TestTimer> wheel = new TimingWheel<>(8, 10, 0);
+        TestTimer timer = new TestTimer(1);
+        wheel.schedule(timer, 20);
+
+        assertTrue(wheel.cancel(timer));
+        assertFalse(wheel.cancel(timer));
+        assertEquals(0, wheel.advance(100, t -> fail("cancelled timer fired")));
+    }
+
+    /**
+     * Sessions are returned until they expire and are reclaimed by the tick afterwards.
+     */
+    @Test
+    void testSessionTable_Expiry() {
+        // Arrange
+        AtomicLong clock = new AtomicLong(0);
+        SessionTable sessions = new SessionTable(4, 100, clock::get);
+        User alice = new User(1, "alice", null);
+        sessions.put("token-a", alice, 1_000);
+        sessions.put("token-b", new User(2, "bob", null), 5_000);
+
+        // Act & Assert
+        assertSame(alice, sessions.get("token-a"));
+        clock.set(1_000);
+        assertNull(sessions.get("token-a"));
+        assertEquals(1, sessions.expire());
+        assertEquals(1, sessions.size());
+
+        sessions.remove("token-b");
+        assertNull(sessions.get("token-b"));
+        clock.set(10_000);
+        assertEquals(0, sessions.expire());
+    }
+
+    /**
+     * All sessions of one user can be dropped at once, e.g. after a logout on another node.
+     */
+    @Test
+    void testRemoveUser_DropsAllSessionsOfUser() {
+        // Arrange
+        AtomicLong clock = new AtomicLong(0);
+        SessionTable table = new SessionTable(4, 1000, clock::get);
+        User alice = new User();
+        alice.setId(1);
+        User bob = new User();
+        bob.setId(2);
+        table.put("alice-1", alice, 60_000);
+        table.put("alice-2", alice, 60_000);
+        table.put("bob-1", bob, 60_000);
+
+        // Act
+        int removed = table.removeUser(1);
+
+        // Assert
+        assertEquals(2, removed);
+        assertNull(table.get("alice-1"));
+        assertNull(table.get("alice-2"));
+        assertSame(bob, table.get("bob-1"));
+        assertEquals(1, table.size());
+    }
+
+    /**
+     * The per-user index follows expiry and re-login, so removeUser only touches live sessions.
+     */
+    @Test
+    void testRemoveUser_IndexFollowsExpiryAndRelogin() {
+        // Arrange
+        AtomicLong clock = new AtomicLong(0);
+        SessionTable table = new SessionTable(4, 100, clock::get);
+        User alice = new User(1, "alice", null);
+        table.put("old", alice, 1_000);
+        clock.set(1_000);
+        table.expire();
+        table.put("new", alice, 60_000);
+
+        // Act
+        int removed = table.removeUser(1);
+
+        // Assert
+        assertEquals(1, removed);
+        assertNull(table.get("new"));
+        assertEquals(0, table.size());
+        assertEquals(0, table.removeUser(1));
+    }
+}
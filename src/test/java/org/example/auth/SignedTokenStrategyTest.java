@@ -0,0 +1,94 @@
+package org.example.auth;
+
+import org.example.model.User;
+import org.example.repository.TokenRevocationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit tests for the SignedTokenStrategy and its deny-list.
+ */
+class SignedTokenStrategyTest {
+
+    private final AtomicLong clock = new AtomicLong(1_000_000L);
+    private TokenRevocationRepository revocationRepository;
+    private SignedTokenStrategy strategy;
+
+    @BeforeEach
+    void setUp() {
+        byte[] secret = new byte[32];
+        Arrays.fill(secret, (byte) 7);
+        revocationRepository = mock(TokenRevocationRepository.class);
+        TokenDenyList denyList = new TokenDenyList(revocationRepository, Duration.ofHours(1).toMillis(), clock::get);
+        strategy = new SignedTokenStrategy(secret, Duration.ofHours(1), denyList, clock::get);
+    }
+
+    /**
+     * An issued token validates without a database and carries ID and username.
+     */
+    @Test
+    void testValidate_IssuedToken() {
+        String token = strategy.issue(new User(42, "alice", "pw"));
+
+        Optional<User> user = strategy.validate(token);
+
+        assertTrue(user.isPresent());
+        assertEquals(42, user.get().getId());
+        assertEquals("alice", user.get().getUsername());
+    }
+
+    /**
+     * A token with a modified payload or signature is rejected.
+     */
+    @Test
+    void testValidate_TamperedToken() {
+        String token = strategy.issue(new User(42, "alice", "pw"));
+        String forged = strategy.issue(new User(1, "admin", "pw"));
+        String payloadOfForged = forged.substring(0, forged.lastIndexOf('.'));
+        String signatureOfOriginal = token.substring(token.lastIndexOf('.'));
+
+        assertTrue(strategy.validate(payloadOfForged + signatureOfOriginal).isEmpty());
+        assertTrue(strategy.validate("v1.not-base64!.x").isEmpty());
+        assertTrue(strategy.validate("alice-mrpToken-123").isEmpty());
+    }
+
+    /**
+     * Tokens expire after their lifetime.
+     */
+    @Test
+    void testValidate_ExpiredToken() {
+        String token = strategy.issue(new User(42, "alice", "pw"));
+
+        clock.addAndGet(Duration.ofHours(1).toMillis());
+
+        assertTrue(strategy.validate(token).isEmpty());
+    }
+
+    /**
+     * Logout revokes all earlier tokens immediately; tokens issued afterwards stay valid.
+     */
+    @Test
+    void testRevoke_DeniesEarlierTokens() throws SQLException {
+        User user = new User(42, "alice", "pw");
+        String before = strategy.issue(user);
+        clock.incrementAndGet();
+
+        strategy.revoke(user);
+        clock.incrementAndGet();
+        String after = strategy.issue(user);
+
+        assertTrue(strategy.validate(before).isEmpty());
+        assertTrue(strategy.validate(after).isPresent());
+        verify(revocationRepository).revokeBefore(42, clock.get() - 1);
+    }
+}
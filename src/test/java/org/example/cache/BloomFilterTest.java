@@ -0,0 +1,53 @@
+package org.example.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the BloomFilter.
+ */
+class BloomFilterTest {
+
+    /**
+     * Every inserted key is reported as possibly contained.
+     */
+    @Test
+    void testMightContain_NoFalseNegatives() {
+        // Arrange
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+
+        // Act
+        for (int id = 1; id <= 10_000; id++) {
+            filter.put(id);
+        }
+
+        // Assert
+        for (int id = 1; id <= 10_000; id++) {
+            assertTrue(filter.mightContain(id), "missing id " + id);
+        }
+    }
+
+    /**
+     * The false-positive rate for keys never inserted stays close to the configured rate.
+     */
+    @Test
+    void testMightContain_FalsePositiveRateNearTarget() {
+        // Arrange
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put(BloomFilter.hash("user-mrpToken-" + i));
+        }
+
+        // Act
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain(BloomFilter.hash("scraper-" + i))) {
+                falsePositives++;
+            }
+        }
+
+        // Assert: 1 % target, allow some slack
+        assertTrue(falsePositives < 2_000, "false positives: " + falsePositives);
+    }
+}
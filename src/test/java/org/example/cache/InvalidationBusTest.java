@@ -0,0 +1,108 @@
+package org.example.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for InvalidationBus message handling and the version-stamp fallback.
+ * The LISTEN connection itself is not started here.
+ */
+class InvalidationBusTest {
+
+    private final Map<String, Long> dbVersions = new HashMap<>();
+    private final List<String> evictedKeys = new ArrayList<>();
+    private final AtomicInteger resyncs = new AtomicInteger();
+    private final InvalidationBus bus = new InvalidationBus(() -> {
+        throw new SQLException("not used");
+    }, () -> new HashMap<>(dbVersions));
+
+    InvalidationBusTest() {
+        bus.subscribe("media", evictedKeys::add, resyncs::incrementAndGet);
+    }
+
+    /**
+     * Notifications are routed to the subscribers of their topic only.
+     */
+    @Test
+    void testHandle_EvictsKeyOfMatchingTopic() {
+        // Act
+        bus.handle("media|1|42");
+        bus.handle("session|1|7");
+        bus.handle("media|2|43");
+
+        // Assert
+        assertEquals(List.of("42", "43"), evictedKeys);
+        assertEquals(0, resyncs.get());
+    }
+
+    /**
+     * Sequence versions may have gaps (rolled-back writes) and arrive out of commit order; neither is a resync.
+     */
+    @Test
+    void testHandle_GapsAndReorderingAreNotAResync() {
+        // Act
+        bus.handle("media|1|42");
+        bus.handle("media|5|43");
+        bus.handle("media|4|44");
+
+        // Assert
+        assertEquals(List.of("42", "43", "44"), evictedKeys);
+        assertEquals(0, resyncs.get());
+    }
+
+    /**
+     * A version that shows up in the database but never arrives as a notification is resynced at the second check.
+     */
+    @Test
+    void testCheckVersions_ResyncsMissedVersionAfterOnePeriod() throws SQLException {
+        // Arrange
+        bus.handle("media|1|42");
+        dbVersions.put("media", 2L);
+
+        // Act & Assert: the first check gives the notification time to arrive
+        assertEquals(0, bus.checkVersions());
+        assertEquals(1, bus.checkVersions());
+        assertEquals(1, resyncs.get());
+        // Once resynced, the same version is not reported again
+        assertEquals(0, bus.checkVersions());
+    }
+
+    /**
+     * A version whose notification arrives between two checks does not cause a resync.
+     */
+    @Test
+    void testCheckVersions_LateNotificationIsNotAResync() throws SQLException {
+        // Arrange
+        bus.handle("media|1|42");
+        dbVersions.put("media", 2L);
+
+        // Act
+        bus.checkVersions();
+        bus.handle("media|2|43");
+        int resynced = bus.checkVersions();
+
+        // Assert
+        assertEquals(0, resynced);
+        assertEquals(0, resyncs.get());
+    }
+
+    /**
+     * Malformed payloads are ignored.
+     */
+    @Test
+    void testHandle_IgnoresMalformedPayload() {
+        bus.handle("media");
+        bus.handle("media|x|42");
+
+        assertTrue(evictedKeys.isEmpty());
+        assertEquals(0, bus.stats().resyncs());
+    }
+}
@@ -0,0 +1,166 @@
+package org.example.cache;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the memory-mapped MappedArenaCache.
+ */
+class MappedArenaCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * A stored value is returned for the same version and rejected for any other version.
+     */
+    @Test
+    void testGet_RequiresMatchingVersion() throws IOException {
+        // Arrange
+        try (MappedArenaCache cache = new MappedArenaCache(tempDir.resolve("l2.bin"), 16, 4096)) {
+            cache.put(7, 3, bytes("matrix"));
+
+            // Act & Assert
+            assertArrayEquals(bytes("matrix"), cache.get(7, 3));
+            assertNull(cache.get(7, 4));
+            // The stale entry was dropped, so the old version is gone as well
+            assertNull(cache.get(7, 3));
+            assertEquals(1, cache.stats().hits());
+            assertEquals(1, cache.stats().stale());
+            assertEquals(0, cache.stats().entries());
+        }
+    }
+
+    /**
+     * The latest entry is available regardless of version, without dropping it from the index.
+     */
+    @Test
+    void testGetLatest_IgnoresVersion() throws IOException {
+        // Arrange
+        try (MappedArenaCache cache = new MappedArenaCache(tempDir.resolve("l2.bin"), 16, 4096)) {
+            long before = System.currentTimeMillis();
+            cache.put(7, 3, bytes("matrix"));
+
+            // Act
+            MappedArenaCache.Entry entry = cache.getLatest(7);
+
+            // Assert
+            assertEquals(3, entry.version());
+            assertArrayEquals(bytes("matrix"), entry.value());
+            assertTrue(entry.writtenAtMillis() >= before);
+            assertArrayEquals(bytes("matrix"), cache.get(7, 3));
+            assertNull(cache.getLatest(8));
+        }
+    }
+
+    /**
+     * Once the ring buffer wraps, the oldest entries are no longer readable while recent ones still are.
+     */
+    @Test
+    void testPut_RingOverwritesOldestEntries() throws IOException {
+        // Arrange: 4 KiB arena, 100-byte values plus record header
+        try (MappedArenaCache cache = new MappedArenaCache(tempDir.resolve("l2.bin"), 256, 4096)) {
+            byte[] value = new byte[100];
+
+            // Act
+            for (int key = 1; key <= 100; key++) {
+                value[0] = (byte) key;
+                assertTrue(cache.put(key, 1, value));
+            }
+
+            // Assert
+            assertNull(cache.get(1, 1));
+            byte[] latest = cache.get(100, 1);
+            assertNotNull(latest);
+            assertEquals(100, latest[0]);
+        }
+    }
+
+    /**
+     * Entries survive closing and reopening the file with the same configuration.
+     */
+    @Test
+    void testReopen_KeepsEntries() throws IOException {
+        // Arrange
+        Path file = tempDir.resolve("l2.bin");
+        try (MappedArenaCache cache = new MappedArenaCache(file, 16, 4096)) {
+            cache.put(1, 2, bytes("dune"));
+            cache.put(2, 1, bytes("alien"));
+            cache.remove(2);
+        }
+
+        // Act
+        try (MappedArenaCache reopened = new MappedArenaCache(file, 16, 4096)) {
+            // Assert
+            assertArrayEquals(bytes("dune"), reopened.get(1, 2));
+            assertNull(reopened.get(2, 1));
+            assertEquals(1, reopened.stats().entries());
+        }
+    }
+
+    /**
+     * A file written with a different layout is reinitialized instead of being misread.
+     */
+    @Test
+    void testReopen_DifferentLayoutStartsEmpty() throws IOException {
+        // Arrange
+        Path file = tempDir.resolve("l2.bin");
+        try (MappedArenaCache cache = new MappedArenaCache(file, 16, 4096)) {
+            cache.put(1, 1, bytes("dune"));
+        }
+
+        // Act
+        try (MappedArenaCache reopened = new MappedArenaCache(file, 32, 4096)) {
+            // Assert
+            assertNull(reopened.get(1, 1));
+            assertEquals(0, reopened.stats().entries());
+        }
+    }
+
+    /**
+     * A record whose bytes were damaged on disk fails the checksum and is treated as a miss.
+     */
+    @Test
+    void testGet_CorruptedRecordIsRejected() throws IOException {
+        // Arrange
+        Path file = tempDir.resolve("l2.bin");
+        try (MappedArenaCache cache = new MappedArenaCache(file, 16, 4096)) {
+            cache.put(1, 1, bytes("dune"));
+        }
+        byte[] content = Files.readAllBytes(file);
+        // Header (64) + 16 slots * 24 bytes, then the record header, then the value
+        content[64 + 16 * 24 + MappedArenaCache.RECORD_HEADER_BYTES] ^= 0x7F;
+        Files.write(file, content);
+
+        // Act
+        try (MappedArenaCache reopened = new MappedArenaCache(file, 16, 4096)) {
+            // Assert
+            assertNull(reopened.get(1, 1));
+            assertEquals(1, reopened.stats().stale());
+        }
+    }
+
+    /**
+     * Values larger than a quarter of the arena are not stored.
+     */
+    @Test
+    void testPut_OversizedValueIsRejected() throws IOException {
+        // Arrange
+        try (MappedArenaCache cache = new MappedArenaCache(tempDir.resolve("l2.bin"), 16, 4096)) {
+            // Act & Assert
+            assertFalse(cache.put(1, 1, new byte[2048]));
+            assertNull(cache.get(1, 1));
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,109 @@
+package org.example.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the NegativeCache (Bloom filter of existing keys plus short-lived miss cache).
+ */
+class NegativeCacheTest {
+
+    private final AtomicLong clock = new AtomicLong(1_000_000);
+
+    private NegativeCache<Integer> newCache() {
+        return new NegativeCache<>(Integer::longValue, 100, 30_000, clock::get);
+    }
+
+    /**
+     * Once the filter is loaded, keys that were never added are rejected, existing ones are not.
+     */
+    @Test
+    void testIsKnownMissing_FilterRejectsUnknownKeys() throws SQLException {
+        // Arrange
+        NegativeCache<Integer> cache = newCache();
+        cache.rebuild(() -> List.of(1, 2, 3));
+
+        // Act & Assert
+        assertFalse(cache.isKnownMissing(2));
+        assertTrue(cache.isKnownMissing(999_999));
+        assertEquals(1, cache.stats().rejectedByFilter());
+    }
+
+    /**
+     * A recorded miss is answered from the cache until its TTL expires.
+     */
+    @Test
+    void testRecordMiss_ExpiresAfterTtl() {
+        // Arrange
+        NegativeCache<Integer> cache = newCache();
+        cache.recordMiss(7, cache.generation());
+
+        // Act & Assert
+        assertTrue(cache.isKnownMissing(7));
+        clock.addAndGet(30_000);
+        assertFalse(cache.isKnownMissing(7));
+    }
+
+    /**
+     * Adding a key makes it visible immediately and discards a miss recorded by a slower concurrent reader.
+     */
+    @Test
+    void testAdded_WinsOverConcurrentMiss() throws SQLException {
+        // Arrange: reader starts its lookup, then the key is created
+        NegativeCache<Integer> cache = newCache();
+        cache.rebuild(List::of);
+        long readerGeneration = cache.generation();
+        cache.added(42);
+
+        // Act: reader finishes with its outdated "not found"
+        cache.recordMiss(42, readerGeneration);
+
+        // Assert
+        assertFalse(cache.isKnownMissing(42));
+    }
+
+    /**
+     * Keys added while the filter is being rebuilt end up in the new filter.
+     */
+    @Test
+    void testRebuild_KeepsKeysAddedDuringLoad() throws SQLException {
+        // Arrange
+        NegativeCache<Integer> cache = newCache();
+
+        // Act
+        cache.rebuild(() -> {
+            cache.added(5);
+            return List.of(1);
+        });
+
+        // Assert
+        assertFalse(cache.isKnownMissing(1));
+        assertFalse(cache.isKnownMissing(5));
+        assertEquals(2, cache.stats().filterKeys());
+    }
+
+    /**
+     * After missed invalidations the filter is no longer trusted, and a rebuild racing with that is discarded.
+     */
+    @Test
+    void testDisableFilter_DropsFilterAndRunningRebuild() throws SQLException {
+        // Arrange
+        NegativeCache<Integer> cache = newCache();
+        cache.rebuild(() -> List.of(1));
+
+        // Act
+        cache.rebuild(() -> {
+            cache.disableFilter();
+            return List.of(1);
+        });
+
+        // Assert
+        assertFalse(cache.stats().filterLoaded());
+        assertFalse(cache.isKnownMissing(999));
+    }
+}
@@ -0,0 +1,88 @@
+package org.example.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the byte-bounded SegmentedLruCache.
+ */
+class SegmentedLruCacheTest {
+
+    /**
+     * Hits and misses are counted and reported as a hit rate.
+     */
+    @Test
+    void testGet_CountsHitsAndMisses() {
+        // Arrange
+        SegmentedLruCache<Integer, String> cache = new SegmentedLruCache<>(1_000, value -> 10);
+        cache.put(1, "a");
+
+        // Act
+        cache.get(1);
+        cache.get(1);
+        cache.get(2);
+
+        // Assert
+        SegmentedLruCache.Stats stats = cache.stats();
+        assertEquals(2, stats.hits());
+        assertEquals(1, stats.misses());
+        assertEquals(2.0 / 3, stats.hitRate(), 1e-9);
+        assertEquals(10, stats.weightBytes());
+    }
+
+    /**
+     * The total weight never exceeds the bound; entries read twice survive a scan of one-off entries.
+     */
+    @Test
+    void testPut_ScanDoesNotEvictFrequentEntries() {
+        // Arrange: room for 10 entries of 10 bytes
+        SegmentedLruCache<Integer, String> cache = new SegmentedLruCache<>(100, value -> 10);
+        cache.put(1, "hot");
+        cache.get(1);
+
+        // Act: scan through 50 entries that are never read again
+        for (int i = 100; i < 150; i++) {
+            cache.put(i, "cold");
+        }
+
+        // Assert
+        assertEquals("hot", cache.get(1));
+        assertNull(cache.get(100));
+        assertTrue(cache.stats().weightBytes() <= 100);
+        assertEquals(41, cache.stats().evictions());
+    }
+
+    /**
+     * Entries larger than the whole cache are not stored.
+     */
+    @Test
+    void testPut_OversizedEntryIsSkipped() {
+        SegmentedLruCache<Integer, String> cache = new SegmentedLruCache<>(100, String::length);
+
+        cache.put(1, "x".repeat(101));
+
+        assertNull(cache.get(1));
+        assertEquals(0, cache.stats().entries());
+    }
+
+    /**
+     * A value loaded before an invalidation is not cached afterwards.
+     */
+    @Test
+    void testPutIfUnchanged_RejectsValueLoadedBeforeInvalidation() {
+        // Arrange
+        SegmentedLruCache<Integer, String> cache = new SegmentedLruCache<>(1_000, value -> 10);
+        long generation = cache.generation();
+
+        // Act: a writer invalidates while the reader is still loading
+        cache.invalidate(1);
+        boolean stored = cache.putIfUnchanged(1, "stale", generation);
+
+        // Assert
+        assertFalse(stored);
+        assertNull(cache.get(1));
+        assertTrue(cache.putIfUnchanged(1, "fresh", cache.generation()));
+        assertEquals("fresh", cache.get(1));
+    }
+}
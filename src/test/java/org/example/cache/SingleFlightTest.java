@@ -0,0 +1,153 @@
+package org.example.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for SingleFlight request coalescing.
+ */
+class SingleFlightTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Concurrent callers with the same key share a single load and all receive its result.
+     */
+    @Test
+    void testLoad_ConcurrentCallersShareOneLoad() throws Exception {
+        // Arrange: the loader blocks until every caller has joined
+        SingleFlight<Integer, String> flight = new SingleFlight<>();
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        SingleFlight.Loader<String> loader = () -> {
+            calls.incrementAndGet();
+            await(release);
+            return "media-1";
+        };
+
+        // Act
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            results.add(executor.submit(() -> flight.load(1, loader)));
+        }
+        waitUntil(() -> flight.stats().shared() == 7);
+        release.countDown();
+
+        // Assert
+        for (Future<String> result : results) {
+            assertEquals("media-1", result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, calls.get());
+        assertEquals(1, flight.stats().loads());
+    }
+
+    /**
+     * A failing load reaches every waiter, and the next call loads again.
+     */
+    @Test
+    void testLoad_ErrorPropagatesToWaiters() throws Exception {
+        // Arrange
+        SingleFlight<Integer, String> flight = new SingleFlight<>();
+        CountDownLatch release = new CountDownLatch(1);
+        SingleFlight.Loader<String> failing = () -> {
+            await(release);
+            throw new SQLException("connection reset", "08006");
+        };
+        Future<String> leader = executor.submit(() -> flight.load(1, failing));
+        waitUntil(() -> flight.stats().loads() == 1);
+        Future<String> follower = executor.submit(() -> flight.load(1, () -> "unused"));
+        waitUntil(() -> flight.stats().shared() == 1);
+
+        // Act
+        release.countDown();
+
+        // Assert
+        Exception leaderError = assertThrows(Exception.class, () -> leader.get(5, TimeUnit.SECONDS));
+        Exception followerError = assertThrows(Exception.class, () -> follower.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(SQLException.class, leaderError.getCause());
+        SQLException followerCause = assertInstanceOf(SQLException.class, followerError.getCause());
+        assertEquals("08006", followerCause.getSQLState());
+        assertEquals("fresh", flight.load(1, () -> "fresh"));
+    }
+
+    /**
+     * A waiter gives up after its timeout while the load itself keeps running.
+     */
+    @Test
+    void testLoad_WaiterTimesOut() throws Exception {
+        // Arrange
+        SingleFlight<Integer, String> flight = new SingleFlight<>(50);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> leader = executor.submit(() -> flight.load(1, () -> {
+            await(release);
+            return "slow";
+        }));
+        waitUntil(() -> flight.stats().loads() == 1);
+
+        // Act & Assert
+        assertThrows(SQLTimeoutException.class, () -> flight.load(1, () -> "unused"));
+        assertEquals(1, flight.stats().timeouts());
+        release.countDown();
+        assertEquals("slow", leader.get(5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * After forget() a new caller starts its own load instead of joining the running one.
+     */
+    @Test
+    void testForget_NextCallerLoadsAgain() throws Exception {
+        // Arrange
+        SingleFlight<Integer, String> flight = new SingleFlight<>();
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> leader = executor.submit(() -> flight.load(1, () -> {
+            await(release);
+            return "before write";
+        }));
+        waitUntil(() -> flight.stats().loads() == 1);
+
+        // Act
+        flight.forget(1);
+        String result = flight.load(1, () -> "after write");
+
+        // Assert
+        assertEquals("after write", result);
+        release.countDown();
+        assertEquals("before write", leader.get(5, TimeUnit.SECONDS));
+        assertEquals(2, flight.stats().loads());
+    }
+
+    private static void await(CountDownLatch latch) throws SQLException {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new SQLException(e);
+        }
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not reached in time");
+            Thread.sleep(1);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package org.example.database;
+
+import org.example.exception.CircuitOpenException;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the database CircuitBreaker, driven by a manual clock.
+ */
+class CircuitBreakerTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * Consecutive connection failures open the breaker; further calls fail fast without reaching the database.
+     */
+    @Test
+    void testCall_OpensAfterConsecutiveOutages() {
+        // Arrange
+        AtomicLong clock = new AtomicLong(1_000 * SECOND);
+        CircuitBreaker breaker = new CircuitBreaker(3, 10_000, clock::get);
+        AtomicInteger attempts = new AtomicInteger();
+        CircuitBreaker.Call<Void> failing = () -> {
+            attempts.incrementAndGet();
+            throw new SQLException("Connection refused", "08001");
+        };
+
+        // Act
+        for (int i = 0; i < 3; i++) {
+            assertThrows(SQLException.class, () -> breaker.call(failing));
+        }
+        CircuitOpenException rejected = assertThrows(CircuitOpenException.class, () -> breaker.call(failing));
+
+        // Assert
+        assertEquals(3, attempts.get());
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertEquals(10, rejected.getRetryAfterSeconds());
+        assertEquals(1, breaker.stats().rejected());
+    }
+
+    /**
+     * Business errors such as constraint violations do not count as outages.
+     */
+    @Test
+    void testCall_ConstraintViolationDoesNotOpen() {
+        // Arrange
+        CircuitBreaker breaker = new CircuitBreaker(1, 10_000, () -> 0L);
+
+        // Act
+        assertThrows(SQLException.class, () -> breaker.call(() -> {
+            throw new SQLException("duplicate key", "23505");
+        }));
+
+        // Assert
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        assertEquals(0, breaker.stats().failures());
+    }
+
+    /**
+     * After the open period a single probe is let through; success closes the breaker.
+     */
+    @Test
+    void testCall_HalfOpenProbeClosesOnSuccess() throws SQLException {
+        // Arrange
+        AtomicLong clock = new AtomicLong(1_000 * SECOND);
+        CircuitBreaker breaker = new CircuitBreaker(1, 10_000, clock::get);
+        assertThrows(SQLException.class, () -> breaker.call(() -> {
+            throw new SQLException("timeout", "57014");
+        }));
+
+        // Act
+        clock.addAndGet(10 * SECOND);
+        String result = breaker.call(() -> "ok");
+
+        // Assert
+        assertEquals("ok", result);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+    }
+
+    /**
+     * A failing probe opens the breaker for another full period.
+     */
+    @Test
+    void testCall_HalfOpenProbeReopensOnFailure() {
+        // Arrange
+        AtomicLong clock = new AtomicLong(1_000 * SECOND);
+        CircuitBreaker breaker = new CircuitBreaker(1, 10_000, clock::get);
+        CircuitBreaker.Call<Void> failing = () -> {
+            throw new SQLException("Connection reset", "08006");
+        };
+        assertThrows(SQLException.class, () -> breaker.call(failing));
+
+        // Act
+        clock.addAndGet(10 * SECOND);
+        assertThrows(SQLException.class, () -> breaker.call(failing));
+        clock.addAndGet(5 * SECOND);
+
+        // Assert
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertThrows(CircuitOpenException.class, () -> breaker.call(() -> "never"));
+        assertEquals(2, breaker.stats().opened());
+    }
+}
@@ -0,0 +1,129 @@
+package org.example.model;
+
+import org.junit.jupiter.api.Test;
+import org.openjdk.jol.info.GraphLayout;
+import org.openjdk.jol.vm.VM;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Unit tests for CompactMedia, the compact cache representation of a MediaEntry.
+ */
+class CompactMediaTest {
+
+    private MediaEntry entry(String type, List<String> genres, LocalDateTime createdAt) {
+        MediaEntry media = new MediaEntry();
+        media.setId(42);
+        media.setCreatorId(7);
+        media.setVersion(3);
+        media.setTitle("Amélie");
+        media.setDescription("A whimsical depiction of contemporary Parisian life");
+        media.setMediaType(type);
+        media.setReleaseYear(2001);
+        media.setAgeRestriction(12);
+        media.setAverageRating(4.5);
+        media.setGenres(genres);
+        media.setCreatedAt(createdAt);
+        return media;
+    }
+
+    private void assertSameContent(MediaEntry expected, MediaEntry actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getCreatorId(), actual.getCreatorId());
+        assertEquals(expected.getVersion(), actual.getVersion());
+        assertEquals(expected.getTitle(), actual.getTitle());
+        assertEquals(expected.getDescription(), actual.getDescription());
+        assertEquals(expected.getMediaType(), actual.getMediaType());
+        assertEquals(expected.getReleaseYear(), actual.getReleaseYear());
+        assertEquals(expected.getAgeRestriction(), actual.getAgeRestriction());
+        assertEquals(expected.getAverageRating(), actual.getAverageRating());
+        assertEquals(expected.getGenres(), actual.getGenres());
+        assertEquals(expected.getCreatedAt(), actual.getCreatedAt());
+    }
+
+    /**
+     * A typical entry survives the round trip unchanged, including microsecond timestamps.
+     */
+    @Test
+    void testRoundTrip_TypicalEntry() {
+        // Arrange
+        MediaEntry original = entry("movie", Arrays.asList("comedy", "romance"),
+                LocalDateTime.of(2024, 3, 1, 12, 30, 15, 123_456_000));
+
+        // Act
+        MediaEntry restored = CompactMedia.of(original).toMediaEntry();
+
+        // Assert
+        assertSameContent(original, restored);
+        assertNotSame(original, restored);
+    }
+
+    /**
+     * Values outside the compact encoding (unknown type, unusual genre order, nulls, wide ints) are preserved.
+     */
+    @Test
+    void testRoundTrip_FallbackFields() {
+        // Arrange
+        CompactMedia.of(entry("movie", List.of("test-first", "test-second"), null));
+        MediaEntry reversed = entry("Documentary", Arrays.asList("test-second", "test-first"), null);
+        reversed.setReleaseYear(100_000);
+        MediaEntry nulls = entry("series", null, null);
+        nulls.setTitle(null);
+        nulls.setDescription(null);
+
+        // Act
+        MediaEntry restoredReversed = CompactMedia.of(reversed).toMediaEntry();
+        MediaEntry restoredNulls = CompactMedia.of(nulls).toMediaEntry();
+
+        // Assert
+        assertSameContent(reversed, restoredReversed);
+        assertSameContent(nulls, restoredNulls);
+    }
+
+    /**
+     * Every restored entry is an independent copy; changing it does not affect the cached form.
+     */
+    @Test
+    void testToMediaEntry_ReturnsIndependentCopies() {
+        // Arrange
+        CompactMedia compact = CompactMedia.of(entry("game", List.of("action"), LocalDateTime.now()));
+
+        // Act
+        MediaEntry first = compact.toMediaEntry();
+        first.setTitle("changed");
+        MediaEntry second = compact.toMediaEntry();
+
+        // Assert
+        assertEquals("Amélie", second.getTitle());
+    }
+
+    /**
+     * Measured with JOL: the object graph the compact form keeps alive is markedly smaller than that of the
+     * MediaEntry it replaces, and both size models the cache budgets with match the measurement.
+     */
+    @Test
+    void testFootprint_CompactGraphIsSmaller() {
+        // Arrange
+        MediaEntry original = entry("movie", Arrays.asList("comedy", "romance", "drama"), LocalDateTime.now());
+        CompactMedia compact = CompactMedia.of(original);
+
+        // Act - the enum constant is shared by all entries and not part of the footprint
+        long entryBytes = GraphLayout.parseInstance(original).totalSize();
+        long compactBytes = GraphLayout.parseInstance(compact)
+                .subtract(GraphLayout.parseInstance(MediaType.fromValue("movie"))).totalSize();
+
+        // Assert
+        assertTrue(compactBytes * 10 <= entryBytes * 6,
+                "compact " + compactBytes + " bytes vs. entry " + entryBytes + " bytes");
+        // The models assume a 64-bit JVM with compressed references
+        assumeTrue(VM.current().sizeOfField("object") == 4 && VM.current().objectHeaderSize() == 12,
+                "size model assumes compressed references");
+        assertEquals(compactBytes, compact.estimateBytes());
+        assertEquals(entryBytes, CompactMedia.estimateBytes(original));
+    }
+}
@@ -0,0 +1,69 @@
+package org.example.ranking;
+
+import org.example.model.Rating;
+import org.example.repository.RatingRepository;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Unit tests for the ActiveUserLeaderboard.
+ */
+class ActiveUserLeaderboardTest {
+
+    /**
+     * Events update the counters and the heap keeps only the best users.
+     */
+    @Test
+    void testEvents_KeepTopUsers() {
+        // Arrange
+        ActiveUserLeaderboard leaderboard = new ActiveUserLeaderboard(2);
+
+        // Act
+        leaderboard.onRatingSaved(new Rating(1, 10, 4, null));
+        leaderboard.onRatingSaved(new Rating(2, 10, 3, null));
+        leaderboard.onRatingSaved(new Rating(3, 10, 5, null));
+        leaderboard.onCommentConfirmed(100, 10, 3);
+        leaderboard.onLikeAdded(101, 10, 2, 1);
+
+        // Assert
+        List<ActiveUserLeaderboard.Standing> top = leaderboard.top(10);
+        assertEquals(List.of(3, 2), top.stream().map(ActiveUserLeaderboard.Standing::userId).toList());
+        assertEquals(1, top.get(0).confirmedComments());
+        assertEquals(1, top.get(1).likesReceived());
+    }
+
+    /**
+     * Reconciling replaces the counters with the database state and keeps events recorded during the query.
+     */
+    @Test
+    void testReconcile_MergesPendingEvents() throws SQLException {
+        // Arrange
+        ActiveUserLeaderboard leaderboard = new ActiveUserLeaderboard();
+        leaderboard.onRatingSaved(new Rating(9, 10, 4, null));
+        RatingRepository repository = mock(RatingRepository.class);
+        doAnswer(invocation -> {
+            RatingRepository.UserActivityHandler handler = invocation.getArgument(0);
+            handler.accept(1, 5, 0, 0);
+            handler.accept(2, 1, 2, 0);
+            // Event arriving while the query runs
+            leaderboard.onRatingSaved(new Rating(2, 11, 5, null));
+            return null;
+        }).when(repository).forEachUserActivity(any());
+
+        // Act
+        leaderboard.reconcile(repository);
+
+        // Assert
+        List<ActiveUserLeaderboard.Standing> top = leaderboard.top(10);
+        assertEquals(List.of(1, 2), top.stream().map(ActiveUserLeaderboard.Standing::userId).toList());
+        assertEquals(2, top.get(1).ratings());
+        assertEquals(3.0, top.get(1).score(), 1e-9);
+    }
+}
@@ -0,0 +1,95 @@
+package org.example.ranking;
+
+import org.example.model.Rating;
+import org.example.repository.RatingRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Unit tests for the TopRatedLeaderboard.
+ */
+class TopRatedLeaderboardTest {
+
+    private TopRatedLeaderboard leaderboard;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        // Media 1: a classic with twenty 4-5 star ratings, media 2: a single 5 star rating
+        RatingRepository repository = mock(RatingRepository.class);
+        doAnswer(invocation -> {
+            RatingRepository.RatingRowHandler handler = invocation.getArgument(0);
+            for (int user = 1; user <= 20; user++) {
+                handler.accept(user, 1, user % 2 == 0 ? 5 : 4, 0L);
+            }
+            handler.accept(1, 2, 5, 0L);
+            handler.accept(2, 3, 2, 0L);
+            return null;
+        }).when(repository).forEachRating(any());
+
+        leaderboard = new TopRatedLeaderboard();
+        leaderboard.load(repository);
+    }
+
+    /**
+     * A single 5-star vote must not outrank a well-reviewed classic.
+     */
+    @Test
+    void testPage_BayesianOrder() {
+        List<TopRatedLeaderboard.Entry> top = leaderboard.page(0, 10);
+
+        assertEquals(List.of(1, 2, 3), top.stream().map(TopRatedLeaderboard.Entry::mediaId).toList());
+        assertEquals(20, top.get(0).ratingCount());
+    }
+
+    /**
+     * Paging skips the entries of the previous pages.
+     */
+    @Test
+    void testPage_SecondPage() {
+        List<TopRatedLeaderboard.Entry> second = leaderboard.page(1, 2);
+
+        assertEquals(1, second.size());
+        assertEquals(3, second.get(0).mediaId());
+    }
+
+    /**
+     * Rating events move entries incrementally, deletes remove them when no rating is left.
+     */
+    @Test
+    void testEvents_UpdateRanking() {
+        Rating rating = new Rating(2, 3, 5, null);
+        leaderboard.onRatingUpdated(rating, 2);
+        for (int user = 30; user < 60; user++) {
+            leaderboard.onRatingSaved(new Rating(user, 3, 5, null));
+        }
+        assertEquals(3, leaderboard.page(0, 1).get(0).mediaId());
+
+        leaderboard.onRatingDeleted(new Rating(1, 2, 5, null));
+        assertEquals(2, leaderboard.size());
+        assertTrue(leaderboard.page(0, 10).stream().noneMatch(entry -> entry.mediaId() == 2));
+    }
+
+    /**
+     * A media deletion without per-rating events drops the entry and its stars from the global mean.
+     */
+    @Test
+    void testOnMediaDeleted_RemovesEntryAndStars() {
+        // Act
+        leaderboard.onMediaDeleted(1);
+        leaderboard.onMediaDeleted(42);
+
+        // Assert - only media 2 (5 stars) and 3 (2 stars) remain, so the new prior is their mean
+        assertEquals(List.of(2, 3), leaderboard.page(0, 10).stream().map(TopRatedLeaderboard.Entry::mediaId).toList());
+        leaderboard.recalibrate();
+        double expected = (TopRatedLeaderboard.PRIOR_WEIGHT * 3.5 + 5) / (TopRatedLeaderboard.PRIOR_WEIGHT + 1);
+        assertEquals(expected, leaderboard.page(0, 1).get(0).score(), 1e-9);
+    }
+}
@@ -0,0 +1,78 @@
+package org.example.ranking;
+
+import org.example.model.MediaEntry;
+import org.example.model.Rating;
+import org.example.repository.MediaRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the TrendingTracker.
+ * A manual clock makes the exponential decay deterministic.
+ */
+class TrendingTrackerTest {
+
+    private final AtomicLong now = new AtomicLong(1_700_000_000_000L);
+    private MediaRepository mediaRepository;
+    private TrendingTracker tracker;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        mediaRepository = mock(MediaRepository.class);
+        // findByIds returns one MediaEntry per requested ID, keeping the order
+        when(mediaRepository.findByIds(anyList())).thenAnswer(invocation -> {
+            List<Integer> ids = invocation.getArgument(0);
+            List<MediaEntry> result = new ArrayList<>();
+            for (Integer id : ids) {
+                result.add(new MediaEntry(id, "Media " + id, null, "movie", 2020, List.of(), 0, 1));
+            }
+            return result;
+        });
+        tracker = new TrendingTracker(mediaRepository, Duration.ofHours(1), 2, now::get);
+    }
+
+    /**
+     * A score halves after one half-life.
+     */
+    @Test
+    void testScore_DecaysByHalfLife() {
+        tracker.onRatingSaved(new Rating(1, 10, 5, null));
+        tracker.onRatingSaved(new Rating(2, 10, 4, null));
+        assertEquals(2.0f, tracker.scoreOf(10), 0.001f);
+
+        now.addAndGet(Duration.ofHours(1).toMillis());
+
+        assertEquals(1.0f, tracker.scoreOf(10), 0.001f);
+    }
+
+    /**
+     * Recent activity outranks older activity, and the snapshot is limited to K entries.
+     */
+    @Test
+    void testRefresh_PublishesTopK() throws SQLException {
+        tracker.onRatingSaved(new Rating(1, 10, 5, null));
+        tracker.onRatingSaved(new Rating(2, 10, 5, null));
+        tracker.onRatingSaved(new Rating(3, 10, 5, null));
+        now.addAndGet(Duration.ofHours(3).toMillis());
+        tracker.onRatingSaved(new Rating(1, 20, 5, null));
+        tracker.onLikeAdded(7, 30, 1, 2);
+
+        tracker.refresh();
+
+        List<MediaEntry> trending = tracker.getTrending(10);
+        assertEquals(List.of(20, 30), trending.stream().map(MediaEntry::getId).toList());
+        // Reads come from the snapshot, not from the repository
+        tracker.getTrending(10);
+        verify(mediaRepository, times(1)).findByIds(anyList());
+    }
+}
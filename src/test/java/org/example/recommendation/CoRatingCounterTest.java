@@ -0,0 +1,135 @@
+package org.example.recommendation;
+
+import org.example.model.Rating;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the CoRatingCounter and its primitive pair map.
+ */
+class CoRatingCounterTest {
+
+    /**
+     * Media rated by the same users are related, ordered by the number of shared raters.
+     */
+    @Test
+    void testRelatedTo_OrdersBySharedRaters() {
+        CoRatingCounter counter = new CoRatingCounter(100, 5);
+        counter.onRatingSaved(new Rating(1, 10, 5, null));
+        counter.onRatingSaved(new Rating(1, 11, 4, null));
+        counter.onRatingSaved(new Rating(1, 12, 3, null));
+        counter.onRatingSaved(new Rating(2, 10, 5, null));
+        counter.onRatingSaved(new Rating(2, 11, 2, null));
+
+        List<ScoredItem> related = counter.relatedTo(10, 5);
+
+        assertEquals(List.of(11, 12), related.stream().map(ScoredItem::mediaId).toList());
+        assertEquals(2.0, related.get(0).score());
+    }
+
+    /**
+     * Deleting a rating decrements the shared counters again.
+     */
+    @Test
+    void testDelete_DecrementsPairs() {
+        CoRatingCounter counter = new CoRatingCounter(100, 5);
+        counter.onRatingSaved(new Rating(1, 10, 5, null));
+        counter.onRatingSaved(new Rating(1, 11, 4, null));
+
+        counter.onRatingDeleted(new Rating(1, 11, 4, null));
+
+        assertTrue(counter.relatedTo(10, 5).isEmpty());
+    }
+
+    /**
+     * A media that left the user's history window no longer counts, and deleting it later does not
+     * decrement pairs a second time.
+     */
+    @Test
+    void testHistoryWindow_EvictionReleasesPairs() {
+        CoRatingCounter counter = new CoRatingCounter(10_000, 5);
+        counter.addRating(2, 1);
+        counter.addRating(2, 2);
+        counter.addRating(1, 1);
+        counter.addRating(1, 2);
+        for (int media = 100; media < 100 + CoRatingCounter.MAX_HISTORY; media++) {
+            counter.addRating(1, media);
+        }
+
+        // Media 1 left user 1's window, only user 2 still links 1 and 2
+        assertEquals(1.0, counter.relatedTo(1, 5).get(0).score());
+        counter.removeRating(1, 1);
+        assertEquals(1.0, counter.relatedTo(1, 5).get(0).score());
+        counter.removeRating(2, 1);
+        assertTrue(counter.relatedTo(1, 5).isEmpty());
+    }
+
+    /**
+     * With a full sketch, rare pairs are evicted while heavy hitters survive.
+     */
+    @Test
+    void testSketch_KeepsHeavyHittersWithFixedCapacity() {
+        CoRatingCounter counter = new CoRatingCounter(4, 5);
+        // Pair (1, 2) is rated together by many users
+        for (int user = 1; user <= 10; user++) {
+            counter.addRating(user, 1);
+            counter.addRating(user, 2);
+        }
+        // Many one-off pairs compete for the remaining slots
+        for (int user = 100; user < 120; user++) {
+            counter.addRating(user, 1000 + user);
+            counter.addRating(user, 2000 + user);
+        }
+
+        assertEquals(2, counter.relatedTo(1, 5).get(0).mediaId());
+        assertTrue(counter.relatedTo(1, 5).get(0).score() >= 10);
+    }
+
+    /**
+     * Pair keys are symmetric and the map handles removals without breaking probe chains.
+     */
+    @Test
+    void testLongIntHashMap_PutGetRemove() {
+        assertEquals(CoRatingCounter.pack(3, 7), CoRatingCounter.pack(7, 3));
+
+        LongIntHashMap map = new LongIntHashMap(4);
+        for (int i = 0; i < 1000; i++) {
+            map.put(CoRatingCounter.pack(i, i + 1), i);
+        }
+        for (int i = 0; i < 1000; i += 2) {
+            assertTrue(map.remove(CoRatingCounter.pack(i, i + 1)));
+        }
+
+        assertEquals(500, map.size());
+        assertEquals(-1, map.get(CoRatingCounter.pack(0, 1), -1));
+        assertEquals(999, map.get(CoRatingCounter.pack(999, 1000), -1));
+    }
+
+    /**
+     * A slot taken over in a full sketch keeps a remainder after the rating deletes; deleting the media purges it.
+     */
+    @Test
+    void testOnMediaDeleted_PurgesTakenOverSlots() {
+        // Arrange - one slot: pair (3, 4) takes over the slot of (1, 2) and starts at its count + 1
+        CoRatingCounter counter = new CoRatingCounter(1, 5);
+        counter.addRating(1, 1);
+        counter.addRating(1, 2);
+        counter.addRating(2, 3);
+        counter.addRating(2, 4);
+        counter.removeRating(2, 3);
+        assertEquals(List.of(3), counter.relatedTo(4, 5).stream().map(ScoredItem::mediaId).toList());
+
+        // Act
+        counter.onMediaDeleted(3);
+
+        // Assert - the slot is free again for new pairs
+        assertTrue(counter.relatedTo(4, 5).isEmpty());
+        assertTrue(counter.relatedTo(3, 5).isEmpty());
+        counter.addRating(3, 5);
+        counter.addRating(3, 6);
+        assertEquals(1.0, counter.relatedTo(5, 5).get(0).score());
+    }
+}
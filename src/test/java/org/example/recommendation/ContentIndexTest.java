@@ -0,0 +1,79 @@
+package org.example.recommendation;
+
+import org.example.model.MediaEntry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the ContentIndex.
+ * Verifies genre-based ranking for users with favorites and the cold-start paths.
+ */
+class ContentIndexTest {
+
+    private ContentIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ContentIndex();
+        index.load(List.of(
+                media(1, List.of("Sci-Fi", "Thriller"), 12, 4.0),
+                media(2, List.of("sci-fi"), 12, 4.5),
+                media(3, List.of("Comedy"), 6, 5.0),
+                media(4, List.of("Thriller"), 18, 3.0),
+                media(5, List.of("Drama"), 12, 2.0)
+        ));
+    }
+
+    /**
+     * Media sharing genres with the favorites are ranked first, favorites themselves are excluded.
+     */
+    @Test
+    void testRecommend_UsesFavoriteGenres() {
+        List<ScoredItem> result = index.recommend(null, List.of(1), 10);
+
+        assertEquals(List.of(2, 4), result.stream().map(ScoredItem::mediaId).toList());
+    }
+
+    /**
+     * A user with only a favorite genre gets that genre's ranked list.
+     */
+    @Test
+    void testRecommend_ColdStartWithFavoriteGenre() {
+        List<ScoredItem> result = index.recommend("SCI-FI", List.of(), 10);
+
+        assertEquals(List.of(2, 1), result.stream().map(ScoredItem::mediaId).toList());
+    }
+
+    /**
+     * Without any preference the global ranking by score is returned.
+     */
+    @Test
+    void testRecommend_ColdStartWithoutPreferences() {
+        List<ScoredItem> result = index.recommend(null, List.of(), 2);
+
+        assertEquals(List.of(3, 2), result.stream().map(ScoredItem::mediaId).toList());
+    }
+
+    /**
+     * Catalog changes from the repository are visible in the next ranking.
+     */
+    @Test
+    void testMediaEvents_UpdateCatalog() {
+        index.onMediaDeleted(2);
+        index.onMediaSaved(media(6, List.of("Sci-Fi"), 12, 5.0));
+
+        List<ScoredItem> result = index.recommend("sci-fi", List.of(), 10);
+
+        assertEquals(List.of(6, 1), result.stream().map(ScoredItem::mediaId).toList());
+    }
+
+    private MediaEntry media(int id, List<String> genres, int ageRestriction, double score) {
+        MediaEntry media = new MediaEntry(id, "Media " + id, null, "movie", 2020, genres, ageRestriction, 1);
+        media.setAverageScore(score);
+        return media;
+    }
+}
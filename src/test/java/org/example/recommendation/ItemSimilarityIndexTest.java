@@ -0,0 +1,124 @@
+package org.example.recommendation;
+
+import org.example.model.Rating;
+import org.example.repository.RatingRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Unit tests for the ItemSimilarityIndex.
+ * Ratings are fed through a mocked repository so the parallel rebuild and the incremental updates
+ * can be verified without a database.
+ */
+class ItemSimilarityIndexTest {
+
+    private ItemSimilarityIndex index;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        // Users 1-3 like media 10 and 11 together, and dislike media 12.
+        int[][] ratings = {
+                {1, 10, 5}, {1, 11, 5}, {1, 12, 1},
+                {2, 10, 4}, {2, 11, 5}, {2, 12, 2},
+                {3, 10, 5}, {3, 12, 1},
+                {4, 12, 4}, {4, 13, 5}
+        };
+        RatingRepository repository = mock(RatingRepository.class);
+        doAnswer(invocation -> {
+            RatingRepository.RatingRowHandler handler = invocation.getArgument(0);
+            for (int[] r : ratings) {
+                handler.accept(r[0], r[1], r[2], 0L);
+            }
+            return null;
+        }).when(repository).forEachRating(any());
+
+        index = new ItemSimilarityIndex(10, new ForkJoinPool(2));
+        index.rebuild(repository);
+    }
+
+    /**
+     * Items liked by the same users should be each other's nearest neighbors.
+     */
+    @Test
+    void testRebuild_FindsCoRatedNeighbors() {
+        List<ScoredItem> similar = index.similarTo(10, 5);
+
+        assertFalse(similar.isEmpty());
+        assertEquals(11, similar.get(0).mediaId());
+        assertTrue(similar.stream().noneMatch(item -> item.mediaId() == 12));
+    }
+
+    /**
+     * User 3 has not rated media 11 yet, which is similar to their favorite media 10.
+     */
+    @Test
+    void testRecommend_ExcludesRatedItems() {
+        List<ScoredItem> recommendations = index.recommend(3, 5);
+
+        assertFalse(recommendations.isEmpty());
+        assertEquals(11, recommendations.get(0).mediaId());
+        assertTrue(recommendations.stream().noneMatch(item -> item.mediaId() == 10 || item.mediaId() == 12));
+    }
+
+    /**
+     * Unknown users (cold start) get an empty list instead of an error.
+     */
+    @Test
+    void testRecommend_UnknownUser() {
+        assertTrue(index.recommend(99, 5).isEmpty());
+    }
+
+    /**
+     * A new rating event updates the neighbor lists without a rebuild.
+     */
+    @Test
+    void testIncrementalUpdate_NewRatingCreatesNeighbor() {
+        assertTrue(index.similarTo(13, 5).stream().noneMatch(item -> item.mediaId() == 10));
+
+        // User 4 now also likes media 10, which links it with media 13
+        index.onRatingSaved(new Rating(4, 10, 5, null));
+        index.onRatingSaved(new Rating(5, 10, 5, null));
+        index.onRatingSaved(new Rating(5, 13, 5, null));
+        index.onRatingSaved(new Rating(5, 12, 1, null));
+
+        assertTrue(index.similarTo(13, 5).stream().anyMatch(item -> item.mediaId() == 10));
+        assertTrue(index.similarTo(10, 10).stream().anyMatch(item -> item.mediaId() == 13));
+    }
+
+    /**
+     * Deleting the only shared ratings removes the link again.
+     */
+    @Test
+    void testIncrementalUpdate_DeleteRemovesNeighbor() {
+        index.onRatingDeleted(new Rating(1, 11, 5, null));
+        index.onRatingDeleted(new Rating(2, 11, 5, null));
+
+        assertTrue(index.similarTo(10, 5).stream().noneMatch(item -> item.mediaId() == 11));
+        assertTrue(index.similarTo(11, 5).isEmpty());
+    }
+
+    /**
+     * A deleted media disappears from every neighbor list and from recommendations, not only from its own row.
+     */
+    @Test
+    void testOnMediaDeleted_PurgesAllNeighborLists() {
+        // Act
+        index.onMediaDeleted(11);
+
+        // Assert
+        assertTrue(index.similarTo(11, 5).isEmpty());
+        for (int mediaId : new int[]{10, 12, 13}) {
+            assertTrue(index.similarTo(mediaId, 10).stream().noneMatch(item -> item.mediaId() == 11));
+        }
+        assertTrue(index.recommend(3, 5).stream().noneMatch(item -> item.mediaId() == 11));
+    }
+}
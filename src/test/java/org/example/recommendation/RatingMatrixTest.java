@@ -0,0 +1,133 @@
+package org.example.recommendation;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the off-heap, file-backed rating matrix.
+ */
+class RatingMatrixTest {
+
+    @TempDir
+    Path tempDir;
+
+    // COPY text format: user_id, media_id, stars separated by tabs; rows deliberately unsorted
+    private static final String COPY_STREAM = """
+            2\t11\t4
+            1\t10\t5
+            3\t12\t1
+            1\t11\t4
+            2\t10\t5
+            3\t10\t2
+            4\t\\N\t3
+            1\t12\t1
+            """;
+
+    private RatingMatrix build(Path file) throws Exception {
+        // Split into odd chunks to exercise the streaming parser across buffer boundaries
+        byte[] bytes = COPY_STREAM.getBytes(StandardCharsets.US_ASCII);
+        return RatingMatrix.build(out -> {
+            for (int offset = 0; offset < bytes.length; offset += 5) {
+                out.write(bytes, offset, Math.min(5, bytes.length - offset));
+            }
+        }, file);
+    }
+
+    /**
+     * The streamed COPY rows end up in both directions; rows with NULLs are skipped.
+     */
+    @Test
+    void testBuild_LoadsCopyStream() throws Exception {
+        // Act
+        RatingMatrix matrix = build(tempDir.resolve("ratings.matrix"));
+
+        // Assert
+        assertEquals(7, matrix.ratingCount());
+        assertEquals(4, matrix.userCount());
+        assertEquals(13, matrix.mediaCount());
+        assertEquals(5, matrix.stars(1, 10));
+        assertEquals(4, matrix.stars(2, 11));
+        assertEquals(0, matrix.stars(3, 11));
+        assertEquals(3, matrix.ratingCount(10));
+        assertEquals(0, matrix.ratingCount(99));
+        assertFalse(Files.exists(tempDir.resolve("ratings.matrix.tmp")));
+    }
+
+    /**
+     * Media rated alike by the same users are the most similar; the media itself is never returned.
+     */
+    @Test
+    void testTopSimilar_RanksByCosine() throws Exception {
+        // Arrange
+        RatingMatrix matrix = build(tempDir.resolve("ratings.matrix"));
+
+        // Act
+        List<ScoredItem> similar = matrix.topSimilar(10, 5);
+
+        // Assert
+        assertEquals(List.of(11, 12), similar.stream().map(ScoredItem::mediaId).toList());
+        assertTrue(similar.get(0).score() > similar.get(1).score());
+    }
+
+    /**
+     * Repeated queries on one thread reuse its scratch buffers; leftovers from earlier queries do not leak
+     * into later ones.
+     */
+    @Test
+    void testTopSimilar_ReusedScratchGivesSameResults() throws Exception {
+        // Arrange
+        RatingMatrix matrix = build(tempDir.resolve("ratings.matrix"));
+        List<ScoredItem> first = matrix.topSimilar(10, 5);
+
+        // Act
+        matrix.topSimilar(11, 5);
+        matrix.topSimilar(12, 1);
+        List<ScoredItem> again = matrix.topSimilar(10, 5);
+
+        // Assert
+        assertEquals(first, again);
+        assertEquals(first, matrix.topSimilar(10, 5, matrix.newScratch()));
+    }
+
+    /**
+     * A persisted matrix can be mapped again after a restart with identical content.
+     */
+    @Test
+    void testOpen_MapsPersistedFile() throws Exception {
+        // Arrange
+        Path file = tempDir.resolve("ratings.matrix");
+        RatingMatrix built = build(file);
+
+        // Act
+        RatingMatrix reopened = RatingMatrix.open(file);
+
+        // Assert
+        assertEquals(built.stats(), reopened.stats());
+        assertEquals(1, reopened.stars(3, 12));
+        assertEquals(built.topSimilar(11, 5), reopened.topSimilar(11, 5));
+    }
+
+    /**
+     * Truncated or foreign files are rejected instead of being mapped.
+     */
+    @Test
+    void testOpen_RejectsIncompleteFile() throws Exception {
+        // Arrange
+        Path file = tempDir.resolve("ratings.matrix");
+        build(file);
+        byte[] content = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(content, content.length - 3));
+
+        // Act & Assert
+        assertThrows(IOException.class, () -> RatingMatrix.open(file));
+    }
+}
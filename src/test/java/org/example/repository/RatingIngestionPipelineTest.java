@@ -0,0 +1,182 @@
+package org.example.repository;
+
+import org.example.exception.ServiceUnavailableException;
+import org.example.model.Rating;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the write-behind rating ingestion pipeline.
+ */
+class RatingIngestionPipelineTest {
+
+    private final List<List<Rating>> writtenBatches = new ArrayList<>();
+    private final AtomicInteger nextId = new AtomicInteger(1);
+    private RatingIngestionPipeline pipeline;
+
+    // Records each batch and assigns IDs like the database would
+    private void recordBatch(List<Rating> batch) {
+        synchronized (writtenBatches) {
+            writtenBatches.add(List.copyOf(batch));
+        }
+        for (Rating rating : batch) {
+            rating.setId(nextId.getAndIncrement());
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (pipeline != null) {
+            pipeline.close(Duration.ofSeconds(1));
+        }
+    }
+
+    /**
+     * Ratings submitted before the worker runs end up in one batch; duplicates of a pair are written once
+     * and every caller of that pair receives the last rating with its ID.
+     */
+    @Test
+    void testSubmit_CoalescesDuplicatesAndReturnsIds() throws Exception {
+        // Arrange
+        pipeline = new RatingIngestionPipeline(this::recordBatch, 100, 100, 50);
+        CompletableFuture<Rating> first = pipeline.submit(new Rating(1, 10, 2, "meh"));
+        CompletableFuture<Rating> other = pipeline.submit(new Rating(2, 10, 4, null));
+        CompletableFuture<Rating> second = pipeline.submit(new Rating(1, 10, 5, "great"));
+
+        // Act
+        pipeline.start();
+        Rating firstResult = first.get(5, TimeUnit.SECONDS);
+        Rating secondResult = second.get(5, TimeUnit.SECONDS);
+        Rating otherResult = other.get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertEquals(1, writtenBatches.size());
+        assertEquals(2, writtenBatches.get(0).size());
+        assertSame(firstResult, secondResult);
+        assertEquals(5, secondResult.getStars());
+        assertNotNull(secondResult.getId());
+        assertNotNull(otherResult.getId());
+        assertNotEquals(secondResult.getId(), otherResult.getId());
+        assertEquals(1, pipeline.stats().coalesced());
+    }
+
+    /**
+     * A full batch is flushed without waiting for the delay.
+     */
+    @Test
+    void testFlush_OnBatchSize() throws Exception {
+        // Arrange
+        pipeline = new RatingIngestionPipeline(this::recordBatch, 100, 2, TimeUnit.MINUTES.toMillis(1));
+        pipeline.start();
+
+        // Act
+        CompletableFuture<Rating> a = pipeline.submit(new Rating(1, 10, 3, null));
+        CompletableFuture<Rating> b = pipeline.submit(new Rating(2, 10, 3, null));
+
+        // Assert
+        assertNotNull(a.get(5, TimeUnit.SECONDS).getId());
+        assertNotNull(b.get(5, TimeUnit.SECONDS).getId());
+    }
+
+    /**
+     * A single rating is written once the delay has passed even if the batch is not full.
+     */
+    @Test
+    void testFlush_OnDelay() throws Exception {
+        // Arrange
+        pipeline = new RatingIngestionPipeline(this::recordBatch, 100, 500, 5);
+        pipeline.start();
+
+        // Act
+        Rating written = pipeline.submit(new Rating(1, 10, 3, null)).get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertNotNull(written.getId());
+        assertEquals(1, pipeline.stats().batches());
+    }
+
+    /**
+     * A constraint violation in a batch is isolated: only the offending caller gets the error.
+     */
+    @Test
+    void testFlush_IsolatesFailingRating() throws Exception {
+        // Arrange
+        pipeline = new RatingIngestionPipeline(batch -> {
+            if (batch.stream().anyMatch(r -> r.getMediaId() == 99)) {
+                throw new SQLException("insert or update violates foreign key constraint", "23503");
+            }
+            recordBatch(batch);
+        }, 100, 100, 50);
+        CompletableFuture<Rating> good = pipeline.submit(new Rating(1, 10, 3, null));
+        CompletableFuture<Rating> bad = pipeline.submit(new Rating(1, 99, 3, null));
+
+        // Act
+        pipeline.start();
+
+        // Assert
+        assertNotNull(good.get(5, TimeUnit.SECONDS).getId());
+        ExecutionException e = assertThrows(ExecutionException.class, () -> bad.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(SQLException.class, e.getCause());
+        assertEquals(1, pipeline.stats().failed());
+    }
+
+    /**
+     * A full queue rejects immediately instead of blocking the request thread.
+     */
+    @Test
+    void testSubmit_RejectsWhenQueueFull() {
+        // Arrange - worker not started, so nothing is drained
+        pipeline = new RatingIngestionPipeline(this::recordBatch, 2, 10, 5);
+        pipeline.submit(new Rating(1, 10, 3, null));
+        pipeline.submit(new Rating(2, 10, 3, null));
+
+        // Act & Assert
+        assertThrows(ServiceUnavailableException.class, () -> pipeline.submit(new Rating(3, 10, 3, null)));
+        assertEquals(1, pipeline.stats().rejected());
+    }
+
+    /**
+     * Closing writes everything that was accepted and rejects new ratings afterwards.
+     */
+    @Test
+    void testClose_FlushesQueuedRatings() throws Exception {
+        // Arrange - the first batch blocks so further ratings pile up in the queue
+        CountDownLatch release = new CountDownLatch(1);
+        pipeline = new RatingIngestionPipeline(batch -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            recordBatch(batch);
+        }, 100, 1, 0);
+        pipeline.start();
+        List<CompletableFuture<Rating>> results = new ArrayList<>();
+        for (int user = 1; user <= 5; user++) {
+            results.add(pipeline.submit(new Rating(user, 10, 4, null)));
+        }
+
+        // Act
+        release.countDown();
+        pipeline.close(Duration.ofSeconds(5));
+
+        // Assert
+        for (CompletableFuture<Rating> result : results) {
+            assertTrue(result.isDone());
+            assertNotNull(result.get().getId());
+        }
+        assertThrows(ServiceUnavailableException.class, () -> pipeline.submit(new Rating(6, 10, 4, null)));
+    }
+}
@@ -0,0 +1,50 @@
+package org.example.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for how the RatingRepository notifies its listeners after a write.
+ * The JDBC connection is mocked; the statements themselves are covered by RatingRepositoryTest.
+ */
+class RatingRepositoryListenerTest {
+
+    /**
+     * A failing listener neither fails the committed write nor keeps the event from the listeners after it.
+     */
+    @Test
+    void testNotify_FailingListenerIsIsolated() throws SQLException {
+        // Arrange
+        Connection connection = mock(Connection.class);
+        PreparedStatement stmt = mock(PreparedStatement.class);
+        when(connection.prepareStatement(anyString())).thenReturn(stmt);
+        when(stmt.executeUpdate()).thenReturn(1);
+        RatingRepository repository = new RatingRepository(connection);
+        List<String> received = new ArrayList<>();
+        repository.addListener(new RatingListener() {
+            @Override
+            public void onFavoriteAdded(int userId, int mediaId) {
+                throw new IllegalStateException("index bug");
+            }
+        });
+        repository.addListener(new RatingListener() {
+            @Override
+            public void onFavoriteAdded(int userId, int mediaId) {
+                received.add(userId + ":" + mediaId);
+            }
+        });
+
+        // Act & Assert
+        assertDoesNotThrow(() -> repository.addFavorite(1, 7));
+        assertEquals(List.of("1:7"), received);
+    }
+}
@@ -0,0 +1,179 @@
+package org.example.repository;
+
+import org.example.database.DatabaseConnection;
+import org.example.model.Rating;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Repository tests for the batched rating upsert against the real PostgreSQL statement
+ * (docker-compose database on localhost:5432). Skipped when no database is reachable.
+ */
+class RatingRepositoryTest {
+
+    private static final int THREADS = 8;
+    private static final int MEDIA = 20;
+
+    private final String prefix = "rating-test-" + UUID.randomUUID() + "-";
+    private final List<Integer> userIds = new ArrayList<>();
+    private final List<Integer> mediaIds = new ArrayList<>();
+
+    @BeforeAll
+    static void requireDatabase() {
+        DriverManager.setLoginTimeout(2);
+        boolean reachable;
+        try (Connection probe = DatabaseConnection.openConnection()) {
+            reachable = probe.isValid(2);
+        } catch (SQLException e) {
+            reachable = false;
+        }
+        assumeTrue(reachable, "PostgreSQL not reachable, skipping repository tests");
+    }
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        // Make sure the schema exists
+        DatabaseConnection.getInstance();
+        try (Connection connection = DatabaseConnection.openConnection()) {
+            for (int i = 0; i < THREADS; i++) {
+                userIds.add(insertReturningId(connection,
+                        "INSERT INTO users (username, password) VALUES (?, 'hash') RETURNING id", prefix + i));
+            }
+            for (int i = 0; i < MEDIA; i++) {
+                mediaIds.add(insertReturningId(connection,
+                        "INSERT INTO media (title, media_type, creator_id) VALUES (?, 'movie', " + userIds.get(0)
+                                + ") RETURNING id", prefix + i));
+            }
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        try (Connection connection = DatabaseConnection.openConnection();
+             PreparedStatement media = connection.prepareStatement("DELETE FROM media WHERE title LIKE ?");
+             PreparedStatement users = connection.prepareStatement("DELETE FROM users WHERE username LIKE ?")) {
+            media.setString(1, prefix + "%");
+            media.executeUpdate();
+            users.setString(1, prefix + "%");
+            users.executeUpdate();
+        }
+    }
+
+    private static int insertReturningId(Connection connection, String sql, String value) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setString(1, value);
+            ResultSet rs = stmt.executeQuery();
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    /**
+     * Several nodes write the same new pairs at once: each pair is reported as new exactly once, every other
+     * write as an update with the stars it actually replaced, so a sum over the events matches the table.
+     */
+    @Test
+    void testUpsertBatch_ConcurrentInsertsReportPreviousStars() throws Exception {
+        // Arrange - every thread rates all media of user 0 with its own star value
+        int userId = userIds.get(0);
+        List<RatingListener.Upsert> events = new ArrayList<>();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> results = new ArrayList<>();
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                int stars = t % 5 + 1;
+                results.add(executor.submit(() -> {
+                    try (Connection connection = DatabaseConnection.openConnection()) {
+                        RatingRepository repository = new RatingRepository(connection);
+                        repository.addListener(new RatingListener() {
+                            @Override
+                            public void onRatingsUpserted(List<Upsert> upserts) {
+                                synchronized (events) {
+                                    events.addAll(upserts);
+                                }
+                            }
+                        });
+                        List<Rating> batch = new ArrayList<>();
+                        for (int mediaId : mediaIds) {
+                            batch.add(new Rating(userId, mediaId, stars, null));
+                        }
+                        start.await();
+                        repository.upsertBatch(batch);
+                    }
+                    return null;
+                }));
+            }
+
+            // Act
+            start.countDown();
+            for (Future<?> result : results) {
+                result.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Assert - replaying the events gives exactly the stored rows
+        long created = events.stream().filter(e -> e.previousStars() == null).count();
+        long starSum = 0;
+        for (RatingListener.Upsert event : events) {
+            starSum += event.rating().getStars() - (event.previousStars() == null ? 0 : event.previousStars());
+        }
+        try (Connection connection = DatabaseConnection.openConnection();
+             PreparedStatement stmt = connection.prepareStatement(
+                     "SELECT COUNT(*), COALESCE(SUM(stars), 0) FROM ratings WHERE user_id = ?")) {
+            stmt.setInt(1, userId);
+            ResultSet rs = stmt.executeQuery();
+            rs.next();
+            assertEquals(MEDIA, rs.getLong(1));
+            assertEquals(MEDIA, created);
+            assertEquals(rs.getLong(2), starSum);
+        }
+        assertEquals((long) MEDIA * THREADS, events.size());
+    }
+
+    /**
+     * A failing listener does not turn a committed batch into an error.
+     */
+    @Test
+    void testUpsertBatch_ListenerFailureDoesNotFailWrite() throws Exception {
+        // Arrange
+        try (Connection connection = DatabaseConnection.openConnection()) {
+            RatingRepository repository = new RatingRepository(connection);
+            repository.addListener(new RatingListener() {
+                @Override
+                public void onRatingSaved(Rating rating) {
+                    throw new IllegalStateException("listener bug");
+                }
+            });
+            Rating rating = new Rating(userIds.get(1), mediaIds.get(0), 4, "fine");
+
+            // Act
+            assertDoesNotThrow(() -> repository.upsertBatch(List.of(rating)));
+
+            // Assert
+            assertNotNull(rating.getId());
+            assertEquals(4, repository.findById(rating.getId()).orElseThrow().getStars());
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package org.example.repository;
+
+import org.example.database.DatabaseConnection;
+import org.example.model.User;
+import org.example.service.AuthService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Repository tests against the real PostgreSQL statements (docker-compose database on localhost:5432).
+ * Each thread uses its own connection so the statements really run concurrently in the database.
+ * Skipped when no database is reachable.
+ */
+class UserRepositoryTest {
+
+    private static final int THREADS = 16;
+
+    private final String prefix = "repo-test-" + UUID.randomUUID() + "-";
+
+    @BeforeAll
+    static void requireDatabase() {
+        DriverManager.setLoginTimeout(2);
+        boolean reachable;
+        try (Connection probe = DatabaseConnection.openConnection()) {
+            reachable = probe.isValid(2);
+        } catch (SQLException e) {
+            reachable = false;
+        }
+        assumeTrue(reachable, "PostgreSQL not reachable, skipping repository tests");
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        try (Connection connection = DatabaseConnection.openConnection();
+             PreparedStatement stmt = connection.prepareStatement("DELETE FROM users WHERE username LIKE ?")) {
+            stmt.setString(1, prefix + "%");
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Parallel inserts of the same username on separate connections: ON CONFLICT lets exactly one win.
+     */
+    @Test
+    void testSaveIfAbsent_ParallelSameUsername() throws Exception {
+        // Arrange - make sure the schema exists, then start all inserts at once
+        DatabaseConnection.getInstance();
+        String username = prefix + "race";
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<Optional<User>>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < THREADS; i++) {
+                results.add(executor.submit(() -> {
+                    try (Connection connection = DatabaseConnection.openConnection()) {
+                        UserRepository repository = new UserRepository(connection);
+                        start.await();
+                        return repository.saveIfAbsent(new User(username, "hash"));
+                    }
+                }));
+            }
+
+            // Act
+            start.countDown();
+            int winners = 0;
+            for (Future<Optional<User>> result : results) {
+                if (result.get(30, TimeUnit.SECONDS).isPresent()) {
+                    winners++;
+                }
+            }
+
+            // Assert
+            assertEquals(1, winners);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * The token is only issued while the stored hash is still the one that was verified.
+     */
+    @Test
+    void testIssueToken_ComparesVerifiedPassword() throws Exception {
+        // Arrange
+        DatabaseConnection.getInstance();
+        try (Connection connection = DatabaseConnection.openConnection()) {
+            UserRepository repository = new UserRepository(connection);
+            User user = repository.saveIfAbsent(new User(prefix + "cas", "old-hash")).orElseThrow();
+            LocalDateTime expiresAt = LocalDateTime.now().plusHours(1);
+
+            // Act - a password change lands between verification and token issue
+            boolean changed = repository.updatePassword(user.getId(), "old-hash", "new-hash");
+            boolean issuedWithOldHash = repository.issueToken(user.getId(), "old-hash", prefix + "t1", expiresAt);
+            boolean issuedWithNewHash = repository.issueToken(user.getId(), "new-hash", prefix + "t2", expiresAt);
+
+            // Assert
+            assertTrue(changed);
+            assertFalse(issuedWithOldHash);
+            assertTrue(issuedWithNewHash);
+            assertFalse(repository.updatePassword(user.getId(), "old-hash", "other-hash"));
+        }
+    }
+
+    /**
+     * Round trips of the auth paths, counted at the JDBC statements: registration is one INSERT ... ON CONFLICT,
+     * login reads the hash once and issues the token with one compare-and-set UPDATE.
+     */
+    @Test
+    void testAuthPaths_RoundTrips() throws Exception {
+        // Arrange
+        DatabaseConnection.getInstance();
+        AtomicInteger roundTrips = new AtomicInteger();
+        try (Connection connection = DatabaseConnection.openConnection()) {
+            AuthService authService = new AuthService(new UserRepository(counting(connection, roundTrips)));
+
+            // Act & Assert
+            authService.register(prefix + "rt", "secret");
+            assertEquals(1, roundTrips.getAndSet(0));
+            authService.login(prefix + "rt", "secret");
+            assertEquals(2, roundTrips.get());
+        }
+    }
+
+    // Counts every execution of a statement prepared on the connection
+    private static Connection counting(Connection connection, AtomicInteger executions) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    Object result = invoke(connection, method, args);
+                    if (result instanceof PreparedStatement stmt) {
+                        return Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                                new Class<?>[]{PreparedStatement.class}, (p, m, a) -> {
+                                    if (m.getName().startsWith("execute")) {
+                                        executions.incrementAndGet();
+                                    }
+                                    return invoke(stmt, m, a);
+                                });
+                    }
+                    return result;
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package org.example.server;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the gradient-based AdaptiveConcurrencyLimiter.
+ */
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * Requests beyond the current limit are rejected until a slot is released.
+     */
+    @Test
+    void testTryAcquire_RejectsAboveLimit() {
+        // Arrange
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10);
+
+        // Act & Assert
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        limiter.release(10 * MILLI);
+        assertTrue(limiter.tryAcquire());
+        assertEquals(1, limiter.metrics().rejected());
+    }
+
+    /**
+     * With stable latency under full load the limit grows, but never past the maximum.
+     */
+    @Test
+    void testRelease_GrowsWhileLatencyIsStable() {
+        // Arrange
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 2, 20);
+
+        // Act
+        saturate(limiter, 10 * MILLI, 200);
+
+        // Assert
+        assertEquals(20, limiter.getLimit());
+    }
+
+    /**
+     * When latency rises well above its long-term average the limit shrinks, but not below the minimum.
+     */
+    @Test
+    void testRelease_ShrinksWhenLatencyRises() {
+        // Arrange
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 2, 20);
+        saturate(limiter, 10 * MILLI, 200);
+        int before = limiter.getLimit();
+
+        // Act: the database slows down tenfold
+        saturate(limiter, 100 * MILLI, 30);
+
+        // Assert
+        assertTrue(limiter.getLimit() < before, "limit should drop, was " + limiter.getLimit());
+        assertTrue(limiter.getLimit() >= 2);
+    }
+
+    /**
+     * Samples taken at low utilisation do not change the limit.
+     */
+    @Test
+    void testRelease_IgnoresSamplesWhenUnderused() {
+        // Arrange
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 2, 50);
+
+        // Act: one request at a time, first fast then slow
+        for (int i = 0; i < 50; i++) {
+            limiter.tryAcquire();
+            limiter.release((i < 25 ? 10 : 500) * MILLI);
+        }
+
+        // Assert
+        assertEquals(10, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void testConstructor_InvalidLimits() {
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveConcurrencyLimiter(1, 2, 10));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveConcurrencyLimiter(5, 0, 10));
+    }
+
+    // Fills the limiter completely in each round and releases every request with the given latency
+    private static void saturate(AdaptiveConcurrencyLimiter limiter, long rttNanos, int rounds) {
+        for (int round = 0; round < rounds; round++) {
+            int acquired = 0;
+            while (limiter.tryAcquire()) {
+                acquired++;
+            }
+            for (int i = 0; i < acquired; i++) {
+                limiter.release(rttNanos);
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package org.example.server;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the cached readiness status of HealthMonitor.
+ */
+class HealthMonitorTest {
+
+    /**
+     * Before the first probe the server is not ready.
+     */
+    @Test
+    void testCurrent_NotReadyBeforeFirstProbe() {
+        HealthMonitor monitor = new HealthMonitor(10_000, () -> 1_000).register("database", () -> true);
+
+        assertFalse(monitor.current().ready());
+    }
+
+    /**
+     * Ready only if every check passes; a throwing check counts as failed.
+     */
+    @Test
+    void testProbe_AllChecksMustPass() {
+        // Arrange
+        AtomicBoolean warmedUp = new AtomicBoolean(false);
+        HealthMonitor monitor = new HealthMonitor(10_000, () -> 1_000)
+                .register("database", () -> true)
+                .register("warmup", warmedUp::get);
+
+        // Act & Assert
+        HealthMonitor.Status status = monitor.probe();
+        assertFalse(status.ready());
+        assertEquals(Boolean.FALSE, status.checks().get("warmup"));
+        assertEquals(Boolean.TRUE, status.checks().get("database"));
+
+        warmedUp.set(true);
+        assertTrue(monitor.probe().ready());
+
+        monitor.register("load", () -> {
+            throw new IllegalStateException("boom");
+        });
+        assertFalse(monitor.probe().ready());
+    }
+
+    /**
+     * Reading the status never runs the checks again.
+     */
+    @Test
+    void testCurrent_ServedFromCache() {
+        // Arrange
+        AtomicInteger calls = new AtomicInteger();
+        HealthMonitor monitor = new HealthMonitor(10_000, () -> 1_000)
+                .register("database", () -> calls.incrementAndGet() > 0);
+        monitor.probe();
+
+        // Act
+        for (int i = 0; i < 100; i++) {
+            monitor.current();
+        }
+
+        // Assert
+        assertEquals(1, calls.get());
+        assertTrue(monitor.current().ready());
+    }
+
+    /**
+     * A status older than the maximum age is reported as not ready.
+     */
+    @Test
+    void testCurrent_StaleStatusIsNotReady() {
+        // Arrange
+        AtomicLong clock = new AtomicLong(1_000);
+        HealthMonitor monitor = new HealthMonitor(5_000, clock::get).register("database", () -> true);
+        monitor.probe();
+
+        // Act & Assert
+        clock.addAndGet(5_000);
+        assertTrue(monitor.current().ready());
+        clock.addAndGet(1);
+        assertFalse(monitor.current().ready());
+    }
+}
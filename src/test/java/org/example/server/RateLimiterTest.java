@@ -0,0 +1,111 @@
+package org.example.server;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the token-bucket RateLimiter, driven by a manual clock.
+ */
+class RateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * A full bucket allows a burst, then rejects with the time until the next token.
+     */
+    @Test
+    void testTryAcquire_BurstThenRejected() {
+        // Arrange: 3 at once, then 2 per second
+        AtomicLong clock = new AtomicLong(1_000 * SECOND);
+        RateLimiter limiter = new RateLimiter(Map.of("media", new RateLimiter.Limit(3, 2)), clock::get);
+
+        // Act & Assert
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limiter.tryAcquire("media", "1"));
+        }
+        assertEquals(SECOND / 2, limiter.tryAcquire("media", "1"));
+    }
+
+    /**
+     * Tokens refill lazily with elapsed time, but never beyond the burst size.
+     */
+    @Test
+    void testTryAcquire_RefillsOverTime() {
+        // Arrange
+        AtomicLong clock = new AtomicLong(1_000 * SECOND);
+        RateLimiter limiter = new RateLimiter(Map.of("media", new RateLimiter.Limit(2, 1)), clock::get);
+        limiter.tryAcquire("media", "1");
+        limiter.tryAcquire("media", "1");
+        assertTrue(limiter.tryAcquire("media", "1") > 0);
+
+        // Act: one second later exactly one token is back
+        clock.addAndGet(SECOND);
+
+        // Assert
+        assertEquals(0, limiter.tryAcquire("media", "1"));
+        assertTrue(limiter.tryAcquire("media", "1") > 0);
+
+        // Act: a long pause refills only up to the burst
+        clock.addAndGet(60 * SECOND);
+
+        // Assert
+        assertEquals(0, limiter.tryAcquire("media", "1"));
+        assertEquals(0, limiter.tryAcquire("media", "1"));
+        assertTrue(limiter.tryAcquire("media", "1") > 0);
+    }
+
+    /**
+     * Buckets are separate per subject and per route; routes without a limit are unrestricted.
+     */
+    @Test
+    void testTryAcquire_SeparateBuckets() {
+        // Arrange
+        AtomicLong clock = new AtomicLong(1_000 * SECOND);
+        RateLimiter limiter = new RateLimiter(Map.of(
+                "auth", new RateLimiter.Limit(1, 1),
+                "user", new RateLimiter.Limit(1, 1)), clock::get);
+
+        // Act
+        limiter.tryAcquire("auth", "10.0.0.1");
+
+        // Assert
+        assertTrue(limiter.tryAcquire("auth", "10.0.0.1") > 0);
+        assertEquals(0, limiter.tryAcquire("auth", "10.0.0.2"));
+        assertEquals(0, limiter.tryAcquire("user", "10.0.0.1"));
+        for (int i = 0; i < 100; i++) {
+            assertEquals(0, limiter.tryAcquire("unknown", "10.0.0.1"));
+        }
+    }
+
+    /**
+     * Idle buckets are evicted once they are full again; active ones are kept.
+     */
+    @Test
+    void testEvictIdle_RemovesOnlyFullBuckets() {
+        // Arrange
+        AtomicLong clock = new AtomicLong(1_000 * SECOND);
+        RateLimiter limiter = new RateLimiter(Map.of("user", new RateLimiter.Limit(5, 1)), clock::get);
+        limiter.tryAcquire("user", "1");
+        clock.addAndGet(2 * SECOND);
+        limiter.tryAcquire("user", "2");
+
+        // Act
+        int evicted = limiter.evictIdle();
+
+        // Assert
+        assertEquals(1, evicted);
+        assertEquals(1, limiter.size());
+    }
+
+    @Test
+    void testLimitParse() {
+        assertEquals(new RateLimiter.Limit(20, 5), RateLimiter.Limit.parse(" 20/5 "));
+        assertThrows(IllegalArgumentException.class, () -> RateLimiter.Limit.parse("20"));
+        assertThrows(IllegalArgumentException.class, () -> RateLimiter.Limit.parse("0/5"));
+    }
+}
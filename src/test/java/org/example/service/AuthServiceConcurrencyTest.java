@@ -0,0 +1,95 @@
+package org.example.service;
+
+import org.example.auth.DatabaseTokenStrategy;
+import org.example.auth.PasswordHasher;
+import org.example.auth.PasswordHashingPool;
+import org.example.model.User;
+import org.example.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Service-side concurrency test for registration.
+ * The repository mock only mimics INSERT ... ON CONFLICT DO NOTHING; it checks that the service relies on the
+ * insert result alone (no separate existence check) and maps a lost race to an error. The atomicity of the
+ * real statement is covered by {@link org.example.repository.UserRepositoryTest}.
+ */
+class AuthServiceConcurrencyTest {
+
+    private static final int THREADS = 16;
+
+    private final PasswordHashingPool hashingPool = new PasswordHashingPool(4, 64);
+
+    @AfterEach
+    void tearDown() {
+        hashingPool.shutdown();
+    }
+
+    /**
+     * Many parallel registrations of the same username produce exactly one user, with one round trip each.
+     */
+    @Test
+    void testRegister_ParallelSameUsername() throws Exception {
+        // Arrange: unique constraint simulated with putIfAbsent
+        ConcurrentHashMap<String, User> table = new ConcurrentHashMap<>();
+        AtomicInteger ids = new AtomicInteger();
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.saveIfAbsent(any(User.class))).thenAnswer(invocation -> {
+            User user = invocation.getArgument(0);
+            if (table.putIfAbsent(user.getUsername(), user) != null) {
+                return Optional.empty();
+            }
+            user.setId(ids.incrementAndGet());
+            return Optional.of(user);
+        });
+        AuthService authService = new AuthService(userRepository, new DatabaseTokenStrategy(userRepository),
+                new PasswordHasher(1_000), hashingPool);
+
+        // Act: all threads start at the same time
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                try {
+                    authService.register("racer", "secret");
+                    return true;
+                } catch (IllegalArgumentException e) {
+                    assertEquals("Username already exists", e.getMessage());
+                    return false;
+                }
+            }));
+        }
+        start.countDown();
+        int successes = 0;
+        for (Future<Boolean> result : results) {
+            if (result.get(30, TimeUnit.SECONDS)) {
+                successes++;
+            }
+        }
+        executor.shutdown();
+
+        // Assert: one winner, one statement per attempt and no separate existence check
+        assertEquals(1, successes);
+        assertEquals(1, table.size());
+        verify(userRepository, times(THREADS)).saveIfAbsent(any(User.class));
+        verify(userRepository, never()).findByUsername(anyString());
+    }
+}
@@ -1,5 +1,10 @@
 package org.example.service;
 
+import org.example.auth.DatabaseTokenStrategy;
+import org.example.auth.PasswordHasher;
+import org.example.auth.PasswordHashingPool;
+import org.example.database.CircuitBreaker;
+import org.example.exception.CircuitOpenException;
 import org.example.model.User;
 import org.example.repository.UserRepository;
 import org.junit.jupiter.api.BeforeEach;
@@ -8,6 +13,7 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
 import java.sql.SQLException;
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -42,12 +48,11 @@ class AuthServiceTest {
         String username = "testuser";
         String password = "password123";
 
-        // Mock repository behavior: username is not found, and saving is successful.
-        when(userRepository.findByUsername(username)).thenReturn(Optional.empty());
-        when(userRepository.save(any(User.class))).thenAnswer(invocation -> {
+        // Mock repository behavior: the username is free, so the insert returns the new row.
+        when(userRepository.saveIfAbsent(any(User.class))).thenAnswer(invocation -> {
             User user = invocation.getArgument(0);
             user.setId(1); // Simulate database ID generation.
-            return user;
+            return Optional.of(user);
         });
 
         // Act: Attempt to register the user.
@@ -57,7 +62,9 @@ class AuthServiceTest {
         assertNotNull(result);
         assertEquals(1, result.getId());
         assertEquals(username, result.getUsername());
-        verify(userRepository, times(1)).save(any(User.class));
+        verify(userRepository, times(1)).saveIfAbsent(any(User.class));
+        // Single round trip: no separate existence check
+        verify(userRepository, never()).findByUsername(anyString());
     }
 
     /**
@@ -65,13 +72,12 @@ class AuthServiceTest {
      */
     @Test
     void testRegister_UserAlreadyExists() throws SQLException {
-        // Arrange: An existing username.
+        // Arrange: An existing username, so the insert hits the unique constraint and returns nothing.
         String username = "existinguser";
-        when(userRepository.findByUsername(username)).thenReturn(Optional.of(new User(username, "pass")));
+        when(userRepository.saveIfAbsent(any(User.class))).thenReturn(Optional.empty());
 
-        // Act & Assert: Expect an IllegalArgumentException and ensure save is never called.
+        // Act & Assert: Expect an IllegalArgumentException.
         assertThrows(IllegalArgumentException.class, () -> authService.register(username, "newpass"));
-        verify(userRepository, never()).save(any(User.class));
     }
 
     /**
@@ -81,7 +87,7 @@ class AuthServiceTest {
     void testRegister_EmptyUsername() throws SQLException {
         // Act & Assert: Expect an exception for invalid input.
         assertThrows(IllegalArgumentException.class, () -> authService.register("", "password"));
-        verify(userRepository, never()).save(any(User.class));
+        verify(userRepository, never()).saveIfAbsent(any(User.class));
     }
 
     /**
@@ -96,7 +102,8 @@ class AuthServiceTest {
 
         // Mock repository behavior: user is found, and token update is successful.
         when(userRepository.findByUsername(username)).thenReturn(Optional.of(user));
-        doNothing().when(userRepository).updateToken(anyInt(), anyString());
+        when(userRepository.updatePassword(anyInt(), anyString(), anyString())).thenReturn(true);
+        when(userRepository.issueToken(anyInt(), anyString(), anyString(), any(LocalDateTime.class))).thenReturn(true);
 
         // Act: Attempt to log in.
         String token = authService.login(username, password);
@@ -104,7 +111,40 @@ class AuthServiceTest {
         // Assert: A valid token is generated and the user's token is updated.
         assertNotNull(token);
         assertTrue(token.startsWith(username + "-mrpToken-"));
-        verify(userRepository, times(1)).updateToken(eq(1), anyString());
+        verify(userRepository, times(1)).issueToken(eq(1), anyString(), anyString(), any(LocalDateTime.class));
+    }
+
+    /**
+     * Tests that a legacy plaintext password is replaced by a hash on successful login.
+     */
+    @Test
+    void testLogin_RehashesLegacyPassword() throws SQLException {
+        // Arrange: A user whose password is still stored in plaintext.
+        User user = new User(1, "testuser", "password123");
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user));
+
+        when(userRepository.updatePassword(anyInt(), anyString(), anyString())).thenReturn(true);
+        when(userRepository.issueToken(anyInt(), anyString(), anyString(), any(LocalDateTime.class))).thenReturn(true);
+
+        // Act: Log in with the correct password.
+        authService.login("testuser", "password123");
+
+        // Assert: The stored password is replaced with a PBKDF2 hash.
+        verify(userRepository, times(1)).updatePassword(eq(1), eq("password123"), startsWith("pbkdf2-sha256$"));
+    }
+
+    /**
+     * Tests that no token is issued when the password changed between verification and the token write.
+     */
+    @Test
+    void testLogin_PasswordChangedConcurrently() throws SQLException {
+        // Arrange: The compare-and-set on the verified password hash fails.
+        User user = new User(1, "testuser", "password123");
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user));
+        when(userRepository.issueToken(anyInt(), anyString(), anyString(), any(LocalDateTime.class))).thenReturn(false);
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> authService.login("testuser", "password123"));
     }
 
     /**
@@ -119,6 +159,34 @@ class AuthServiceTest {
         assertThrows(IllegalArgumentException.class, () -> authService.login("nonexistent", "password"));
     }
 
+    /**
+     * An unknown username still costs a full PBKDF2 verification against the dummy hash, so the response time
+     * does not reveal which usernames exist.
+     */
+    @Test
+    void testLogin_UnknownUserVerifiesDummyHash() throws SQLException {
+        // Arrange
+        PasswordHasher hasher = spy(new PasswordHasher(1_000));
+        PasswordHashingPool hashingPool = new PasswordHashingPool(1, 4);
+        try {
+            AuthService service = new AuthService(userRepository, new DatabaseTokenStrategy(userRepository),
+                    hasher, hashingPool);
+            when(userRepository.findByUsername("nonexistent")).thenReturn(Optional.empty());
+
+            // Act
+            IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                    () -> service.login("nonexistent", "password"));
+
+            // Assert: same message as a wrong password, and the dummy hash has the configured cost
+            assertEquals("Invalid username or password", error.getMessage());
+            verify(hasher).verify("password", hasher.dummyHash());
+            assertFalse(hasher.needsRehash(hasher.dummyHash()));
+            assertFalse(hasher.verify("", hasher.dummyHash()));
+        } finally {
+            hashingPool.shutdown();
+        }
+    }
+
     /**
      * Tests login failure with an incorrect password.
      */
@@ -175,4 +243,27 @@ class AuthServiceTest {
         // Act & Assert: Expect a SecurityException for a missing token.
         assertThrows(SecurityException.class, () -> authService.validateToken(""));
     }
+
+    /**
+     * Tests that an open circuit breaker rejects logins and token checks without touching the database.
+     */
+    @Test
+    void testOpenBreaker_FailsFastWithoutDatabaseCall() throws SQLException {
+        // Arrange: one connection failure opens the breaker.
+        PasswordHashingPool hashingPool = new PasswordHashingPool(1, 4);
+        try {
+            AuthService guarded = new AuthService(userRepository, new DatabaseTokenStrategy(userRepository),
+                    new PasswordHasher(), hashingPool, new CircuitBreaker(1, 10_000, System::nanoTime));
+            when(userRepository.findByUsername("testuser")).thenThrow(new SQLException("Connection refused", "08001"));
+            assertThrows(SQLException.class, () -> guarded.login("testuser", "password123"));
+
+            // Act & Assert: further calls fail immediately with a retry hint.
+            assertThrows(CircuitOpenException.class, () -> guarded.login("testuser", "password123"));
+            assertThrows(CircuitOpenException.class, () -> guarded.validateToken("testuser-mrpToken-x"));
+            verify(userRepository, times(1)).findByUsername(anyString());
+            verify(userRepository, never()).findByToken(anyString());
+        } finally {
+            hashingPool.shutdown();
+        }
+    }
 }
@@ -1,14 +1,27 @@
 package org.example.service;
 
+import org.example.cache.CachedRead;
+import org.example.cache.MappedArenaCache;
+import org.example.database.CircuitBreaker;
+import org.example.exception.CircuitOpenException;
 import org.example.exception.ForbiddenException;
 import org.example.model.MediaEntry;
+import org.example.model.Rating;
+import org.example.ranking.TopRatedLeaderboard;
+import org.example.ranking.TrendingTracker;
 import org.example.repository.MediaRepository;
 import org.example.repository.RatingRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.List;
 import java.util.Optional;
@@ -16,6 +29,8 @@ import java.util.Optional;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
 /**
@@ -78,6 +93,33 @@ class MediaServiceTest {
         verify(mediaRepository, times(1)).save(mediaToCreate);
     }
 
+    /**
+     * Unconfirmed comments are only visible to their author and the media creator.
+     */
+    @Test
+    void testGetRatingsForMedia_HidesUnconfirmedComments() throws SQLException {
+        // Arrange: one confirmed and one unconfirmed comment by the other user
+        MediaEntry media = new MediaEntry(1, "The Matrix", "A classic.", "movie", 1999, List.of("Sci-Fi"), 16, userCreatorId);
+        Rating confirmed = new Rating(otherUserId, 1, 5, "Great");
+        confirmed.setConfirmed(true);
+        Rating pending = new Rating(otherUserId, 1, 2, "Needs approval");
+        when(mediaRepository.findById(1)).thenReturn(Optional.of(media));
+        when(ratingRepository.findByMediaId(1)).thenReturn(List.of(confirmed, pending));
+
+        // Act
+        List<Rating> forStranger = mediaService.getRatingsForMedia(1, 3);
+        List<Rating> forAuthor = mediaService.getRatingsForMedia(1, otherUserId);
+        List<Rating> forCreator = mediaService.getRatingsForMedia(1, userCreatorId);
+
+        // Assert: strangers get the rating without the text, the shared list itself is untouched
+        assertEquals("Great", forStranger.get(0).getComment());
+        assertNull(forStranger.get(1).getComment());
+        assertEquals(2, forStranger.get(1).getStars());
+        assertEquals("Needs approval", forAuthor.get(1).getComment());
+        assertEquals("Needs approval", forCreator.get(1).getComment());
+        assertEquals("Needs approval", pending.getComment());
+    }
+
     /**
      * Tests successful retrieval of a media entry by its ID.
      */
@@ -110,6 +152,138 @@ class MediaServiceTest {
         assertFalse(result.isPresent());
     }
 
+    /**
+     * Tests that a repeated read is served from the cache without another database round trip.
+     */
+    @Test
+    void testGetMediaById_SecondReadIsCached() throws SQLException {
+        // Arrange
+        MediaEntry existingMedia = new MediaEntry(1, "The Matrix", "A classic sci-fi action film.", "movie", 1999, List.of("Sci-Fi"), 16, userCreatorId);
+        when(mediaRepository.findById(1)).thenReturn(Optional.of(existingMedia));
+
+        // Act
+        mediaService.getMediaById(1);
+        Optional<MediaEntry> result = mediaService.getMediaById(1);
+
+        // Assert
+        assertEquals("The Matrix", result.orElseThrow().getTitle());
+        verify(mediaRepository, times(1)).findById(1);
+        assertEquals(1, mediaService.cacheStats().hits());
+    }
+
+    /**
+     * Tests that an update invalidates the cached entry so the next read sees the new state.
+     */
+    @Test
+    void testUpdateMedia_InvalidatesCache() throws SQLException {
+        // Arrange
+        MediaEntry existingMedia = new MediaEntry(1, "Old Title", "Old Desc", "movie", 2020, List.of("Genre"), 12, userCreatorId);
+        MediaEntry updatedInfo = new MediaEntry(0, "New Title", "New Desc", "movie", 2021, List.of("Genre"), 12, userCreatorId);
+        when(mediaRepository.findById(1)).thenReturn(Optional.of(existingMedia), Optional.of(updatedInfo));
+
+        // Act: the update reads through the cache, the following read has to go to the database again
+        mediaService.updateMedia(1, updatedInfo, userCreatorId);
+        Optional<MediaEntry> result = mediaService.getMediaById(1);
+
+        // Assert
+        assertEquals("New Title", result.orElseThrow().getTitle());
+        verify(mediaRepository, times(2)).findById(1);
+    }
+
+    /**
+     * Tests that a fresh service with an empty heap cache reads a known version from the L2 file instead of the database.
+     */
+    @Test
+    void testGetMediaById_ServedFromL2AfterRestart(@TempDir Path tempDir) throws Exception {
+        // Arrange: a first instance loads the entry and writes it through to the L2 file
+        MediaEntry existingMedia = new MediaEntry(1, "The Matrix", "A classic sci-fi action film.", "movie", 1999, List.of("Sci-Fi"), 16, userCreatorId);
+        existingMedia.setVersion(3);
+        when(mediaRepository.findById(1)).thenReturn(Optional.of(existingMedia));
+        Path file = tempDir.resolve("l2.bin");
+        try (MappedArenaCache l2 = new MappedArenaCache(file, 16, 64 * 1024)) {
+            newServiceWithL2(l2).getMediaById(1);
+        }
+
+        // Act: "restart" with the version known from the catalog
+        Optional<MediaEntry> result;
+        try (MappedArenaCache l2 = new MappedArenaCache(file, 16, 64 * 1024)) {
+            MediaService restarted = newServiceWithL2(l2);
+            restarted.primeCatalog(List.of(existingMedia));
+            result = restarted.getMediaById(1);
+        }
+
+        // Assert
+        assertEquals("The Matrix", result.orElseThrow().getTitle());
+        assertEquals(List.of("Sci-Fi"), result.get().getGenres());
+        assertEquals(3, result.get().getVersion());
+        verify(mediaRepository, times(1)).findById(1);
+    }
+
+    /**
+     * Tests that the last loaded list is served, marked as stale, while the database is unreachable.
+     */
+    @Test
+    void testReadAllMedia_ServesStaleListDuringOutage() throws SQLException {
+        // Arrange
+        MediaEntry existingMedia = new MediaEntry(1, "The Matrix", "A classic sci-fi action film.", "movie", 1999, List.of("Sci-Fi"), 16, userCreatorId);
+        when(mediaRepository.findAll())
+                .thenReturn(List.of(existingMedia))
+                .thenThrow(new SQLException("Connection refused", "08001"));
+        mediaService.readAllMedia();
+
+        // Act
+        CachedRead<List<MediaEntry>> result = mediaService.readAllMedia();
+
+        // Assert
+        assertTrue(result.stale());
+        assertEquals(List.of(existingMedia), result.value());
+    }
+
+    /**
+     * Tests that writes fail fast without touching the database once the breaker is open.
+     */
+    @Test
+    void testCreateMedia_FailsFastWhenBreakerOpen() throws SQLException {
+        // Arrange: a breaker that opens after the first outage
+        MediaService service = new MediaService(mediaRepository, ratingRepository, null,
+                new CircuitBreaker(1, 10_000, System::nanoTime));
+        when(mediaRepository.findById(1)).thenThrow(new SQLException("Connection refused", "08001"));
+        assertThrows(SQLException.class, () -> service.getMediaById(1));
+
+        // Act & Assert
+        assertThrows(CircuitOpenException.class,
+                () -> service.createMedia(new MediaEntry("Dune", "Desert planet", "movie", 2021), userCreatorId));
+        verify(mediaRepository, never()).save(any(MediaEntry.class));
+    }
+
+    /**
+     * Tests that IDs outside the loaded catalog are answered as missing without a database query,
+     * and that a newly created ID is visible right away.
+     */
+    @Test
+    void testGetMediaById_UnknownIdSkipsDatabase() throws SQLException {
+        // Arrange
+        MediaEntry existingMedia = new MediaEntry(1, "The Matrix", "A classic sci-fi action film.", "movie", 1999, List.of("Sci-Fi"), 16, userCreatorId);
+        mediaService.primeCatalog(List.of(existingMedia));
+        when(mediaRepository.save(any(MediaEntry.class))).thenAnswer(invocation -> {
+            MediaEntry saved = invocation.getArgument(0);
+            saved.setId(500_000);
+            return saved;
+        });
+        when(mediaRepository.findById(500_000)).thenReturn(Optional.of(existingMedia));
+
+        // Act
+        Optional<MediaEntry> missing = mediaService.getMediaById(400_000);
+        mediaService.createMedia(new MediaEntry("Dune", "Desert planet", "movie", 2021), userCreatorId);
+        Optional<MediaEntry> created = mediaService.getMediaById(500_000);
+
+        // Assert
+        assertTrue(missing.isEmpty());
+        assertTrue(created.isPresent());
+        verify(mediaRepository, never()).findById(400_000);
+        assertEquals(1, mediaService.negativeCacheStats().rejectedByFilter());
+    }
+
     /**
      * Tests a successful media update by its creator.
      */
@@ -171,8 +345,61 @@ class MediaServiceTest {
         // Act: The creator deletes the media.
         mediaService.deleteMedia(1, userCreatorId);
 
-        // Assert: The repository's delete method was called.
-        verify(mediaRepository, times(1)).delete(1);
+        // Assert: The ratings are deleted through the rating repository first, then the media itself.
+        InOrder order = inOrder(ratingRepository, mediaRepository);
+        order.verify(ratingRepository).deleteByMedia(1);
+        order.verify(mediaRepository).delete(1);
+    }
+
+    /**
+     * Deleting a rated media item reports its ratings as deleted, so it leaves the top-rated and trending results
+     * without waiting for a restart.
+     */
+    @Test
+    void testDeleteMedia_RemovesMediaFromRankings() throws SQLException {
+        // Arrange: two rated media, the rating repository runs on a mocked connection
+        Connection connection = mock(Connection.class);
+        PreparedStatement stmt = mock(PreparedStatement.class);
+        ResultSet rows = mock(ResultSet.class);
+        when(connection.prepareStatement(anyString())).thenReturn(stmt);
+        when(stmt.executeQuery()).thenReturn(rows);
+        when(rows.next()).thenReturn(true, true, false);
+        when(rows.getInt("id")).thenReturn(100, 101);
+        when(rows.getInt("user_id")).thenReturn(1, 2);
+        when(rows.getInt("stars")).thenReturn(5, 5);
+        RatingRepository realRatings = new RatingRepository(connection);
+        TopRatedLeaderboard topRated = new TopRatedLeaderboard();
+        TrendingTracker trending = new TrendingTracker(mediaRepository);
+        realRatings.addListener(topRated);
+        realRatings.addListener(trending);
+        for (int userId = 1; userId <= 2; userId++) {
+            Rating rating = new Rating(userId, 1, 5, null);
+            topRated.onRatingSaved(rating);
+            trending.onRatingSaved(rating);
+        }
+        Rating other = new Rating(1, 2, 3, null);
+        topRated.onRatingSaved(other);
+        trending.onRatingSaved(other);
+        MediaEntry rated = new MediaEntry(1, "Title", "Desc", "movie", 2020, List.of("Genre"), 12, userCreatorId);
+        MediaEntry remaining = new MediaEntry(2, "Other", "Desc", "movie", 2020, List.of("Genre"), 12, otherUserId);
+        when(mediaRepository.findById(1)).thenReturn(Optional.of(rated));
+        when(mediaRepository.findByIds(anyList())).thenReturn(List.of(rated, remaining));
+        trending.refresh();
+        // The real MediaRepository fires onMediaDeleted after its DELETE
+        doAnswer(invocation -> {
+            trending.onMediaDeleted(1);
+            topRated.onMediaDeleted(1);
+            return null;
+        }).when(mediaRepository).delete(1);
+        MediaService service = new MediaService(mediaRepository, realRatings);
+
+        // Act
+        service.deleteMedia(1, userCreatorId);
+
+        // Assert
+        assertEquals(List.of(2), topRated.page(0, 10).stream().map(TopRatedLeaderboard.Entry::mediaId).toList());
+        assertEquals(List.of(2), trending.getTrending(10).stream().map(MediaEntry::getId).toList());
+        assertEquals(0f, trending.scoreOf(1));
     }
 
     /**
@@ -187,4 +414,8 @@ class MediaServiceTest {
         // Act & Assert: An attempt by another user to delete should throw a ForbiddenException.
         assertThrows(ForbiddenException.class, () -> mediaService.deleteMedia(1, otherUserId));
     }
+
+    private MediaService newServiceWithL2(MappedArenaCache l2) {
+        return new MediaService(mediaRepository, ratingRepository, l2, new CircuitBreaker());
+    }
 }
@@ -0,0 +1,82 @@
+package org.example.service;
+
+import org.example.database.CircuitBreaker;
+import org.example.exception.CircuitOpenException;
+import org.example.model.MediaEntry;
+import org.example.model.RankedMedia;
+import org.example.model.Rating;
+import org.example.ranking.ActiveUserLeaderboard;
+import org.example.ranking.TopRatedLeaderboard;
+import org.example.ranking.TrendingTracker;
+import org.example.repository.MediaRepository;
+import org.example.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the RankingService.
+ * The leaderboards are real, the repositories are mocked.
+ */
+class RankingServiceTest {
+
+    private final MediaRepository mediaRepository = mock(MediaRepository.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final TopRatedLeaderboard topRatedLeaderboard = new TopRatedLeaderboard();
+    private final ActiveUserLeaderboard activeUserLeaderboard = new ActiveUserLeaderboard();
+    private final CircuitBreaker breaker = new CircuitBreaker(1, 10_000, System::nanoTime);
+    private RankingService rankingService;
+
+    @BeforeEach
+    void setUp() {
+        rankingService = new RankingService(new TrendingTracker(mediaRepository), topRatedLeaderboard,
+                activeUserLeaderboard, mediaRepository, userRepository, breaker);
+        for (int mediaId = 1; mediaId <= 3; mediaId++) {
+            topRatedLeaderboard.onRatingSaved(new Rating(1, mediaId, 6 - mediaId, null));
+        }
+    }
+
+    /**
+     * A media missing in the database leaves no gap in the ranks and is dropped from the leaderboard.
+     */
+    @Test
+    void testGetTopRatedMedia_SkipsMissingMediaWithoutRankGap() throws SQLException {
+        // Arrange - media 1 was deleted on another node
+        when(mediaRepository.findByIds(anyList())).thenReturn(List.of(media(2), media(3)));
+
+        // Act
+        List<RankedMedia> top = rankingService.getTopRatedMedia(0, 10);
+
+        // Assert
+        assertEquals(List.of(1, 2), top.stream().map(RankedMedia::rank).toList());
+        assertEquals(2, topRatedLeaderboard.size());
+    }
+
+    /**
+     * Once the breaker is open, ranking requests fail fast with a retry hint instead of waiting on the database.
+     */
+    @Test
+    void testGetTopRatedMedia_FailsFastWhenBreakerOpen() throws SQLException {
+        // Arrange: the first outage opens the breaker
+        when(mediaRepository.findByIds(anyList())).thenThrow(new SQLException("Connection refused", "08001"));
+        assertThrows(SQLException.class, () -> rankingService.getTopRatedMedia(0, 10));
+
+        // Act & Assert
+        CircuitOpenException open = assertThrows(CircuitOpenException.class,
+                () -> rankingService.getTopRatedMedia(0, 10));
+        assertTrue(open.getRetryAfterSeconds() > 0);
+        assertThrows(CircuitOpenException.class, () -> rankingService.getMostActiveUsers(10));
+        verify(mediaRepository, times(1)).findByIds(anyList());
+        verifyNoInteractions(userRepository);
+    }
+
+    private static MediaEntry media(int id) {
+        return new MediaEntry(id, "Media " + id, null, "movie", 2020, List.of(), 0, 1);
+    }
+}
@@ -0,0 +1,201 @@
+package org.example.service;
+
+import org.example.model.Rating;
+import org.example.model.User;
+import org.example.model.UserStats;
+import org.example.repository.RatingListener;
+import org.example.repository.UserRepository;
+import org.example.repository.UserStatsRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the UserStatsService.
+ * The repository is mocked; the tests cover caching and the incremental event handling.
+ */
+class UserStatsServiceTest {
+
+    @Mock
+    private UserStatsRepository userStatsRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    private UserStatsService userStatsService;
+
+    private AutoCloseable mocks;
+
+    @BeforeEach
+    void setUp() {
+        mocks = MockitoAnnotations.openMocks(this);
+        userStatsService = new UserStatsService(userStatsRepository, userRepository);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        mocks.close();
+    }
+
+    /**
+     * A second profile read is served from the cache without touching the database.
+     */
+    @Test
+    void testGetStats_CachesProjection() throws SQLException {
+        // Arrange
+        UserStats stats = new UserStats(1, 2, 9, 0, Map.of("Drama", 2), Map.of());
+        when(userStatsRepository.findByUserId(1)).thenReturn(Optional.of(stats));
+
+        // Act
+        userStatsService.getStats(1);
+        Optional<UserStats> result = userStatsService.getStats(1);
+
+        // Assert
+        assertTrue(result.isPresent());
+        assertEquals(4.5, result.get().averageStars(), 1e-9);
+        verify(userStatsRepository, times(1)).findByUserId(1);
+    }
+
+    /**
+     * Rating and favorite events are written to the projection and applied to the cached entry.
+     */
+    @Test
+    void testEvents_UpdateCachedStats() throws SQLException {
+        // Arrange
+        when(userStatsRepository.findByUserId(1)).thenReturn(Optional.empty());
+        when(userRepository.findById(1)).thenReturn(Optional.of(new User("alice", "pw")));
+        when(userStatsRepository.applyDelta(anyInt(), anyInt(), anyInt(), anyInt(), anyInt()))
+                .thenReturn(List.of("Sci-Fi"));
+        userStatsService.getStats(1);
+
+        // Act
+        userStatsService.onRatingSaved(new Rating(1, 7, 4, null));
+        userStatsService.onRatingUpdated(new Rating(1, 7, 2, null), 4);
+        userStatsService.onFavoriteAdded(1, 7);
+
+        // Assert
+        UserStats stats = userStatsService.getStats(1).orElseThrow();
+        assertEquals(1, stats.ratingCount());
+        assertEquals(2.0, stats.averageStars(), 1e-9);
+        assertEquals(1, stats.favoriteCount());
+        assertEquals("Sci-Fi", stats.topGenre());
+        verify(userStatsRepository).applyDelta(1, 7, 0, -2, 0);
+        verify(userStatsRepository, times(1)).findByUserId(1);
+    }
+
+    /**
+     * A load that overlaps a write may have read the old row and is therefore not cached.
+     */
+    @Test
+    void testGetStats_DoesNotCacheLoadOverlappingWrite() throws SQLException {
+        // Arrange - the event is applied while the profile is being loaded
+        UserStats before = new UserStats(1, 1, 3, 0, Map.of(), Map.of());
+        when(userStatsRepository.applyDelta(anyInt(), anyInt(), anyInt(), anyInt(), anyInt())).thenReturn(List.of());
+        when(userStatsRepository.findByUserId(1))
+                .thenAnswer(invocation -> {
+                    userStatsService.onRatingSaved(new Rating(1, 7, 5, null));
+                    return Optional.of(before);
+                })
+                .thenReturn(Optional.of(new UserStats(1, 2, 8, 0, Map.of(), Map.of())));
+
+        // Act
+        userStatsService.getStats(1);
+        UserStats reloaded = userStatsService.getStats(1).orElseThrow();
+
+        // Assert
+        assertEquals(2, reloaded.ratingCount());
+        verify(userStatsRepository, times(2)).findByUserId(1);
+    }
+
+    /**
+     * A failed delta marks the user, and the next reconcile recomputes that user from the raw tables.
+     */
+    @Test
+    void testReconcileDirty_RecomputesUsersWithFailedDelta() throws SQLException {
+        // Arrange
+        when(userStatsRepository.applyDelta(anyInt(), anyInt(), anyInt(), anyInt(), anyInt()))
+                .thenThrow(new SQLException("connection reset", "08006"));
+        userStatsService.onRatingSaved(new Rating(3, 7, 4, null));
+
+        // Act
+        int first = userStatsService.reconcileDirty();
+        int second = userStatsService.reconcileDirty();
+
+        // Assert
+        assertEquals(1, first);
+        assertEquals(0, second);
+        verify(userStatsRepository, times(1)).reconcile(3);
+    }
+
+    /**
+     * A batch from the rating ingestion is written with one statement; unchanged stars produce no delta and
+     * cached profiles receive the same changes.
+     */
+    @Test
+    void testRatingsUpserted_OneStatementPerBatch() throws SQLException {
+        // Arrange
+        when(userStatsRepository.findByUserId(1)).thenReturn(Optional.of(UserStats.empty(1)));
+        userStatsService.getStats(1);
+        when(userStatsRepository.applyDeltas(anyList())).thenReturn(List.of(List.of("Drama"), List.of()));
+        Rating updated = new Rating(2, 8, 5, null);
+
+        // Act
+        userStatsService.onRatingsUpserted(List.of(
+                new RatingListener.Upsert(new Rating(1, 7, 4, null), null),
+                new RatingListener.Upsert(updated, 3),
+                new RatingListener.Upsert(new Rating(2, 9, 2, null), 2)));
+
+        // Assert
+        verify(userStatsRepository).applyDeltas(List.of(
+                new UserStatsRepository.Delta(1, 7, 1, 4, 0),
+                new UserStatsRepository.Delta(2, 8, 0, 2, 0)));
+        verify(userStatsRepository, never()).applyDelta(anyInt(), anyInt(), anyInt(), anyInt(), anyInt());
+        UserStats cached = userStatsService.getStats(1).orElseThrow();
+        assertEquals(1, cached.ratingCount());
+        assertEquals(Map.of("Drama", 1), cached.ratedGenres());
+    }
+
+    /**
+     * A failed batch marks every user in it for the reconcile.
+     */
+    @Test
+    void testRatingsUpserted_FailureMarksAllUsersDirty() throws SQLException {
+        // Arrange
+        when(userStatsRepository.applyDeltas(anyList())).thenThrow(new SQLException("deadlock detected", "40P01"));
+
+        // Act
+        userStatsService.onRatingsUpserted(List.of(
+                new RatingListener.Upsert(new Rating(4, 7, 4, null), null),
+                new RatingListener.Upsert(new Rating(5, 7, 1, null), null)));
+        int reconciled = userStatsService.reconcileDirty();
+
+        // Assert
+        assertEquals(2, reconciled);
+        verify(userStatsRepository).reconcile(4);
+        verify(userStatsRepository).reconcile(5);
+    }
+
+    /**
+     * Unknown users have no profile.
+     */
+    @Test
+    void testGetStats_UnknownUser() throws SQLException {
+        // Arrange
+        when(userStatsRepository.findByUserId(99)).thenReturn(Optional.empty());
+        when(userRepository.findById(99)).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertTrue(userStatsService.getStats(99).isEmpty());
+    }
+}